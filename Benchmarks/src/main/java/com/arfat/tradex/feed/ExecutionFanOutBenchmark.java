@@ -0,0 +1,74 @@
+package com.arfat.tradex.feed;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Order;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Multicast of executions to {@code subscribers} subscriptions of the {@link ExecutionFeed}. <br>
+ * {@code publish} is the cost paid by the matching thread per execution, whatever the number of subscribers.
+ * {@code fanOut} publishes {@value #BATCH} executions and lets every subscriber read them,
+ * its score is the time per delivered execution.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutionFanOutBenchmark {
+
+    static final int BATCH = 64;
+    static final int SUBSCRIBERS = 1000;
+
+    @Param({"" + SUBSCRIBERS})
+    int subscribers;
+
+    private ExecutionFeed feed;
+    private ExecutionSubscription[] subscriptions;
+    private Order incoming;
+    private Order counter;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        feed = new ExecutionFeed();
+        subscriptions = new ExecutionSubscription[subscribers];
+        for (int i = 0; i < subscribers; i++) {
+            subscriptions[i] = feed.subscribe(execution -> true);
+        }
+        incoming = new Order("APL", 100.0, 1, Direction.BUY);
+        incoming.setId(1);
+        counter = new Order("APL", 100.0, 1, Direction.SELL);
+        counter.setId(2);
+    }
+
+    @Benchmark
+    public void publish() {
+        feed.onExecution(incoming, counter, counter.getPriceTicks(), 1);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH * SUBSCRIBERS)
+    public void fanOut(Blackhole blackhole) {
+        for (int i = 0; i < BATCH; i++) {
+            feed.onExecution(incoming, counter, counter.getPriceTicks(), 1);
+        }
+        var handler = new ExecutionSubscription.Handler() {
+            @Override
+            public void onExecution(Execution execution) {
+                blackhole.consume(execution);
+            }
+
+            @Override
+            public void onGap(long missed) {
+                throw new IllegalStateException("Subscriber overrun by " + missed);
+            }
+        };
+        for (var subscription : subscriptions) {
+            subscription.poll(handler, BATCH);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.arfat.tradex.load;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Instrument;
+
+/**
+ * One order of the synthetic flow, in ticks and lots of its instrument.
+ *
+ * @param aggressive true if it was priced to cross the mid, false if it was priced to rest
+ */
+public record FlowOrder(Instrument instrument, Direction direction, long priceTicks, long amountLots,
+                        boolean aggressive) {
+}
@@ -0,0 +1,86 @@
+package com.arfat.tradex.load;
+
+import com.arfat.tradex.order.model.IdGenerator;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+/**
+ * Sends the flow to {@code POST /orders} and {@code DELETE /orders/{id}} of a running instance.
+ */
+public final class HttpTarget implements LoadTarget {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final URI orders;
+    private final String ordersPath;
+    private final HttpClient client;
+
+    /**
+     * @param baseUri e.g. {@code http://localhost:8080}
+     */
+    public HttpTarget(URI baseUri) {
+        this.orders = baseUri.resolve("/orders");
+        this.ordersPath = orders + "/";
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(TIMEOUT)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    @Override
+    public CompletableFuture<Long> place(FlowOrder order) {
+        var instrument = order.instrument();
+        var body = """
+                {"asset": "%s", "price": %s, "amount": %s, "direction": "%s"}"""
+                .formatted(instrument.getAsset(),
+                        instrument.getTickSize().multiply(BigDecimal.valueOf(order.priceTicks())).toPlainString(),
+                        instrument.getLotSize().multiply(BigDecimal.valueOf(order.amountLots())).toPlainString(),
+                        order.direction());
+        var request = HttpRequest.newBuilder(orders)
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).thenApply(response -> {
+            if (201 != response.statusCode()) {
+                throw new IllegalStateException("Order rejected with status " + response.statusCode());
+            }
+            var location = response.headers().firstValue("Location")
+                    .orElseThrow(() -> new IllegalStateException("Order accepted without a location"));
+            return IdGenerator.parse(location.substring(location.lastIndexOf('/') + 1));
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> cancel(long orderId) {
+        var request = HttpRequest.newBuilder(URI.create(ordersPath + IdGenerator.format(orderId)))
+                .timeout(TIMEOUT)
+                .DELETE()
+                .build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).thenApply(response -> {
+            // 400 when the order executed before the cancel arrived
+            if (200 != response.statusCode() && 400 != response.statusCode()) {
+                throw new IllegalStateException("Cancel failed with status " + response.statusCode());
+            }
+            return 200 == response.statusCode();
+        });
+    }
+
+    @Override
+    public String describe() {
+        return "HTTP " + orders + ", heap and GC of the load generator, the instance exports its own on /actuator/prometheus";
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+}
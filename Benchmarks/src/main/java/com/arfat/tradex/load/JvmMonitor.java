@@ -0,0 +1,80 @@
+package com.arfat.tradex.load;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+
+/**
+ * Heap and GC pauses of this JVM per reporting interval, from the notifications the collectors send after
+ * every collection. Concurrent cycles are not pauses and are left out.
+ */
+final class JvmMonitor implements AutoCloseable {
+
+    private final NotificationListener listener = (notification, handback) -> {
+        if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            onCollection(GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData()));
+        }
+    };
+
+    private long pauses;
+    private long pauseMillis;
+    private long maxPauseMillis;
+    private long heapAfterGc = -1;
+
+    JvmMonitor() {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) collector).addNotificationListener(listener, null, null);
+        }
+    }
+
+    private synchronized void onCollection(GarbageCollectionNotificationInfo info) {
+        // G1 Concurrent GC, ZGC Major Cycles and the like run next to the application
+        var name = info.getGcName();
+        if (name.contains("Concurrent") || name.contains("Cycles")) {
+            return;
+        }
+        long duration = info.getGcInfo().getDuration();
+        pauses++;
+        pauseMillis += duration;
+        maxPauseMillis = Math.max(maxPauseMillis, duration);
+        heapAfterGc = info.getGcInfo().getMemoryUsageAfterGc().values().stream()
+                .mapToLong(MemoryUsage::getUsed)
+                .sum();
+    }
+
+    /**
+     * @return the pauses since the previous interval, and the heap now
+     */
+    synchronized Interval nextInterval() {
+        var interval = new Interval(pauses, pauseMillis, maxPauseMillis,
+                ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(), heapAfterGc);
+        pauses = 0;
+        pauseMillis = 0;
+        maxPauseMillis = 0;
+        return interval;
+    }
+
+    @Override
+    public void close() {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            try {
+                ((NotificationEmitter) collector).removeNotificationListener(listener);
+            } catch (ListenerNotFoundException ignored) {
+                // never added
+            }
+        }
+    }
+
+    /**
+     * @param heapAfterGc heap still in use after the latest collection, -1 before the first one.
+     *                    Growth of this value over hours is what a leak looks like
+     */
+    record Interval(long pauses, long pauseMillis, long maxPauseMillis, long heapUsed, long heapAfterGc) {
+    }
+}
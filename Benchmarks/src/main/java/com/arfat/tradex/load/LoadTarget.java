@@ -0,0 +1,28 @@
+package com.arfat.tradex.load;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Where the {@link SoakRunner} sends the flow: the engine in this JVM, or a running instance over HTTP.
+ * Both calls return without waiting for the engine.
+ */
+public interface LoadTarget extends AutoCloseable {
+
+    /**
+     * @return the id of the accepted order
+     */
+    CompletableFuture<Long> place(FlowOrder order);
+
+    /**
+     * @return false if the order had executed before the cancel arrived
+     */
+    CompletableFuture<Boolean> cancel(long orderId);
+
+    /**
+     * @return what {@link JvmMonitor} measures, the heap and the GC pauses of this JVM or of the load generator
+     */
+    String describe();
+
+    @Override
+    void close();
+}
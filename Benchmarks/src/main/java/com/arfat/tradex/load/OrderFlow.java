@@ -0,0 +1,96 @@
+package com.arfat.tradex.load;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Instrument;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic order flow that looks like a market instead of a fixed list of orders:
+ * <ul>
+ *     <li>arrivals are a Poisson process, the gaps between orders are exponentially distributed</li>
+ *     <li>assets are Zipf distributed, a few assets take most of the orders as on a real venue</li>
+ *     <li>the mid price of every asset random-walks one tick at a time as its orders arrive</li>
+ *     <li>passive orders rest up to {@code depth} ticks behind the mid, aggressive ones cross it by a few ticks</li>
+ * </ul>
+ * The flow is deterministic for a seed. Not thread-safe, one generator per sending thread.
+ */
+public final class OrderFlow {
+
+    /**
+     * Mid price in ticks that every asset starts at
+     */
+    private static final long START_MID = 1_000_000;
+    private static final int CROSSING_TICKS = 3;
+    private static final int MAX_LOTS = 10;
+
+    private final SplittableRandom random;
+    private final Instrument[] instruments;
+    private final double[] cumulativeWeights;
+    private final long[] mids;
+    private final double meanGapNanos;
+    private final double aggressiveShare;
+    private final int depth;
+
+    /**
+     * @param assets          number of assets, named {@code LOAD-0} upwards from the most to the least traded
+     * @param zipfExponent    skew of the asset popularity, 0 trades every asset alike
+     * @param ratePerSecond   mean number of orders per second
+     * @param aggressiveShare share of the orders that cross the mid, between 0 and 1
+     * @param depth           ticks behind the mid that passive orders spread over
+     */
+    public OrderFlow(long seed, int assets, double zipfExponent, double ratePerSecond, double aggressiveShare,
+                     int depth) {
+        if (assets <= 0 || ratePerSecond <= 0 || depth <= 0 || aggressiveShare < 0 || aggressiveShare > 1) {
+            throw new IllegalArgumentException("Invalid order flow settings");
+        }
+        this.random = new SplittableRandom(seed);
+        this.instruments = new Instrument[assets];
+        this.cumulativeWeights = new double[assets];
+        this.mids = new long[assets];
+        double total = 0;
+        for (int rank = 0; rank < assets; rank++) {
+            instruments[rank] = Instrument.of("LOAD-" + rank);
+            total += 1 / Math.pow(rank + 1, zipfExponent);
+            cumulativeWeights[rank] = total;
+        }
+        for (int rank = 0; rank < assets; rank++) {
+            cumulativeWeights[rank] /= total;
+        }
+        Arrays.fill(mids, START_MID);
+        this.meanGapNanos = 1e9 / ratePerSecond;
+        this.aggressiveShare = aggressiveShare;
+        this.depth = depth;
+    }
+
+    /**
+     * @return nanoseconds until the next order arrives
+     */
+    public long nextGapNanos() {
+        // inverse of the exponential distribution, 1 - u keeps the logarithm away from 0
+        return (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+    }
+
+    public FlowOrder nextOrder() {
+        int asset = nextAsset();
+        long mid = mids[asset] + random.nextInt(3) - 1;
+        mids[asset] = Math.max(mid, depth + CROSSING_TICKS + 1);
+        mid = mids[asset];
+
+        var direction = random.nextBoolean() ? Direction.BUY : Direction.SELL;
+        int sign = Direction.BUY == direction ? 1 : -1;
+        long amountLots = 1 + random.nextInt(MAX_LOTS);
+        if (random.nextDouble() < aggressiveShare) {
+            long price = mid + sign * (1 + random.nextInt(CROSSING_TICKS));
+            return new FlowOrder(instruments[asset], direction, price, amountLots, true);
+        }
+        long price = mid - sign * random.nextInt(depth);
+        return new FlowOrder(instruments[asset], direction, price, amountLots, false);
+    }
+
+    private int nextAsset() {
+        int index = Arrays.binarySearch(cumulativeWeights, random.nextDouble());
+        return Math.min(index < 0 ? -index - 1 : index, cumulativeWeights.length - 1);
+    }
+}
@@ -0,0 +1,258 @@
+package com.arfat.tradex.load;
+
+import com.arfat.tradex.order.EngineTarget;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Soak test: sends a realistic {@link OrderFlow} to the engine in this JVM or to a running instance for as long as
+ * configured, and prints every interval the throughput, the latency percentiles, the heap and the GC pauses,
+ * so that slow growth and periodic stalls show up over hours.
+ * <pre>
+ * java -cp Benchmarks/target/benchmarks.jar com.arfat.tradex.load.SoakRunner --target=engine --rate=50000 --duration=PT2H
+ * java -cp Benchmarks/target/benchmarks.jar com.arfat.tradex.load.SoakRunner --target=http://localhost:8080 --rate=5000
+ * </pre>
+ * The load is open: orders are sent when the flow says they arrive, whether or not earlier ones have completed,
+ * and the latency of an order counts from its arrival. An engine that stalls is charged for every order
+ * that arrived meanwhile, instead of the stall hiding behind a client that waited. At most
+ * {@code max-in-flight} orders are outstanding, arrivals beyond that queue up in the sender.
+ * <p>
+ * A share of the arrivals cancels a recent passive order instead, like the quote updates of market makers,
+ * which keeps the books from growing without bound.
+ */
+public final class SoakRunner {
+
+    private static final Map<String, String> DEFAULTS = Map.ofEntries(
+            Map.entry("target", "engine"),
+            Map.entry("rate", "20000"),
+            Map.entry("duration", "PT10M"),
+            Map.entry("interval", "PT10S"),
+            Map.entry("assets", "100"),
+            Map.entry("zipf", "1.1"),
+            Map.entry("aggressive", "0.1"),
+            Map.entry("cancel", "0.3"),
+            Map.entry("depth", "50"),
+            Map.entry("seed", "42"),
+            Map.entry("partitions", "0"),
+            Map.entry("archive", ""),
+            Map.entry("max-in-flight", "10000"),
+            Map.entry("histogram-log", ""));
+    private static final int RECENT_ORDERS = 1 << 16;
+    private static final long PARK_THRESHOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final LoadTarget target;
+    private final OrderFlow flow;
+    private final SplittableRandom random;
+    private final double cancelShare;
+    private final Duration duration;
+    private final Duration interval;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final PrintStream out;
+    private final HistogramLogWriter histogramLog;
+
+    private final Recorder placeLatencies = new Recorder(3);
+    private final Recorder cancelLatencies = new Recorder(3);
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+    private final AtomicLong lateCancels = new AtomicLong();
+    /**
+     * Ids of passive orders recently accepted, the candidates for cancels
+     */
+    private final AtomicLongArray recentOrders = new AtomicLongArray(RECENT_ORDERS);
+    private final AtomicLong recentOrderCount = new AtomicLong();
+    private long reportedNanos;
+
+    SoakRunner(LoadTarget target, OrderFlow flow, long seed, double cancelShare, Duration duration, Duration interval,
+               int maxInFlight, PrintStream out, HistogramLogWriter histogramLog) {
+        this.target = target;
+        this.flow = flow;
+        this.random = new SplittableRandom(seed);
+        this.cancelShare = cancelShare;
+        this.duration = duration;
+        this.interval = interval;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.out = out;
+        this.histogramLog = histogramLog;
+    }
+
+    public static void main(String[] args) throws Exception {
+        var settings = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            var name = arg.startsWith("--") && separator > 2 ? arg.substring(2, separator) : null;
+            if (null == name || !DEFAULTS.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown argument " + arg + ", expected --name=value of " + DEFAULTS.keySet());
+            }
+            settings.put(name, arg.substring(separator + 1));
+        }
+        long seed = Long.parseLong(settings.get("seed"));
+        var flow = new OrderFlow(seed,
+                Integer.parseInt(settings.get("assets")),
+                Double.parseDouble(settings.get("zipf")),
+                Double.parseDouble(settings.get("rate")),
+                Double.parseDouble(settings.get("aggressive")),
+                Integer.parseInt(settings.get("depth")));
+        var histogramLogFile = settings.get("histogram-log");
+        try (var target = target(settings);
+             var histogramStream = histogramLogFile.isBlank() ? null : new PrintStream(histogramLogFile)) {
+            var histogramLog = null == histogramStream ? null : new HistogramLogWriter(histogramStream);
+            System.out.println("Soak test against " + target.describe() + ", settings " + settings);
+            new SoakRunner(target, flow, seed, Double.parseDouble(settings.get("cancel")),
+                    Duration.parse(settings.get("duration")), Duration.parse(settings.get("interval")),
+                    Integer.parseInt(settings.get("max-in-flight")), System.out, histogramLog).run();
+        }
+    }
+
+    private static LoadTarget target(Map<String, String> settings) {
+        var target = settings.get("target");
+        if ("engine".equals(target)) {
+            var archive = settings.get("archive");
+            return new EngineTarget(Integer.parseInt(settings.get("partitions")), archive.isBlank() ? null : Path.of(archive));
+        }
+        if (target.startsWith("http://") || target.startsWith("https://")) {
+            return new HttpTarget(URI.create(target));
+        }
+        throw new IllegalArgumentException("Target must be engine or the base URL of an instance, not " + target);
+    }
+
+    /**
+     * Sends the flow until the duration is over and every order has completed.
+     *
+     * @return latencies of all the placed orders in nanoseconds
+     */
+    Histogram run() throws InterruptedException {
+        var total = new Histogram(3);
+        try (var monitor = new JvmMonitor();
+             var reporter = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("soak-report").daemon().factory())) {
+            long started = System.nanoTime();
+            reportedNanos = started;
+            if (null != histogramLog) {
+                histogramLog.outputLogFormatVersion();
+                histogramLog.outputStartTime(System.currentTimeMillis());
+                histogramLog.outputLegend();
+            }
+            out.printf("%8s %9s %9s %7s %9s %9s %9s %9s %9s %8s %8s %6s %7s %7s%n",
+                    "seconds", "orders/s", "cancels/s", "failed", "p50 ms", "p99 ms", "p99.9 ms", "max ms",
+                    "in flight", "heap MB", "live MB", "GCs", "GC ms", "max GC");
+            reporter.scheduleAtFixedRate(() -> report(started, monitor, total),
+                    interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+
+            send(started);
+            // every order has completed once all permits are back
+            inFlight.acquire(maxInFlight);
+            inFlight.release(maxInFlight);
+            reporter.shutdown();
+            reporter.awaitTermination(1, TimeUnit.MINUTES);
+            report(started, monitor, total);
+        }
+        out.printf("total: %d orders, %d failed, %d cancels too late, p50 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, p99.99 %.3f ms, max %.3f ms%n",
+                total.getTotalCount(), failures.get(), lateCancels.get(), millis(total, 50), millis(total, 99),
+                millis(total, 99.9), millis(total, 99.99), total.getMaxValue() / 1e6);
+        return total;
+    }
+
+    private void send(long started) throws InterruptedException {
+        long end = started + duration.toNanos();
+        long arrival = started;
+        while (true) {
+            arrival += flow.nextGapNanos();
+            if (arrival - end >= 0) {
+                return;
+            }
+            long wait = arrival - System.nanoTime();
+            if (wait > PARK_THRESHOLD_NANOS) {
+                LockSupport.parkNanos(wait - PARK_THRESHOLD_NANOS);
+            }
+            while (arrival - System.nanoTime() > 0) {
+                Thread.onSpinWait();
+            }
+            inFlight.acquire();
+            long recent = recentOrderCount.get();
+            if (recent > 0 && random.nextDouble() < cancelShare) {
+                cancel(arrival, recentOrders.get(random.nextInt((int) Math.min(recent, RECENT_ORDERS))));
+            } else {
+                place(arrival, flow.nextOrder());
+            }
+        }
+    }
+
+    private void place(long arrival, FlowOrder order) {
+        target.place(order).whenComplete((orderId, ex) -> {
+            placeLatencies.recordValue(System.nanoTime() - arrival);
+            if (null != ex) {
+                fail(ex);
+            } else if (!order.aggressive()) {
+                recentOrders.set((int) (recentOrderCount.getAndIncrement() & (RECENT_ORDERS - 1)), orderId);
+            }
+            inFlight.release();
+        });
+    }
+
+    private void cancel(long arrival, long orderId) {
+        target.cancel(orderId).whenComplete((cancelled, ex) -> {
+            cancelLatencies.recordValue(System.nanoTime() - arrival);
+            if (null != ex) {
+                fail(ex);
+            } else if (!cancelled) {
+                lateCancels.incrementAndGet();
+            }
+            inFlight.release();
+        });
+    }
+
+    private void fail(Throwable ex) {
+        failures.incrementAndGet();
+        firstFailure.compareAndSet(null, ex);
+    }
+
+    private synchronized void report(long started, JvmMonitor monitor, Histogram total) {
+        var placed = placeLatencies.getIntervalHistogram();
+        var cancelled = cancelLatencies.getIntervalHistogram();
+        total.add(placed);
+        if (null != histogramLog) {
+            histogramLog.outputIntervalHistogram(placed);
+        }
+        long now = System.nanoTime();
+        double seconds = (now - reportedNanos) / 1e9;
+        reportedNanos = now;
+        var jvm = monitor.nextInterval();
+        var line = String.format("%8d %9.0f %9.0f %7d %9.3f %9.3f %9.3f %9.3f %9d %8d %8s %6d %7d %7d",
+                TimeUnit.NANOSECONDS.toSeconds(now - started),
+                placed.getTotalCount() / seconds, cancelled.getTotalCount() / seconds, failures.get(),
+                millis(placed, 50), millis(placed, 99), millis(placed, 99.9), placed.getMaxValue() / 1e6,
+                maxInFlight - inFlight.availablePermits(), jvm.heapUsed() >> 20,
+                jvm.heapAfterGc() < 0 ? "-" : String.valueOf(jvm.heapAfterGc() >> 20),
+                jvm.pauses(), jvm.pauseMillis(), jvm.maxPauseMillis());
+        if (target instanceof EngineTarget engine) {
+            line += String.format(" %d orders in the state", engine.orderCount());
+        }
+        out.println(line);
+        // one cause per interval, the rest likely failed the same way
+        var failure = firstFailure.getAndSet(null);
+        if (null != failure) {
+            out.println("         failed: " + failure);
+        }
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1e6;
+    }
+}
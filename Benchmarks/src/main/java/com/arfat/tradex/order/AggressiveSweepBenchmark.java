@@ -0,0 +1,51 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Order;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.arfat.tradex.order.BookFixture.LOTS;
+import static com.arfat.tradex.order.BookFixture.MID;
+
+/**
+ * A buy order that takes the best {@code levels} ask levels, followed by the passive sells that
+ * restore them, so every invocation sweeps the same book.
+ * Subtract {@link PassiveInsertBenchmark} x levels to isolate the sweep.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AggressiveSweepBenchmark {
+
+    @Param({"1", "16"})
+    int assets;
+
+    @Param({"100", "10000"})
+    int depth;
+
+    @Param({"1", "10", "100"})
+    int levels;
+
+    private BookFixture fixture;
+    private int sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new BookFixture(assets, depth);
+    }
+
+    @Benchmark
+    public void sweep(Blackhole blackhole) {
+        var instrument = fixture.instrument(sequence++);
+        blackhole.consume(fixture.engine.placeOrder(new Order(instrument, MID + levels, LOTS * levels, Direction.BUY)));
+        for (int level = 1; level <= levels; level++) {
+            blackhole.consume(fixture.engine.placeOrder(new Order(instrument, MID + level, LOTS, Direction.SELL)));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Instrument;
+import com.arfat.tradex.order.model.Instruments;
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.persistence.StateMachine;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Engine with pre-filled books shared by the benchmarks. <br>
+ * Every asset rests {@code depth} bid levels below and {@code depth} ask levels above {@link #MID},
+ * one order of {@link #LOTS} per level.
+ */
+final class BookFixture {
+
+    static final long MID = 1_000_000;
+    static final long LOTS = 100;
+
+    final StateMachine persistence = new StateMachine();
+    final DefaultOrderService engine = new DefaultOrderService(persistence);
+    final Instrument[] instruments;
+    final List<Long> restingIds = new ArrayList<>();
+
+    BookFixture(int assets, int depth) {
+        var registry = new Instruments();
+        instruments = new Instrument[assets];
+        for (int i = 0; i < assets; i++) {
+            instruments[i] = registry.register("ASSET-" + i, new BigDecimal("0.01"), BigDecimal.ONE)
+                    .get("ASSET-" + i);
+            for (int level = 1; level <= depth; level++) {
+                restingIds.add(engine.placeOrder(new Order(instruments[i], MID - level, LOTS, Direction.BUY)).getId());
+                restingIds.add(engine.placeOrder(new Order(instruments[i], MID + level, LOTS, Direction.SELL)).getId());
+            }
+        }
+    }
+
+    Instrument instrument(int index) {
+        return instruments[index % instruments.length];
+    }
+}
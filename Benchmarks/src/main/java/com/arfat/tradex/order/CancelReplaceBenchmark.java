@@ -0,0 +1,52 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Order;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.arfat.tradex.order.BookFixture.LOTS;
+import static com.arfat.tradex.order.BookFixture.MID;
+
+/**
+ * A market maker requoting: every operation cancels one resting order and places its replacement
+ * one level further out, wrapping around the resting depth.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CancelReplaceBenchmark {
+
+    @Param({"1", "16"})
+    int assets;
+
+    @Param({"10", "1000", "10000"})
+    int depth;
+
+    private BookFixture fixture;
+    private Order[] quotes;
+    private int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        fixture = new BookFixture(assets, depth);
+        quotes = fixture.restingIds.stream().map(fixture.engine::getOrder).toArray(Order[]::new);
+        next = 0;
+    }
+
+    @Benchmark
+    public Order cancelReplace() {
+        var quote = quotes[next];
+        fixture.engine.cancelOrder(quote.getId());
+
+        long offset = Math.abs(quote.getPriceTicks() - MID) % depth + 1;
+        long price = Direction.BUY == quote.getDirection() ? MID - offset : MID + offset;
+        quotes[next] = fixture.engine.placeOrder(new Order(quote.getInstrument(), price, LOTS, quote.getDirection()));
+        next = (next + 1) % quotes.length;
+        return quotes[next];
+    }
+}
@@ -0,0 +1,61 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Order;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.arfat.tradex.order.BookFixture.LOTS;
+import static com.arfat.tradex.order.BookFixture.MID;
+
+/**
+ * {@code StateMachine.getOrder} from several reader threads while one thread keeps matching,
+ * the way status polls hit the engine in production.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentLookupBenchmark {
+
+    @Param({"1", "16"})
+    int assets;
+
+    @Param({"1000", "10000"})
+    int depth;
+
+    private BookFixture fixture;
+    private long[] ids;
+    private long sequence;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        fixture = new BookFixture(assets, depth);
+        ids = fixture.restingIds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Crosses the touch with every other order, so the book is constantly filled and replenished.
+     */
+    @Benchmark
+    @Group("lookupWhileMatching")
+    @GroupThreads(1)
+    public Order matching() {
+        long n = sequence++;
+        var instrument = fixture.instrument((int) n);
+        return (n & 1) == 0 ?
+                fixture.engine.placeOrder(new Order(instrument, MID + 1, LOTS, Direction.BUY)) :
+                fixture.engine.placeOrder(new Order(instrument, MID + 1, LOTS, Direction.SELL));
+    }
+
+    @Benchmark
+    @Group("lookupWhileMatching")
+    @GroupThreads(3)
+    public Order lookup() {
+        return fixture.persistence.getOrder(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+}
@@ -0,0 +1,70 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.book.PriceLadder;
+import com.arfat.tradex.load.FlowOrder;
+import com.arfat.tradex.load.LoadTarget;
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.persistence.StateMachine;
+import com.arfat.tradex.persistence.journal.FileOrderArchive;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends the flow to a {@link PartitionedOrderService} in this JVM, configured like the Orchestrator configures it.
+ */
+public final class EngineTarget implements LoadTarget {
+
+    private final StateMachine state;
+    private final PartitionedOrderService engine;
+    private final int partitions;
+
+    /**
+     * @param partitions matching threads, 0 for one per core
+     * @param archive    directory that executed orders are moved to, null keeps every order in memory
+     */
+    public EngineTarget(int partitions, Path archive) {
+        this.partitions = partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors();
+        this.state = null == archive
+                ? new StateMachine()
+                : new StateMachine(PriceLadder.DEFAULT_CAPACITY, FileOrderArchive.open(archive), StateMachine.DEFAULT_CACHE_SIZE);
+        this.engine = new PartitionedOrderService(state, this.partitions, 1024);
+    }
+
+    @Override
+    public CompletableFuture<Long> place(FlowOrder order) {
+        return engine.placeOrderAsync(new Order(order.instrument(), order.priceTicks(), order.amountLots(),
+                order.direction())).thenApply(Order::getId);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> cancel(long orderId) {
+        return engine.cancelOrderAsync(orderId)
+                .thenApply(order -> true)
+                // the order executed before the cancel arrived
+                .exceptionally(ex -> {
+                    if (ex.getCause() instanceof IllegalArgumentException || ex instanceof IllegalArgumentException) {
+                        return false;
+                    }
+                    throw ex instanceof RuntimeException runtime ? runtime : new IllegalStateException(ex);
+                });
+    }
+
+    @Override
+    public String describe() {
+        return "engine in this JVM, " + partitions + " partitions, heap and GC of the engine";
+    }
+
+    /**
+     * @return orders in the live index, grows with the resting orders, and with every order without an archive
+     */
+    public int orderCount() {
+        return state.orderCount();
+    }
+
+    @Override
+    public void close() {
+        engine.close();
+        state.close();
+    }
+}
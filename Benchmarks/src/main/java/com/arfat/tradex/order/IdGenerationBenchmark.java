@@ -0,0 +1,38 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.order.model.IdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of an order id: the random UUID the engine used to draw per order against the {@link IdGenerator}.
+ * {@code formatted} adds the base32 text that the API writes out. Run with {@code -t 4} to see the
+ * generator under contention, all threads share one generator the way the partitions do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGenerationBenchmark {
+
+    private final IdGenerator ids = new IdGenerator(0);
+
+    @Benchmark
+    public String uuid() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public long generated() {
+        return ids.next();
+    }
+
+    @Benchmark
+    public String formatted() {
+        return IdGenerator.format(ids.next());
+    }
+}
@@ -0,0 +1,86 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Instrument;
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.persistence.StateMachine;
+import com.arfat.tradex.persistence.journal.Journal;
+import com.arfat.tradex.persistence.journal.JournaledStateMachine;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static com.arfat.tradex.order.BookFixture.LOTS;
+import static com.arfat.tradex.order.BookFixture.MID;
+
+/**
+ * Time to rebuild the engine from a journal of {@code events} orders and fills,
+ * i.e. the recovery time per million events with the default parameter. <br>
+ * The journal is written once per trial by a 90% passive / 10% aggressive flow over {@code assets}.
+ * Replay reads the segments through the page cache, so this measures decoding and matching state rebuild,
+ * not a cold disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class JournalRecoveryBenchmark {
+
+    @Param({"1", "16"})
+    int assets;
+
+    @Param({"1000000"})
+    int events;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("tradex-journal");
+        var instruments = new Instrument[assets];
+        for (int i = 0; i < assets; i++) {
+            instruments[i] = new Instrument("ASSET-" + i, new BigDecimal("0.01"), BigDecimal.ONE);
+        }
+
+        var random = new SplittableRandom(42);
+        try (var persistence = new JournaledStateMachine(new StateMachine(), directory, Journal.DEFAULT_SEGMENT_SIZE)) {
+            var engine = new DefaultOrderService(persistence);
+            int written = 0;
+            for (int sequence = 0; written < events; sequence++) {
+                var instrument = instruments[sequence % assets];
+                var direction = random.nextBoolean() ? Direction.BUY : Direction.SELL;
+                int offset = 1 + random.nextInt(100);
+                long price = 0 == random.nextInt(10)
+                        // aggressive, crosses the spread
+                        ? Direction.BUY == direction ? MID + offset : MID - offset
+                        : Direction.BUY == direction ? MID - offset : MID + offset;
+                var order = engine.placeOrder(new Order(instrument, price, LOTS, direction));
+                written += 1 + order.getTrades().size();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void recover(Blackhole blackhole) {
+        try (var persistence = new JournaledStateMachine(new StateMachine(), directory, Journal.DEFAULT_SEGMENT_SIZE)) {
+            blackhole.consume(persistence.orderBook("ASSET-0", Direction.BUY).size());
+        }
+    }
+}
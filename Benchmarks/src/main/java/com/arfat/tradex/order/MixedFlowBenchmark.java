@@ -0,0 +1,69 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Order;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.arfat.tradex.order.BookFixture.LOTS;
+import static com.arfat.tradex.order.BookFixture.MID;
+
+/**
+ * 90% passive inserts within the resting depth, 10% aggressive orders crossing the first few levels.
+ * The flow is generated up front so the random generator stays out of the measurement.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MixedFlowBenchmark {
+
+    private static final int FLOW_SIZE = 1 << 16;
+    private static final int CROSSING_LEVELS = 3;
+
+    @Param({"1", "16"})
+    int assets;
+
+    @Param({"10", "1000", "10000"})
+    int depth;
+
+    private final long[] prices = new long[FLOW_SIZE];
+    private final long[] amounts = new long[FLOW_SIZE];
+    private final Direction[] directions = new Direction[FLOW_SIZE];
+
+    private BookFixture fixture;
+    private int sequence;
+
+    @Setup(Level.Trial)
+    public void generateFlow() {
+        var random = new SplittableRandom(42);
+        for (int i = 0; i < FLOW_SIZE; i++) {
+            boolean buy = random.nextBoolean();
+            directions[i] = buy ? Direction.BUY : Direction.SELL;
+            if (random.nextInt(10) == 0) {
+                prices[i] = buy ? MID + CROSSING_LEVELS : MID - CROSSING_LEVELS;
+                amounts[i] = LOTS * (1 + random.nextInt(CROSSING_LEVELS));
+            } else {
+                long offset = 1 + random.nextInt(depth);
+                prices[i] = buy ? MID - offset : MID + offset;
+                amounts[i] = LOTS;
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        fixture = new BookFixture(assets, depth);
+    }
+
+    @Benchmark
+    public Order mixedFlow() {
+        int n = sequence++;
+        int i = n & (FLOW_SIZE - 1);
+        return fixture.engine.placeOrder(new Order(fixture.instrument(n), prices[i], amounts[i], directions[i]));
+    }
+}
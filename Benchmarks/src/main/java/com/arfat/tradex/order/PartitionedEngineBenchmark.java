@@ -0,0 +1,74 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.persistence.StateMachine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.arfat.tradex.order.BookFixture.LOTS;
+import static com.arfat.tradex.order.BookFixture.MID;
+
+/**
+ * End to end {@link PartitionedOrderService#placeOrder} from several client threads,
+ * showing how throughput scales with the number of assets spread over the partitions.
+ * {@code placeBatch} places the same flow {@value #BATCH} orders at a time, scores are orders per second for both.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(16)
+@Fork(1)
+public class PartitionedEngineBenchmark {
+
+    static final int BATCH = 100;
+
+    @Param({"1", "4", "16"})
+    int assets;
+
+    @Param({"0"})
+    int partitions;
+
+    private PartitionedOrderService engine;
+    private BookFixture fixture;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        fixture = new BookFixture(assets, 0);
+        int partitionCount = partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors();
+        engine = new PartitionedOrderService(new StateMachine(), partitionCount, 1024);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Benchmark
+    public Order placeOrder() {
+        var random = ThreadLocalRandom.current();
+        var instrument = fixture.instrument(random.nextInt(assets));
+        var direction = random.nextBoolean() ? Direction.BUY : Direction.SELL;
+        return engine.placeOrder(new Order(instrument, MID - 5 + random.nextInt(10), LOTS, direction));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<Order> placeBatch() {
+        var random = ThreadLocalRandom.current();
+        List<Order> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            var instrument = fixture.instrument(random.nextInt(assets));
+            var direction = random.nextBoolean() ? Direction.BUY : Direction.SELL;
+            batch.add(new Order(instrument, MID - 5 + random.nextInt(10), LOTS, direction));
+        }
+        return engine.placeOrders(batch).stream().map(CompletableFuture::join).toList();
+    }
+}
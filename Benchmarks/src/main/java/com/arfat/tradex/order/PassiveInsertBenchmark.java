@@ -0,0 +1,46 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Order;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.arfat.tradex.order.BookFixture.LOTS;
+import static com.arfat.tradex.order.BookFixture.MID;
+
+/**
+ * Orders that do not cross and only join the book, spread over the resting depth.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PassiveInsertBenchmark {
+
+    @Param({"1", "16"})
+    int assets;
+
+    @Param({"10", "1000", "10000"})
+    int depth;
+
+    private BookFixture fixture;
+    private long sequence;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        fixture = new BookFixture(assets, depth);
+    }
+
+    @Benchmark
+    public Order passiveInsert() {
+        long n = sequence++;
+        var instrument = fixture.instrument((int) n);
+        long offset = 1 + n % depth;
+        return (n / assets & 1) == 0 ?
+                fixture.engine.placeOrder(new Order(instrument, MID - offset, LOTS, Direction.BUY)) :
+                fixture.engine.placeOrder(new Order(instrument, MID + offset, LOTS, Direction.SELL));
+    }
+}
@@ -0,0 +1,88 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Instrument;
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.persistence.StateMachine;
+import com.arfat.tradex.persistence.journal.JournalPosition;
+import com.arfat.tradex.persistence.journal.Snapshot;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static com.arfat.tradex.order.BookFixture.LOTS;
+import static com.arfat.tradex.order.BookFixture.MID;
+
+/**
+ * Writing and restoring a snapshot of {@code orders} orders, 90% of them resting and 10% filled
+ * against the resting ones. Divide {@code orders} by the score for the throughput in orders per millisecond.
+ * The file stays in the page cache, so this measures encoding and decoding rather than the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SnapshotBenchmark {
+
+    @Param({"1", "16"})
+    int assets;
+
+    @Param({"1000000"})
+    int orders;
+
+    private Path directory;
+    private StateMachine state;
+    private Path snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("tradex-snapshot");
+        var instruments = new Instrument[assets];
+        for (int i = 0; i < assets; i++) {
+            instruments[i] = new Instrument("ASSET-" + i, new BigDecimal("0.01"), BigDecimal.ONE);
+        }
+
+        state = new StateMachine();
+        var engine = new DefaultOrderService(state);
+        var random = new SplittableRandom(42);
+        for (int sequence = 0; sequence < orders; sequence++) {
+            var direction = random.nextBoolean() ? Direction.BUY : Direction.SELL;
+            int offset = 1 + random.nextInt(100);
+            long price = 0 == random.nextInt(10)
+                    // aggressive, crosses the spread
+                    ? Direction.BUY == direction ? MID + offset : MID - offset
+                    : Direction.BUY == direction ? MID - offset : MID + offset;
+            engine.placeOrder(new Order(instruments[sequence % assets], price, LOTS, direction));
+        }
+        snapshot = Snapshot.write(directory, JournalPosition.START, state);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Path write() {
+        return Snapshot.write(directory, JournalPosition.START, state);
+    }
+
+    @Benchmark
+    public void restore(Blackhole blackhole) {
+        var restored = new StateMachine();
+        blackhole.consume(Snapshot.restore(snapshot, restored));
+        blackhole.consume(restored.orderBook("ASSET-0", Direction.BUY).size());
+    }
+}
@@ -0,0 +1,77 @@
+package com.arfat.tradex.persistence;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.IdGenerator;
+import com.arfat.tradex.order.model.Order;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup of an order by id in the {@link OrderIndex} against the {@link ConcurrentHashMap} keyed by
+ * UUID strings that the {@link StateMachine} used before, over {@code orders} indexed orders.
+ * The put suites add and remove an order, the way an order passes through the live index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderIndexBenchmark {
+
+    @Param({"10000", "1000000"})
+    int orders;
+
+    private final IdGenerator ids = new IdGenerator(0);
+    private OrderIndex index;
+    private Map<String, Order> map;
+    private long[] keys;
+    private String[] uuids;
+    private Order order;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new OrderIndex();
+        map = new ConcurrentHashMap<>();
+        keys = new long[orders];
+        uuids = new String[orders];
+        for (int i = 0; i < orders; i++) {
+            var order = new Order("APL", 100.0, 1, Direction.BUY);
+            order.setId(ids.next());
+            keys[i] = order.getId();
+            uuids[i] = UUID.randomUUID().toString();
+            index.put(order);
+            map.put(uuids[i], order);
+        }
+        order = new Order("APL", 100.0, 1, Direction.BUY);
+    }
+
+    @Benchmark
+    public Order indexGet() {
+        return index.get(keys[ThreadLocalRandom.current().nextInt(orders)]);
+    }
+
+    @Benchmark
+    public Order mapGet() {
+        return map.get(uuids[ThreadLocalRandom.current().nextInt(orders)]);
+    }
+
+    @Benchmark
+    public void indexPut() {
+        order.setId(ids.next());
+        index.put(order);
+        index.remove(order.getId());
+    }
+
+    @Benchmark
+    public void mapPut() {
+        var id = UUID.randomUUID().toString();
+        map.put(id, order);
+        map.remove(id);
+    }
+}
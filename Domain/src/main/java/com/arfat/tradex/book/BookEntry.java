@@ -0,0 +1,20 @@
+package com.arfat.tradex.book;
+
+/**
+ * Intrusive links of an order resting in an {@link OrderBook}. <br>
+ * Orders carry their own queue pointers, so linking and unlinking an order
+ * from its price level is O(1) and needs no extra node allocation.
+ * The links are only visible to the book implementations.
+ */
+public abstract class BookEntry {
+    BookEntry previous;
+    BookEntry next;
+    PriceLevel level;
+
+    /**
+     * @return true if the order currently rests in a book
+     */
+    public final boolean isResting() {
+        return null != level;
+    }
+}
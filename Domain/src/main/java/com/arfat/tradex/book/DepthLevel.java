@@ -0,0 +1,11 @@
+package com.arfat.tradex.book;
+
+/**
+ * Aggregated resting quantity at one price of a book.
+ *
+ * @param priceTicks price of the level in ticks
+ * @param volumeLots sum of the pending quantity of the orders at this price, in lots
+ * @param orders     number of orders at this price
+ */
+public record DepthLevel(long priceTicks, long volumeLots, int orders) {
+}
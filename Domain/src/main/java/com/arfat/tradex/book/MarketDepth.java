@@ -0,0 +1,232 @@
+package com.arfat.tradex.book;
+
+import com.arfat.tradex.order.model.Direction;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Level 2 view of the books of one asset: volume and order count per price. <br>
+ * Written only by the thread that matches the asset, as orders rest and fill, and read from any thread
+ * without locking. A reader sees every level in a consistent state, but levels may belong to
+ * slightly different moments while matching goes on.
+ * <p>
+ * Levels are updated in place under a sequence lock, so an order that rests at or fills against an
+ * existing price allocates nothing. Only a price that appears or empties changes the map.
+ * The best bid and ask are cached next to the map, reading the top of the book is O(1).
+ */
+public final class MarketDepth {
+
+    private static final Comparator<Level> BY_PRICE = Comparator.comparingLong(level -> level.priceTicks);
+
+    private final ConcurrentNavigableMap<Level, Level> bids = new ConcurrentSkipListMap<>(BY_PRICE.reversed());
+    private final ConcurrentNavigableMap<Level, Level> asks = new ConcurrentSkipListMap<>(BY_PRICE);
+    /**
+     * Lookup key of the writer, reused so that finding a level does not allocate
+     */
+    private final Level probe = new Level(0);
+    /**
+     * Resting orders and price levels per side, indexed by {@link Direction#ordinal()}
+     */
+    private final AtomicIntegerArray orderCounts = new AtomicIntegerArray(2);
+    private final AtomicIntegerArray levelCounts = new AtomicIntegerArray(2);
+    /**
+     * Best price per side, indexed by {@link Direction#ordinal()}, {@link OrderBook#NO_PRICE} while it is empty
+     */
+    private final AtomicLongArray bestPrices = new AtomicLongArray(new long[]{OrderBook.NO_PRICE, OrderBook.NO_PRICE});
+
+    /**
+     * An order started resting in the book.
+     */
+    public void add(Direction side, long priceTicks, long pendingLots) {
+        var levels = levels(side);
+        var level = find(levels, priceTicks);
+        if (null == level) {
+            level = new Level(priceTicks);
+            level.set(pendingLots, 1);
+            levels.put(level, level);
+            increment(levelCounts, side, 1);
+            long best = bestPrices.get(side.ordinal());
+            if (OrderBook.NO_PRICE == best || (Direction.BUY == side ? priceTicks > best : priceTicks < best)) {
+                bestPrices.lazySet(side.ordinal(), priceTicks);
+            }
+        } else {
+            level.set(level.volumeLots + pendingLots, level.orders + 1);
+        }
+        increment(orderCounts, side, 1);
+    }
+
+    /**
+     * A resting order was executed, fully or partially.
+     *
+     * @param executedLots executed quantity
+     * @param removed      true when the order left the book
+     */
+    public void fill(Direction side, long priceTicks, long executedLots, boolean removed) {
+        var levels = levels(side);
+        var level = find(levels, priceTicks);
+        if (null == level) {
+            return;
+        }
+        int orders = removed ? level.orders - 1 : level.orders;
+        if (0 == orders) {
+            levels.remove(level);
+            increment(levelCounts, side, -1);
+            if (priceTicks == bestPrices.get(side.ordinal())) {
+                var next = levels.firstEntry();
+                bestPrices.lazySet(side.ordinal(), null == next ? OrderBook.NO_PRICE : next.getKey().priceTicks);
+            }
+        }
+        level.set(level.volumeLots - executedLots, orders);
+        if (removed) {
+            increment(orderCounts, side, -1);
+        }
+    }
+
+    /**
+     * A resting order left the book without being executed, e.g. it was cancelled.
+     *
+     * @param pendingLots quantity the order still had
+     */
+    public void remove(Direction side, long priceTicks, long pendingLots) {
+        fill(side, priceTicks, pendingLots, true);
+    }
+
+    /**
+     * @param side     BUY for the bids, SELL for the asks
+     * @param maxLevels number of levels to return at most
+     * @return the best {@code maxLevels} levels of the side, best price first
+     */
+    public List<DepthLevel> levels(Direction side, int maxLevels) {
+        List<DepthLevel> levels = new ArrayList<>(Math.min(maxLevels, 64));
+        for (var level : levels(side).keySet()) {
+            if (levels.size() == maxLevels) {
+                break;
+            }
+            var snapshot = level.read();
+            // emptied after the iterator found it
+            if (snapshot.orders() > 0) {
+                levels.add(snapshot);
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * Whether the side holds the volume at prices up to the limit, summing the levels from the best one
+     * until the volume is reached or the limit is passed. <br>
+     * Called by the writer only: it reads the levels as they are, without the sequence lock.
+     *
+     * @param side            BUY for the bids, SELL for the asks
+     * @param limitPriceTicks worst price to count, the lowest bid or the highest ask
+     * @param volumeLots      volume wanted
+     */
+    public boolean hasVolume(Direction side, long limitPriceTicks, long volumeLots) {
+        long available = 0;
+        for (var level : levels(side).keySet()) {
+            if (Direction.BUY == side ? level.priceTicks < limitPriceTicks : level.priceTicks > limitPriceTicks) {
+                break;
+            }
+            available += level.volumeLots;
+            if (available >= volumeLots) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return number of orders resting on the side
+     */
+    public int orderCount(Direction side) {
+        return orderCounts.get(side.ordinal());
+    }
+
+    /**
+     * @return number of prices with resting orders on the side
+     */
+    public int levelCount(Direction side) {
+        return levelCounts.get(side.ordinal());
+    }
+
+    /**
+     * @return price in ticks of the best level of the side, {@link OrderBook#NO_PRICE} if it is empty
+     */
+    public long bestPrice(Direction side) {
+        return bestPrices.get(side.ordinal());
+    }
+
+    /**
+     * Only the writer changes the counts, so a plain read and an ordered write are enough.
+     */
+    private static void increment(AtomicIntegerArray counts, Direction side, int delta) {
+        int index = side.ordinal();
+        counts.lazySet(index, counts.get(index) + delta);
+    }
+
+    private Level find(ConcurrentNavigableMap<Level, Level> levels, long priceTicks) {
+        probe.priceTicks = priceTicks;
+        return levels.get(probe);
+    }
+
+    private ConcurrentNavigableMap<Level, Level> levels(Direction side) {
+        return Direction.BUY == side ? bids : asks;
+    }
+
+    /**
+     * Mutable level under a sequence lock: the version is odd while the writer changes the fields,
+     * a reader retries until it read both fields under the same even version.
+     */
+    private static final class Level {
+        private static final VarHandle VERSION;
+
+        static {
+            try {
+                VERSION = MethodHandles.lookup().findVarHandle(Level.class, "version", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        /**
+         * Only changed on the {@link #probe}, a level in the map keeps its price
+         */
+        private long priceTicks;
+        private volatile long version;
+        private long volumeLots;
+        private int orders;
+
+        private Level(long priceTicks) {
+            this.priceTicks = priceTicks;
+        }
+
+        void set(long volumeLots, int orders) {
+            long next = version + 1;
+            VERSION.setOpaque(this, next);
+            VarHandle.storeStoreFence();
+            this.volumeLots = volumeLots;
+            this.orders = orders;
+            VERSION.setRelease(this, next + 1);
+        }
+
+        DepthLevel read() {
+            while (true) {
+                long before = (long) VERSION.getAcquire(this);
+                long volume = volumeLots;
+                int count = orders;
+                VarHandle.loadLoadFence();
+                if (0 == (before & 1) && before == (long) VERSION.getOpaque(this)) {
+                    return new DepthLevel(priceTicks, volume, count);
+                }
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
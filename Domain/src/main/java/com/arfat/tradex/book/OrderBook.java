@@ -0,0 +1,65 @@
+package com.arfat.tradex.book;
+
+import com.arfat.tradex.order.model.Order;
+
+import java.util.function.Consumer;
+
+/**
+ * Resting orders of one side (BUY or SELL) of one asset, in price-time priority. <br>
+ * Implementations are not thread safe: a book must only be used by the thread that owns its asset.
+ */
+public interface OrderBook {
+
+    /**
+     * Returned by {@link #bestPrice()} when the book is empty.
+     */
+    long NO_PRICE = Long.MIN_VALUE;
+
+    boolean isEmpty();
+
+    /**
+     * @return price in ticks of the best level (highest bid or lowest ask), {@link #NO_PRICE} if empty
+     */
+    long bestPrice();
+
+    /**
+     * @return the oldest order at the best price, null if empty
+     */
+    Order bestOrder();
+
+    /**
+     * Checks the incoming price against the cached best price only, without touching the resting orders.
+     * Every order at the best level crosses when this is true, and none of the book does when it is false.
+     *
+     * @param priceTicks limit price in ticks of an order of the other side
+     * @return true if the order can trade with the best resting order
+     */
+    boolean crosses(long priceTicks);
+
+    /**
+     * Appends the order to the end of the queue at its price.
+     */
+    void add(Order order);
+
+    /**
+     * Unlinks the order from its price level, dropping the level when it becomes empty.
+     *
+     * @throws IllegalArgumentException if the order does not rest in this book
+     */
+    void remove(Order order);
+
+    /**
+     * @return number of resting orders
+     */
+    int size();
+
+    /**
+     * @return number of non-empty price levels
+     */
+    int levels();
+
+    /**
+     * Visits all resting orders from the best price to the worst, oldest first within a price.
+     */
+    void forEach(Consumer<Order> action);
+}
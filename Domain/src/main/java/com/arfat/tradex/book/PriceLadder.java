@@ -0,0 +1,239 @@
+package com.arfat.tradex.book;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.IdGenerator;
+import com.arfat.tradex.order.model.Order;
+
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * {@link OrderBook} for liquid assets. <br>
+ * Prices inside a window of {@code capacity} ticks are indexed directly into an array of
+ * {@link PriceLevel}s, prices outside of it (outliers) fall back to a sparse {@link TreeMap}.
+ * The best price is cached, so reading the top of the book, telling whether an order crosses it,
+ * inserting and removing an order are O(1); only emptying the best level scans towards the next non-empty one.
+ * The window is re-centred on the incoming price whenever it holds no orders.
+ */
+public final class PriceLadder implements OrderBook {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final Direction side;
+    private final PriceLevel[] window;
+    private final NavigableMap<Long, PriceLevel> outliers = new TreeMap<>();
+
+    /**
+     * Price in ticks of {@code window[0]}
+     */
+    private long base;
+    private int windowOrders;
+    private int size;
+    private int levels;
+    private long bestPrice = NO_PRICE;
+
+    public PriceLadder(Direction side) {
+        this(side, DEFAULT_CAPACITY);
+    }
+
+    public PriceLadder(Direction side, int capacity) {
+        if (null == side) {
+            throw new IllegalArgumentException("Direction must either BUY or SELL");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Ladder capacity must be greater than zero");
+        }
+        this.side = side;
+        this.window = new PriceLevel[capacity];
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return 0 == size;
+    }
+
+    @Override
+    public long bestPrice() {
+        return bestPrice;
+    }
+
+    @Override
+    public Order bestOrder() {
+        return isEmpty() ? null : (Order) levelAt(bestPrice).head;
+    }
+
+    @Override
+    public boolean crosses(long priceTicks) {
+        if (isEmpty()) {
+            return false;
+        }
+        return Direction.BUY == side ? priceTicks <= bestPrice : priceTicks >= bestPrice;
+    }
+
+    @Override
+    public void add(Order order) {
+        if (order.isResting()) {
+            throw new IllegalArgumentException("Order " + IdGenerator.format(order.getId()) + " already rests in a book");
+        }
+        long price = order.getPriceTicks();
+        if (0 == windowOrders && !inWindow(price)) {
+            recentre(price);
+        }
+
+        PriceLevel level;
+        if (inWindow(price)) {
+            int index = (int) (price - base);
+            level = window[index];
+            if (null == level) {
+                level = window[index] = new PriceLevel(this);
+            }
+            windowOrders++;
+        } else {
+            level = outliers.computeIfAbsent(price, k -> new PriceLevel(this));
+        }
+
+        if (level.isEmpty()) {
+            levels++;
+        }
+        level.append(order);
+        size++;
+
+        if (NO_PRICE == bestPrice || isBetter(price, bestPrice)) {
+            bestPrice = price;
+        }
+    }
+
+    @Override
+    public void remove(Order order) {
+        var level = ((BookEntry) order).level;
+        if (null == level || level.book != this) {
+            throw new IllegalArgumentException("Order " + IdGenerator.format(order.getId()) + " does not rest in this book");
+        }
+        long price = order.getPriceTicks();
+        level.unlink(order);
+        size--;
+        if (inWindow(price)) {
+            windowOrders--;
+        }
+        if (!level.isEmpty()) {
+            return;
+        }
+
+        levels--;
+        if (!inWindow(price)) {
+            outliers.remove(price);
+        }
+        if (price == bestPrice) {
+            bestPrice = findBestPrice(price);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int levels() {
+        return levels;
+    }
+
+    /**
+     * @return number of price levels outside the window, kept in the sorted map
+     */
+    int outlierLevels() {
+        return outliers.size();
+    }
+
+    @Override
+    public void forEach(Consumer<Order> action) {
+        long windowEnd = base + window.length;
+        if (Direction.BUY == side) {
+            forEachIn(outliers.tailMap(windowEnd, true).descendingMap(), action);
+            for (int i = window.length - 1; i >= 0; i--) {
+                forEachIn(window[i], action);
+            }
+            forEachIn(outliers.headMap(base, false).descendingMap(), action);
+        } else {
+            forEachIn(outliers.headMap(base, false), action);
+            for (PriceLevel level : window) {
+                forEachIn(level, action);
+            }
+            forEachIn(outliers.tailMap(windowEnd, true), action);
+        }
+    }
+
+    private static void forEachIn(NavigableMap<Long, PriceLevel> levels, Consumer<Order> action) {
+        for (PriceLevel level : levels.values()) {
+            forEachIn(level, action);
+        }
+    }
+
+    private static void forEachIn(PriceLevel level, Consumer<Order> action) {
+        if (null == level) {
+            return;
+        }
+        for (BookEntry entry = level.head; null != entry; ) {
+            // read the link first, the action may remove the order from the book
+            BookEntry next = entry.next;
+            action.accept((Order) entry);
+            entry = next;
+        }
+    }
+
+    /**
+     * Finds the best non-empty price after the level at {@code emptiedPrice} was dropped.
+     * Walks the window from the emptied price towards worse prices, then compares with the best outlier.
+     */
+    private long findBestPrice(long emptiedPrice) {
+        if (isEmpty()) {
+            return NO_PRICE;
+        }
+        long candidate = NO_PRICE;
+        if (windowOrders > 0) {
+            int step = Direction.BUY == side ? -1 : 1;
+            int index = (int) Math.clamp(emptiedPrice - base, 0, window.length - 1);
+            for (; index >= 0 && index < window.length; index += step) {
+                var level = window[index];
+                if (null != level && !level.isEmpty()) {
+                    candidate = base + index;
+                    break;
+                }
+            }
+        }
+        if (!outliers.isEmpty()) {
+            long outlier = Direction.BUY == side ? outliers.lastKey() : outliers.firstKey();
+            if (NO_PRICE == candidate || isBetter(outlier, candidate)) {
+                candidate = outlier;
+            }
+        }
+        return candidate;
+    }
+
+    /**
+     * Moves the empty window so that it is centred on {@code price},
+     * pulling in the outlier levels that now fall inside it.
+     */
+    private void recentre(long price) {
+        base = price - window.length / 2;
+        var covered = outliers.subMap(base, true, base + window.length, false);
+        for (var entry : covered.entrySet()) {
+            window[(int) (entry.getKey() - base)] = entry.getValue();
+            windowOrders += entry.getValue().size;
+        }
+        covered.clear();
+    }
+
+    private PriceLevel levelAt(long price) {
+        return inWindow(price) ? window[(int) (price - base)] : outliers.get(price);
+    }
+
+    private boolean inWindow(long price) {
+        return price >= base && price - base < window.length;
+    }
+
+    private boolean isBetter(long price, long than) {
+        return Direction.BUY == side ? price > than : price < than;
+    }
+}
@@ -0,0 +1,49 @@
+package com.arfat.tradex.book;
+
+/**
+ * FIFO queue of the orders resting at one price, linked through their {@link BookEntry} pointers.
+ */
+final class PriceLevel {
+    final OrderBook book;
+    BookEntry head;
+    BookEntry tail;
+    int size;
+
+    PriceLevel(OrderBook book) {
+        this.book = book;
+    }
+
+    boolean isEmpty() {
+        return 0 == size;
+    }
+
+    void append(BookEntry order) {
+        order.previous = tail;
+        order.next = null;
+        order.level = this;
+        if (null == tail) {
+            head = order;
+        } else {
+            tail.next = order;
+        }
+        tail = order;
+        size++;
+    }
+
+    void unlink(BookEntry order) {
+        if (null == order.previous) {
+            head = order.next;
+        } else {
+            order.previous.next = order.next;
+        }
+        if (null == order.next) {
+            tail = order.previous;
+        } else {
+            order.next.previous = order.previous;
+        }
+        order.previous = null;
+        order.next = null;
+        order.level = null;
+        size--;
+    }
+}
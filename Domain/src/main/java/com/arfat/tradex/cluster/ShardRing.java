@@ -0,0 +1,119 @@
+package com.arfat.tradex.cluster;
+
+import com.arfat.tradex.order.model.IdGenerator;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Consistent-hash ring that assigns every asset to the node owning its books. <br>
+ * Every node is placed on the ring at {@code replicas} points, an asset belongs to the node of the first point
+ * at or after the hash of its name. Adding a node only moves the assets that now fall in front of its points,
+ * about {@code 1 / nodes} of them, all other assets keep their owner. Removing a node only moves its own assets.
+ * <p>
+ * Immutable, and finding the owner of an asset is a binary search that allocates nothing.
+ * Nodes are identified by the node id that is part of their order ids, see {@link IdGenerator}.
+ */
+public final class ShardRing {
+
+    public static final int DEFAULT_REPLICAS = 128;
+
+    private final int replicas;
+    private final Set<Integer> nodes;
+    /**
+     * Sorted positions of all points on the ring, and the node of every point
+     */
+    private final long[] points;
+    private final int[] owners;
+
+    public ShardRing(Collection<Integer> nodes) {
+        this(nodes, DEFAULT_REPLICAS);
+    }
+
+    public ShardRing(Collection<Integer> nodes, int replicas) {
+        if (null == nodes || nodes.isEmpty()) {
+            throw new IllegalArgumentException("Ring must have at least one node");
+        }
+        if (replicas <= 0) {
+            throw new IllegalArgumentException("Replicas must be greater than zero");
+        }
+        for (Integer node : nodes) {
+            if (null == node || node < 0 || node > IdGenerator.MAX_NODE_ID) {
+                throw new IllegalArgumentException("Node id must be between 0 and " + IdGenerator.MAX_NODE_ID);
+            }
+        }
+        this.replicas = replicas;
+        this.nodes = Set.copyOf(new TreeSet<>(nodes));
+
+        // position and node packed into one sortable pair, ties are broken by the node id
+        long[][] ring = this.nodes.stream()
+                .flatMap(node -> IntStream.range(0, replicas)
+                        .mapToObj(replica -> new long[]{mix((long) node << 32 | replica), node}))
+                .sorted((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]))
+                .toArray(long[][]::new);
+        this.points = new long[ring.length];
+        this.owners = new int[ring.length];
+        for (int i = 0; i < ring.length; i++) {
+            points[i] = ring[i][0];
+            owners[i] = (int) ring[i][1];
+        }
+    }
+
+    /**
+     * @return id of the node that owns the books of the asset
+     */
+    public int owner(String asset) {
+        if (null == asset || asset.isBlank()) {
+            throw new IllegalArgumentException("Asset must not be null or empty");
+        }
+        // String.hashCode is specified, so every node computes the same position
+        int index = Arrays.binarySearch(points, mix(asset.hashCode()));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * @return ids of the nodes on the ring
+     */
+    public Set<Integer> nodes() {
+        return nodes;
+    }
+
+    /**
+     * @return a ring that also places the node, to rebalance assets onto it
+     */
+    public ShardRing withNode(int node) {
+        var next = new TreeSet<>(nodes);
+        next.add(node);
+        return new ShardRing(next, replicas);
+    }
+
+    /**
+     * @return a ring without the node, its assets move to the next points of the remaining nodes
+     */
+    public ShardRing withoutNode(int node) {
+        var next = new TreeSet<>(nodes);
+        next.remove(node);
+        return new ShardRing(next, replicas);
+    }
+
+    @Override
+    public String toString() {
+        return nodes.stream().sorted().map(String::valueOf).collect(Collectors.joining(",", "ShardRing[", "]"));
+    }
+
+    /**
+     * Murmur3 finalizer, spreads names and node ids that differ in a few bits all over the ring.
+     */
+    private static long mix(long key) {
+        key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        key = (key ^ (key >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return key ^ (key >>> 33);
+    }
+}
@@ -0,0 +1,26 @@
+package com.arfat.tradex.feed;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Instrument;
+
+import java.time.Instant;
+
+/**
+ * One execution published on the {@link ExecutionFeed}.
+ *
+ * @param sequence          position in the feed, increases by one per execution
+ * @param instrument        traded asset
+ * @param incomingOrderId   order that took liquidity
+ * @param counterOrderId    resting order that provided it
+ * @param incomingDirection side of the incoming order
+ * @param priceTicks        execution price in ticks
+ * @param amountLots        executed quantity in lots
+ * @param timestamp         time of the execution
+ */
+public record Execution(long sequence, Instrument instrument, long incomingOrderId, long counterOrderId,
+                        Direction incomingDirection, long priceTicks, long amountLots, Instant timestamp) {
+
+    public boolean involves(long orderId) {
+        return incomingOrderId == orderId || counterOrderId == orderId;
+    }
+}
@@ -0,0 +1,153 @@
+package com.arfat.tradex.feed;
+
+import com.arfat.tradex.order.ExecutionListener;
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.EpochClock;
+import com.arfat.tradex.order.model.Instrument;
+import com.arfat.tradex.order.model.Order;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Lock-free multicast ring of the latest executions of all assets. <br>
+ * The matching threads publish by claiming a sequence and writing the slot, they never wait for
+ * and never know about the subscribers. Every {@link ExecutionSubscription} reads the ring through its
+ * own cursor; one that falls more than a ring behind is overrun and skips ahead, so a slow consumer
+ * loses executions instead of slowing down the engine.
+ * <p>
+ * The slots are allocated up front and overwritten in place, so publishing allocates nothing.
+ * A slot carries the sequence it holds, which is cleared while a publisher writes it:
+ * a subscriber copies the fields out and keeps the copy only if the sequence did not change meanwhile.
+ * A publisher clears the sequence by a compare-and-set from the one a ring earlier, so two publishers a full
+ * ring apart take turns on their slot: the later one spins until the earlier one has published.
+ */
+public final class ExecutionFeed implements ExecutionListener {
+
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    private final Slot[] ring;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+
+    public ExecutionFeed() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity number of executions kept for the subscribers, a power of two
+     */
+    public ExecutionFeed(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Feed capacity must be a power of two");
+        }
+        this.ring = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            // as if the lap before the first one was published
+            ring[i] = new Slot(i - capacity);
+        }
+        this.mask = capacity - 1;
+    }
+
+    @Override
+    public void onExecution(Order incomingOrder, Order counterOrder, long priceTicks, long amountLots) {
+        long sequence = next.getAndIncrement();
+        ring[index(sequence)].write(sequence, sequence - ring.length, incomingOrder, counterOrder, priceTicks,
+                amountLots, EpochClock.nanos());
+    }
+
+    /**
+     * Subscribes to the executions published from now on.
+     *
+     * @param filter selects the executions to deliver, e.g. those of one asset
+     */
+    public ExecutionSubscription subscribe(Predicate<Execution> filter) {
+        return new ExecutionSubscription(this, next.get(), filter);
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    long next() {
+        return next.get();
+    }
+
+    /**
+     * Reads the slot that holds {@code sequence} once it is published.
+     *
+     * @return the execution in the slot, which has a later sequence if the slot was overwritten already,
+     * or null if {@code sequence} is not published yet
+     */
+    Execution read(long sequence) {
+        return ring[index(sequence)].read(sequence);
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence & mask);
+    }
+
+    private static final class Slot {
+        private static final long WRITING = Long.MIN_VALUE;
+        private static final VarHandle SEQUENCE;
+
+        static {
+            try {
+                SEQUENCE = MethodHandles.lookup().findVarHandle(Slot.class, "sequence", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private volatile long sequence;
+        private Instrument instrument;
+        private long incomingOrderId;
+        private long counterOrderId;
+        private Direction incomingDirection;
+        private long priceTicks;
+        private long amountLots;
+        private long timestampNanos;
+
+        private Slot(long sequence) {
+            this.sequence = sequence;
+        }
+
+        /**
+         * @param previous the sequence the slot held a ring earlier, which must be published first
+         */
+        void write(long sequence, long previous, Order incomingOrder, Order counterOrder, long priceTicks,
+                   long amountLots, long timestampNanos) {
+            // a full fence, the subscribers see the slot cleared before any field changes
+            while (!SEQUENCE.compareAndSet(this, previous, WRITING)) {
+                Thread.onSpinWait();
+            }
+            this.instrument = incomingOrder.getInstrument();
+            this.incomingOrderId = incomingOrder.getId();
+            this.counterOrderId = counterOrder.getId();
+            this.incomingDirection = incomingOrder.getDirection();
+            this.priceTicks = priceTicks;
+            this.amountLots = amountLots;
+            this.timestampNanos = timestampNanos;
+            SEQUENCE.setRelease(this, sequence);
+        }
+
+        Execution read(long wanted) {
+            while (true) {
+                long before = (long) SEQUENCE.getAcquire(this);
+                if (before < wanted) {
+                    // not published yet, or being written
+                    return null;
+                }
+                var execution = new Execution(before, instrument, incomingOrderId, counterOrderId,
+                        incomingDirection, priceTicks, amountLots, EpochClock.toInstant(timestampNanos));
+                VarHandle.loadLoadFence();
+                if (before == (long) SEQUENCE.getOpaque(this)) {
+                    return execution;
+                }
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.arfat.tradex.feed;
+
+import java.util.function.Predicate;
+
+/**
+ * Cursor of one subscriber over the {@link ExecutionFeed}. <br>
+ * Not thread safe: a subscription must be polled by one thread at a time.
+ */
+public final class ExecutionSubscription {
+
+    /**
+     * Receives the executions of a {@link #poll}.
+     */
+    public interface Handler {
+
+        void onExecution(Execution execution);
+
+        /**
+         * The subscriber fell behind the feed by more than its capacity.
+         *
+         * @param missed number of executions skipped, including those the filter would have dropped
+         */
+        void onGap(long missed);
+    }
+
+    private final ExecutionFeed feed;
+    private final Predicate<Execution> filter;
+    private long cursor;
+
+    ExecutionSubscription(ExecutionFeed feed, long cursor, Predicate<Execution> filter) {
+        this.feed = feed;
+        this.cursor = cursor;
+        this.filter = filter;
+    }
+
+    /**
+     * Delivers the executions published since the last poll, oldest first.
+     *
+     * @param limit number of executions to read at most, whether the filter accepts them or not
+     * @return number of executions read, 0 if the subscriber is up to date
+     */
+    public int poll(Handler handler, int limit) {
+        int read = 0;
+        while (read < limit) {
+            var execution = feed.read(cursor);
+            if (null == execution) {
+                // not published yet
+                break;
+            }
+            if (execution.sequence() > cursor) {
+                // overrun: resume half a ring behind the publishers to get some headroom
+                long resume = Math.max(cursor + 1, feed.next() - feed.capacity() / 2);
+                handler.onGap(resume - cursor);
+                cursor = resume;
+                continue;
+            }
+            cursor++;
+            read++;
+            if (filter.test(execution)) {
+                handler.onExecution(execution);
+            }
+        }
+        return read;
+    }
+
+    /**
+     * @return sequence of the next execution this subscriber will read
+     */
+    public long position() {
+        return cursor;
+    }
+}
@@ -1,105 +1,212 @@
 package com.arfat.tradex.order;
 
+import com.arfat.tradex.book.MarketDepth;
+import com.arfat.tradex.book.OrderBook;
 import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.IdGenerator;
 import com.arfat.tradex.order.model.Order;
-import com.arfat.tradex.order.model.Trade;
+import com.arfat.tradex.order.model.OrderTrace;
+import com.arfat.tradex.order.model.TimeInForce;
 import com.arfat.tradex.persistence.Persistence;
+import com.arfat.tradex.tracing.OrderMatchEvent;
+import com.arfat.tradex.tracing.OrderPersistEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.*;
-
+import java.util.Optional;
+
+/**
+ * Price-time priority matching of a single order against the books in {@link Persistence}. <br>
+ * Holds no locks: all orders of an asset must be placed by one thread at a time,
+ * see {@link PartitionedOrderService} for the multi-threaded entry point.
+ * <p>
+ * Matching allocates nothing once the order is accepted: fills are recorded in the primitive trade arrays
+ * of the orders and published to the {@link ExecutionListener}, not to the log.
+ * Every placed order is timed and reported to the {@link OrderMetrics}, and its slow stages to JFR.
+ * Accepting an order (its entry in the order index) and opening a new price level may allocate.
+ */
 final class DefaultOrderService implements OrderService {
 
     private final static Logger log = LoggerFactory.getLogger(DefaultOrderService.class);
+    /**
+     * Stage events of the placing thread, begun and ended again for every order so that tracing allocates
+     * nothing per order, whether a recording is running or not
+     */
+    private static final ThreadLocal<OrderPersistEvent> PERSIST_EVENTS = ThreadLocal.withInitial(OrderPersistEvent::new);
+    private static final ThreadLocal<OrderMatchEvent> MATCH_EVENTS = ThreadLocal.withInitial(OrderMatchEvent::new);
     private final Persistence persistence;
+    private final ExecutionListener executionListener;
+    private final OrderMetrics metrics;
+    private final IdGenerator ids;
 
     DefaultOrderService(Persistence persistence) {
+        this(persistence, ExecutionListener.NONE);
+    }
+
+    DefaultOrderService(Persistence persistence, ExecutionListener executionListener) {
+        this(persistence, executionListener, OrderMetrics.NONE);
+    }
+
+    DefaultOrderService(Persistence persistence, ExecutionListener executionListener, OrderMetrics metrics) {
+        this(persistence, executionListener, metrics, new IdGenerator(0));
+    }
+
+    DefaultOrderService(Persistence persistence, ExecutionListener executionListener, OrderMetrics metrics,
+                        IdGenerator ids) {
         this.persistence = persistence;
+        this.executionListener = executionListener;
+        this.metrics = metrics;
+        this.ids = ids;
     }
 
     @Override
     public Order placeOrder(Order order) {
-        order.setId(UUID.randomUUID().toString());
-        log.debug("processing order with id: {}", order.getId());
+        order.setId(ids.next());
+        if (log.isDebugEnabled()) {
+            log.debug("processing order with id: {}", IdGenerator.format(order.getId()));
+        }
         return processOrder(order);
     }
 
     @Override
-    public Order getOrder(String orderId) throws OrderNotFoundException {
+    public Order getOrder(long orderId) throws OrderNotFoundException {
         return Optional.ofNullable(persistence.getOrder(orderId))
-                .orElseThrow(() -> new OrderNotFoundException("Order with ID " + orderId + " not found."));
+                .orElseThrow(() -> new OrderNotFoundException("Order with ID " + IdGenerator.format(orderId)
+                                                              + " not found."));
     }
 
+    /**
+     * Unlinks the order from its price level in O(1): the order is found by id and carries its own queue links.
+     */
+    @Override
+    public Order cancelOrder(long orderId) throws OrderNotFoundException {
+        var order = getOrder(orderId);
+        if (!order.isResting()) {
+            throw new IllegalArgumentException("Order with ID " + IdGenerator.format(orderId) + " is " + order.getStatus()
+                                               + " and can not be cancelled.");
+        }
+        persistence.orderBook(order.getAsset(), order.getDirection()).remove(order);
+        persistence.marketDepth(order.getAsset())
+                .remove(order.getDirection(), order.getPriceTicks(), order.getPendingLots());
+        order.cancel();
+        persistence.addCancel(order);
+        executionListener.onCancel(order);
+        if (log.isDebugEnabled()) {
+            log.debug("Order {} cancelled", IdGenerator.format(orderId));
+        }
+        return order;
+    }
 
-    private Trade getTrade(Order order, double assetAmount, double assetPrice) {
-        return Trade.builder()
-                .orderId(order.getId())
-                .amount(assetAmount)
-                .price(assetPrice)
-                .build();
+    @Override
+    public MarketDepth getMarketDepth(String asset) {
+        return persistence.marketDepth(asset);
     }
 
+    /**
+     * Times the stages of the order for the metrics, the JFR events and the {@link OrderTrace} it may carry.
+     */
     private Order processOrder(Order order) {
+        long accepted = System.nanoTime();
+        var persistEvent = PERSIST_EVENTS.get();
+        persistEvent.begin();
+        persistence.addOrder(order);
+        persistEvent.commit(order);
+        long persisted = System.nanoTime();
+        var matchEvent = MATCH_EVENTS.get();
+        matchEvent.begin();
+        int levelsCrossed = match(order);
+        matchEvent.commit(order, levelsCrossed);
+        long matched = System.nanoTime();
+        metrics.onOrderPlaced(order, persisted - accepted, matched - persisted, levelsCrossed);
+        var trace = order.getTrace();
+        if (null != trace) {
+            trace.mark(OrderTrace.Stage.QUEUE, accepted);
+            trace.mark(OrderTrace.Stage.PERSIST, persisted);
+            trace.mark(OrderTrace.Stage.MATCH, matched);
+        }
+        return order;
+    }
 
-        var counterOrders = isBuy(order.getDirection()) ? persistence.sellOrders() : persistence.buyOrders();
-
-        var assetOrders = counterOrders.get(order.getAsset());
+    /**
+     * Matches an accepted order and rests what is left of it, or cancels it if its {@link TimeInForce} is
+     * IOC or FOK. An order that does not cross the best counter price is rejected from matching in O(1),
+     * so a passive insert costs the same however deep the counter book is.
+     * A FOK order only matches if the crossing levels of the depth add up to its amount, so it never trades
+     * partially and no fill has to be undone.
+     *
+     * @return number of counter price levels the order traded at
+     */
+    int match(Order order) {
+        var counterDirection = isBuy(order.getDirection()) ? Direction.SELL : Direction.BUY;
+        var counterOrders = persistence.orderBook(order.getAsset(), counterDirection);
 
-        if (null != assetOrders) {
-            log.debug("Found counter orders with size: {}", assetOrders.size());
-            for (var entry : getSortedPriceEntries(order, assetOrders)) {
-                matchOrder(order, entry.getValue());
-            }
-        } else {
-            log.info("No counter orders found for asset: {}", order.getAsset());
+        int levelsCrossed = 0;
+        if (counterOrders.crosses(order.getPriceTicks()) && canFill(order, counterDirection)) {
+            levelsCrossed = matchOrder(order, counterOrders);
         }
 
         if (!order.isFullyExecuted()) {
-            log.debug("Order with ID {} is not fully executed, adding to state.", order.getId());
-            addOrderIntoState(order);
+            if (TimeInForce.GTC == order.getTimeInForce()) {
+                addOrderIntoState(order);
+            } else {
+                cancelRest(order);
+            }
         }
-
-        persistence.addOrder(order);
-        return order;
+        return levelsCrossed;
     }
 
-    private Set<Map.Entry<Double, List<Order>>> getSortedPriceEntries(Order order, NavigableMap<Double, List<Order>> assetOrders) {
-        return isBuy(order.getDirection()) ?
-                assetOrders.entrySet() :
-                assetOrders.descendingMap().entrySet();
+    /**
+     * @return false for a FOK order whose amount is not available at its limit price, true for the others
+     */
+    private boolean canFill(Order order, Direction counterDirection) {
+        return TimeInForce.FOK != order.getTimeInForce() || persistence.marketDepth(order.getAsset())
+                .hasVolume(counterDirection, order.getPriceTicks(), order.getPendingLots());
     }
 
-    private void matchOrder(Order incomingOrder, List<Order> assetOrders) {
-        var iterator = assetOrders.iterator();
-        while (iterator.hasNext() && !incomingOrder.isFullyExecuted()) {
-            var counterOrder = iterator.next();
-
-            synchronized (this) {
-                if (incomingOrder.canMatch(counterOrder)) {
-                    double assetAmount = Math.min(incomingOrder.getPendingAmount(), counterOrder.getPendingAmount());
-                    double assetPrice = counterOrder.getPrice();
-
-                    Trade buyerTrade = this.getTrade(counterOrder, assetAmount, assetPrice);
-                    Trade sellerTrade = this.getTrade(incomingOrder, assetAmount, assetPrice);
+    /**
+     * Recorded as a cancel, so that the journal and the standby drop the rest the same way.
+     */
+    private void cancelRest(Order order) {
+        order.cancel();
+        persistence.addCancel(order);
+        executionListener.onCancel(order);
+    }
 
-                    counterOrder.addTrade(sellerTrade);
-                    incomingOrder.addTrade(buyerTrade);
+    /**
+     * Matches the incoming order against the counter book in price-time priority.
+     * Only the crossing range of price levels is visited: the loop checks the cached best price of the book
+     * before each fill and stops as soon as it no longer crosses, every level behind it has a worse price.
+     *
+     * @return number of price levels the incoming order traded at
+     */
+    private int matchOrder(Order incomingOrder, OrderBook counterOrders) {
+        var depth = persistence.marketDepth(incomingOrder.getAsset());
+        long limitPrice = incomingOrder.getPriceTicks();
+        int levelsCrossed = 0;
+        long lastPrice = OrderBook.NO_PRICE;
+        while (!incomingOrder.isFullyExecuted() && counterOrders.crosses(limitPrice)) {
+            var counterOrder = counterOrders.bestOrder();
+
+            long assetAmount = Math.min(incomingOrder.getPendingLots(), counterOrder.getPendingLots());
+            long assetPrice = counterOrder.getPriceTicks();
+            if (assetPrice != lastPrice) {
+                levelsCrossed++;
+                lastPrice = assetPrice;
+            }
 
-                    persistence.addOrder(counterOrder);
+            counterOrder.addTrade(incomingOrder.getId(), assetAmount, assetPrice);
+            incomingOrder.addTrade(counterOrder.getId(), assetAmount, assetPrice);
 
-                    log.info("Matched order {} with counter order {} for asset {} at price {} with amount {}",
-                            incomingOrder.getId(), counterOrder.getId(), incomingOrder.getAsset(), assetPrice, assetAmount);
+            persistence.addFill(incomingOrder, counterOrder, assetPrice, assetAmount);
+            executionListener.onExecution(incomingOrder, counterOrder, assetPrice, assetAmount);
 
-                    //Remove the counterOrder if it is fully executed
-                    if (counterOrder.isFullyExecuted()) {
-                        log.info("Counter order {} is fully executed and will be removed from state.", counterOrder.getId());
-                        iterator.remove();
-                    }
-                }
+            //Remove the counterOrder if it is fully executed
+            if (counterOrder.isFullyExecuted()) {
+                counterOrders.remove(counterOrder);
             }
+            depth.fill(counterOrder.getDirection(), assetPrice, assetAmount, counterOrder.isFullyExecuted());
         }
-
+        return levelsCrossed;
     }
 
     /**
@@ -109,22 +216,12 @@ final class DefaultOrderService implements OrderService {
      * @param order the order to be added
      */
     private void addOrderIntoState(Order order) {
-        // Determine the state based on the order direction
-        var state = isBuy(order.getDirection()) ?
-                persistence.buyOrders() :
-                persistence.sellOrders();
-
-        // Get or create the map for the specific asset
-        state.computeIfAbsent(order.getAsset(), k -> new TreeMap<>());
-        Map<Double, List<Order>> ordersByPrice = state.get(order.getAsset());
-
-        // Get or create the list for the specific price
-        var ordersAtPrice = ordersByPrice.computeIfAbsent(order.getPrice(), k -> new ArrayList<>());
-
-        log.debug("ordersAtPrice size {}", ordersAtPrice.size());
-        // Add the order to the list
-        ordersAtPrice.add(order);
+        // Determine the book based on the asset and the order direction
+        var book = persistence.orderBook(order.getAsset(), order.getDirection());
 
+        // Queue the order at the end of its price level
+        book.add(order);
+        persistence.marketDepth(order.getAsset()).add(order.getDirection(), order.getPriceTicks(), order.getPendingLots());
     }
 
     private boolean isBuy(Direction direction) {
@@ -0,0 +1,48 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.order.model.Order;
+
+/**
+ * Notified by the matching engine of every execution and every cancel, on the thread that matches the asset. <br>
+ * Implementations must return quickly and must not block, the engine waits for them.
+ */
+@FunctionalInterface
+public interface ExecutionListener {
+
+    ExecutionListener NONE = (incomingOrder, counterOrder, priceTicks, amountLots) -> {
+    };
+
+    /**
+     * @param incomingOrder the order being matched
+     * @param counterOrder  the resting order it matched with
+     * @param priceTicks    execution price in ticks
+     * @param amountLots    executed quantity in lots
+     */
+    void onExecution(Order incomingOrder, Order counterOrder, long priceTicks, long amountLots);
+
+    /**
+     * @param order the order that was cancelled, on request or because its time in force ran out
+     */
+    default void onCancel(Order order) {
+    }
+
+    /**
+     * @return a listener that notifies this listener, then {@code next}
+     */
+    default ExecutionListener andThen(ExecutionListener next) {
+        var first = this;
+        return new ExecutionListener() {
+            @Override
+            public void onExecution(Order incomingOrder, Order counterOrder, long priceTicks, long amountLots) {
+                first.onExecution(incomingOrder, counterOrder, priceTicks, amountLots);
+                next.onExecution(incomingOrder, counterOrder, priceTicks, amountLots);
+            }
+
+            @Override
+            public void onCancel(Order order) {
+                first.onCancel(order);
+                next.onCancel(order);
+            }
+        };
+    }
+}
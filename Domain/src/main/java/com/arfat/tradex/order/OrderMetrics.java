@@ -0,0 +1,22 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.order.model.Order;
+
+/**
+ * Measurements of every placed order, reported by the matching engine on the thread that matches the asset. <br>
+ * Implementations must return quickly and must not block, the engine waits for them.
+ */
+@FunctionalInterface
+public interface OrderMetrics {
+
+    OrderMetrics NONE = (order, persistNanos, matchNanos, levelsCrossed) -> {
+    };
+
+    /**
+     * @param order         the placed order, carrying its fills as trades
+     * @param persistNanos  time spent recording the accepted order in the {@link com.arfat.tradex.persistence.Persistence}
+     * @param matchNanos    time spent matching and resting the order, including recording its fills
+     * @param levelsCrossed number of counter price levels the order traded at
+     */
+    void onOrderPlaced(Order order, long persistNanos, long matchNanos, int levelsCrossed);
+}
@@ -0,0 +1,168 @@
+package com.arfat.tradex.order;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * A single matching thread fed by a bounded ring-buffer queue. <br>
+ * Every command submitted to a partition is executed in submission order by the same thread,
+ * which makes that thread the only writer of the order books it owns.
+ * Closing runs the commands submitted before it and fails the later ones with a {@link RejectedExecutionException}.
+ * The thread is never interrupted, so a command is never cut short in the middle of its I/O.
+ */
+final class OrderPartition implements AutoCloseable {
+
+    private final static Logger log = LoggerFactory.getLogger(OrderPartition.class);
+
+    /**
+     * Queued by {@link #close()}, the partition thread stops once it took it
+     */
+    private static final Runnable STOP = () -> {
+    };
+
+    private final BlockingQueue<Runnable> queue;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    OrderPartition(String name, int queueCapacity) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be greater than zero");
+        }
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.worker = Thread.ofPlatform()
+                .name(name)
+                .daemon()
+                .start(this::run);
+    }
+
+    /**
+     * Hands the command over to the partition thread.
+     * Blocks the caller while the queue is full, which applies back-pressure to the producers.
+     *
+     * @param command the command to execute on the partition thread
+     * @return future completed with the command result once the partition has executed it,
+     * failed with a {@link RejectedExecutionException} if the partition is closed
+     */
+    <T> CompletableFuture<T> submit(Supplier<T> command) {
+        var task = new Task<>(command);
+        if (!running) {
+            return task.reject(worker.getName());
+        }
+        try {
+            queue.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while submitting to partition " + worker.getName(), e);
+        }
+        rejectIfClosed();
+        return task.result;
+    }
+
+    /**
+     * Hands the command over to the partition thread if its queue has room, for callers that must never block.
+     *
+     * @param command the command to execute on the partition thread
+     * @return future completed with the command result once the partition has executed it,
+     * failed with a {@link RejectedExecutionException} right away if the queue is full or the partition is closed
+     */
+    <T> CompletableFuture<T> offer(Supplier<T> command) {
+        var task = new Task<>(command);
+        if (!running) {
+            return task.reject(worker.getName());
+        }
+        if (!queue.offer(task)) {
+            task.result.completeExceptionally(new RejectedExecutionException("Engine is busy, try again later"));
+            return task.result;
+        }
+        rejectIfClosed();
+        return task.result;
+    }
+
+    /**
+     * A command queued while the partition closed may land behind {@link #STOP}, after the partition thread
+     * failed the commands left in the queue. Its producer fails it once the thread is gone.
+     */
+    private void rejectIfClosed() {
+        if (running || Thread.currentThread() == worker) {
+            return;
+        }
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejectQueued();
+    }
+
+    private void rejectQueued() {
+        Runnable command;
+        while ((command = queue.poll()) != null) {
+            if (command instanceof Task<?> task) {
+                task.reject(worker.getName());
+            }
+        }
+    }
+
+    private void run() {
+        while (true) {
+            Runnable command;
+            try {
+                command = queue.take();
+            } catch (InterruptedException e) {
+                log.debug("Partition {} interrupted, it only stops when closed", worker.getName());
+                continue;
+            }
+            if (STOP == command) {
+                break;
+            }
+            command.run();
+        }
+        rejectQueued();
+    }
+
+    /**
+     * Runs the commands queued so far and stops the partition thread.
+     */
+    @Override
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            queue.put(STOP);
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Task<T> implements Runnable {
+        private final Supplier<T> command;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Task(Supplier<T> command) {
+            this.command = command;
+        }
+
+        @Override
+        public void run() {
+            try {
+                result.complete(command.get());
+            } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+            }
+        }
+
+        private CompletableFuture<T> reject(String partition) {
+            result.completeExceptionally(new RejectedExecutionException("Partition " + partition + " is closed"));
+            return result;
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.arfat.tradex.order;
 
+import com.arfat.tradex.book.MarketDepth;
 import com.arfat.tradex.order.model.Order;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public interface OrderService {
     /**
      * Places an order in the system. The order will be processed immediately.
@@ -14,11 +18,95 @@ public interface OrderService {
      */
     Order placeOrder(Order order);
 
+    /**
+     * Places an order without waiting for the matching. <br>
+     * The default places the order on the calling thread and returns a completed future.
+     *
+     * @param order The order to be placed.
+     * @return future of the order state, completed exceptionally if the order is rejected
+     */
+    default CompletableFuture<Order> placeOrderAsync(Order order) {
+        try {
+            return CompletableFuture.completedFuture(placeOrder(order));
+        } catch (RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    /**
+     * Places an order like {@link #placeOrderAsync}, but never blocks the caller, e.g. an event loop. <br>
+     * The default places the order on the calling thread, which matches it without waiting for anyone.
+     *
+     * @param order The order to be placed.
+     * @return future of the order state, failed with a {@link java.util.concurrent.RejectedExecutionException}
+     * if the engine can not take the order right away
+     */
+    default CompletableFuture<Order> offerOrderAsync(Order order) {
+        return placeOrderAsync(order);
+    }
+
+    /**
+     * Places several orders at once. Orders of the same asset are matched in list order.
+     * Every order is placed on its own, one that fails does not fail the others.
+     *
+     * @param orders The orders to be placed.
+     * @return future of every order state, in the same order as {@code orders},
+     * failed with the reason if the order was not placed
+     */
+    default List<CompletableFuture<Order>> placeOrders(List<Order> orders) {
+        return orders.stream().map(this::placeOrderAsync).toList();
+    }
+
     /**
      * Retrieves an order by its ID.
      * @param orderId The ID of the order to retrieve.
      * @return The order with the specified ID.
      * @throws OrderNotFoundException if no order with the specified ID exists.
      */
-    Order getOrder(String orderId) throws OrderNotFoundException;
+    Order getOrder(long orderId) throws OrderNotFoundException;
+
+    /**
+     * Withdraws a resting order from its book. The rest of the order will not be executed anymore.
+     *
+     * @param orderId The ID of the order to cancel.
+     * @return The cancelled order.
+     * @throws OrderNotFoundException   if no order with the specified ID exists.
+     * @throws IllegalArgumentException if the order does not rest in the book anymore.
+     */
+    Order cancelOrder(long orderId) throws OrderNotFoundException;
+
+    /**
+     * Cancels an order without waiting for the partition that owns it. <br>
+     * The default cancels the order on the calling thread and returns a completed future.
+     *
+     * @param orderId The ID of the order to cancel.
+     * @return future of the cancelled order, completed exceptionally if the order can not be cancelled
+     */
+    default CompletableFuture<Order> cancelOrderAsync(long orderId) {
+        try {
+            return CompletableFuture.completedFuture(cancelOrder(orderId));
+        } catch (RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    /**
+     * Cancels an order like {@link #cancelOrderAsync}, but never blocks the caller.
+     *
+     * @param orderId The ID of the order to cancel.
+     * @return future of the cancelled order, failed with a {@link java.util.concurrent.RejectedExecutionException}
+     * if the engine can not take the cancel right away
+     */
+    default CompletableFuture<Order> offerCancelAsync(long orderId) {
+        return cancelOrderAsync(orderId);
+    }
+
+    /**
+     * Aggregated price levels of an asset, empty if the asset has no resting orders.
+     * Reading it never blocks the matching, nor allocates anything for an asset that was never traded.
+     *
+     * @param asset The traded asset.
+     * @return The live depth of the asset, null if no order of the asset was ever placed.
+     */
+    MarketDepth getMarketDepth(String asset);
 }
@@ -0,0 +1,256 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.book.MarketDepth;
+import com.arfat.tradex.order.model.IdGenerator;
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.persistence.Persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Matching engine where every asset is owned by exactly one {@link OrderPartition}. <br>
+ * Assets are spread over the partitions by hash, and all orders of an asset are matched by the
+ * partition's thread, so the order books never see concurrent writers and need no locks.
+ * Orders of different assets are matched in parallel, one asset per core at most.
+ */
+final class PartitionedOrderService implements OrderService, AutoCloseable {
+
+    private final OrderService engine;
+    private final OrderPartition[] partitions;
+
+    PartitionedOrderService(Persistence persistence, int partitionCount, int queueCapacity) {
+        this(persistence, partitionCount, queueCapacity, ExecutionListener.NONE);
+    }
+
+    /**
+     * @param executionListener notified of every execution on the partition thread of the asset
+     */
+    PartitionedOrderService(Persistence persistence, int partitionCount, int queueCapacity,
+                            ExecutionListener executionListener) {
+        this(persistence, partitionCount, queueCapacity, executionListener, OrderMetrics.NONE);
+    }
+
+    /**
+     * @param executionListener notified of every execution on the partition thread of the asset
+     * @param metrics           notified of every placed order on the partition thread of the asset
+     */
+    PartitionedOrderService(Persistence persistence, int partitionCount, int queueCapacity,
+                            ExecutionListener executionListener, OrderMetrics metrics) {
+        this(persistence, partitionCount, queueCapacity, executionListener, metrics, new IdGenerator(0));
+    }
+
+    /**
+     * @param executionListener notified of every execution on the partition thread of the asset
+     * @param metrics           notified of every placed order on the partition thread of the asset
+     * @param ids               ids of the accepted orders, shared by all partitions
+     */
+    PartitionedOrderService(Persistence persistence, int partitionCount, int queueCapacity,
+                            ExecutionListener executionListener, OrderMetrics metrics, IdGenerator ids) {
+        if (partitionCount <= 0) {
+            throw new IllegalArgumentException("Partition count must be greater than zero");
+        }
+        this.engine = new DefaultOrderService(persistence, executionListener, metrics, ids);
+        this.partitions = new OrderPartition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new OrderPartition("tradex-partition-" + i, queueCapacity);
+        }
+    }
+
+    /**
+     * Hands the order over to the partition owning its asset and waits for the matching result.
+     */
+    @Override
+    public Order placeOrder(Order order) {
+        return await(placeOrderAsync(order));
+    }
+
+    /**
+     * Hands the order over to the partition owning its asset. The future is completed on the partition thread,
+     * dependent stages that do more than a few instructions should run on an executor of their own. <br>
+     * Only blocks while the queue of the partition is full.
+     */
+    @Override
+    public CompletableFuture<Order> placeOrderAsync(Order order) {
+        return partitionFor(order.getAsset()).submit(() -> engine.placeOrder(order));
+    }
+
+    /**
+     * Hands the order over to the partition owning its asset if its queue has room, fails the future otherwise.
+     */
+    @Override
+    public CompletableFuture<Order> offerOrderAsync(Order order) {
+        return partitionFor(order.getAsset()).offer(() -> engine.placeOrder(order));
+    }
+
+    /**
+     * Groups the orders by the partition owning their asset and hands every group over as one command,
+     * so a batch costs one queue handoff per partition instead of one per order.
+     * A group is matched without interleaving orders from other callers, in list order. <br>
+     * The futures are completed on the partition threads, each with the result of its own order.
+     * A partition that rejects its group fails the futures of that group only.
+     * Only blocks while the queue of a partition is full.
+     */
+    @Override
+    public List<CompletableFuture<Order>> placeOrders(List<Order> orders) {
+        @SuppressWarnings("unchecked")
+        List<Order>[] groups = new List[partitions.length];
+        @SuppressWarnings("unchecked")
+        List<CompletableFuture<Order>>[] groupResults = new List[partitions.length];
+        List<CompletableFuture<Order>> results = new ArrayList<>(orders.size());
+        for (var order : orders) {
+            int partition = partitionIndex(order.getAsset());
+            if (null == groups[partition]) {
+                groups[partition] = new ArrayList<>();
+                groupResults[partition] = new ArrayList<>();
+            }
+            var result = new CompletableFuture<Order>();
+            groups[partition].add(order);
+            groupResults[partition].add(result);
+            results.add(result);
+        }
+
+        for (int i = 0; i < groups.length; i++) {
+            var group = groups[i];
+            var groupResult = groupResults[i];
+            if (null == group) {
+                continue;
+            }
+            partitions[i].submit(() -> {
+                for (int j = 0; j < group.size(); j++) {
+                    try {
+                        groupResult.get(j).complete(engine.placeOrder(group.get(j)));
+                    } catch (RuntimeException ex) {
+                        groupResult.get(j).completeExceptionally(ex);
+                    }
+                }
+                return null;
+            }).exceptionally(ex -> {
+                groupResult.forEach(result -> result.completeExceptionally(ex));
+                return null;
+            });
+        }
+        return results;
+    }
+
+    @Override
+    public Order getOrder(long orderId) throws OrderNotFoundException {
+        return engine.getOrder(orderId);
+    }
+
+    /**
+     * Looks the order up on the caller thread to find its asset, then cancels it on the partition owning the asset,
+     * so the cancel is ordered with the matching of the asset.
+     */
+    @Override
+    public Order cancelOrder(long orderId) throws OrderNotFoundException {
+        return await(cancelOrderAsync(orderId));
+    }
+
+    /**
+     * Looks the order up on the caller thread, an unknown order fails the future right away.
+     */
+    @Override
+    public CompletableFuture<Order> cancelOrderAsync(long orderId) {
+        Order order;
+        try {
+            order = engine.getOrder(orderId);
+        } catch (OrderNotFoundException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        return partitionFor(order.getAsset()).submit(() -> engine.cancelOrder(orderId));
+    }
+
+    /**
+     * Looks the order up on the caller thread, and fails the future if the partition owning it has no room.
+     */
+    @Override
+    public CompletableFuture<Order> offerCancelAsync(long orderId) {
+        Order order;
+        try {
+            order = engine.getOrder(orderId);
+        } catch (OrderNotFoundException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        return partitionFor(order.getAsset()).offer(() -> engine.cancelOrder(orderId));
+    }
+
+    /**
+     * Reads the depth on the caller thread, the partition keeps matching meanwhile.
+     */
+    @Override
+    public MarketDepth getMarketDepth(String asset) {
+        return engine.getMarketDepth(asset);
+    }
+
+    /**
+     * Runs the action while every partition waits between two commands, so that the state the action sees
+     * holds whole orders only: every order is either matched completely or not yet taken. <br>
+     * Matching stops for as long as the action runs, queued orders are matched afterwards.
+     * One action runs at a time: the partitions would otherwise wait for two actions each.
+     */
+    synchronized void quiesce(Runnable action) {
+        var arrived = new CountDownLatch(partitions.length);
+        var release = new CountDownLatch(1);
+        var rejected = new AtomicReference<Throwable>();
+        try {
+            for (var partition : partitions) {
+                partition.submit(() -> {
+                    arrived.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return null;
+                }).exceptionally(ex -> {
+                    // a closed partition never arrives
+                    rejected.set(ex);
+                    arrived.countDown();
+                    return null;
+                });
+            }
+            arrived.await();
+            if (null != rejected.get()) {
+                throw new RejectedExecutionException("Engine is closed", rejected.get());
+            }
+            action.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the partitions", e);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (var partition : partitions) {
+            partition.close();
+        }
+    }
+
+    private OrderPartition partitionFor(String asset) {
+        return partitions[partitionIndex(asset)];
+    }
+
+    private int partitionIndex(String asset) {
+        return Math.floorMod(asset.hashCode(), partitions.length);
+    }
+
+    private static <T> T await(CompletableFuture<T> result) {
+        try {
+            return result.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.arfat.tradex.order.model;
+
+import java.time.Instant;
+
+/**
+ * Wall clock time as a primitive count of nanoseconds since the epoch, read without allocating. <br>
+ * The wall clock is sampled once, later readings advance with {@link System#nanoTime()}:
+ * time never goes backwards, but adjustments of the system clock after startup are not followed.
+ */
+public final class EpochClock {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long OFFSET = calibrate();
+
+    private EpochClock() {
+    }
+
+    /**
+     * @return nanoseconds since 1970-01-01T00:00:00Z
+     */
+    public static long nanos() {
+        return OFFSET + System.nanoTime();
+    }
+
+    public static long toNanos(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), NANOS_PER_SECOND), instant.getNano());
+    }
+
+    public static Instant toInstant(long epochNanos) {
+        return Instant.ofEpochSecond(epochSecond(epochNanos), nanoOfSecond(epochNanos));
+    }
+
+    public static long epochSecond(long epochNanos) {
+        return Math.floorDiv(epochNanos, NANOS_PER_SECOND);
+    }
+
+    public static int nanoOfSecond(long epochNanos) {
+        return (int) Math.floorMod(epochNanos, NANOS_PER_SECOND);
+    }
+
+    private static long calibrate() {
+        return toNanos(Instant.now()) - System.nanoTime();
+    }
+}
@@ -0,0 +1,116 @@
+package com.arfat.tradex.order.model;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-ordered 64 bit ids, unique per node, generated without locks and without allocating. <br>
+ * An id packs the milliseconds since {@link #EPOCH_MILLIS} (41 bits, about 69 years), the node id
+ * (10 bits) and a sequence within the millisecond (12 bits). When a node asks for more than 4096 ids
+ * in a millisecond, or the clock steps back, the ids borrow from the next millisecond instead of waiting,
+ * so they keep increasing.
+ * <p>
+ * Outside the engine an id is written as {@value #LENGTH} characters of Crockford's base32, which sort
+ * like the ids themselves.
+ */
+public final class IdGenerator {
+
+    public static final int MAX_NODE_ID = (1 << 10) - 1;
+    public static final int LENGTH = 13;
+    /**
+     * 2024-01-01T00:00:00Z
+     */
+    static final long EPOCH_MILLIS = 1_704_067_200_000L;
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final int NODE_BITS = 10;
+    private static final char[] DIGITS = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < DIGITS.length; i++) {
+            VALUES[DIGITS[i]] = (byte) i;
+            VALUES[Character.toLowerCase(DIGITS[i])] = (byte) i;
+        }
+    }
+
+    private final long node;
+    /**
+     * Milliseconds since the epoch and sequence of the last id, without the node
+     */
+    private final AtomicLong last = new AtomicLong();
+
+    /**
+     * @param nodeId between 0 and {@value #MAX_NODE_ID}, unique among the engines sharing ids
+     */
+    public IdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.node = (long) nodeId << SEQUENCE_BITS;
+    }
+
+    /**
+     * @return an id greater than every id this generator returned before, never 0
+     */
+    public long next() {
+        long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long prev;
+        long next;
+        do {
+            prev = last.get();
+            next = Math.max(prev + 1, now);
+        } while (!last.compareAndSet(prev, next));
+        return (next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS) | node | (next & ((1 << SEQUENCE_BITS) - 1));
+    }
+
+    /**
+     * Makes every following id greater than {@code id}, e.g. the last id of another engine this one takes over from.
+     */
+    public void advancePast(long id) {
+        long floor = (id >>> (NODE_BITS + SEQUENCE_BITS)) << SEQUENCE_BITS | (id & ((1 << SEQUENCE_BITS) - 1));
+        last.accumulateAndGet(floor, Math::max);
+    }
+
+    /**
+     * @return the node id packed into {@code id}
+     */
+    public static int nodeId(long id) {
+        return (int) (id >>> SEQUENCE_BITS) & MAX_NODE_ID;
+    }
+
+    /**
+     * @return the id as {@value #LENGTH} characters of base32
+     */
+    public static String format(long id) {
+        char[] text = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            text[i] = DIGITS[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(text);
+    }
+
+    /**
+     * Reads an id written by {@link #format(long)}, in upper or lower case.
+     *
+     * @throws IllegalArgumentException if the text is not an id
+     */
+    public static long parse(String text) {
+        if (null == text || text.length() != LENGTH) {
+            throw new IllegalArgumentException("Id must have " + LENGTH + " characters");
+        }
+        // the first character holds the top 4 bits only
+        long id = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            char c = text.charAt(i);
+            int value = c < VALUES.length ? VALUES[c] : -1;
+            if (value < 0 || (0 == i && value > 15)) {
+                throw new IllegalArgumentException("Id " + text + " is not base32");
+            }
+            id = id << 5 | value;
+        }
+        return id;
+    }
+}
@@ -0,0 +1,119 @@
+package com.arfat.tradex.order.model;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+
+/**
+ * Trading rules of an asset. <br>
+ * Inside the engine prices are held as a number of ticks and quantities as a number of lots,
+ * both as scaled {@code long}s, so matching arithmetic is exact.
+ * Conversion from and to decimals only happens at the edges (API, logs).
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class Instrument {
+
+    /**
+     * A cent, so that the direct-indexed window of a {@code PriceLadder} spans a realistic spread.
+     * A tick of 8 decimal places would put nearly every price of the book outside of it
+     */
+    public static final BigDecimal DEFAULT_TICK_SIZE = new BigDecimal("0.01");
+    public static final BigDecimal DEFAULT_LOT_SIZE = new BigDecimal("0.00000001");
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18
+    };
+
+    private final String asset;
+    private final BigDecimal tickSize;
+    private final BigDecimal lotSize;
+
+    public Instrument(String asset, BigDecimal tickSize, BigDecimal lotSize) {
+        if (null == asset || asset.isBlank()) {
+            throw new IllegalArgumentException("Asset must not be null or empty");
+        }
+        this.asset = asset;
+        this.tickSize = normalize(tickSize, "Tick size");
+        this.lotSize = normalize(lotSize, "Lot size");
+    }
+
+    /**
+     * Instrument with the default tick of a cent and the default 8 decimal places of quantity.
+     */
+    public static Instrument of(String asset) {
+        return new Instrument(asset, DEFAULT_TICK_SIZE, DEFAULT_LOT_SIZE);
+    }
+
+    /**
+     * Converts a decimal price into ticks.
+     *
+     * @throws IllegalArgumentException if the price is not a multiple of the tick size
+     */
+    public long toTicks(BigDecimal price) {
+        return scale(price, tickSize, "Order price must be a multiple of tick size ");
+    }
+
+    public long toTicks(double price) {
+        return toTicks(BigDecimal.valueOf(price));
+    }
+
+    /**
+     * Converts a decimal quantity into lots.
+     *
+     * @throws IllegalArgumentException if the quantity is not a multiple of the lot size
+     */
+    public long toLots(BigDecimal amount) {
+        return scale(amount, lotSize, "Order amount must be a multiple of lot size ");
+    }
+
+    public long toLots(double amount) {
+        return toLots(BigDecimal.valueOf(amount));
+    }
+
+    public double toPrice(long ticks) {
+        return unscale(ticks, tickSize);
+    }
+
+    public double toAmount(long lots) {
+        return unscale(lots, lotSize);
+    }
+
+    private static long scale(BigDecimal value, BigDecimal size, String message) {
+        var units = value.divideAndRemainder(size);
+        if (units[1].signum() != 0) {
+            throw new IllegalArgumentException(message + size.toPlainString());
+        }
+        try {
+            return units[0].longValueExact();
+        } catch (ArithmeticException ex) {
+            throw new IllegalArgumentException(value.toPlainString() + " is out of range", ex);
+        }
+    }
+
+    /**
+     * Both the unscaled product and the power of ten are exact doubles,
+     * so the division yields the double closest to the decimal value (0.65 stays 0.65).
+     */
+    private static double unscale(long units, BigDecimal size) {
+        return (double) Math.multiplyExact(units, size.unscaledValue().longValueExact()) / POWERS_OF_TEN[size.scale()];
+    }
+
+    private static BigDecimal normalize(BigDecimal size, String name) {
+        if (null == size || size.signum() <= 0) {
+            throw new IllegalArgumentException(name + " must be greater than zero");
+        }
+        var normalized = size.stripTrailingZeros();
+        if (normalized.scale() < 0) {
+            normalized = normalized.setScale(0);
+        }
+        if (normalized.scale() >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException(name + " must not have more than " + (POWERS_OF_TEN.length - 1) + " decimal places");
+        }
+        return normalized;
+    }
+}
@@ -0,0 +1,51 @@
+package com.arfat.tradex.order.model;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Registry of the {@link Instrument} of every asset. <br>
+ * Assets that were never registered trade with the default tick and lot size.
+ * When the assets are sharded across nodes, only the assets of this node are tradable here.
+ */
+public final class Instruments {
+
+    private final Map<String, Instrument> instruments = new ConcurrentHashMap<>();
+    private final Predicate<String> tradable;
+
+    public Instruments() {
+        this(asset -> true);
+    }
+
+    /**
+     * @param tradable tells the assets that orders may be placed for on this node
+     */
+    public Instruments(Predicate<String> tradable) {
+        this.tradable = tradable;
+    }
+
+    /**
+     * Registers the tick size and lot size of an asset. Must happen before the first order of the asset.
+     *
+     * @return this registry for method chaining
+     */
+    public Instruments register(String asset, BigDecimal tickSize, BigDecimal lotSize) {
+        instruments.put(asset, new Instrument(asset, tickSize, lotSize));
+        return this;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the asset is empty or not traded on this node
+     */
+    public Instrument get(String asset) {
+        if (null == asset || asset.isBlank()) {
+            throw new IllegalArgumentException("Asset must not be null or empty");
+        }
+        if (!tradable.test(asset)) {
+            throw new IllegalArgumentException("Asset " + asset + " is not traded on this node");
+        }
+        return instruments.computeIfAbsent(asset, Instrument::of);
+    }
+}
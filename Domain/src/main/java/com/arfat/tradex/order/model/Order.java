@@ -1,35 +1,146 @@
 package com.arfat.tradex.order.model;
 
+import com.arfat.tradex.book.BookEntry;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.time.Instant;
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 
+/**
+ * An order and its executions. <br>
+ * Matching an order allocates nothing: the timestamp is a primitive, and the trades are kept in
+ * primitive arrays sized for {@value #INITIAL_TRADES} trades up front, which grow by doubling beyond that.
+ * The trades are read on any thread: a trade is published by the release of the trade count, and grown arrays by
+ * the release of their references, so a reader that acquires them sees every trade below the count.
+ */
 @Getter
 @ToString
-public final class Order {
+public final class Order extends BookEntry {
 
+    static final int INITIAL_TRADES = 2;
+
+    private static final VarHandle VERSION;
+    private static final VarHandle TRADE_COUNT;
+    private static final VarHandle TRADE_ORDER_IDS;
+    private static final VarHandle TRADE_VALUES;
+
+    static {
+        try {
+            var lookup = MethodHandles.lookup();
+            VERSION = lookup.findVarHandle(Order.class, "version", long.class);
+            TRADE_COUNT = lookup.findVarHandle(Order.class, "tradeCount", int.class);
+            TRADE_ORDER_IDS = lookup.findVarHandle(Order.class, "tradeOrderIds", long[].class);
+            TRADE_VALUES = lookup.findVarHandle(Order.class, "tradeValues", long[].class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Assigned by the engine when it accepts the order, see {@link IdGenerator}
+     */
     @Setter
-    private String id;
-    private final Instant timestamp;
+    private long id;
+    /**
+     * Time the order was accepted, in nanoseconds since the epoch
+     */
+    private final long timestampNanos;
     private final String asset;
-    private final double price;
-    private final double amount;
+    @ToString.Exclude
+    private final Instrument instrument;
+    /**
+     * Limit price in ticks of the {@link #instrument}
+     */
+    private final long priceTicks;
+    /**
+     * Quantity in lots of the {@link #instrument}
+     */
+    private final long amountLots;
     private final Direction direction;
-    private double pendingAmount;
-    private final List<Trade> trades = new ArrayList<>();
+    /**
+     * Set before the order is placed, only the engine that matches it on arrival reads it
+     */
+    @Setter
+    private TimeInForce timeInForce = TimeInForce.GTC;
+    private long pendingLots;
+    private boolean cancelled;
+    @Getter(AccessLevel.NONE)
+    private int tradeCount;
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private long[] tradeOrderIds = new long[INITIAL_TRADES];
+    /**
+     * Amount in lots and price in ticks of every trade, one pair per trade
+     */
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    private long[] tradeValues = new long[2 * INITIAL_TRADES];
+    /**
+     * Stage timings while a traced order is being placed, null for the others and once it is placed
+     */
+    @Setter
+    @ToString.Exclude
+    private OrderTrace trace;
+    /**
+     * Bumped by every trade and by the cancel, so equal on every node that applied the same changes
+     */
+    private long version;
 
     public Order(String asset, double price, double amount, Direction direction) {
         this.validate(asset, price, amount, direction);
+        this.instrument = Instrument.of(asset);
         this.asset = asset;
-        this.price = price;
-        this.amount = amount;
+        this.priceTicks = instrument.toTicks(price);
+        this.amountLots = instrument.toLots(amount);
         this.direction = direction;
-        this.timestamp = Instant.now();
-        this.pendingAmount = amount;
+        this.timestampNanos = EpochClock.nanos();
+        this.pendingLots = amountLots;
+    }
+
+    /**
+     * Creates an order from already scaled values.
+     *
+     * @param instrument trading rules of the asset
+     * @param priceTicks limit price in ticks
+     * @param amountLots quantity in lots
+     * @param direction  BUY or SELL
+     */
+    public Order(Instrument instrument, long priceTicks, long amountLots, Direction direction) {
+        this(instrument, priceTicks, amountLots, direction, EpochClock.nanos());
+    }
+
+    /**
+     * Re-creates an order that was accepted earlier, e.g. while recovering the state from storage.
+     *
+     * @param timestamp time the order was originally accepted
+     */
+    public Order(Instrument instrument, long priceTicks, long amountLots, Direction direction, Instant timestamp) {
+        this(instrument, priceTicks, amountLots, direction, EpochClock.toNanos(timestamp));
+    }
+
+    /**
+     * @param timestampNanos time the order was accepted, in nanoseconds since the epoch
+     */
+    public Order(Instrument instrument, long priceTicks, long amountLots, Direction direction, long timestampNanos) {
+        if (null == instrument) {
+            throw new IllegalArgumentException("Asset must not be null or empty");
+        }
+        this.validate(instrument.getAsset(), priceTicks, amountLots, direction);
+        this.instrument = instrument;
+        this.asset = instrument.getAsset();
+        this.priceTicks = priceTicks;
+        this.amountLots = amountLots;
+        this.direction = direction;
+        this.timestampNanos = timestampNanos;
+        this.pendingLots = amountLots;
     }
 
     private void validate(String asset, double price, double amount, Direction direction) {
@@ -47,6 +158,21 @@ public final class Order {
         }
     }
 
+    public Instant getTimestamp() {
+        return EpochClock.toInstant(timestampNanos);
+    }
+
+    public double getPrice() {
+        return instrument.toPrice(priceTicks);
+    }
+
+    public double getAmount() {
+        return instrument.toAmount(amountLots);
+    }
+
+    public double getPendingAmount() {
+        return instrument.toAmount(pendingLots);
+    }
 
     /**
      * Checks if this order can match with the given counterOrder.
@@ -58,9 +184,9 @@ public final class Order {
         if (this.asset.equals(counterOrder.getAsset()) &&
             this.direction != counterOrder.getDirection()) {
             if (this.direction == Direction.BUY) {
-                return this.price >= counterOrder.price;
+                return this.priceTicks >= counterOrder.priceTicks;
             } else {
-                return this.price <= counterOrder.price;
+                return this.priceTicks <= counterOrder.priceTicks;
             }
         }
         return false;
@@ -73,17 +199,112 @@ public final class Order {
      * @return this order instance for method chaining
      */
     public Order addTrade(Trade trade) {
-        this.pendingAmount -= trade.getAmount();
-        trades.add(trade);
+        return addTrade(trade.getOrderId(), trade.getAmountLots(), trade.getPriceTicks());
+    }
+
+    /**
+     * Adds a trade to this order without allocating, unless the trade arrays have to grow.
+     *
+     * @param counterOrderId id of the order on the other side of the trade
+     * @param amountLots     executed quantity in lots
+     * @param priceTicks     execution price in ticks
+     * @return this order instance for method chaining
+     */
+    public Order addTrade(long counterOrderId, long amountLots, long priceTicks) {
+        if (tradeCount == tradeOrderIds.length) {
+            TRADE_ORDER_IDS.setRelease(this, Arrays.copyOf(tradeOrderIds, 2 * tradeCount));
+            TRADE_VALUES.setRelease(this, Arrays.copyOf(tradeValues, 4 * tradeCount));
+        }
+        tradeOrderIds[tradeCount] = counterOrderId;
+        tradeValues[2 * tradeCount] = amountLots;
+        tradeValues[2 * tradeCount + 1] = priceTicks;
+        TRADE_COUNT.setRelease(this, tradeCount + 1);
+        this.pendingLots -= amountLots;
+        VERSION.setRelease(this, version + 1);
         return this;
     }
 
+    /**
+     * @return the trades in execution order, a read-only view that creates a {@link Trade} per element read.
+     * The view holds the trades made when it was created, later trades are not in it.
+     */
+    public List<Trade> getTrades() {
+        // the count first: the arrays read after it hold at least as many trades
+        int count = getTradeCount();
+        var orderIds = (long[]) TRADE_ORDER_IDS.getAcquire(this);
+        var values = (long[]) TRADE_VALUES.getAcquire(this);
+        return new AbstractList<>() {
+            @Override
+            public Trade get(int index) {
+                Objects.checkIndex(index, count);
+                return new Trade(orderIds[index], values[2 * index], values[2 * index + 1]);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    /**
+     * Read on any thread: the trades below the count are visible to the reader.
+     *
+     * @return number of trades of the order
+     */
+    public int getTradeCount() {
+        return (int) TRADE_COUNT.getAcquire(this);
+    }
+
+    public long getTradeOrderId(int index) {
+        Objects.checkIndex(index, getTradeCount());
+        return ((long[]) TRADE_ORDER_IDS.getAcquire(this))[index];
+    }
+
+    public long getTradeAmountLots(int index) {
+        Objects.checkIndex(index, getTradeCount());
+        return ((long[]) TRADE_VALUES.getAcquire(this))[2 * index];
+    }
+
+    public long getTradePriceTicks(int index) {
+        Objects.checkIndex(index, getTradeCount());
+        return ((long[]) TRADE_VALUES.getAcquire(this))[2 * index + 1];
+    }
+
+    /**
+     * Marks the order as withdrawn, its pending amount stays as it was.
+     * Taking the order out of its book is up to the caller.
+     */
+    public void cancel() {
+        this.cancelled = true;
+        VERSION.setRelease(this, version + 1);
+    }
+
+    /**
+     * Read on any thread: the changes of the order up to this version are visible to the reader.
+     *
+     * @return number of changes of the order since it was accepted
+     */
+    public long getVersion() {
+        return (long) VERSION.getAcquire(this);
+    }
+
+    public OrderStatus getStatus() {
+        if (cancelled) {
+            return OrderStatus.CANCELLED;
+        }
+        if (isFullyExecuted()) {
+            return OrderStatus.FILLED;
+        }
+        return pendingLots == amountLots ? OrderStatus.NEW : OrderStatus.PARTIALLY_FILLED;
+    }
+
     /**
      * Checks if the order is fully executed.
      *
      * @return true if the pending amount is zero, false otherwise
      */
     public boolean isFullyExecuted() {
-        return 0 == pendingAmount;
+        return 0 == pendingLots;
     }
-}
\ No newline at end of file
+}
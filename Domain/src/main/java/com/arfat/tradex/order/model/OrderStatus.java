@@ -0,0 +1,17 @@
+package com.arfat.tradex.order.model;
+
+/**
+ * Execution state of an {@link Order}, derived from its pending amount unless it was cancelled.
+ */
+public enum OrderStatus {
+    /**
+     * Nothing executed yet
+     */
+    NEW,
+    PARTIALLY_FILLED,
+    FILLED,
+    /**
+     * Withdrawn from the book, the pending amount will never be executed
+     */
+    CANCELLED
+}
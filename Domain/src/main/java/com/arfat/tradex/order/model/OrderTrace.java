@@ -0,0 +1,90 @@
+package com.arfat.tradex.order.model;
+
+/**
+ * Where the time of one order went while it was placed, stage by stage. <br>
+ * Every stage is closed by marking its end with {@link System#nanoTime()}, it started when the previous stage ended.
+ * The stages run one after the other, each on whatever thread the order is on at that point, and the handoffs
+ * between those threads publish the marks.
+ */
+public final class OrderTrace {
+
+    public enum Stage {
+        /**
+         * From receiving the request to the controller: HTTP, JSON and bean validation
+         */
+        PARSE,
+        /**
+         * Conversion of the request into ticks and lots of the instrument
+         */
+        VALIDATION,
+        /**
+         * Waiting for the partition that owns the asset
+         */
+        QUEUE,
+        /**
+         * Recording the accepted order in the persistence
+         */
+        PERSIST,
+        /**
+         * Matching and resting the order, including recording its fills
+         */
+        MATCH,
+        /**
+         * Handing the placed order back from the matching thread and building the response
+         */
+        RESPONSE
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final String requestId;
+    private final long receivedNanos;
+    private final long[] stageEndNanos = new long[STAGES.length];
+
+    /**
+     * @param requestId     id of the request that placed the order, null if there is none
+     * @param receivedNanos {@link System#nanoTime()} when the request was received
+     */
+    public OrderTrace(String requestId, long receivedNanos) {
+        this.requestId = requestId;
+        this.receivedNanos = receivedNanos;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * Ends the stage at the time, a stage that is never marked took no time.
+     */
+    public void mark(Stage stage, long nanos) {
+        stageEndNanos[stage.ordinal()] = nanos;
+    }
+
+    /**
+     * @return nanoseconds the stage took
+     */
+    public long stageNanos(Stage stage) {
+        long end = stageEndNanos[stage.ordinal()];
+        return 0 == end ? 0 : end - startOf(stage.ordinal());
+    }
+
+    /**
+     * @return nanoseconds from receiving the request to the end of the last marked stage
+     */
+    public long totalNanos() {
+        return startOf(STAGES.length) - receivedNanos;
+    }
+
+    /**
+     * @return end of the latest marked stage before the one at the index
+     */
+    private long startOf(int index) {
+        for (int i = index - 1; i >= 0; i--) {
+            if (0 != stageEndNanos[i]) {
+                return stageEndNanos[i];
+            }
+        }
+        return receivedNanos;
+    }
+}
@@ -0,0 +1,20 @@
+package com.arfat.tradex.order.model;
+
+/**
+ * How long an {@link Order} stays in the book once it matched what it could on arrival.
+ * The rest of an order that must not rest is cancelled, so its status ends up as FILLED or CANCELLED.
+ */
+public enum TimeInForce {
+    /**
+     * Good till cancelled: the rest of the order rests in the book
+     */
+    GTC,
+    /**
+     * Immediate or cancel: fills what crosses the book on arrival, the rest is cancelled
+     */
+    IOC,
+    /**
+     * Fill or kill: fills entirely on arrival, or is cancelled without any trade
+     */
+    FOK
+}
@@ -2,13 +2,18 @@ package com.arfat.tradex.order.model;
 
 import lombok.*;
 
+/**
+ * One execution of an order against a counter order.
+ * Amount and price are scaled by the {@link Instrument} of the traded asset.
+ */
 @Getter
+@EqualsAndHashCode
 @Setter
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public final class Trade {
-    private String orderId;
-    private double amount;
-    private double price;
+    private long orderId;
+    private long amountLots;
+    private long priceTicks;
 }
@@ -0,0 +1,45 @@
+package com.arfat.tradex.persistence;
+
+import com.arfat.tradex.order.model.Order;
+
+/**
+ * Cold storage for fully executed and cancelled orders. <br>
+ * Such an order never changes again, so the {@link StateMachine} hands it over to the archive
+ * and only keeps the orders that can still trade in memory.
+ */
+public interface OrderArchive extends AutoCloseable {
+
+    /**
+     * Drops the orders instead of storing them, for a state that only has to hold the books.
+     */
+    OrderArchive DISCARD = new OrderArchive() {
+        @Override
+        public void archive(Order order) {
+        }
+
+        @Override
+        public Order find(long orderId) {
+            return null;
+        }
+    };
+
+    /**
+     * Stores a fully executed or cancelled order. Archiving the same order again replaces the earlier copy.
+     */
+    void archive(Order order);
+
+    /**
+     * @return a copy of the archived order, or null if there is none
+     */
+    Order find(long orderId);
+
+    /**
+     * Forces the archived orders to storage.
+     */
+    default void flush() {
+    }
+
+    @Override
+    default void close() {
+    }
+}
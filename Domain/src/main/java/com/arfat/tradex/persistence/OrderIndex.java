@@ -0,0 +1,221 @@
+package com.arfat.tradex.persistence;
+
+import com.arfat.tradex.order.model.Order;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Orders by their primitive id, for any number of writers and lock-free readers. <br>
+ * The ids are spread over segments, each an open addressing table with linear probing that is
+ * doubled when it is half full. Writers lock their segment; readers probe optimistically and only
+ * take the read lock when a writer changed the segment meanwhile. Nothing is boxed, a lookup is
+ * one hash and a few reads of a {@code long[]}.
+ * <p>
+ * Id 0 marks an empty slot and can not be stored.
+ */
+final class OrderIndex {
+
+    private static final int SEGMENTS = 64;
+    private static final int INITIAL_SLOTS = 256;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    OrderIndex() {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Adds the order, or replaces the order with the same id.
+     */
+    void put(Order order) {
+        long id = order.getId();
+        if (0 == id) {
+            throw new IllegalArgumentException("Order must have an id");
+        }
+        long hash = mix(id);
+        segmentFor(hash).put(id, hash, order);
+    }
+
+    /**
+     * @return the order with the id, or null
+     */
+    Order get(long id) {
+        if (0 == id) {
+            return null;
+        }
+        long hash = mix(id);
+        return segmentFor(hash).get(id, hash);
+    }
+
+    void remove(long id) {
+        if (0 != id) {
+            long hash = mix(id);
+            segmentFor(hash).remove(id, hash);
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (var segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    /**
+     * Visits the orders segment by segment, every segment is locked while it is visited.
+     */
+    void forEach(Consumer<Order> action) {
+        for (var segment : segments) {
+            segment.forEach(action);
+        }
+    }
+
+    private Segment segmentFor(long hash) {
+        // the high bits pick the segment, the low bits the slot
+        return segments[(int) (hash >>> 58)];
+    }
+
+    /**
+     * Finalizer of MurmurHash3, the ids differ mostly in their low sequence bits and would cluster otherwise.
+     */
+    private static long mix(long id) {
+        id = (id ^ (id >>> 33)) * 0xff51afd7ed558ccdL;
+        id = (id ^ (id >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return id ^ (id >>> 33);
+    }
+
+    /**
+     * Keys and values replaced together when the table grows, so a reader never sees arrays of two sizes.
+     */
+    private record Table(long[] keys, Order[] values) {
+        Table(int slots) {
+            this(new long[slots], new Order[slots]);
+        }
+    }
+
+    private static final class Segment {
+        private final StampedLock lock = new StampedLock();
+        private Table table = new Table(INITIAL_SLOTS);
+        private volatile int size;
+
+        Order get(long id, long hash) {
+            long stamp = lock.tryOptimisticRead();
+            var order = find(table, id, hash);
+            if (lock.validate(stamp)) {
+                return order;
+            }
+            stamp = lock.readLock();
+            try {
+                return find(table, id, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Stops after one pass over the table, a reader racing a writer may see it inconsistent.
+         */
+        private static Order find(Table table, long id, long hash) {
+            var keys = table.keys();
+            int mask = keys.length - 1;
+            for (int i = 0, slot = (int) hash & mask; i <= mask; i++, slot = (slot + 1) & mask) {
+                long key = keys[slot];
+                if (key == id) {
+                    return table.values()[slot];
+                }
+                if (0 == key) {
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        void put(long id, long hash, Order order) {
+            long stamp = lock.writeLock();
+            try {
+                if (insert(table, id, hash, order) && ++size > table.keys().length / 2) {
+                    grow();
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * @return true if the id was not in the table yet
+         */
+        private static boolean insert(Table table, long id, long hash, Order order) {
+            var keys = table.keys();
+            int mask = keys.length - 1;
+            for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+                if (0 == keys[slot] || id == keys[slot]) {
+                    boolean added = 0 == keys[slot];
+                    table.values()[slot] = order;
+                    keys[slot] = id;
+                    return added;
+                }
+            }
+        }
+
+        private void grow() {
+            var grown = new Table(2 * table.keys().length);
+            var keys = table.keys();
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (0 != keys[slot]) {
+                    insert(grown, keys[slot], mix(keys[slot]), table.values()[slot]);
+                }
+            }
+            table = grown;
+        }
+
+        /**
+         * Shifts the entries that follow in the probe sequence back into the freed slot, so no tombstones pile up.
+         */
+        void remove(long id, long hash) {
+            long stamp = lock.writeLock();
+            try {
+                var keys = table.keys();
+                var values = table.values();
+                int mask = keys.length - 1;
+                int slot = (int) hash & mask;
+                while (keys[slot] != id) {
+                    if (0 == keys[slot]) {
+                        return;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+                for (int next = (slot + 1) & mask; 0 != keys[next]; next = (next + 1) & mask) {
+                    int home = (int) mix(keys[next]) & mask;
+                    // move the entry unless its home lies cyclically in (slot, next]
+                    if (((next - home) & mask) >= ((next - slot) & mask)) {
+                        keys[slot] = keys[next];
+                        values[slot] = values[next];
+                        slot = next;
+                    }
+                }
+                keys[slot] = 0;
+                values[slot] = null;
+                size--;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void forEach(Consumer<Order> action) {
+            long stamp = lock.readLock();
+            try {
+                for (var order : table.values()) {
+                    if (null != order) {
+                        action.accept(order);
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+}
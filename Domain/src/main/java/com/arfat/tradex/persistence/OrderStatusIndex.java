@@ -0,0 +1,179 @@
+package com.arfat.tradex.persistence;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.order.model.OrderStatus;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * Orders by asset, direction and status, every set sorted by id. <br>
+ * The {@link StateMachine} it is handed to moves an order from one set to the other whenever its status changes:
+ * when it is accepted, when its first trade or the one that fills it comes in, and when it is cancelled.
+ * Trades that leave the status as it is cost a comparison, but a move allocates a node of a skip list on the
+ * matching thread, so the index is opt-in. Readers page through the sets without locks, an order that changes its
+ * status meanwhile may be missed or listed with its new status.
+ * <p>
+ * When the state machine archives executed orders, filled and cancelled orders leave the index with the live
+ * orders: asking for them is rejected rather than answered with an empty page.
+ */
+public final class OrderStatusIndex {
+
+    private static final Set<OrderStatus> LIVE_STATUSES = EnumSet.of(OrderStatus.NEW, OrderStatus.PARTIALLY_FILLED);
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private final Map<String, AssetOrders> assets = new ConcurrentHashMap<>();
+    private volatile boolean attached;
+    private volatile boolean archived;
+
+    /**
+     * Called by the state machine that keeps the index up to date.
+     *
+     * @param archived whether the state machine archives executed orders
+     */
+    synchronized void attach(boolean archived) {
+        if (attached) {
+            throw new IllegalStateException("Index is already kept by a state machine");
+        }
+        this.archived = archived;
+        this.attached = true;
+    }
+
+    void add(Order order) {
+        set(order, order.getStatus()).put(order.getId(), order);
+    }
+
+    /**
+     * Moves the order that just traded if the trade changed its status.
+     */
+    void onTrade(Order order) {
+        boolean first = 1 == order.getTradeCount();
+        if (first || order.isFullyExecuted()) {
+            move(order, first ? OrderStatus.NEW : OrderStatus.PARTIALLY_FILLED, order.getStatus());
+        }
+    }
+
+    void onCancel(Order order) {
+        move(order, 0 == order.getTradeCount() ? OrderStatus.NEW : OrderStatus.PARTIALLY_FILLED, OrderStatus.CANCELLED);
+    }
+
+    void remove(Order order) {
+        set(order, order.getStatus()).remove(order.getId());
+    }
+
+    private void move(Order order, OrderStatus from, OrderStatus to) {
+        if (from != to) {
+            // the new set first, so that a reader finds the order in one of them at least
+            set(order, to).put(order.getId(), order);
+            set(order, from).remove(order.getId());
+        }
+    }
+
+    /**
+     * Orders of an asset by direction and status, page by page. Read on any thread, the matching is not held up.
+     *
+     * @param asset     the traded asset
+     * @param direction null for both
+     * @param statuses  the statuses wanted, empty for all
+     * @param afterId   only orders with a greater id are returned, 0 for the first page
+     * @param limit     largest number of orders returned
+     * @return up to {@code limit} orders with an id greater than {@code afterId}, in id order
+     * @throws IllegalArgumentException if the limit is not positive, or if filled or cancelled orders are asked for
+     *                                  while they are archived
+     */
+    public List<Order> findOrders(String asset, Direction direction, Set<OrderStatus> statuses, long afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be greater than zero");
+        }
+        if (archived && !LIVE_STATUSES.containsAll(statuses.isEmpty() ? EnumSet.allOf(OrderStatus.class) : statuses)) {
+            throw new IllegalArgumentException("Filled and cancelled orders are archived and can not be listed, "
+                                               + "status must be NEW or PARTIALLY_FILLED, get them by id instead");
+        }
+        var orders = assets.get(asset);
+        if (null == orders) {
+            return List.of();
+        }
+        List<Order> found = new ArrayList<>();
+        for (var side : null == direction ? DIRECTIONS : new Direction[]{direction}) {
+            for (var status : statuses.isEmpty() ? STATUSES : statuses.toArray(OrderStatus[]::new)) {
+                int count = 0;
+                for (var order : orders.set(side, status).tailMap(afterId, false).values()) {
+                    if (count++ == limit) {
+                        break;
+                    }
+                    found.add(order);
+                }
+            }
+        }
+        found.sort(Comparator.comparingLong(Order::getId));
+        List<Order> page = new ArrayList<>(Math.min(limit, found.size()));
+        for (var order : found) {
+            if (page.size() == limit) {
+                break;
+            }
+            // an order that moved while it was read is found twice, or no longer has a requested status
+            if ((page.isEmpty() || page.getLast() != order)
+                && (statuses.isEmpty() || statuses.contains(order.getStatus()))) {
+                page.add(order);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * @param orders   visits every order that must be indexed
+     * @param expected number of the orders visited
+     * @return number of indexed orders
+     * @throws IllegalStateException if an order is not in the set of its status, or the sets hold other orders
+     */
+    int check(Consumer<Consumer<Order>> orders, int expected) {
+        orders.accept(order -> {
+            if (order != set(order, order.getStatus()).get(order.getId())) {
+                throw new IllegalStateException("Order " + order.getId() + " is not indexed as " + order.getAsset()
+                                                + " " + order.getDirection() + " " + order.getStatus());
+            }
+        });
+        int indexed = 0;
+        for (var asset : assets.values()) {
+            for (var set : asset.sets) {
+                indexed += set.size();
+            }
+        }
+        if (indexed != expected) {
+            throw new IllegalStateException("The index holds " + indexed + " orders, the state " + expected);
+        }
+        return indexed;
+    }
+
+    private ConcurrentSkipListMap<Long, Order> set(Order order, OrderStatus status) {
+        var orders = assets.get(order.getAsset());
+        if (null == orders) {
+            orders = assets.computeIfAbsent(order.getAsset(), k -> new AssetOrders());
+        }
+        return orders.set(order.getDirection(), status);
+    }
+
+    private static final class AssetOrders {
+        private final List<ConcurrentSkipListMap<Long, Order>> sets = new ArrayList<>();
+
+        private AssetOrders() {
+            for (int i = 0; i < DIRECTIONS.length * STATUSES.length; i++) {
+                sets.add(new ConcurrentSkipListMap<>());
+            }
+        }
+
+        ConcurrentSkipListMap<Long, Order> set(Direction direction, OrderStatus status) {
+            return sets.get(direction.ordinal() * STATUSES.length + status.ordinal());
+        }
+    }
+}
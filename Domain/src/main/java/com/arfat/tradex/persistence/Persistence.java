@@ -1,11 +1,10 @@
 package com.arfat.tradex.persistence;
 
+import com.arfat.tradex.book.MarketDepth;
+import com.arfat.tradex.book.OrderBook;
+import com.arfat.tradex.order.model.Direction;
 import com.arfat.tradex.order.model.Order;
 
-import java.util.List;
-import java.util.Map;
-import java.util.NavigableMap;
-
 /**
  * Persistence interface for managing orders. <br>
  * It can be easily replaced with a different implementation that supports
@@ -13,16 +12,66 @@ import java.util.NavigableMap;
  * implement permanent storage of some kind.
  */
 public interface Persistence {
-    Map<String, NavigableMap<Double, List<Order>>> sellOrders();
 
-    Map<String, NavigableMap<Double, List<Order>>> buyOrders();
+    /**
+     * Resting orders of one side of an asset, the book and the depth of the asset are created on first use.
+     *
+     * @param asset     the traded asset
+     * @param direction BUY for the bids, SELL for the asks
+     * @return the order book, never null
+     */
+    OrderBook orderBook(String asset, Direction direction);
+
+    /**
+     * Aggregated levels of both books of an asset, created with its first book.
+     * Kept up to date by whoever changes the books, and safe to read from any thread.
+     *
+     * @param asset the traded asset
+     * @return the depth, null until a book of the asset has been asked for
+     */
+    MarketDepth marketDepth(String asset);
 
     /**
-     * Adds an order to the persistence layer. Used by getOrder(id)
+     * Adds an order to the persistence layer. Used by getOrder(id). <br>
+     * Called once per order, when the engine accepts it and before it is matched.
      *
      * @param order the order to be added
      */
     void addOrder(Order order);
 
-    Order getOrder(String orderId);
+    /**
+     * Records an execution between an incoming order and a resting counter order.
+     * Both orders already carry the trade when this is called.
+     *
+     * @param incomingOrder the order being matched
+     * @param counterOrder  the resting order it matched with
+     * @param priceTicks    execution price in ticks
+     * @param amountLots    executed quantity in lots
+     */
+    default void addFill(Order incomingOrder, Order counterOrder, long priceTicks, long amountLots) {
+    }
+
+    /**
+     * Records that a resting order was cancelled.
+     * The order is already marked as cancelled and out of its book when this is called.
+     */
+    default void addCancel(Order order) {
+    }
+
+    /**
+     * @return the order with the id, or null if there is none
+     */
+    Order getOrder(long orderId);
+
+    /**
+     * @return number of orders in the live index: those that can still trade, and the executed ones
+     * unless they are archived
+     */
+    int orderCount();
+
+    /**
+     * Forces whatever is buffered to storage.
+     */
+    default void flush() {
+    }
 }
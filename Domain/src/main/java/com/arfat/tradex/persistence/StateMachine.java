@@ -1,40 +1,231 @@
 package com.arfat.tradex.persistence;
 
+import com.arfat.tradex.book.MarketDepth;
+import com.arfat.tradex.book.OrderBook;
+import com.arfat.tradex.book.PriceLadder;
+import com.arfat.tradex.order.model.Direction;
 import com.arfat.tradex.order.model.Order;
 
-import java.util.List;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.NavigableMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
-public final class StateMachine implements Persistence {
-    private final Map<String, Order> orders = new ConcurrentHashMap<>();
-    private final Map<String, NavigableMap<Double, List<Order>>> buyOrders = new ConcurrentHashMap<>();
-    private final Map<String, NavigableMap<Double, List<Order>>> sellOrders = new ConcurrentHashMap<>();
+/**
+ * In-memory state of the engine. <br>
+ * Without an {@link OrderArchive} every order ever placed stays in memory. With one, an order leaves the
+ * live index as soon as it is fully executed or cancelled: it is written to the archive and kept in a bounded cache of
+ * the most recently executed or looked up orders, so memory follows the number of open orders.
+ */
+public final class StateMachine implements Persistence, AutoCloseable {
+    public static final int DEFAULT_CACHE_SIZE = 100_000;
 
-    @Override
-    public Map<String, NavigableMap<Double, List<Order>>> buyOrders() {
-        return this.buyOrders;
+    private final OrderIndex orders = new OrderIndex();
+    private final Map<String, OrderBook> buyOrders = new ConcurrentHashMap<>();
+    private final Map<String, OrderBook> sellOrders = new ConcurrentHashMap<>();
+    private final Map<String, MarketDepth> depths = new ConcurrentHashMap<>();
+    private final int ladderCapacity;
+    private final OrderArchive archive;
+    private final Map<Long, Order> recentlyExecuted;
+    private final OrderStatusIndex statusIndex;
+
+    public StateMachine() {
+        this(PriceLadder.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param ladderCapacity number of ticks around the mid price that the books index directly
+     */
+    public StateMachine(int ladderCapacity) {
+        this(ladderCapacity, null, 0);
+    }
+
+    /**
+     * @param ladderCapacity number of ticks around the mid price that the books index directly
+     * @param archive        where fully executed orders go, null keeps them in memory
+     * @param cacheSize      number of executed orders kept in memory for lookups
+     */
+    public StateMachine(int ladderCapacity, OrderArchive archive, int cacheSize) {
+        this(ladderCapacity, archive, cacheSize, null);
+    }
+
+    /**
+     * @param ladderCapacity number of ticks around the mid price that the books index directly
+     * @param archive        where fully executed orders go, null keeps them in memory
+     * @param cacheSize      number of executed orders kept in memory for lookups
+     * @param statusIndex    kept up to date with the orders of this state machine, null for none.
+     *                       Updating it allocates whenever the status of an order changes
+     */
+    public StateMachine(int ladderCapacity, OrderArchive archive, int cacheSize, OrderStatusIndex statusIndex) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative");
+        }
+        this.ladderCapacity = ladderCapacity;
+        this.archive = archive;
+        this.statusIndex = statusIndex;
+        if (null != statusIndex) {
+            statusIndex.attach(null != archive);
+        }
+        this.recentlyExecuted = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Order> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * An empty state machine with the same settings, for rebuilding orders off to the side.
+     * If this one archives executed orders the copy drops them, the archive already has them. The copy is not indexed.
+     */
+    public StateMachine emptyCopy() {
+        return null == archive
+                ? new StateMachine(ladderCapacity)
+                : new StateMachine(ladderCapacity, OrderArchive.DISCARD, 0);
     }
 
     @Override
-    public Map<String, NavigableMap<Double, List<Order>>> sellOrders() {
-        return this.sellOrders;
+    public OrderBook orderBook(String asset, Direction direction) {
+        var books = Direction.BUY == direction ? this.buyOrders : this.sellOrders;
+        var book = books.get(asset);
+        if (null != book) {
+            return book;
+        }
+        // the capturing lambda is only created for a new book, its depth with it
+        depths.computeIfAbsent(asset, k -> new MarketDepth());
+        return books.computeIfAbsent(asset, k -> new PriceLadder(direction, ladderCapacity));
     }
 
+    @Override
+    public MarketDepth marketDepth(String asset) {
+        return depths.get(asset);
+    }
 
     @Override
     public void addOrder(Order incomingOrder) {
         if (incomingOrder == null) {
             throw new IllegalArgumentException("Order must not be null");
         }
-        this.orders.put(incomingOrder.getId(), incomingOrder);
+        this.orders.put(incomingOrder);
+        if (null != statusIndex) {
+            statusIndex.add(incomingOrder);
+        }
     }
 
+    /**
+     * Moves the orders that the fill executed fully from the live index to the archive.
+     */
     @Override
-    public Order getOrder(String orderId) {
-        return this.orders.get(orderId);
+    public void addFill(Order incomingOrder, Order counterOrder, long priceTicks, long amountLots) {
+        if (null != statusIndex) {
+            statusIndex.onTrade(incomingOrder);
+            statusIndex.onTrade(counterOrder);
+        }
+        if (null != archive) {
+            archiveIfDone(incomingOrder);
+            archiveIfDone(counterOrder);
+        }
     }
 
-}
+    /**
+     * Moves the cancelled order from the live index to the archive.
+     */
+    @Override
+    public void addCancel(Order order) {
+        if (null != statusIndex) {
+            statusIndex.onCancel(order);
+        }
+        if (null != archive) {
+            archiveIfDone(order);
+        }
+    }
 
+    private void archiveIfDone(Order order) {
+        boolean done = order.isFullyExecuted() || order.isCancelled();
+        if (!done || order != this.orders.get(order.getId())) {
+            return;
+        }
+        archive.archive(order);
+        // cached before it leaves the live index, so a concurrent lookup always finds it in memory
+        recentlyExecuted.put(order.getId(), order);
+        this.orders.remove(order.getId());
+        if (null != statusIndex) {
+            statusIndex.remove(order);
+        }
+    }
+
+    /**
+     * Looks the order up in the live index, then among the recently executed orders, then in the archive.
+     */
+    @Override
+    public Order getOrder(long orderId) {
+        var order = this.orders.get(orderId);
+        if (null != order || null == archive) {
+            return order;
+        }
+        order = recentlyExecuted.get(orderId);
+        if (null != order) {
+            return order;
+        }
+        order = archive.find(orderId);
+        if (null != order) {
+            recentlyExecuted.put(orderId, order);
+        }
+        return order;
+    }
+
+    /**
+     * Size of the live index, the recently executed orders cached for lookups are not counted.
+     */
+    @Override
+    public int orderCount() {
+        return this.orders.size();
+    }
+
+    /**
+     * Checks that every order of the live index is indexed by its asset, direction and status, and nothing else is.
+     * Must not run concurrently with the matching of the orders.
+     *
+     * @return number of indexed orders
+     * @throws IllegalStateException describing the first inconsistency, or if the orders are not indexed
+     */
+    public int checkIndex() {
+        if (null == statusIndex) {
+            throw new IllegalStateException("Orders are not indexed");
+        }
+        return statusIndex.check(this.orders::forEach, this.orders.size());
+    }
+
+    @Override
+    public void flush() {
+        if (null != archive) {
+            archive.flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (null != archive) {
+            archive.close();
+        }
+    }
+
+    /**
+     * Visits every order in the live index, in no particular order. These are all the orders that were added,
+     * except the fully executed ones when they are archived.
+     * Must not run concurrently with the matching of the orders.
+     */
+    public void forEachOrder(Consumer<Order> action) {
+        this.orders.forEach(action);
+    }
+
+    /**
+     * Visits the bid books and then the ask books of all assets.
+     * Must not run concurrently with the matching of the orders.
+     */
+    public void forEachOrderBook(Consumer<OrderBook> action) {
+        this.buyOrders.values().forEach(action);
+        this.sellOrders.values().forEach(action);
+    }
+}
@@ -0,0 +1,353 @@
+package com.arfat.tradex.persistence.journal;
+
+import com.arfat.tradex.order.model.Instrument;
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.persistence.OrderArchive;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link OrderArchive} of three files in one directory:
+ * <ul>
+ *     <li>{@code orders.archive} - append-only {@code int length | order} records of {@link OrderCodec},
+ *     written through a buffer</li>
+ *     <li>{@code orders.index} - memory-mapped open addressing table of {@code long id hash | long offset}
+ *     slots, doubled when it is half full</li>
+ *     <li>{@code orders.assets} - the asset records the orders refer to by code</li>
+ * </ul>
+ * Neither the orders nor the index are held on the heap, a lookup is one probe sequence in the page cache
+ * and one read of the record. A hash match is confirmed against the id stored in the record.
+ */
+public final class FileOrderArchive implements OrderArchive {
+
+    static final int INITIAL_SLOTS = 1 << 16;
+
+    private static final int SLOT_LENGTH = 16;
+    private static final int CHUNK_SLOTS = 1 << 22;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path indexFile;
+    private final FileChannel records;
+    private final FileChannel assetFile;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + Long.BYTES);
+    private final Map<String, Integer> assetCodes = new HashMap<>();
+    private final List<Instrument> assets = new ArrayList<>();
+
+    /**
+     * Length of the records file, including what is still buffered
+     */
+    private long length;
+    private Index index;
+
+    private FileOrderArchive(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.indexFile = directory.resolve("orders.index");
+        this.records = FileChannel.open(directory.resolve("orders.archive"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.assetFile = FileChannel.open(directory.resolve("orders.assets"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.length = records.size();
+        this.index = Index.open(indexFile, INITIAL_SLOTS);
+        readAssets();
+    }
+
+    /**
+     * Opens the archive in {@code directory}, creating it if there is none.
+     */
+    public static FileOrderArchive open(Path directory) {
+        try {
+            return new FileOrderArchive(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open order archive in " + directory, e);
+        }
+    }
+
+    @Override
+    public synchronized void archive(Order order) {
+        int assetCode = assetCode(order.getInstrument());
+        int recordLength = Integer.BYTES + OrderCodec.length(order);
+        if (buffer.remaining() < recordLength) {
+            drain();
+        }
+        long offset = length;
+        // an order with more trades than fit into the buffer is written on its own
+        var target = buffer.remaining() >= recordLength ? buffer : ByteBuffer.allocate(recordLength);
+        target.putInt(recordLength - Integer.BYTES);
+        OrderCodec.writeOrder(target, order, assetCode);
+        if (target != buffer) {
+            write(target.flip(), offset);
+        }
+        length += recordLength;
+
+        if (index.size() >= index.capacity() / 2) {
+            index = index.grow(indexFile);
+        }
+        index.put(hash(order.getId()), offset, candidate -> order.getId() == idAt(candidate));
+    }
+
+    @Override
+    public synchronized Order find(long orderId) {
+        long offset = index.get(hash(orderId), candidate -> orderId == idAt(candidate));
+        if (offset < 0) {
+            return null;
+        }
+        // idAt left the header of the matching record in the header buffer
+        int orderLength = header.getInt(0);
+        var record = ByteBuffer.allocate(orderLength);
+        read(record, offset + Integer.BYTES);
+        return OrderCodec.readOrder(record.flip(), assets);
+    }
+
+    @Override
+    public synchronized void flush() {
+        drain();
+        try {
+            records.force(false);
+            assetFile.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to flush order archive", e);
+        }
+        index.force();
+    }
+
+    @Override
+    public synchronized void close() {
+        flush();
+        try {
+            records.close();
+            assetFile.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to close order archive", e);
+        }
+    }
+
+    /**
+     * Reads the header of the record at {@code offset} into {@link #header}.
+     *
+     * @return the id of the order, or 0 if the record is incomplete, e.g. after a crash
+     */
+    private long idAt(long offset) {
+        if (offset + header.capacity() > length) {
+            return 0;
+        }
+        if (offset + header.capacity() > length - buffer.position()) {
+            drain();
+        }
+        read(header.clear(), offset);
+        if (offset + Integer.BYTES + header.getInt(0) > length) {
+            return 0;
+        }
+        return header.getLong(Integer.BYTES);
+    }
+
+    private int assetCode(Instrument instrument) {
+        var code = assetCodes.get(instrument.getAsset());
+        if (null != code) {
+            return code;
+        }
+        int assetCode = assets.size();
+        var record = ByteBuffer.allocate(OrderCodec.MAX_ASSET_LENGTH);
+        OrderCodec.writeAsset(record, instrument, assetCode);
+        try {
+            assetFile.write(record.flip(), assetFile.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write order archive", e);
+        }
+        assetCodes.put(instrument.getAsset(), assetCode);
+        assets.add(instrument);
+        return assetCode;
+    }
+
+    private void readAssets() throws IOException {
+        var all = ByteBuffer.allocate(Math.toIntExact(assetFile.size()));
+        read(all, assetFile, 0);
+        all.flip();
+        while (all.hasRemaining()) {
+            var instrument = OrderCodec.readAsset(all, assets.size());
+            assetCodes.put(instrument.getAsset(), assets.size());
+            assets.add(instrument);
+        }
+    }
+
+    private void drain() {
+        buffer.flip();
+        write(buffer, length - buffer.remaining());
+        buffer.clear();
+    }
+
+    private void write(ByteBuffer source, long position) {
+        try {
+            while (source.hasRemaining()) {
+                position += records.write(source, position);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write order archive", e);
+        }
+    }
+
+    private void read(ByteBuffer target, long position) {
+        try {
+            read(target, records, position);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read order archive", e);
+        }
+    }
+
+    private static void read(ByteBuffer target, FileChannel channel, long position) throws IOException {
+        while (target.hasRemaining()) {
+            int read = channel.read(target, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of " + channel);
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Finalizer of MurmurHash3 over the id, so that the sequence bits do not cluster in the table.
+     * Never 0 since 0 marks an empty slot.
+     */
+    static long hash(long id) {
+        id = (id ^ (id >>> 33)) * 0xff51afd7ed558ccdL;
+        id = (id ^ (id >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        id ^= id >>> 33;
+        return 0 == id ? 1 : id;
+    }
+
+    @FunctionalInterface
+    private interface Candidate {
+        boolean matches(long offset);
+    }
+
+    /**
+     * Linear probing over slots that are mapped in chunks, so the table is not limited to 2 GB.
+     */
+    private static final class Index {
+        private final MappedByteBuffer[] chunks;
+        private final int chunkSlots;
+        private final long capacity;
+        private long size;
+
+        private Index(MappedByteBuffer[] chunks, int chunkSlots, long capacity) {
+            this.chunks = chunks;
+            this.chunkSlots = chunkSlots;
+            this.capacity = capacity;
+        }
+
+        static Index open(Path file, long initialSlots) throws IOException {
+            try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                long capacity = channel.size() / SLOT_LENGTH;
+                if (0 == capacity) {
+                    capacity = initialSlots;
+                }
+                int chunkSlots = (int) Math.min(capacity, CHUNK_SLOTS);
+                var chunks = new MappedByteBuffer[Math.toIntExact(capacity / chunkSlots)];
+                for (int i = 0; i < chunks.length; i++) {
+                    chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * chunkSlots * SLOT_LENGTH,
+                            (long) chunkSlots * SLOT_LENGTH);
+                }
+                var index = new Index(chunks, chunkSlots, capacity);
+                for (long slot = 0; slot < capacity; slot++) {
+                    if (0 != index.key(slot)) {
+                        index.size++;
+                    }
+                }
+                return index;
+            }
+        }
+
+        long size() {
+            return size;
+        }
+
+        long capacity() {
+            return capacity;
+        }
+
+        /**
+         * @return the offset of the record whose hash is {@code key} and that the candidate accepts, or -1
+         */
+        long get(long key, Candidate candidate) {
+            for (long slot = key & (capacity - 1); ; slot = (slot + 1) & (capacity - 1)) {
+                long found = key(slot);
+                if (0 == found) {
+                    return -1;
+                }
+                if (found == key && candidate.matches(offset(slot))) {
+                    return offset(slot);
+                }
+            }
+        }
+
+        void put(long key, long offset, Candidate sameOrder) {
+            for (long slot = key & (capacity - 1); ; slot = (slot + 1) & (capacity - 1)) {
+                long found = key(slot);
+                if (0 == found) {
+                    size++;
+                    set(slot, key, offset);
+                    return;
+                }
+                if (found == key && sameOrder.matches(offset(slot))) {
+                    set(slot, key, offset);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Copies the slots into a table of twice the capacity that replaces the file.
+         */
+        Index grow(Path file) {
+            var temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            try {
+                Files.deleteIfExists(temporary);
+                var grown = open(temporary, capacity * 2);
+                for (long slot = 0; slot < capacity; slot++) {
+                    long key = key(slot);
+                    if (0 != key) {
+                        grown.put(key, offset(slot), offset -> false);
+                    }
+                }
+                grown.force();
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                return grown;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to grow order archive index " + file, e);
+            }
+        }
+
+        void force() {
+            for (var chunk : chunks) {
+                chunk.force();
+            }
+        }
+
+        private long key(long slot) {
+            return chunks[(int) (slot / chunkSlots)].getLong((int) (slot % chunkSlots) * SLOT_LENGTH);
+        }
+
+        private long offset(long slot) {
+            return chunks[(int) (slot / chunkSlots)].getLong((int) (slot % chunkSlots) * SLOT_LENGTH + 8);
+        }
+
+        private void set(long slot, long key, long offset) {
+            var chunk = chunks[(int) (slot / chunkSlots)];
+            int position = (int) (slot % chunkSlots) * SLOT_LENGTH;
+            chunk.putLong(position, key).putLong(position + 8, offset);
+        }
+    }
+}
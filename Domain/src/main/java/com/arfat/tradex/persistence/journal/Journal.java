@@ -0,0 +1,464 @@
+package com.arfat.tradex.persistence.journal;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.EpochClock;
+import com.arfat.tradex.order.model.Instrument;
+import com.arfat.tradex.order.model.Order;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Append-only binary log of accepted orders, fills and cancels, written through memory-mapped segment files. <br>
+ * Records have a fixed layout per type and are written straight into the mapped page cache,
+ * so appending allocates nothing and costs no system call; the OS writes the pages back.
+ * A segment is forced to disk when it is full and rolled over to the next file.
+ * <p>
+ * Record layout, after a common header of {@code int length} and {@code byte type}:
+ * <pre>
+ * ASSET  short code | long tick unscaled | byte tick scale | long lot unscaled | byte lot scale | byte length | name
+ * ORDER  byte direction | short asset code | long epoch second | int nanos | long price | long amount | id
+ * FILL   long price | long amount | incoming id | counter id
+ * CANCEL id
+ * </pre>
+ * Ids are the {@code long} ids of the orders. The type byte is written last, so a record that
+ * was cut short by a crash still reads as the end of the journal.
+ * Every segment starts with the ASSET records of all known assets, so segments before a
+ * {@link Snapshot} can be deleted without losing the asset codes.
+ * <p>
+ * The partitions append without a lock: a writer claims the bytes of its record by a compare-and-set on the end of
+ * the segment, writes the record and publishes it by writing the type byte last, behind a release fence.
+ * Records of one partition keep their order, records of different partitions interleave in claim order.
+ * A record claimed after one that a crash cut short is dropped with it. Rolling to the next segment and
+ * {@link #position()} wait for the claimed records to be published.
+ */
+public final class Journal implements AutoCloseable {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final byte END = 0;
+    private static final byte ASSET = 1;
+    private static final byte ORDER = 2;
+    private static final byte FILL = 3;
+    private static final byte CANCEL = 4;
+
+    private static final int HEADER_LENGTH = Integer.BYTES + Byte.BYTES;
+    private static final int ORDER_LENGTH = HEADER_LENGTH + 1 + 2 + 8 + 4 + 8 + 8 + 8;
+    private static final int FILL_LENGTH = HEADER_LENGTH + 8 + 8 + 8 + 8;
+    private static final int CANCEL_LENGTH = HEADER_LENGTH + 8;
+    private static final int MAX_ASSET_LENGTH = 255;
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Map<String, Integer> assetCodes = new ConcurrentHashMap<>();
+    private final List<Instrument> assets = new CopyOnWriteArrayList<>();
+
+    /**
+     * Segment read while opening the journal
+     */
+    private long segmentIndex;
+    private volatile Segment segment;
+
+    private Journal(Path directory, int segmentSize) {
+        if (segmentSize < 4096) {
+            throw new IllegalArgumentException("Segment size must be at least 4096 bytes");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Opens the journal in {@code directory}, replaying every existing record into the handler,
+     * and positions the writer after the last complete record.
+     *
+     * @param directory   directory holding the segment files, created if missing
+     * @param segmentSize size in bytes of one segment file
+     * @param handler     receives the recorded events
+     */
+    public static Journal open(Path directory, int segmentSize, JournalHandler handler) {
+        return open(directory, segmentSize, JournalPosition.START, handler);
+    }
+
+    /**
+     * Opens the journal in {@code directory}, replaying the records after {@code from} into the handler,
+     * and positions the writer after the last complete record.
+     *
+     * @param from position the state of the handler already reflects, e.g. the one of a snapshot
+     */
+    public static Journal open(Path directory, int segmentSize, JournalPosition from, JournalHandler handler) {
+        var journal = new Journal(directory, segmentSize);
+        try {
+            Files.createDirectories(directory);
+            journal.recover(from, handler);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open journal in " + directory, e);
+        }
+        return journal;
+    }
+
+    /**
+     * Reads the records between two positions without opening the journal for writing.
+     * Safe to call while another thread appends after {@code to}.
+     */
+    public static void replay(Path directory, int segmentSize, JournalPosition from, JournalPosition to,
+                              JournalHandler handler) {
+        var reader = new Journal(directory, segmentSize);
+        try {
+            for (long index : reader.segments(from)) {
+                if (index > to.segment()) {
+                    break;
+                }
+                reader.segmentIndex = index;
+                int start = index == from.segment() ? from.offset() : 0;
+                int end = index == to.segment() ? to.offset() : segmentSize;
+                reader.replay(reader.map(index, FileChannel.MapMode.READ_ONLY), start, end, handler);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read journal in " + directory, e);
+        }
+    }
+
+    public void appendOrder(Order order) {
+        int assetCode = assetCode(order.getInstrument());
+        Segment segment;
+        int position;
+        while ((position = (segment = this.segment).claim(ORDER_LENGTH)) < 0) {
+            roll(segment);
+        }
+        segment.buffer.putInt(position, ORDER_LENGTH)
+                .put(position + 5, (byte) order.getDirection().ordinal())
+                .putShort(position + 6, (short) assetCode)
+                .putLong(position + 8, EpochClock.epochSecond(order.getTimestampNanos()))
+                .putInt(position + 16, EpochClock.nanoOfSecond(order.getTimestampNanos()))
+                .putLong(position + 20, order.getPriceTicks())
+                .putLong(position + 28, order.getAmountLots())
+                .putLong(position + 36, order.getId());
+        publish(segment.buffer, position, ORDER);
+    }
+
+    public void appendFill(Order incomingOrder, Order counterOrder, long priceTicks, long amountLots) {
+        Segment segment;
+        int position;
+        while ((position = (segment = this.segment).claim(FILL_LENGTH)) < 0) {
+            roll(segment);
+        }
+        segment.buffer.putInt(position, FILL_LENGTH)
+                .putLong(position + 5, priceTicks)
+                .putLong(position + 13, amountLots)
+                .putLong(position + 21, incomingOrder.getId())
+                .putLong(position + 29, counterOrder.getId());
+        publish(segment.buffer, position, FILL);
+    }
+
+    public void appendCancel(Order order) {
+        Segment segment;
+        int position;
+        while ((position = (segment = this.segment).claim(CANCEL_LENGTH)) < 0) {
+            roll(segment);
+        }
+        segment.buffer.putInt(position, CANCEL_LENGTH)
+                .putLong(position + 5, order.getId());
+        publish(segment.buffer, position, CANCEL);
+    }
+
+    /**
+     * Waits for the records claimed so far to be published.
+     *
+     * @return the position after the last appended record
+     */
+    public synchronized JournalPosition position() {
+        var segment = this.segment;
+        int end = segment.tail.get();
+        segment.awaitPublished(end);
+        return new JournalPosition(segment.index, end);
+    }
+
+    /**
+     * Deletes the segments that only hold records before {@code position}.
+     * The caller must have saved the state up to that position elsewhere, see {@link Snapshot}.
+     */
+    public synchronized void compact(JournalPosition position) {
+        try {
+            for (long index : segments()) {
+                if (index >= Math.min(position.segment(), segment.index)) {
+                    break;
+                }
+                Files.deleteIfExists(segmentPath(index));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to compact journal in " + directory, e);
+        }
+    }
+
+    /**
+     * Forces the written records of the current segment to disk.
+     */
+    public synchronized void flush() {
+        segment.buffer.force();
+    }
+
+    @Override
+    public synchronized void close() {
+        flush();
+    }
+
+    private void recover(JournalPosition from, JournalHandler handler) throws IOException {
+        var segments = segments(from);
+        MappedByteBuffer buffer = null;
+        int position = 0;
+        for (long index : segments) {
+            segmentIndex = index;
+            buffer = map(index, FileChannel.MapMode.READ_WRITE);
+            position = replay(buffer, index == from.segment() ? from.offset() : 0, segmentSize, handler);
+        }
+        if (segments.isEmpty()) {
+            segmentIndex = from.segment();
+            buffer = map(segmentIndex, FileChannel.MapMode.READ_WRITE);
+        }
+        segment = new Segment(segmentIndex, buffer, position);
+    }
+
+    /**
+     * Replays the records between {@code start} and {@code end}.
+     * The ASSET records before {@code start} are read as well, the records after it refer to them.
+     *
+     * @return the position after the last record read
+     */
+    private int replay(MappedByteBuffer buffer, int start, int end, JournalHandler handler) {
+        int position = 0;
+        while (position < end && position + HEADER_LENGTH <= buffer.limit()) {
+            byte type = buffer.get(position + 4);
+            if (END == type) {
+                break;
+            }
+            // pairs with the release fence of publish, for records read while they are appended
+            VarHandle.acquireFence();
+            if (ASSET == type) {
+                readAsset(buffer, position);
+            } else if (position >= start) {
+                switch (type) {
+                    case ORDER -> handler.onOrder(
+                            buffer.getLong(position + 36),
+                            buffer.getLong(position + 8) * 1_000_000_000L + buffer.getInt(position + 16),
+                            assets.get(buffer.getShort(position + 6)),
+                            Direction.values()[buffer.get(position + 5)],
+                            buffer.getLong(position + 20),
+                            buffer.getLong(position + 28));
+                    case FILL -> handler.onFill(
+                            buffer.getLong(position + 21),
+                            buffer.getLong(position + 29),
+                            buffer.getLong(position + 5),
+                            buffer.getLong(position + 13));
+                    case CANCEL -> handler.onCancel(buffer.getLong(position + 5));
+                    default -> throw new IllegalStateException("Corrupted journal segment " + segmentIndex
+                                                               + ", unknown record type " + type + " at " + position);
+                }
+            }
+            position += buffer.getInt(position);
+        }
+        return position;
+    }
+
+    private int assetCode(Instrument instrument) {
+        var code = assetCodes.get(instrument.getAsset());
+        return null != code ? code : registerAsset(instrument);
+    }
+
+    private synchronized int registerAsset(Instrument instrument) {
+        var code = assetCodes.get(instrument.getAsset());
+        if (null != code) {
+            return code;
+        }
+        if (assets.size() > Short.MAX_VALUE) {
+            throw new IllegalStateException("Journal supports at most " + Short.MAX_VALUE + " assets");
+        }
+        if (instrument.getAsset().getBytes(StandardCharsets.UTF_8).length > MAX_ASSET_LENGTH) {
+            throw new IllegalArgumentException("Asset name must not be longer than " + MAX_ASSET_LENGTH + " bytes");
+        }
+        int assetCode = assets.size();
+        register(instrument);
+        // the ASSET record precedes every record of the asset, they are all appended by this partition
+        Segment segment;
+        int position;
+        int length = assetLength(instrument);
+        while ((position = (segment = this.segment).claim(length)) < 0) {
+            roll(segment);
+        }
+        writeAsset(segment.buffer, position, instrument, assetCode);
+        return assetCode;
+    }
+
+    private static int assetLength(Instrument instrument) {
+        return HEADER_LENGTH + 2 + 9 + 9 + 1 + instrument.getAsset().getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void writeAsset(MappedByteBuffer buffer, int position, Instrument instrument, int assetCode) {
+        byte[] name = instrument.getAsset().getBytes(StandardCharsets.UTF_8);
+        int length = HEADER_LENGTH + 2 + 9 + 9 + 1 + name.length;
+        buffer.putInt(position, length)
+                .putShort(position + 5, (short) assetCode)
+                .putLong(position + 7, instrument.getTickSize().unscaledValue().longValueExact())
+                .put(position + 15, (byte) instrument.getTickSize().scale())
+                .putLong(position + 16, instrument.getLotSize().unscaledValue().longValueExact())
+                .put(position + 24, (byte) instrument.getLotSize().scale())
+                .put(position + 25, (byte) name.length)
+                .put(position + 26, name);
+        publish(buffer, position, ASSET);
+    }
+
+    private void readAsset(MappedByteBuffer buffer, int position) {
+        int assetCode = buffer.getShort(position + 5);
+        if (assetCode < assets.size()) {
+            // repeated at the start of every segment
+            return;
+        }
+        if (assetCode != assets.size()) {
+            throw new IllegalStateException("Corrupted journal segment " + segmentIndex + ", asset code " + assetCode
+                                            + " out of sequence");
+        }
+        byte[] name = new byte[buffer.get(position + 25) & 0xFF];
+        buffer.get(position + 26, name);
+        var tickSize = new BigDecimal(BigInteger.valueOf(buffer.getLong(position + 7)), buffer.get(position + 15));
+        var lotSize = new BigDecimal(BigInteger.valueOf(buffer.getLong(position + 16)), buffer.get(position + 24));
+        register(new Instrument(new String(name, StandardCharsets.UTF_8), tickSize, lotSize));
+    }
+
+    private void register(Instrument instrument) {
+        assetCodes.put(instrument.getAsset(), assets.size());
+        assets.add(instrument);
+    }
+
+    private static void publish(MappedByteBuffer buffer, int position, byte type) {
+        // the record is complete before its type makes it readable
+        VarHandle.releaseFence();
+        buffer.put(position + 4, type);
+    }
+
+    /**
+     * Closes the full segment to further claims, forces it to disk once its records are published and
+     * continues in the next one, unless another writer already did.
+     */
+    private synchronized void roll(Segment full) {
+        if (full != segment) {
+            return;
+        }
+        full.awaitPublished(full.tail.getAndSet(segmentSize));
+        full.buffer.force();
+        long index = full.index + 1;
+        MappedByteBuffer buffer;
+        try {
+            buffer = map(index, FileChannel.MapMode.READ_WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to roll journal segment " + index, e);
+        }
+        int position = 0;
+        for (int code = 0; code < assets.size(); code++) {
+            writeAsset(buffer, position, assets.get(code), code);
+            position += assetLength(assets.get(code));
+        }
+        segment = new Segment(index, buffer, position);
+    }
+
+    private MappedByteBuffer map(long index, FileChannel.MapMode mode) throws IOException {
+        var options = FileChannel.MapMode.READ_ONLY == mode
+                ? new StandardOpenOption[]{StandardOpenOption.READ}
+                : new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE};
+        try (var channel = FileChannel.open(segmentPath(index), options)) {
+            return channel.map(mode, 0, segmentSize);
+        }
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve("%020d%s".formatted(index, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * @return the indexes of the segments holding records after {@code from}, in order
+     */
+    private List<Long> segments(JournalPosition from) throws IOException {
+        var segments = segments();
+        if (!segments.isEmpty() && segments.getFirst() > from.segment()) {
+            throw new IllegalStateException("Journal segments before " + segments.getFirst()
+                                            + " were deleted, a snapshot at or after them is required");
+        }
+        return segments.stream().filter(index -> index >= from.segment()).toList();
+    }
+
+    /**
+     * @return the indexes of the segments in the directory, in order
+     */
+    private List<Long> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * A mapped segment file and the end of the records claimed in it
+     */
+    private static final class Segment {
+
+        private final long index;
+        private final MappedByteBuffer buffer;
+        private final AtomicInteger tail;
+        /**
+         * End of the records known to be published, guarded by the journal
+         */
+        private int published;
+
+        private Segment(long index, MappedByteBuffer buffer, int position) {
+            this.index = index;
+            this.buffer = buffer;
+            this.tail = new AtomicInteger(position);
+            this.published = position;
+        }
+
+        /**
+         * @return the position of {@code length} bytes claimed for a record, negative if the segment is full
+         */
+        private int claim(int length) {
+            int position;
+            do {
+                position = tail.get();
+                if (position + length > buffer.capacity()) {
+                    return -1;
+                }
+            } while (!tail.compareAndSet(position, position + length));
+            return position;
+        }
+
+        /**
+         * Spins until every record before {@code end} has its type written
+         */
+        private void awaitPublished(int end) {
+            while (published < end) {
+                if (END == buffer.get(published + 4)) {
+                    Thread.onSpinWait();
+                } else {
+                    VarHandle.acquireFence();
+                    published += buffer.getInt(published);
+                }
+            }
+        }
+    }
+}
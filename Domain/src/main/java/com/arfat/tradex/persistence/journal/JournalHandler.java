@@ -0,0 +1,20 @@
+package com.arfat.tradex.persistence.journal;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Instrument;
+
+/**
+ * Receives the events of a {@link Journal} in the order they were appended.
+ */
+public interface JournalHandler {
+
+    /**
+     * @param timestampNanos time the order was accepted, in nanoseconds since the epoch
+     */
+    void onOrder(long orderId, long timestampNanos, Instrument instrument, Direction direction,
+                 long priceTicks, long amountLots);
+
+    void onFill(long incomingOrderId, long counterOrderId, long priceTicks, long amountLots);
+
+    void onCancel(long orderId);
+}
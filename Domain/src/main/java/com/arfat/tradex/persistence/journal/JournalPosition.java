@@ -0,0 +1,21 @@
+package com.arfat.tradex.persistence.journal;
+
+/**
+ * Position right after a record of the {@link Journal}. Every record before it is complete.
+ *
+ * @param segment index of the segment file
+ * @param offset  byte offset inside the segment
+ */
+public record JournalPosition(long segment, int offset) implements Comparable<JournalPosition> {
+
+    /**
+     * Position before the first record of a new journal
+     */
+    public static final JournalPosition START = new JournalPosition(1, 0);
+
+    @Override
+    public int compareTo(JournalPosition other) {
+        int bySegment = Long.compare(segment, other.segment);
+        return 0 != bySegment ? bySegment : Integer.compare(offset, other.offset);
+    }
+}
@@ -0,0 +1,73 @@
+package com.arfat.tradex.persistence.journal;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Instrument;
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.persistence.Persistence;
+
+/**
+ * Applies the journaled events to a {@link Persistence} the same way the matching engine did. <br>
+ * An order is put into its book as soon as it is replayed; the fills that follow execute it
+ * and take it out again once it is fully executed. The engine matches an asset on one thread,
+ * so no other order of the asset can be queued in between and the books end up identical.
+ * A replication standby applies the changes it receives from its primary the same way.
+ */
+public final class JournalReplay implements JournalHandler {
+
+    private final Persistence state;
+
+    public JournalReplay(Persistence state) {
+        this.state = state;
+    }
+
+    @Override
+    public void onOrder(long orderId, long timestampNanos, Instrument instrument, Direction direction,
+                        long priceTicks, long amountLots) {
+        var order = new Order(instrument, priceTicks, amountLots, direction, timestampNanos);
+        order.setId(orderId);
+        state.addOrder(order);
+        state.orderBook(order.getAsset(), direction).add(order);
+        state.marketDepth(order.getAsset()).add(direction, priceTicks, amountLots);
+    }
+
+    @Override
+    public void onFill(long incomingOrderId, long counterOrderId, long priceTicks, long amountLots) {
+        var incomingOrder = order(incomingOrderId);
+        var counterOrder = order(counterOrderId);
+
+        counterOrder.addTrade(incomingOrderId, amountLots, priceTicks);
+        incomingOrder.addTrade(counterOrderId, amountLots, priceTicks);
+        state.addFill(incomingOrder, counterOrder, priceTicks, amountLots);
+
+        fillResting(incomingOrder, amountLots);
+        fillResting(counterOrder, amountLots);
+    }
+
+    @Override
+    public void onCancel(long orderId) {
+        var order = order(orderId);
+        state.orderBook(order.getAsset(), order.getDirection()).remove(order);
+        state.marketDepth(order.getAsset()).remove(order.getDirection(), order.getPriceTicks(), order.getPendingLots());
+        order.cancel();
+        state.addCancel(order);
+    }
+
+    private void fillResting(Order order, long amountLots) {
+        if (!order.isResting()) {
+            return;
+        }
+        if (order.isFullyExecuted()) {
+            state.orderBook(order.getAsset(), order.getDirection()).remove(order);
+        }
+        state.marketDepth(order.getAsset())
+                .fill(order.getDirection(), order.getPriceTicks(), amountLots, order.isFullyExecuted());
+    }
+
+    private Order order(long orderId) {
+        var order = state.getOrder(orderId);
+        if (null == order) {
+            throw new IllegalStateException("Journal refers to unknown order " + orderId);
+        }
+        return order;
+    }
+}
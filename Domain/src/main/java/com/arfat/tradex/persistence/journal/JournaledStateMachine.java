@@ -0,0 +1,163 @@
+package com.arfat.tradex.persistence.journal;
+
+import com.arfat.tradex.book.MarketDepth;
+import com.arfat.tradex.book.OrderBook;
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.persistence.Persistence;
+import com.arfat.tradex.persistence.StateMachine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Durable {@link Persistence}: every accepted order, fill and cancel is appended to a {@link Journal}
+ * before it is applied to the in-memory state. <br>
+ * On creation the latest {@link Snapshot} is loaded and the journal after it is replayed into the state,
+ * which rebuilds the orders and the books exactly as they were before the restart.
+ */
+public final class JournaledStateMachine implements Persistence, AutoCloseable {
+
+    private final static Logger log = LoggerFactory.getLogger(JournaledStateMachine.class);
+
+    private final StateMachine state;
+    private final Path directory;
+    private final int segmentSize;
+    private final Journal journal;
+    private ScheduledExecutorService snapshots;
+
+    public JournaledStateMachine(Path directory) {
+        this(new StateMachine(), directory, Journal.DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param state       in-memory state the journal is replayed into, must be empty
+     * @param directory   directory holding the journal segments
+     * @param segmentSize size in bytes of one journal segment
+     */
+    public JournaledStateMachine(StateMachine state, Path directory, int segmentSize) {
+        this.state = state;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        var from = Snapshot.latest(directory)
+                .map(file -> Snapshot.restore(file, state))
+                .orElse(JournalPosition.START);
+        this.journal = Journal.open(directory, segmentSize, from, new JournalReplay(state));
+    }
+
+    /**
+     * @return the in-memory state the changes are applied to
+     */
+    public StateMachine state() {
+        return state;
+    }
+
+    @Override
+    public OrderBook orderBook(String asset, Direction direction) {
+        return state.orderBook(asset, direction);
+    }
+
+    @Override
+    public MarketDepth marketDepth(String asset) {
+        return state.marketDepth(asset);
+    }
+
+    @Override
+    public void addOrder(Order order) {
+        if (order == null) {
+            throw new IllegalArgumentException("Order must not be null");
+        }
+        journal.appendOrder(order);
+        state.addOrder(order);
+    }
+
+    @Override
+    public void addFill(Order incomingOrder, Order counterOrder, long priceTicks, long amountLots) {
+        journal.appendFill(incomingOrder, counterOrder, priceTicks, amountLots);
+        state.addFill(incomingOrder, counterOrder, priceTicks, amountLots);
+    }
+
+    @Override
+    public void addCancel(Order order) {
+        journal.appendCancel(order);
+        state.addCancel(order);
+    }
+
+    @Override
+    public Order getOrder(long orderId) {
+        return state.getOrder(orderId);
+    }
+
+    @Override
+    public int orderCount() {
+        return state.orderCount();
+    }
+
+    /**
+     * Forces the journal and the order archive to disk.
+     */
+    @Override
+    public void flush() {
+        journal.flush();
+        state.flush();
+    }
+
+    /**
+     * Writes a snapshot of the state at the current end of the journal, then deletes the journal segments
+     * and the older snapshots it covers. <br>
+     * Matching is only paused by the {@code quiesce} action to take the journal position as the consistent cut,
+     * once the partitions applied what they appended. The snapshot is then {@link Snapshot#advance advanced}
+     * from the previous one and the journal up to the cut on the calling thread, while matching continues.
+     *
+     * @param quiesce runs its argument while no order is being matched,
+     *                {@code Runnable::run} on the thread that matches the orders
+     * @return the snapshot file
+     */
+    public synchronized Path snapshot(Consumer<Runnable> quiesce) {
+        var cut = new JournalPosition[1];
+        quiesce.accept(() -> cut[0] = journal.position());
+        var file = Snapshot.advance(directory, segmentSize, cut[0], state.emptyCopy());
+        // the snapshot leaves the executed orders to the archive, which must be on disk before the journal goes
+        state.flush();
+        journal.compact(cut[0]);
+        Snapshot.deleteBefore(directory, cut[0]);
+        log.info("Snapshot {} written at journal position {}", file, cut[0]);
+        return file;
+    }
+
+    /**
+     * Takes a {@link #snapshot(Consumer)} periodically on a background thread until this is closed.
+     *
+     * @param quiesce runs its argument while no order is being matched
+     */
+    public synchronized void snapshotEvery(Duration interval, Consumer<Runnable> quiesce) {
+        if (null != snapshots) {
+            throw new IllegalStateException("Snapshots are already scheduled");
+        }
+        snapshots = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("snapshot").daemon().factory());
+        snapshots.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot(quiesce);
+            } catch (RuntimeException e) {
+                log.error("Snapshot failed, the journal is kept", e);
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (null != snapshots) {
+                snapshots.shutdownNow();
+            }
+        }
+        journal.close();
+        state.close();
+    }
+}
@@ -0,0 +1,108 @@
+package com.arfat.tradex.persistence.journal;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.EpochClock;
+import com.arfat.tradex.order.model.Instrument;
+import com.arfat.tradex.order.model.Order;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Flat binary form of an order with its trades and of the instrument it refers to,
+ * shared by the {@link Snapshot} and the {@link FileOrderArchive}.
+ * <pre>
+ * ORDER  long id | short asset code | byte direction | long epoch second | int nanos | long price | long amount
+ *        | long pending | byte cancelled | int trades | trades
+ * TRADE  long counter order id | long amount | long price
+ * ASSET  short code | long tick unscaled | byte tick scale | long lot unscaled | byte lot scale | byte length | name
+ * </pre>
+ * All methods read and write at the position of the buffer, which must have room for the whole record.
+ */
+final class OrderCodec {
+
+    static final int ORDER_LENGTH = 8 + 2 + 1 + 8 + 4 + 8 + 8 + 8 + 1 + 4;
+    static final int TRADE_LENGTH = 8 + 8 + 8;
+    static final int MAX_ASSET_LENGTH = 2 + 9 + 9 + 1 + 255;
+
+    private OrderCodec() {
+    }
+
+    static int length(Order order) {
+        return ORDER_LENGTH + order.getTradeCount() * TRADE_LENGTH;
+    }
+
+    static void writeOrder(ByteBuffer buffer, Order order, int assetCode) {
+        buffer.putLong(order.getId())
+                .putShort((short) assetCode)
+                .put((byte) order.getDirection().ordinal())
+                .putLong(EpochClock.epochSecond(order.getTimestampNanos()))
+                .putInt(EpochClock.nanoOfSecond(order.getTimestampNanos()))
+                .putLong(order.getPriceTicks())
+                .putLong(order.getAmountLots())
+                .putLong(order.getPendingLots())
+                .put((byte) (order.isCancelled() ? 1 : 0))
+                .putInt(order.getTradeCount());
+        for (int i = 0; i < order.getTradeCount(); i++) {
+            buffer.putLong(order.getTradeOrderId(i))
+                    .putLong(order.getTradeAmountLots(i))
+                    .putLong(order.getTradePriceTicks(i));
+        }
+    }
+
+    /**
+     * @param assets instruments by asset code
+     * @throws IllegalStateException if the trades do not add up to the pending amount of the order
+     */
+    static Order readOrder(ByteBuffer buffer, List<Instrument> assets) {
+        long id = buffer.getLong();
+        var instrument = assets.get(buffer.getShort());
+        var direction = Direction.values()[buffer.get()];
+        var timestamp = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+        var order = new Order(instrument, buffer.getLong(), buffer.getLong(), direction, timestamp);
+        order.setId(id);
+        long pendingLots = buffer.getLong();
+        if (1 == buffer.get()) {
+            order.cancel();
+        }
+        int trades = buffer.getInt();
+        for (int i = 0; i < trades; i++) {
+            order.addTrade(buffer.getLong(), buffer.getLong(), buffer.getLong());
+        }
+        if (pendingLots != order.getPendingLots()) {
+            throw new IllegalStateException("Trades of order " + id + " do not add up to its pending amount");
+        }
+        return order;
+    }
+
+    static void writeAsset(ByteBuffer buffer, Instrument instrument, int assetCode) {
+        byte[] name = instrument.getAsset().getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) assetCode)
+                .putLong(instrument.getTickSize().unscaledValue().longValueExact())
+                .put((byte) instrument.getTickSize().scale())
+                .putLong(instrument.getLotSize().unscaledValue().longValueExact())
+                .put((byte) instrument.getLotSize().scale())
+                .put((byte) name.length)
+                .put(name);
+    }
+
+    /**
+     * @param assetCode the code the asset is expected to have, codes are assigned in sequence
+     * @throws IllegalStateException if the asset has another code
+     */
+    static Instrument readAsset(ByteBuffer buffer, int assetCode) {
+        short code = buffer.getShort();
+        var tickSize = new BigDecimal(BigInteger.valueOf(buffer.getLong()), buffer.get());
+        var lotSize = new BigDecimal(BigInteger.valueOf(buffer.getLong()), buffer.get());
+        byte[] name = new byte[buffer.get() & 0xFF];
+        buffer.get(name);
+        if (code != assetCode) {
+            throw new IllegalStateException("Asset code " + code + " out of sequence");
+        }
+        return new Instrument(new String(name, StandardCharsets.UTF_8), tickSize, lotSize);
+    }
+}
@@ -0,0 +1,407 @@
+package com.arfat.tradex.persistence.journal;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Instrument;
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.persistence.Persistence;
+import com.arfat.tradex.persistence.StateMachine;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Binary image of a {@link StateMachine} at a {@link JournalPosition}. <br>
+ * The file is written and read through a {@link FileChannel} in large blocks, one flat record per order,
+ * instead of serializing an object graph.
+ * <p>
+ * Layout, after a header of {@code int magic | short version | long segment | int offset}:
+ * <pre>
+ * ASSET  byte type | asset
+ * ORDER  byte type | byte resting | int length | order
+ * END    byte type
+ * </pre>
+ * with the asset and order records of {@link OrderCodec}.
+ * The resting orders of a price come oldest first, so restoring only has to append them to their books.
+ * <p>
+ * A new snapshot is {@link #advance advanced} from the previous one and the journal after it, so it is written
+ * off the matching threads from the files alone.
+ */
+public final class Snapshot {
+
+    private static final int MAGIC = 0x5458534E;
+    private static final short VERSION = 3;
+    private static final int HEADER_LENGTH = 4 + 2 + 8 + 4;
+
+    private static final byte END = 0;
+    private static final byte ASSET = 1;
+    private static final byte ORDER = 2;
+
+    private static final int ORDER_HEADER_LENGTH = 1 + 1 + 4;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final String SUFFIX = ".snapshot";
+
+    private Snapshot() {
+    }
+
+    /**
+     * Writes the state to a new snapshot file in {@code directory}.
+     * The file is created under a temporary name and moved in place once it is complete.
+     *
+     * @param position journal position the state reflects
+     * @param state    state to write, must not change while it is written
+     * @return the snapshot file
+     */
+    public static Path write(Path directory, JournalPosition position, StateMachine state) {
+        return write(directory, position, writer -> {
+            state.forEachOrder(order -> {
+                if (!order.isResting()) {
+                    writer.order(order);
+                }
+            });
+            state.forEachOrderBook(book -> book.forEach(writer::order));
+        });
+    }
+
+    /**
+     * Writes the snapshot at {@code to} from the latest snapshot in {@code directory} and the journal up to
+     * {@code to}, without the live state. <br>
+     * Only the orders that the journal adds or changes are rebuilt in {@code changes}, the other orders are
+     * copied from the latest snapshot in their place, so the heap holds the changes since the latest snapshot
+     * instead of a second copy of the state.
+     *
+     * @param segmentSize size in bytes of one journal segment
+     * @param to          journal position to write the snapshot at, every record before it is published
+     * @param changes     empty state to rebuild the changed orders in, see {@link StateMachine#emptyCopy()}
+     * @return the snapshot file
+     */
+    static Path advance(Path directory, int segmentSize, JournalPosition to, StateMachine changes) {
+        var previous = latest(directory);
+        var from = previous.map(Snapshot::position).orElse(JournalPosition.START);
+        if (previous.isPresent() && from.equals(to)) {
+            return previous.get();
+        }
+        var changed = new ChangedOrders();
+        Journal.replay(directory, segmentSize, from, to, changed);
+        previous.ifPresent(file -> read(file, (order, resting) -> {
+            if (changed.previous.contains(order.getId())) {
+                load(changes, order, resting);
+            }
+        }));
+        Journal.replay(directory, segmentSize, from, to, new JournalReplay(changes));
+
+        // a changed order keeps its place among the orders of its price, a dropped one is archived
+        return write(directory, to, writer -> {
+            previous.ifPresent(file -> read(file, (order, resting) -> {
+                if (!changed.previous.contains(order.getId())) {
+                    writer.order(order, resting);
+                } else if (null != changes.getOrder(order.getId())) {
+                    writer.order(changes.getOrder(order.getId()));
+                }
+            }));
+            // the new orders are younger than the ones above, in the order they were placed
+            for (long orderId : changed.added) {
+                var order = changes.getOrder(orderId);
+                if (null != order) {
+                    writer.order(order);
+                }
+            }
+        });
+    }
+
+    private static Path write(Path directory, JournalPosition position, Consumer<Writer> orders) {
+        var file = directory.resolve("%020d-%010d%s".formatted(position.segment(), position.offset(), SUFFIX));
+        var temporary = directory.resolve(file.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            var writer = new Writer(channel);
+            writer.header(position);
+            orders.accept(writer);
+            writer.end();
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write snapshot " + file, e);
+        }
+        try {
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write snapshot " + file, e);
+        }
+        return file;
+    }
+
+    /**
+     * Loads a snapshot into an empty state.
+     *
+     * @return the journal position the snapshot was taken at, replay continues from there
+     */
+    public static JournalPosition restore(Path file, Persistence state) {
+        return read(file, (order, resting) -> load(state, order, resting));
+    }
+
+    private static JournalPosition read(Path file, BiConsumer<Order, Boolean> action) {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new Reader(channel, file).read(action);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read snapshot " + file, e);
+        }
+    }
+
+    private static void load(Persistence state, Order order, boolean resting) {
+        state.addOrder(order);
+        if (resting) {
+            state.orderBook(order.getAsset(), order.getDirection()).add(order);
+            state.marketDepth(order.getAsset())
+                    .add(order.getDirection(), order.getPriceTicks(), order.getPendingLots());
+        }
+    }
+
+    /**
+     * @return the snapshot taken at the latest journal position, if any
+     */
+    public static Optional<Path> latest(Path directory) {
+        return snapshots(directory).max(Comparator.comparing(Snapshot::position));
+    }
+
+    /**
+     * Deletes the snapshots taken before {@code position}.
+     */
+    static void deleteBefore(Path directory, JournalPosition position) {
+        snapshots(directory)
+                .filter(file -> position(file).compareTo(position) < 0)
+                .forEach(file -> {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Unable to delete snapshot " + file, e);
+                    }
+                });
+    }
+
+    private static Stream<Path> snapshots(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return Stream.empty();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).toList().stream();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to list snapshots in " + directory, e);
+        }
+    }
+
+    private static JournalPosition position(Path file) {
+        var name = file.getFileName().toString();
+        return new JournalPosition(Long.parseLong(name.substring(0, 20)), Integer.parseInt(name.substring(21, 31)));
+    }
+
+    /**
+     * The orders a part of the journal adds, in the order they were placed,
+     * and the orders of the previous snapshot it changes
+     */
+    private static final class ChangedOrders implements JournalHandler {
+        private final Set<Long> added = new LinkedHashSet<>();
+        private final Set<Long> previous = new HashSet<>();
+
+        @Override
+        public void onOrder(long orderId, long timestampNanos, Instrument instrument, Direction direction,
+                            long priceTicks, long amountLots) {
+            added.add(orderId);
+        }
+
+        @Override
+        public void onFill(long incomingOrderId, long counterOrderId, long priceTicks, long amountLots) {
+            changed(incomingOrderId);
+            changed(counterOrderId);
+        }
+
+        @Override
+        public void onCancel(long orderId) {
+            changed(orderId);
+        }
+
+        private void changed(long orderId) {
+            if (!added.contains(orderId)) {
+                previous.add(orderId);
+            }
+        }
+    }
+
+    private static final class Writer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final Map<String, Integer> assetCodes = new HashMap<>();
+
+        private Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void header(JournalPosition position) {
+            buffer.putInt(MAGIC).putShort(VERSION).putLong(position.segment()).putInt(position.offset());
+        }
+
+        void order(Order order) {
+            order(order, order.isResting());
+        }
+
+        void order(Order order, boolean resting) {
+            int assetCode = assetCode(order.getInstrument());
+            int length = OrderCodec.length(order);
+            ensure(ORDER_HEADER_LENGTH + length);
+            // an order with more trades than fit into the buffer is written on its own
+            var target = buffer.remaining() >= ORDER_HEADER_LENGTH + length
+                    ? buffer
+                    : ByteBuffer.allocate(ORDER_HEADER_LENGTH + length);
+            target.put(ORDER)
+                    .put((byte) (resting ? 1 : 0))
+                    .putInt(length);
+            OrderCodec.writeOrder(target, order, assetCode);
+            if (target != buffer) {
+                write(target.flip());
+            }
+        }
+
+        void end() throws IOException {
+            ensure(1);
+            buffer.put(END);
+            drain();
+        }
+
+        private int assetCode(Instrument instrument) {
+            var code = assetCodes.get(instrument.getAsset());
+            if (null != code) {
+                return code;
+            }
+            int assetCode = assetCodes.size();
+            ensure(1 + OrderCodec.MAX_ASSET_LENGTH);
+            buffer.put(ASSET);
+            OrderCodec.writeAsset(buffer, instrument, assetCode);
+            assetCodes.put(instrument.getAsset(), assetCode);
+            return assetCode;
+        }
+
+        private void ensure(int length) {
+            if (buffer.remaining() < length) {
+                try {
+                    drain();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            write(buffer);
+            buffer.clear();
+        }
+
+        private void write(ByteBuffer source) {
+            try {
+                while (source.hasRemaining()) {
+                    channel.write(source);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final FileChannel channel;
+        private final Path file;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).limit(0);
+        private final List<Instrument> assets = new ArrayList<>();
+
+        private Reader(FileChannel channel, Path file) {
+            this.channel = channel;
+            this.file = file;
+        }
+
+        JournalPosition read(BiConsumer<Order, Boolean> action) throws IOException {
+            ensure(HEADER_LENGTH);
+            if (MAGIC != buffer.getInt() || VERSION != buffer.getShort()) {
+                throw new IllegalStateException(file + " is not a snapshot of version " + VERSION);
+            }
+            var position = new JournalPosition(buffer.getLong(), buffer.getInt());
+
+            try {
+                while (true) {
+                    ensure(1);
+                    switch (buffer.get()) {
+                        case END -> {
+                            return position;
+                        }
+                        case ASSET -> {
+                            ensure(OrderCodec.MAX_ASSET_LENGTH);
+                            assets.add(OrderCodec.readAsset(buffer, assets.size()));
+                        }
+                        case ORDER -> order(action);
+                        default -> throw new IllegalStateException("unknown record type");
+                    }
+                }
+            } catch (IllegalStateException e) {
+                throw new IllegalStateException("Corrupted snapshot " + file + ", " + e.getMessage(), e);
+            }
+        }
+
+        private void order(BiConsumer<Order, Boolean> action) throws IOException {
+            ensure(ORDER_HEADER_LENGTH - 1);
+            boolean resting = 1 == buffer.get();
+            int length = buffer.getInt();
+            action.accept(OrderCodec.readOrder(record(length), assets), resting);
+        }
+
+        /**
+         * @return a buffer positioned at a record of {@code length} bytes
+         */
+        private ByteBuffer record(int length) throws IOException {
+            if (length <= BUFFER_SIZE) {
+                ensure(length);
+                return buffer;
+            }
+            var record = ByteBuffer.allocate(length).put(buffer);
+            while (record.hasRemaining()) {
+                if (channel.read(record) < 0) {
+                    throw new EOFException("Snapshot " + file + " ends unexpectedly");
+                }
+            }
+            return record.flip();
+        }
+
+        /**
+         * Makes sure that at least {@code length} bytes can be read from the buffer,
+         * or that the rest of the file is in the buffer.
+         */
+        private void ensure(int length) throws IOException {
+            if (buffer.remaining() >= length) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < length && channel.read(buffer) >= 0) {
+                // keep reading until the record is complete or the file ends
+            }
+            buffer.flip();
+            if (!buffer.hasRemaining()) {
+                throw new EOFException("Snapshot " + file + " ends unexpectedly");
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.arfat.tradex.persistence.replication;
+
+import com.arfat.tradex.book.MarketDepth;
+import com.arfat.tradex.book.OrderBook;
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.persistence.Persistence;
+
+/**
+ * {@link Persistence} of a primary: every accepted order, fill and cancel is handed to the
+ * {@link ReplicationPrimary} before it is applied, so that the standby applies the changes in the same order.
+ */
+public final class ReplicatedStateMachine implements Persistence, AutoCloseable {
+
+    private final Persistence state;
+    private final ReplicationPrimary primary;
+
+    /**
+     * @param state   the persistence the changes are applied to, possibly journaled
+     * @param primary streams the changes, closed with this
+     */
+    public ReplicatedStateMachine(Persistence state, ReplicationPrimary primary) {
+        this.state = state;
+        this.primary = primary;
+    }
+
+    public ReplicationPrimary primary() {
+        return primary;
+    }
+
+    /**
+     * @return the persistence the changes are applied to
+     */
+    public Persistence state() {
+        return state;
+    }
+
+    @Override
+    public OrderBook orderBook(String asset, Direction direction) {
+        return state.orderBook(asset, direction);
+    }
+
+    @Override
+    public MarketDepth marketDepth(String asset) {
+        return state.marketDepth(asset);
+    }
+
+    @Override
+    public void addOrder(Order order) {
+        if (order == null) {
+            throw new IllegalArgumentException("Order must not be null");
+        }
+        primary.appendOrder(order);
+        state.addOrder(order);
+    }
+
+    @Override
+    public void addFill(Order incomingOrder, Order counterOrder, long priceTicks, long amountLots) {
+        primary.appendFill(incomingOrder, counterOrder, priceTicks, amountLots);
+        state.addFill(incomingOrder, counterOrder, priceTicks, amountLots);
+    }
+
+    @Override
+    public void addCancel(Order order) {
+        primary.appendCancel(order);
+        state.addCancel(order);
+    }
+
+    @Override
+    public Order getOrder(long orderId) {
+        return state.getOrder(orderId);
+    }
+
+    @Override
+    public int orderCount() {
+        return state.orderCount();
+    }
+
+    @Override
+    public void flush() {
+        state.flush();
+    }
+
+    @Override
+    public void close() throws Exception {
+        primary.close();
+        if (state instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
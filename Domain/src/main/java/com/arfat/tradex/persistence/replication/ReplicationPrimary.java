@@ -0,0 +1,464 @@
+package com.arfat.tradex.persistence.replication;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Instrument;
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.persistence.StateMachine;
+import com.arfat.tradex.persistence.journal.JournalPosition;
+import com.arfat.tradex.persistence.journal.Snapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Streams every change of the state to one hot standby over TCP, see {@link ReplicationProtocol}. <br>
+ * The matching threads claim a sequence, write the change into its slot of a ring of preallocated slots and
+ * carry on, without a lock. A sender thread drains the published slots in sequence order into one buffered write
+ * per batch, without waiting for the standby, which acknowledges the changes it applied. Replication is pipelined,
+ * and the standby lags at most {@code maxLag} changes behind: what happens to an append that would leave it further
+ * behind is the {@link BackPressure} policy, and the time appends spend waiting for the standby is measured.
+ * Without a standby nothing waits and the ring is overwritten.
+ * <p>
+ * A standby that connects first receives a {@link Snapshot} of the state, written while matching is paused by
+ * the {@code quiesce} action, and then every change after it. A standby that stays silent for longer than
+ * the timeout is dropped, so that it can not stall matching.
+ */
+public final class ReplicationPrimary implements AutoCloseable {
+
+    private final static Logger log = LoggerFactory.getLogger(ReplicationPrimary.class);
+
+    private static final int BATCH = 4096;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final StateMachine state;
+    private final InetSocketAddress address;
+    private final int maxLag;
+    private final Duration timeout;
+    private final BackPressure backPressure;
+    private final Slot[] ring;
+    private final int mask;
+    /**
+     * Sequence of the last claimed change
+     */
+    private final AtomicLong next = new AtomicLong();
+    /**
+     * Appends waiting for the standby, unparked by the acknowledgements
+     */
+    private final Queue<Thread> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicLong blockedAppends = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+
+    private ServerSocket server;
+    private Thread acceptor;
+    private volatile Thread sender;
+    private volatile boolean senderParked;
+    private volatile boolean running = true;
+    private volatile Socket session;
+
+    /**
+     * Sequence of the last change the standby applied, and whether one is connected
+     */
+    private volatile long acknowledged;
+    private volatile boolean streaming;
+    private volatile long lagNanos;
+
+    /**
+     * What an append does when the standby is {@code maxLag} changes behind
+     */
+    public enum BackPressure {
+        /**
+         * The matching thread waits until the standby catches up, or is dropped for its silence
+         */
+        WAIT,
+        /**
+         * The standby is dropped and matching carries on, the standby has to connect again for a new snapshot
+         */
+        DROP_STANDBY
+    }
+
+    /**
+     * A primary that waits for a standby which falls behind.
+     *
+     * @param state   the state whose changes are appended, snapshotted for a standby that connects
+     * @param address where standbys connect
+     * @param maxLag  changes the standby may fall behind before appending waits for it
+     * @param timeout silence after which the standby is dropped
+     */
+    public ReplicationPrimary(StateMachine state, InetSocketAddress address, int maxLag, Duration timeout) {
+        this(state, address, maxLag, timeout, BackPressure.WAIT);
+    }
+
+    /**
+     * @param backPressure what an append does while the standby is {@code maxLag} changes behind
+     */
+    public ReplicationPrimary(StateMachine state, InetSocketAddress address, int maxLag, Duration timeout,
+                              BackPressure backPressure) {
+        if (maxLag <= 0) {
+            throw new IllegalArgumentException("Replication lag must be greater than zero");
+        }
+        this.state = state;
+        this.address = address;
+        this.maxLag = maxLag;
+        this.timeout = timeout;
+        this.backPressure = backPressure;
+        // the unacknowledged changes must stay in the ring until they are sent
+        this.ring = new Slot[1 == maxLag ? 1 : Integer.highestOneBit(maxLag - 1) << 1];
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = new Slot();
+        }
+        this.mask = ring.length - 1;
+    }
+
+    /**
+     * Accepts standbys from now on.
+     *
+     * @param quiesce runs its argument while no order is being matched, see {@link Snapshot}
+     * @throws UncheckedIOException if the address can not be bound
+     */
+    public synchronized void start(Consumer<Runnable> quiesce) {
+        if (null != server) {
+            throw new IllegalStateException("Replication is already started");
+        }
+        try {
+            server = new ServerSocket();
+            server.bind(address);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to listen on " + address, e);
+        }
+        acceptor = Thread.ofPlatform().name("replication-primary").daemon().start(() -> accept(quiesce));
+        log.info("Replicating to standbys connecting on {}", localAddress());
+    }
+
+    /**
+     * @return the bound address, with the actual port when started on port 0
+     */
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) server.getLocalSocketAddress();
+    }
+
+    /**
+     * @return true while a standby receives the changes
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * @return changes appended but not yet applied by the standby, 0 without one
+     */
+    public long lag() {
+        return streaming ? Math.max(0, next.get() - acknowledged) : 0;
+    }
+
+    /**
+     * @return nanoseconds from appending the latest acknowledged change to its acknowledgement
+     */
+    public long lagNanos() {
+        return lagNanos;
+    }
+
+    /**
+     * @return appends that had to wait for the standby so far
+     */
+    public long blockedAppends() {
+        return blockedAppends.get();
+    }
+
+    /**
+     * @return nanoseconds appends spent waiting for the standby so far
+     */
+    public long blockedNanos() {
+        return blockedNanos.get();
+    }
+
+    void appendOrder(Order order) {
+        append(ReplicationProtocol.ORDER, order.getId(), 0, order.getTimestampNanos(), order.getInstrument(),
+                order.getDirection(), order.getPriceTicks(), order.getAmountLots());
+    }
+
+    void appendFill(Order incomingOrder, Order counterOrder, long priceTicks, long amountLots) {
+        append(ReplicationProtocol.FILL, incomingOrder.getId(), counterOrder.getId(), 0, null, null,
+                priceTicks, amountLots);
+    }
+
+    void appendCancel(Order order) {
+        append(ReplicationProtocol.CANCEL, order.getId(), 0, 0, null, null, 0, 0);
+    }
+
+    private void append(byte type, long orderId, long counterOrderId, long timestampNanos,
+                        Instrument instrument, Direction direction, long priceTicks, long amountLots) {
+        long sequence = next.incrementAndGet();
+        if (streaming && sequence - acknowledged > maxLag) {
+            awaitStandby(sequence);
+        }
+        // the slot was acknowledged a lap ago, or there is no standby to send it to
+        ring[(int) sequence & mask].set(sequence, type, orderId, counterOrderId, timestampNanos, instrument,
+                direction, priceTicks, amountLots);
+        if (senderParked) {
+            LockSupport.unpark(sender);
+        }
+    }
+
+    private void awaitStandby(long sequence) {
+        if (BackPressure.DROP_STANDBY == backPressure) {
+            log.warn("Standby is more than {} changes behind, dropping it", maxLag);
+            endSession();
+            return;
+        }
+        var thread = Thread.currentThread();
+        long start = System.nanoTime();
+        waiters.add(thread);
+        try {
+            while (streaming && sequence - acknowledged > maxLag) {
+                // unparked by the acknowledgements, or when the standby is dropped
+                LockSupport.parkNanos(this, timeout.toNanos());
+                if (thread.isInterrupted()) {
+                    // changes before this one may already be applied here, the standby could only diverge
+                    log.warn("Interrupted while waiting for the standby, dropping it");
+                    endSession();
+                    return;
+                }
+            }
+        } finally {
+            waiters.remove(thread);
+            blockedAppends.incrementAndGet();
+            blockedNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private void accept(Consumer<Runnable> quiesce) {
+        while (running) {
+            try (var socket = server.accept()) {
+                log.info("Standby connected from {}", socket.getRemoteSocketAddress());
+                serve(socket, quiesce);
+            } catch (IOException | RuntimeException e) {
+                if (running) {
+                    log.warn("Replication to the standby stopped", e);
+                }
+            } finally {
+                endSession();
+            }
+        }
+    }
+
+    private void serve(Socket socket, Consumer<Runnable> quiesce) throws IOException {
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(Math.toIntExact(timeout.toMillis()));
+        session = socket;
+        var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+        var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+        long from = sendSnapshot(out, quiesce);
+        Thread.ofPlatform().name("replication-acks").daemon().start(() -> readAcknowledgements(in));
+        sender = Thread.currentThread();
+        send(out, from);
+    }
+
+    /**
+     * @return sequence the snapshot was taken at
+     */
+    private long sendSnapshot(DataOutputStream out, Consumer<Runnable> quiesce) throws IOException {
+        var directory = Files.createTempDirectory("tradex-replication");
+        var cut = new long[2];
+        var file = new Path[1];
+        try {
+            quiesce.accept(() -> {
+                // nothing is appended while matching is paused
+                cut[0] = next.get();
+                acknowledged = cut[0];
+                streaming = true;
+                state.forEachOrder(order -> cut[1] = Math.max(cut[1], order.getId()));
+                file[0] = Snapshot.write(directory, JournalPosition.START, state);
+            });
+            out.writeByte(ReplicationProtocol.SNAPSHOT);
+            out.writeLong(cut[0]);
+            out.writeLong(cut[1]);
+            out.writeLong(Files.size(file[0]));
+            Files.copy(file[0], out);
+            out.flush();
+            log.info("Snapshot of {} bytes sent to the standby at sequence {}", Files.size(file[0]), cut[0]);
+        } finally {
+            if (null != file[0]) {
+                Files.deleteIfExists(file[0]);
+            }
+            Files.deleteIfExists(directory);
+        }
+        return cut[0];
+    }
+
+    /**
+     * Writes the changes after {@code from} in batches, and a heartbeat whenever there were none for a while.
+     */
+    private void send(DataOutputStream out, long from) throws IOException {
+        Map<String, Integer> assetCodes = new HashMap<>();
+        long heartbeatNanos = timeout.toNanos() / 4;
+        long sent = from;
+        while (running && streaming) {
+            long last = publishedAfter(sent);
+            if (last == sent) {
+                senderParked = true;
+                if (publishedAfter(sent) == sent) {
+                    LockSupport.parkNanos(this, heartbeatNanos);
+                }
+                senderParked = false;
+                last = publishedAfter(sent);
+            }
+            for (long sequence = sent + 1; sequence <= last; sequence++) {
+                ring[(int) sequence & mask].write(out, assetCodes);
+            }
+            out.writeByte(ReplicationProtocol.COMMIT);
+            out.writeLong(last);
+            out.flush();
+            sent = last;
+        }
+    }
+
+    /**
+     * @return the last of the changes up to a batch after {@code sent} that are published without a gap
+     */
+    private long publishedAfter(long sent) {
+        long last = sent;
+        while (last - sent < BATCH && ring[(int) (last + 1) & mask].sequence == last + 1) {
+            last++;
+        }
+        return last;
+    }
+
+    private void readAcknowledgements(DataInputStream in) {
+        try {
+            while (streaming) {
+                long sequence = in.readLong();
+                if (sequence > acknowledged) {
+                    // the slot is only reused once this is acknowledged, its volatile sequence publishes the time
+                    var slot = ring[(int) sequence & mask];
+                    if (slot.sequence == sequence) {
+                        lagNanos = System.nanoTime() - slot.appendedNanos;
+                    }
+                    acknowledged = sequence;
+                    waiters.forEach(LockSupport::unpark);
+                }
+            }
+        } catch (IOException e) {
+            if (streaming) {
+                log.warn("Standby stopped acknowledging, dropping it", e);
+            }
+        } finally {
+            endSession();
+        }
+    }
+
+    private void endSession() {
+        streaming = false;
+        waiters.forEach(LockSupport::unpark);
+        var socket = session;
+        if (null != socket) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                log.debug("Closing the standby connection failed", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        endSession();
+        try {
+            if (null != server) {
+                server.close();
+            }
+        } catch (IOException e) {
+            log.debug("Closing the replication socket failed", e);
+        }
+        if (null != acceptor) {
+            try {
+                acceptor.join(timeout.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * One change, overwritten in place so that appending allocates nothing.
+     * The change is published by writing its sequence last.
+     */
+    private static final class Slot {
+        private volatile long sequence;
+        private byte type;
+        private long orderId;
+        private long counterOrderId;
+        private long timestampNanos;
+        private Instrument instrument;
+        private Direction direction;
+        private long priceTicks;
+        private long amountLots;
+        private long appendedNanos;
+
+        void set(long sequence, byte type, long orderId, long counterOrderId, long timestampNanos,
+                 Instrument instrument, Direction direction, long priceTicks, long amountLots) {
+            this.type = type;
+            this.orderId = orderId;
+            this.counterOrderId = counterOrderId;
+            this.timestampNanos = timestampNanos;
+            this.instrument = instrument;
+            this.direction = direction;
+            this.priceTicks = priceTicks;
+            this.amountLots = amountLots;
+            this.appendedNanos = System.nanoTime();
+            this.sequence = sequence;
+        }
+
+        void write(DataOutputStream out, Map<String, Integer> assetCodes) throws IOException {
+            switch (type) {
+                case ReplicationProtocol.ORDER -> {
+                    var code = assetCodes.get(instrument.getAsset());
+                    if (null == code) {
+                        code = assetCodes.size();
+                        assetCodes.put(instrument.getAsset(), code);
+                        ReplicationProtocol.writeAsset(out, code, instrument);
+                    }
+                    out.writeByte(ReplicationProtocol.ORDER);
+                    out.writeLong(orderId);
+                    out.writeLong(timestampNanos);
+                    out.writeShort(code);
+                    out.writeByte(direction.ordinal());
+                    out.writeLong(priceTicks);
+                    out.writeLong(amountLots);
+                }
+                case ReplicationProtocol.FILL -> {
+                    out.writeByte(ReplicationProtocol.FILL);
+                    out.writeLong(orderId);
+                    out.writeLong(counterOrderId);
+                    out.writeLong(priceTicks);
+                    out.writeLong(amountLots);
+                }
+                case ReplicationProtocol.CANCEL -> {
+                    out.writeByte(ReplicationProtocol.CANCEL);
+                    out.writeLong(orderId);
+                }
+                default -> throw new IllegalStateException("Unknown change type " + type);
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.arfat.tradex.persistence.replication;
+
+import com.arfat.tradex.order.model.Instrument;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Stream from a {@link ReplicationPrimary} to its {@link ReplicationStandby}, big-endian, one type byte per message:
+ * <pre>
+ * SNAPSHOT long sequence | long max order id | long length | snapshot file
+ * ASSET    short code | UTF name | long tick unscaled | byte tick scale | long lot unscaled | byte lot scale
+ * ORDER    long id | long timestamp nanos | short asset code | byte direction | long price | long amount
+ * FILL     long incoming id | long counter id | long price | long amount
+ * CANCEL   long id
+ * COMMIT   long sequence
+ * </pre>
+ * The stream starts with one SNAPSHOT of the state at {@code sequence}, the changes after it follow in batches
+ * that each end with a COMMIT of the last change in the batch. An ASSET precedes the first ORDER of the asset.
+ * An idle primary sends a COMMIT of the same sequence as heartbeat.
+ * The standby answers every COMMIT with the {@code long} sequence it has applied.
+ */
+final class ReplicationProtocol {
+
+    static final byte SNAPSHOT = 1;
+    static final byte ASSET = 2;
+    static final byte ORDER = 3;
+    static final byte FILL = 4;
+    static final byte CANCEL = 5;
+    static final byte COMMIT = 6;
+
+    private ReplicationProtocol() {
+    }
+
+    static void writeAsset(DataOutputStream out, int code, Instrument instrument) throws IOException {
+        out.writeByte(ASSET);
+        out.writeShort(code);
+        out.writeUTF(instrument.getAsset());
+        out.writeLong(instrument.getTickSize().unscaledValue().longValueExact());
+        out.writeByte(instrument.getTickSize().scale());
+        out.writeLong(instrument.getLotSize().unscaledValue().longValueExact());
+        out.writeByte(instrument.getLotSize().scale());
+    }
+
+    /**
+     * Reads an ASSET after its type byte.
+     */
+    static Instrument readAsset(DataInputStream in) throws IOException {
+        var asset = in.readUTF();
+        var tickSize = new BigDecimal(BigInteger.valueOf(in.readLong()), in.readByte());
+        var lotSize = new BigDecimal(BigInteger.valueOf(in.readLong()), in.readByte());
+        return new Instrument(asset, tickSize, lotSize);
+    }
+}
@@ -0,0 +1,237 @@
+package com.arfat.tradex.persistence.replication;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Instrument;
+import com.arfat.tradex.persistence.Persistence;
+import com.arfat.tradex.persistence.journal.JournalReplay;
+import com.arfat.tradex.persistence.journal.Snapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot standby of a {@link ReplicationPrimary}: applies the stream of changes to its own state as it arrives,
+ * so that its books are the books of the primary, a few changes behind at most. <br>
+ * Once it has received the state of the primary, a primary that stays silent for longer than the timeout, or that
+ * closes the connection, is considered failed: the standby is promoted and its promotion callbacks take over.
+ * Until then it keeps trying to connect.
+ */
+public final class ReplicationStandby implements AutoCloseable {
+
+    private final static Logger log = LoggerFactory.getLogger(ReplicationStandby.class);
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final Persistence state;
+    private final JournalReplay replay;
+    private final InetSocketAddress primary;
+    private final Duration timeout;
+    private final List<Runnable> promotionCallbacks = new CopyOnWriteArrayList<>();
+
+    private Thread thread;
+    private volatile Socket socket;
+    private volatile boolean closed;
+    private volatile boolean synced;
+    private volatile boolean promoted;
+    private volatile long lastOrderId;
+    private volatile long applied;
+
+    /**
+     * @param state   where the changes are applied, must be empty
+     * @param primary address the primary accepts standbys on
+     * @param timeout silence of the primary after which the standby takes over
+     */
+    public ReplicationStandby(Persistence state, InetSocketAddress primary, Duration timeout) {
+        if (0 != state.orderCount()) {
+            throw new IllegalArgumentException("The state of a standby must be empty");
+        }
+        this.state = state;
+        this.replay = new JournalReplay(state);
+        this.primary = primary;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Runs the action on the replication thread once this standby is promoted.
+     */
+    public void onPromotion(Runnable action) {
+        promotionCallbacks.add(action);
+    }
+
+    /**
+     * Connects to the primary and follows it from now on.
+     */
+    public synchronized void start() {
+        if (null != thread) {
+            throw new IllegalStateException("Replication is already started");
+        }
+        thread = Thread.ofPlatform().name("replication-standby").daemon().start(this::follow);
+    }
+
+    /**
+     * @return true once the primary failed and this took over
+     */
+    public boolean isPromoted() {
+        return promoted;
+    }
+
+    /**
+     * @return true once the state of the primary has been received
+     */
+    public boolean isSynced() {
+        return synced;
+    }
+
+    /**
+     * @return sequence of the last change applied
+     */
+    public long applied() {
+        return applied;
+    }
+
+    /**
+     * @return highest order id the primary has handed out, new ids must be greater
+     */
+    public long lastOrderId() {
+        return lastOrderId;
+    }
+
+    private void follow() {
+        long lastMessageNanos = System.nanoTime();
+        while (!closed) {
+            try (var connection = new Socket()) {
+                socket = connection;
+                connection.connect(primary, Math.toIntExact(timeout.toMillis()));
+                connection.setTcpNoDelay(true);
+                connection.setSoTimeout(Math.toIntExact(timeout.toMillis()));
+                log.info("Following the primary at {}", primary);
+                var in = new DataInputStream(new BufferedInputStream(connection.getInputStream(), 64 * 1024));
+                var out = new DataOutputStream(connection.getOutputStream());
+                receiveSnapshot(in);
+                lastMessageNanos = System.nanoTime();
+                // a primary that stops mid batch leaves the state of the last COMMIT plus whole changes
+                List<Instrument> instruments = new ArrayList<>();
+                while (!closed) {
+                    byte type = in.readByte();
+                    lastMessageNanos = System.nanoTime();
+                    switch (type) {
+                        case ReplicationProtocol.ASSET -> {
+                            int code = in.readShort();
+                            var instrument = ReplicationProtocol.readAsset(in);
+                            while (instruments.size() <= code) {
+                                instruments.add(null);
+                            }
+                            instruments.set(code, instrument);
+                        }
+                        case ReplicationProtocol.ORDER -> {
+                            long id = in.readLong();
+                            long timestampNanos = in.readLong();
+                            var instrument = instruments.get(in.readShort());
+                            var direction = DIRECTIONS[in.readByte()];
+                            replay.onOrder(id, timestampNanos, instrument, direction, in.readLong(), in.readLong());
+                            lastOrderId = Math.max(lastOrderId, id);
+                        }
+                        case ReplicationProtocol.FILL ->
+                                replay.onFill(in.readLong(), in.readLong(), in.readLong(), in.readLong());
+                        case ReplicationProtocol.CANCEL -> replay.onCancel(in.readLong());
+                        case ReplicationProtocol.COMMIT -> {
+                            applied = in.readLong();
+                            out.writeLong(applied);
+                            out.flush();
+                        }
+                        default -> throw new IOException("Unknown replication message " + type);
+                    }
+                }
+            } catch (IOException e) {
+                if (closed) {
+                    return;
+                }
+                if (synced) {
+                    log.warn("Lost the primary at {}: {}", primary, e.toString());
+                    break;
+                }
+                log.info("Primary at {} not reachable yet: {}", primary, e.toString());
+                try {
+                    TimeUnit.NANOSECONDS.sleep(timeout.toNanos() / 4);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+            }
+        }
+        if (!closed) {
+            promote(lastMessageNanos);
+        }
+    }
+
+    private void receiveSnapshot(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        if (ReplicationProtocol.SNAPSHOT != type) {
+            throw new IOException("Expected a snapshot, got message " + type);
+        }
+        long sequence = in.readLong();
+        long maxOrderId = in.readLong();
+        long length = in.readLong();
+        var file = Files.createTempFile("tradex-standby", ".snapshot");
+        try {
+            try (var snapshot = Files.newOutputStream(file)) {
+                var buffer = new byte[64 * 1024];
+                for (long remaining = length; remaining > 0; ) {
+                    int read = (int) Math.min(buffer.length, remaining);
+                    in.readFully(buffer, 0, read);
+                    snapshot.write(buffer, 0, read);
+                    remaining -= read;
+                }
+            }
+            Snapshot.restore(file, state);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        applied = sequence;
+        lastOrderId = maxOrderId;
+        synced = true;
+        log.info("Restored the snapshot of the primary at sequence {}, {} orders", sequence, state.orderCount());
+    }
+
+    private void promote(long lastMessageNanos) {
+        promoted = true;
+        log.info("Promoted to primary {} ms after the last message, at sequence {}",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastMessageNanos), applied);
+        for (var callback : promotionCallbacks) {
+            try {
+                callback.run();
+            } catch (RuntimeException e) {
+                log.error("Promotion callback failed", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        var connection = socket;
+        if (null != connection) {
+            try {
+                connection.close();
+            } catch (IOException e) {
+                log.debug("Closing the primary connection failed", e);
+            }
+        }
+        synchronized (this) {
+            if (null != thread) {
+                thread.interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.arfat.tradex.tracing;
+
+import com.arfat.tradex.order.model.IdGenerator;
+import com.arfat.tradex.order.model.Order;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JDK Flight Recorder event of one stage of placing an order, correlated by the order id and the request id
+ * that the logs carry as {@code uid}. <br>
+ * Stages that take less than the threshold are not recorded, and an event that is not recorded costs a check of
+ * a flag, so the events can stay enabled in a continuous recording. Every stage is timed on the thread it runs on,
+ * and an event can be begun again once it is committed:
+ * <pre>
+ * java -XX:StartFlightRecording=settings=default,maxage=1h,disk=true -jar orchestrator.jar
+ * jfr print --events 'tradex.*' recording.jfr
+ * </pre>
+ */
+@Category("Tradex")
+@StackTrace(false)
+@Threshold("1 ms")
+public abstract class OrderEvent extends Event {
+
+    @Label("Order Id")
+    String orderId;
+
+    @Label("Request Id")
+    String requestId;
+
+    @Label("Asset")
+    String asset;
+
+    /**
+     * Ends the stage and records it if it took at least the threshold.
+     */
+    public void commit(Order order) {
+        end();
+        if (shouldCommit()) {
+            // the event may be reused for the next order
+            orderId = 0 == order.getId() ? null : IdGenerator.format(order.getId());
+            requestId = null == order.getTrace() ? null : order.getTrace().getRequestId();
+            asset = order.getAsset();
+            commit();
+        }
+    }
+}
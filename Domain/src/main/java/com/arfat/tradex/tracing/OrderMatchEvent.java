@@ -0,0 +1,24 @@
+package com.arfat.tradex.tracing;
+
+import com.arfat.tradex.order.model.Order;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("tradex.OrderMatch")
+@Label("Order Match")
+@Description("Matching an order against the counter book and resting what is left of it")
+public final class OrderMatchEvent extends OrderEvent {
+
+    @Label("Fills")
+    int fills;
+
+    @Label("Levels Crossed")
+    int levelsCrossed;
+
+    public void commit(Order order, int levelsCrossed) {
+        this.fills = order.getTradeCount();
+        this.levelsCrossed = levelsCrossed;
+        commit(order);
+    }
+}
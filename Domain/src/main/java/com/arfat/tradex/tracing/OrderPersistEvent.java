@@ -0,0 +1,11 @@
+package com.arfat.tradex.tracing;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("tradex.OrderPersist")
+@Label("Order Persist")
+@Description("Recording an accepted order in the persistence, journal and replication included")
+public final class OrderPersistEvent extends OrderEvent {
+}
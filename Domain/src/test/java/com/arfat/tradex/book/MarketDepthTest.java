@@ -0,0 +1,96 @@
+package com.arfat.tradex.book;
+
+import com.arfat.tradex.order.model.Direction;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarketDepthTest {
+
+    @Test
+    void shouldAggregateOrdersPerPrice_BestPriceFirst() {
+        var depth = new MarketDepth();
+        depth.add(Direction.BUY, 100, 5);
+        depth.add(Direction.BUY, 102, 1);
+        depth.add(Direction.BUY, 100, 3);
+        depth.add(Direction.SELL, 105, 2);
+        depth.add(Direction.SELL, 104, 7);
+
+        assertEquals(List.of(new DepthLevel(102, 1, 1), new DepthLevel(100, 8, 2)), depth.levels(Direction.BUY, 10));
+        assertEquals(List.of(new DepthLevel(104, 7, 1)), depth.levels(Direction.SELL, 1));
+    }
+
+    @Test
+    void shouldReduceVolume_WhenOrderIsPartiallyFilled() {
+        var depth = new MarketDepth();
+        depth.add(Direction.SELL, 105, 5);
+        depth.add(Direction.SELL, 105, 5);
+
+        depth.fill(Direction.SELL, 105, 2, false);
+
+        assertEquals(List.of(new DepthLevel(105, 8, 2)), depth.levels(Direction.SELL, 10));
+    }
+
+    @Test
+    void shouldDropLevel_WhenLastOrderLeaves() {
+        var depth = new MarketDepth();
+        depth.add(Direction.BUY, 100, 5);
+        depth.add(Direction.BUY, 99, 1);
+
+        depth.fill(Direction.BUY, 100, 5, true);
+
+        assertEquals(List.of(new DepthLevel(99, 1, 1)), depth.levels(Direction.BUY, 10));
+    }
+
+    @Test
+    void shouldCountOrdersAndLevels_PerSide() {
+        var depth = new MarketDepth();
+        assertEquals(OrderBook.NO_PRICE, depth.bestPrice(Direction.SELL));
+        depth.add(Direction.SELL, 105, 5);
+        depth.add(Direction.SELL, 105, 5);
+        depth.add(Direction.SELL, 104, 1);
+        depth.add(Direction.BUY, 100, 2);
+
+        depth.fill(Direction.SELL, 104, 1, true);
+        depth.fill(Direction.SELL, 105, 2, false);
+
+        assertEquals(2, depth.orderCount(Direction.SELL));
+        assertEquals(1, depth.levelCount(Direction.SELL));
+        assertEquals(105, depth.bestPrice(Direction.SELL));
+        assertEquals(1, depth.orderCount(Direction.BUY));
+        assertEquals(100, depth.bestPrice(Direction.BUY));
+    }
+
+    @Test
+    void shouldMoveTheBestPrice_WhenTheTopLevelEmpties() {
+        var depth = new MarketDepth();
+        depth.add(Direction.BUY, 100, 2);
+        depth.add(Direction.BUY, 101, 1);
+        assertEquals(101, depth.bestPrice(Direction.BUY));
+
+        depth.remove(Direction.BUY, 101, 1);
+        assertEquals(100, depth.bestPrice(Direction.BUY));
+
+        depth.fill(Direction.BUY, 100, 2, true);
+        assertEquals(OrderBook.NO_PRICE, depth.bestPrice(Direction.BUY));
+    }
+
+    @Test
+    void shouldSumTheVolume_UpToTheLimitPrice() {
+        var depth = new MarketDepth();
+        depth.add(Direction.SELL, 105, 2);
+        depth.add(Direction.SELL, 104, 3);
+        depth.add(Direction.SELL, 106, 10);
+        depth.add(Direction.BUY, 100, 4);
+
+        assertTrue(depth.hasVolume(Direction.SELL, 104, 3));
+        assertFalse(depth.hasVolume(Direction.SELL, 104, 4));
+        assertTrue(depth.hasVolume(Direction.SELL, 105, 5));
+        assertFalse(depth.hasVolume(Direction.SELL, 105, 6));
+        assertTrue(depth.hasVolume(Direction.SELL, 106, 15));
+        assertTrue(depth.hasVolume(Direction.BUY, 99, 4));
+        assertFalse(depth.hasVolume(Direction.BUY, 101, 1));
+    }
+}
@@ -0,0 +1,200 @@
+package com.arfat.tradex.book;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Instrument;
+import com.arfat.tradex.order.model.Instruments;
+import com.arfat.tradex.order.model.Order;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceLadderTest {
+
+    @Test
+    void shouldBeEmpty_WhenCreated() {
+        var book = new PriceLadder(Direction.BUY, 16);
+
+        assertTrue(book.isEmpty());
+        assertEquals(OrderBook.NO_PRICE, book.bestPrice());
+        assertNull(book.bestOrder());
+        assertEquals(0, book.levels());
+    }
+
+    @Test
+    void shouldKeepHighestBidOnTop() {
+        var book = new PriceLadder(Direction.BUY, 16);
+        book.add(order(100, Direction.BUY));
+        var best = order(103, Direction.BUY);
+        book.add(best);
+        book.add(order(98, Direction.BUY));
+
+        assertEquals(103, book.bestPrice());
+        assertSame(best, book.bestOrder());
+    }
+
+    @Test
+    void shouldKeepLowestAskOnTop() {
+        var book = new PriceLadder(Direction.SELL, 16);
+        book.add(order(100, Direction.SELL));
+        var best = order(97, Direction.SELL);
+        book.add(best);
+        book.add(order(104, Direction.SELL));
+
+        assertEquals(97, book.bestPrice());
+        assertSame(best, book.bestOrder());
+    }
+
+    @Test
+    void shouldCrossOnlyFromTheBestPrice() {
+        var asks = new PriceLadder(Direction.SELL, 16);
+        var bids = new PriceLadder(Direction.BUY, 16);
+        assertFalse(asks.crosses(Long.MAX_VALUE));
+        asks.add(order(100, Direction.SELL));
+        asks.add(order(104, Direction.SELL));
+        bids.add(order(98, Direction.BUY));
+
+        assertTrue(asks.crosses(101));
+        assertTrue(asks.crosses(100));
+        assertFalse(asks.crosses(99));
+        assertTrue(bids.crosses(98));
+        assertFalse(bids.crosses(99));
+    }
+
+    @Test
+    void shouldQueueOrdersAtSamePriceInArrivalOrder() {
+        var book = new PriceLadder(Direction.SELL, 16);
+        var first = order(100, Direction.SELL);
+        var second = order(100, Direction.SELL);
+        book.add(first);
+        book.add(second);
+
+        assertEquals(1, book.levels());
+        assertSame(first, book.bestOrder());
+
+        book.remove(first);
+        assertSame(second, book.bestOrder());
+    }
+
+    @Test
+    void shouldRemoveOrderFromMiddleOfTheQueue() {
+        var book = new PriceLadder(Direction.BUY, 16);
+        var first = order(100, Direction.BUY);
+        var middle = order(100, Direction.BUY);
+        var last = order(100, Direction.BUY);
+        book.add(first);
+        book.add(middle);
+        book.add(last);
+
+        book.remove(middle);
+
+        assertFalse(middle.isResting());
+        assertEquals(List.of(first, last), orders(book));
+        assertEquals(2, book.size());
+    }
+
+    @Test
+    void shouldMoveToNextBestLevel_WhenBestLevelIsEmptied() {
+        var book = new PriceLadder(Direction.BUY, 16);
+        var best = order(105, Direction.BUY);
+        var next = order(101, Direction.BUY);
+        book.add(best);
+        book.add(next);
+
+        book.remove(best);
+
+        assertEquals(101, book.bestPrice());
+        assertSame(next, book.bestOrder());
+        assertEquals(1, book.levels());
+
+        book.remove(next);
+        assertTrue(book.isEmpty());
+        assertEquals(OrderBook.NO_PRICE, book.bestPrice());
+        assertEquals(0, book.levels());
+    }
+
+    @Test
+    void shouldKeepOutliersOutsideTheWindowInPriceOrder() {
+        var book = new PriceLadder(Direction.SELL, 16);
+        var inWindow = order(1000, Direction.SELL);
+        var farAbove = order(5000, Direction.SELL);
+        var farBelow = order(10, Direction.SELL);
+        book.add(inWindow);
+        book.add(farAbove);
+        book.add(farBelow);
+
+        assertEquals(10, book.bestPrice());
+        assertEquals(List.of(farBelow, inWindow, farAbove), orders(book));
+
+        book.remove(farBelow);
+        assertEquals(1000, book.bestPrice());
+
+        book.remove(inWindow);
+        assertEquals(5000, book.bestPrice());
+        assertEquals(1, book.levels());
+    }
+
+    @Test
+    void shouldRecentreWindowAndAdoptOutliers_WhenWindowIsEmpty() {
+        var book = new PriceLadder(Direction.BUY, 16);
+        var first = order(1000, Direction.BUY);
+        var outlier = order(2000, Direction.BUY);
+        book.add(first);
+        book.add(outlier);
+        book.remove(first);
+
+        // the window is empty, so it moves to 2005 and takes over the level at 2000
+        var sameLevel = order(2000, Direction.BUY);
+        var recentred = order(2005, Direction.BUY);
+        book.add(recentred);
+        book.add(sameLevel);
+
+        assertEquals(List.of(recentred, outlier, sameLevel), orders(book));
+        assertEquals(2, book.levels());
+        book.remove(recentred);
+        assertSame(outlier, book.bestOrder());
+    }
+
+    @Test
+    void shouldRejectOrdersThatDoNotRestInTheBook() {
+        var book = new PriceLadder(Direction.BUY, 16);
+        var other = new PriceLadder(Direction.BUY, 16);
+        var order = order(100, Direction.BUY);
+        other.add(order);
+
+        assertThrows(IllegalArgumentException.class, () -> book.remove(order));
+        assertThrows(IllegalArgumentException.class, () -> book.add(order));
+    }
+
+    private static List<Order> orders(OrderBook book) {
+        List<Order> orders = new ArrayList<>();
+        book.forEach(orders::add);
+        return orders;
+    }
+
+    @Test
+    void shouldIndexARealisticSpreadDirectly_WithTheDefaultTickSize() {
+        var btc = new Instruments().get("BTC");
+        var bids = new PriceLadder(Direction.BUY);
+        var asks = new PriceLadder(Direction.SELL);
+        for (int i = 0; i < 40; i++) {
+            bids.add(new Order(btc, btc.toTicks(new BigDecimal("43250.00").subtract(BigDecimal.valueOf(i, 1))), 1, Direction.BUY));
+            asks.add(new Order(btc, btc.toTicks(new BigDecimal("43250.50").add(BigDecimal.valueOf(i, 1))), 1, Direction.SELL));
+        }
+        // 20.00 away from the spread, the window spans 40.96 around the first price of the book
+        bids.add(new Order(btc, btc.toTicks(new BigDecimal("43230.00")), 1, Direction.BUY));
+        asks.add(new Order(btc, btc.toTicks(new BigDecimal("43270.00")), 1, Direction.SELL));
+
+        assertEquals(41, bids.levels());
+        assertEquals(41, asks.levels());
+        assertEquals(0, bids.outlierLevels());
+        assertEquals(0, asks.outlierLevels());
+    }
+
+    private static Order order(long priceTicks, Direction direction) {
+        return new Order(Instrument.of("APL"), priceTicks, 1, direction);
+    }
+}
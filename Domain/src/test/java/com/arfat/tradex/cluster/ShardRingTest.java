@@ -0,0 +1,79 @@
+package com.arfat.tradex.cluster;
+
+import com.arfat.tradex.order.model.IdGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardRingTest {
+
+    private static final List<String> ASSETS = IntStream.range(0, 10_000).mapToObj(i -> "ASSET" + i).toList();
+
+    @Test
+    void shouldSpreadAssetsOverAllNodes() {
+        var ring = new ShardRing(List.of(0, 1, 2, 3));
+
+        Map<Integer, Integer> counts = new HashMap<>();
+        ASSETS.forEach(asset -> counts.merge(ring.owner(asset), 1, Integer::sum));
+
+        assertEquals(ring.nodes(), counts.keySet());
+        // an even share would be 2500 per node
+        counts.values().forEach(count -> assertTrue(count > 1800 && count < 3200, counts::toString));
+    }
+
+    @Test
+    void shouldAssignTheSameOwner_OnEveryNode() {
+        var ring = new ShardRing(List.of(2, 0, 1));
+        var sameNodesOtherOrder = new ShardRing(List.of(0, 1, 2));
+
+        ASSETS.forEach(asset -> assertEquals(ring.owner(asset), sameNodesOtherOrder.owner(asset)));
+        assertEquals(1, new ShardRing(List.of(1)).owner("BTC"));
+    }
+
+    @Test
+    void shouldOnlyMoveAssetsToTheAddedNode() {
+        var ring = new ShardRing(List.of(0, 1, 2));
+        var rebalanced = ring.withNode(3);
+
+        int moved = 0;
+        for (String asset : ASSETS) {
+            int before = ring.owner(asset);
+            int after = rebalanced.owner(asset);
+            if (before != after) {
+                assertEquals(3, after);
+                moved++;
+            }
+        }
+        // about a quarter of the assets, instead of three quarters with owner = hash % nodes
+        assertTrue(moved > 1800 && moved < 3200, String.valueOf(moved));
+    }
+
+    @Test
+    void shouldOnlyMoveTheAssetsOfTheRemovedNode() {
+        var ring = new ShardRing(List.of(0, 1, 2, 3));
+        var shrunk = ring.withoutNode(2);
+
+        for (String asset : ASSETS) {
+            int before = ring.owner(asset);
+            if (2 == before) {
+                assertNotEquals(2, shrunk.owner(asset));
+            } else {
+                assertEquals(before, shrunk.owner(asset));
+            }
+        }
+    }
+
+    @Test
+    void shouldRejectInvalidRings() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardRing(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> new ShardRing(List.of(IdGenerator.MAX_NODE_ID + 1)));
+        assertThrows(IllegalArgumentException.class, () -> new ShardRing(List.of(0), 0));
+        assertThrows(IllegalArgumentException.class, () -> new ShardRing(List.of(0)).withoutNode(0));
+        assertThrows(IllegalArgumentException.class, () -> new ShardRing(List.of(0)).owner(" "));
+    }
+}
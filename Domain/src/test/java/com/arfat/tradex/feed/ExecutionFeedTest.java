@@ -0,0 +1,134 @@
+package com.arfat.tradex.feed;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Order;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutionFeedTest {
+
+    @Test
+    void shouldDeliverExecutionsToEverySubscriberInOrder() {
+        var feed = new ExecutionFeed(16);
+        var first = new Recorder();
+        var second = new Recorder();
+        var firstSubscription = feed.subscribe(execution -> true);
+        var secondSubscription = feed.subscribe(execution -> true);
+
+        publish(feed, "APL", 3);
+
+        assertEquals(3, firstSubscription.poll(first, 10));
+        assertEquals(3, secondSubscription.poll(second, 10));
+        assertEquals(List.of(0L, 1L, 2L), first.sequences());
+        assertEquals(List.of(0L, 1L, 2L), second.sequences());
+        assertEquals(0, firstSubscription.poll(first, 10));
+    }
+
+    @Test
+    void shouldOnlyDeliverExecutionsPublishedAfterSubscribing() {
+        var feed = new ExecutionFeed(16);
+        publish(feed, "APL", 2);
+        var subscription = feed.subscribe(execution -> true);
+        publish(feed, "APL", 1);
+
+        var recorder = new Recorder();
+        subscription.poll(recorder, 10);
+
+        assertEquals(List.of(2L), recorder.sequences());
+    }
+
+    @Test
+    void shouldFilterExecutions() {
+        var feed = new ExecutionFeed(16);
+        var subscription = feed.subscribe(execution -> execution.instrument().getAsset().equals("GOOGL"));
+        publish(feed, "APL", 2);
+        publish(feed, "GOOGL", 1);
+
+        var recorder = new Recorder();
+        assertEquals(3, subscription.poll(recorder, 10));
+        assertEquals(List.of(2L), recorder.sequences());
+    }
+
+    @Test
+    void shouldReportGapAndSkipAhead_WhenSubscriberIsOverrun() {
+        var feed = new ExecutionFeed(8);
+        var subscription = feed.subscribe(execution -> true);
+        publish(feed, "APL", 20);
+
+        var recorder = new Recorder();
+        subscription.poll(recorder, 100);
+
+        assertEquals(List.of(16L), recorder.gaps);
+        assertEquals(List.of(16L, 17L, 18L, 19L), recorder.sequences());
+        assertEquals(20, subscription.position());
+    }
+
+    @Test
+    void shouldNotTearExecutions_WhenPublishersAreARingApart() throws InterruptedException {
+        var feed = new ExecutionFeed(4);
+        var subscription = feed.subscribe(execution -> true);
+        var recorder = new Recorder();
+        List<Thread> publishers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long firstId = 1_000_000L * (t + 1);
+            publishers.add(Thread.ofPlatform().start(() -> {
+                for (long id = firstId; id < firstId + 40_000; id += 2) {
+                    var incoming = new Order("APL", 100.0, 1, Direction.BUY);
+                    incoming.setId(id);
+                    var counter = new Order("APL", 100.0, 1, Direction.SELL);
+                    counter.setId(id + 1);
+                    feed.onExecution(incoming, counter, id, 1);
+                }
+            }));
+        }
+        while (publishers.stream().anyMatch(Thread::isAlive)) {
+            subscription.poll(recorder, 100);
+        }
+        for (var publisher : publishers) {
+            publisher.join();
+        }
+
+        assertFalse(recorder.executions.isEmpty());
+        recorder.executions.forEach(execution -> {
+            assertEquals(execution.incomingOrderId() + 1, execution.counterOrderId());
+            assertEquals(execution.incomingOrderId(), execution.priceTicks());
+        });
+        // no slot of the last ring was left to a publisher of the ring before
+        for (long sequence = feed.next() - feed.capacity(); sequence < feed.next(); sequence++) {
+            assertEquals(sequence, feed.read(sequence).sequence());
+        }
+    }
+
+    private static void publish(ExecutionFeed feed, String asset, int executions) {
+        for (int i = 0; i < executions; i++) {
+            var incoming = new Order(asset, 100.0, 1, Direction.BUY);
+            incoming.setId(2L * i + 1);
+            var counter = new Order(asset, 100.0, 1, Direction.SELL);
+            counter.setId(2L * i + 2);
+            feed.onExecution(incoming, counter, counter.getPriceTicks(), 1);
+        }
+    }
+
+    private static final class Recorder implements ExecutionSubscription.Handler {
+        private final List<Execution> executions = new ArrayList<>();
+        private final List<Long> gaps = new ArrayList<>();
+
+        @Override
+        public void onExecution(Execution execution) {
+            executions.add(execution);
+        }
+
+        @Override
+        public void onGap(long missed) {
+            gaps.add(missed);
+        }
+
+        List<Long> sequences() {
+            return executions.stream().map(Execution::sequence).toList();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.book.DepthLevel;
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Instrument;
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.order.model.OrderStatus;
+import com.arfat.tradex.order.model.TimeInForce;
+import com.arfat.tradex.persistence.StateMachine;
+import com.arfat.tradex.persistence.journal.FileOrderArchive;
+import com.arfat.tradex.persistence.journal.JournaledStateMachine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalRecoveryTest {
+
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldRebuildOrdersAndBooks_AfterRestart() {
+        var instrument = Instrument.of("APL");
+        Order partiallyFilled;
+        Order filled;
+        Order resting;
+        try (var persistence = new JournaledStateMachine(new StateMachine(), directory, SEGMENT_SIZE)) {
+            var orderService = new DefaultOrderService(persistence);
+            partiallyFilled = orderService.placeOrder(new Order(instrument, 100, 5, Direction.SELL));
+            resting = orderService.placeOrder(new Order(instrument, 102, 1, Direction.SELL));
+            filled = orderService.placeOrder(new Order(instrument, 101, 2, Direction.BUY));
+        }
+
+        try (var persistence = new JournaledStateMachine(new StateMachine(), directory, SEGMENT_SIZE)) {
+            var recovered = persistence.getOrder(partiallyFilled.getId());
+            assertEquals(3, recovered.getPendingLots());
+            assertEquals(1, recovered.getTrades().size());
+            assertEquals(filled.getId(), recovered.getTrades().getFirst().getOrderId());
+            assertEquals(partiallyFilled.getTimestamp(), recovered.getTimestamp());
+
+            assertTrue(persistence.getOrder(filled.getId()).isFullyExecuted());
+            assertTrue(persistence.orderBook("APL", Direction.BUY).isEmpty());
+
+            var asks = persistence.orderBook("APL", Direction.SELL);
+            assertEquals(2, asks.size());
+            assertSame(recovered, asks.bestOrder());
+            assertEquals(List.of(new DepthLevel(100, 3, 1), new DepthLevel(102, 1, 1)),
+                    persistence.marketDepth("APL").levels(Direction.SELL, 10));
+            assertTrue(persistence.marketDepth("APL").levels(Direction.BUY, 10).isEmpty());
+
+            // the recovered state keeps matching and journaling
+            var orderService = new DefaultOrderService(persistence);
+            var buy = orderService.placeOrder(new Order(instrument, 102, 4, Direction.BUY));
+            assertTrue(buy.isFullyExecuted());
+            assertEquals(resting.getId(), buy.getTrades().getLast().getOrderId());
+        }
+
+        try (var persistence = new JournaledStateMachine(new StateMachine(), directory, SEGMENT_SIZE)) {
+            assertTrue(persistence.orderBook("APL", Direction.SELL).isEmpty());
+        }
+    }
+
+    @Test
+    void shouldDropTheRestOfImmediateOrders_AfterRestart() {
+        var instrument = Instrument.of("APL");
+        Order ioc = new Order(instrument, 101, 4, Direction.BUY);
+        ioc.setTimeInForce(TimeInForce.IOC);
+        Order fok = new Order(instrument, 101, 5, Direction.BUY);
+        fok.setTimeInForce(TimeInForce.FOK);
+        try (var persistence = new JournaledStateMachine(new StateMachine(), directory, SEGMENT_SIZE)) {
+            var orderService = new DefaultOrderService(persistence);
+            orderService.placeOrder(new Order(instrument, 100, 1, Direction.SELL));
+            orderService.placeOrder(new Order(instrument, 101, 2, Direction.SELL));
+            orderService.placeOrder(fok);
+            orderService.placeOrder(ioc);
+        }
+
+        try (var persistence = new JournaledStateMachine(new StateMachine(), directory, SEGMENT_SIZE)) {
+            var recoveredIoc = persistence.getOrder(ioc.getId());
+            assertEquals(OrderStatus.CANCELLED, recoveredIoc.getStatus());
+            assertEquals(1, recoveredIoc.getPendingLots());
+            assertEquals(2, recoveredIoc.getTradeCount());
+            var recoveredFok = persistence.getOrder(fok.getId());
+            assertEquals(OrderStatus.CANCELLED, recoveredFok.getStatus());
+            assertEquals(0, recoveredFok.getTradeCount());
+            assertTrue(persistence.orderBook("APL", Direction.BUY).isEmpty());
+            assertTrue(persistence.marketDepth("APL").levels(Direction.BUY, 10).isEmpty());
+            assertTrue(persistence.orderBook("APL", Direction.SELL).isEmpty());
+        }
+    }
+
+    @Test
+    void shouldRestartFromSnapshot_AfterJournalWasCompacted() throws IOException {
+        var instrument = Instrument.of("APL");
+        int orders = 200;
+        Order ask;
+        try (var persistence = new JournaledStateMachine(new StateMachine(), directory, 4096)) {
+            var orderService = new DefaultOrderService(persistence);
+            for (int i = 0; i < orders; i++) {
+                orderService.placeOrder(new Order(instrument, 100 + i % 10, 2, Direction.BUY));
+            }
+            persistence.snapshot(Runnable::run);
+            // after the cut, goes to the journal only
+            ask = orderService.placeOrder(new Order(instrument, 200, 1, Direction.SELL));
+        }
+
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.filter(file -> file.toString().endsWith(".journal")).count());
+        }
+        try (var persistence = new JournaledStateMachine(new StateMachine(), directory, 4096)) {
+            assertEquals(orders, persistence.orderBook("APL", Direction.BUY).size());
+            assertSame(persistence.getOrder(ask.getId()), persistence.orderBook("APL", Direction.SELL).bestOrder());
+        }
+    }
+
+    @Test
+    void shouldKeepTimePriority_WhenASnapshotIsAdvancedFromThePreviousOne() {
+        var instrument = Instrument.of("APL");
+        Order first;
+        Order second;
+        Order third;
+        try (var persistence = new JournaledStateMachine(new StateMachine(), directory, SEGMENT_SIZE)) {
+            var orderService = new DefaultOrderService(persistence);
+            first = orderService.placeOrder(new Order(instrument, 100, 5, Direction.SELL));
+            second = orderService.placeOrder(new Order(instrument, 100, 2, Direction.SELL));
+            persistence.snapshot(Runnable::run);
+            // changes the first order, the second one is copied from the previous snapshot
+            orderService.placeOrder(new Order(instrument, 100, 1, Direction.BUY));
+            third = orderService.placeOrder(new Order(instrument, 100, 1, Direction.SELL));
+            persistence.snapshot(Runnable::run);
+        }
+
+        try (var persistence = new JournaledStateMachine(new StateMachine(), directory, SEGMENT_SIZE)) {
+            var asks = new ArrayList<Long>();
+            persistence.orderBook("APL", Direction.SELL).forEach(order -> asks.add(order.getId()));
+            assertEquals(List.of(first.getId(), second.getId(), third.getId()), asks);
+            assertEquals(4, persistence.getOrder(first.getId()).getPendingLots());
+            assertEquals(List.of(new DepthLevel(100, 7, 3)), persistence.marketDepth("APL").levels(Direction.SELL, 10));
+        }
+    }
+
+    @Test
+    void shouldRestartFromSnapshots_TakenWhileThePartitionsMatch() throws InterruptedException {
+        var assets = List.of("APL", "MSF", "GOG", "AMZ");
+        int orders = 500;
+        var resting = new HashMap<String, Integer>();
+        try (var persistence = new JournaledStateMachine(new StateMachine(), directory, 4096);
+             var orderService = new PartitionedOrderService(persistence, 4, 16)) {
+            var placers = new ArrayList<Thread>();
+            for (var asset : assets) {
+                var instrument = Instrument.of(asset);
+                placers.add(Thread.ofVirtual().start(() -> {
+                    for (int i = 0; i < orders; i++) {
+                        orderService.placeOrder(new Order(instrument, 100 + i % 10, 1, Direction.BUY));
+                    }
+                }));
+            }
+            for (int i = 0; i < 5; i++) {
+                persistence.snapshot(orderService::quiesce);
+            }
+            for (var placer : placers) {
+                placer.join();
+            }
+            persistence.snapshot(orderService::quiesce);
+            for (var asset : assets) {
+                resting.put(asset, persistence.orderBook(asset, Direction.BUY).size());
+            }
+        }
+
+        try (var persistence = new JournaledStateMachine(new StateMachine(), directory, 4096)) {
+            for (var asset : assets) {
+                assertEquals(orders, resting.get(asset));
+                assertEquals(orders, persistence.orderBook(asset, Direction.BUY).size());
+            }
+        }
+    }
+
+    @Test
+    void shouldFindArchivedOrders_AfterSnapshotAndRestart() {
+        var instrument = Instrument.of("APL");
+        var journal = directory.resolve("journal");
+        var archive = directory.resolve("archive");
+        Order beforeCut;
+        Order afterCut;
+        Order resting;
+        Order cancelled;
+        try (var persistence = new JournaledStateMachine(archivingState(archive), journal, SEGMENT_SIZE)) {
+            var orderService = new DefaultOrderService(persistence);
+            resting = orderService.placeOrder(new Order(instrument, 100, 5, Direction.SELL));
+            beforeCut = orderService.placeOrder(new Order(instrument, 100, 2, Direction.BUY));
+            persistence.snapshot(Runnable::run);
+            afterCut = orderService.placeOrder(new Order(instrument, 100, 1, Direction.BUY));
+            cancelled = orderService.placeOrder(new Order(instrument, 90, 1, Direction.BUY));
+            orderService.cancelOrder(cancelled.getId());
+        }
+
+        var state = archivingState(archive);
+        try (var persistence = new JournaledStateMachine(state, journal, SEGMENT_SIZE)) {
+            var live = new ArrayList<Order>();
+            state.forEachOrder(live::add);
+            assertEquals(List.of(resting.getId()), live.stream().map(Order::getId).toList());
+            assertEquals(2, persistence.getOrder(resting.getId()).getPendingLots());
+
+            assertTrue(persistence.getOrder(beforeCut.getId()).isFullyExecuted());
+            assertEquals(resting.getId(), persistence.getOrder(afterCut.getId()).getTrades().getFirst().getOrderId());
+            assertEquals(OrderStatus.CANCELLED, persistence.getOrder(cancelled.getId()).getStatus());
+            assertTrue(persistence.orderBook("APL", Direction.BUY).isEmpty());
+        }
+    }
+
+    private static StateMachine archivingState(Path archive) {
+        return new StateMachine(4096, FileOrderArchive.open(archive), 1);
+    }
+}
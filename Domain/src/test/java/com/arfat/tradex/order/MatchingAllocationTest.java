@@ -0,0 +1,112 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.feed.ExecutionFeed;
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Instrument;
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.book.PriceLadder;
+import com.arfat.tradex.persistence.Persistence;
+import com.arfat.tradex.persistence.StateMachine;
+import com.arfat.tradex.persistence.journal.JournaledStateMachine;
+import com.arfat.tradex.tracing.OrderMatchEvent;
+import com.arfat.tradex.tracing.OrderPersistEvent;
+import jdk.jfr.Recording;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatchingAllocationTest {
+
+    private static final int ORDERS = 10_000;
+    private static final int ROUNDS = 10;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * The state the engine is configured with by default, without the opt-in order index
+     */
+    enum Configuration {
+        IN_MEMORY {
+            @Override
+            Persistence open(Path directory) {
+                return new StateMachine(PriceLadder.DEFAULT_CAPACITY, null, 0, null);
+            }
+        },
+        JOURNALED {
+            @Override
+            Persistence open(Path directory) {
+                return new JournaledStateMachine(new StateMachine(PriceLadder.DEFAULT_CAPACITY, null, 0, null),
+                        directory, 64 << 20);
+            }
+        };
+
+        abstract Persistence open(Path directory);
+    }
+
+    @ParameterizedTest
+    @EnumSource(Configuration.class)
+    void shouldNotAllocate_WhenMatchingAgainstRestingLevels(Configuration configuration) throws Exception {
+        var persistence = configuration.open(directory);
+        try (var recording = new Recording()) {
+            // the stage events are enabled as in a continuous recording, the threshold only keeps them from
+            // being written, which a slow stage may allocate for
+            recording.enable(OrderPersistEvent.class).withThreshold(Duration.ofHours(1));
+            recording.enable(OrderMatchEvent.class).withThreshold(Duration.ofHours(1));
+            recording.start();
+            shouldNotAllocate_WhenMatchingAgainstRestingLevels(persistence);
+        } finally {
+            ((AutoCloseable) persistence).close();
+        }
+    }
+
+    private void shouldNotAllocate_WhenMatchingAgainstRestingLevels(Persistence persistence) {
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        var instrument = Instrument.of("APL");
+        var engine = new DefaultOrderService(persistence, new ExecutionFeed(1024));
+        // one level of one lot asks that outlives the measurement, three of four buys fill one ask, the fourth
+        // rests at a bid level that also stays open, so no price level opens or empties
+        for (int i = 0; i < ROUNDS * ORDERS; i++) {
+            engine.placeOrder(new Order(instrument, 100, 1, Direction.SELL));
+        }
+        engine.placeOrder(new Order(instrument, 90, 1, Direction.BUY));
+
+        // the first rounds run while the JIT is still compiling the match loop, only the last one counts. Every
+        // order is placed as a whole, stage events included: the order index grows at 131072 orders and next at
+        // 262144, so it does not in the last round
+        long[] allocated = new long[ROUNDS];
+        Order[] measured = null;
+        for (int round = 0; round < ROUNDS; round++) {
+            measured = orders(instrument);
+            long before = threads.getCurrentThreadAllocatedBytes();
+            for (var order : measured) {
+                engine.placeOrder(order);
+            }
+            allocated[round] = threads.getCurrentThreadAllocatedBytes() - before;
+        }
+
+        assertEquals(0, allocated[ROUNDS - 1], "bytes allocated per round of " + ORDERS + " orders: "
+                                               + Arrays.toString(allocated));
+        assertTrue(measured[0].isFullyExecuted());
+        assertTrue(measured[3].isResting());
+    }
+
+    private static Order[] orders(Instrument instrument) {
+        var orders = new Order[ORDERS];
+        for (int i = 0; i < ORDERS; i++) {
+            // every fourth order does not cross and joins the bid at 90
+            orders[i] = i % 4 == 3
+                    ? new Order(instrument, 90, 1, Direction.BUY)
+                    : new Order(instrument, 101, 1, Direction.BUY);
+        }
+        return orders;
+    }
+}
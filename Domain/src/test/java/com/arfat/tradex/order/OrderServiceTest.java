@@ -1,12 +1,32 @@
 package com.arfat.tradex.order;
 
+import com.arfat.tradex.book.DepthLevel;
+import com.arfat.tradex.book.PriceLadder;
+import com.arfat.tradex.feed.Execution;
+import com.arfat.tradex.feed.ExecutionFeed;
+import com.arfat.tradex.feed.ExecutionSubscription;
 import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.IdGenerator;
 import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.order.model.OrderStatus;
+import com.arfat.tradex.order.model.OrderTrace;
+import com.arfat.tradex.order.model.TimeInForce;
+import com.arfat.tradex.order.model.Trade;
+import com.arfat.tradex.persistence.OrderArchive;
+import com.arfat.tradex.persistence.OrderStatusIndex;
+import com.arfat.tradex.persistence.StateMachine;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class OrderServiceTest {
@@ -40,9 +60,9 @@ public class OrderServiceTest {
     @Test
     void shouldThrowExceptionWhenOrderNotFound() {
 
-        var orderId = "WRONG_ID";
+        long orderId = 42;
         var ex = assertThrows(OrderNotFoundException.class, () -> orderService.getOrder(orderId));
-        String expected = String.format("Order with ID %s not found.", orderId);
+        String expected = String.format("Order with ID %s not found.", IdGenerator.format(orderId));
         assertEquals(expected, ex.getMessage());
 
     }
@@ -271,6 +291,304 @@ public class OrderServiceTest {
         assertEquals(0, fetchedSell3Order.getPendingAmount());
     }
 
+    @Test
+    void shouldKeepMarketDepthInLine_WithRestingAndFilledOrders() {
+        Order sell1 = orderService.placeOrder(createSellOrder("APL", 1500.0, 2));
+        orderService.placeOrder(createSellOrder("APL", 1500.0, 1));
+        orderService.placeOrder(createSellOrder("APL", 1501.0, 4));
+        orderService.placeOrder(createBuyOrder("APL", 1400.0, 1));
+
+        // fills sell1 and one lot of the next order at 1500, the rest rests as the best bid
+        orderService.placeOrder(createBuyOrder("APL", 1500.0, 5));
+
+        var instrument = sell1.getInstrument();
+        var depth = orderService.getMarketDepth("APL");
+        assertEquals(List.of(new DepthLevel(instrument.toTicks(1501.0), instrument.toLots(4), 1)),
+                depth.levels(Direction.SELL, 10));
+        assertEquals(List.of(new DepthLevel(instrument.toTicks(1500.0), instrument.toLots(2), 1),
+                        new DepthLevel(instrument.toTicks(1400.0), instrument.toLots(1), 1)),
+                depth.levels(Direction.BUY, 10));
+    }
+
+    @Test
+    void shouldNotKeepADepth_ForAnAssetThatWasNeverTraded() {
+        var service = new DefaultOrderService(new StateMachine());
+        assertNull(service.getMarketDepth("XYZ"));
+        assertNull(service.getMarketDepth("XYZ"));
+
+        service.placeOrder(createBuyOrder("XYZ", 10.0, 1));
+
+        assertEquals(1, service.getMarketDepth("XYZ").orderCount(Direction.BUY));
+    }
+
+    @Test
+    void shouldCancelRestingOrder_AndPruneItsLevel() {
+        Order sell = orderService.placeOrder(createSellOrder("APL", 1500.0, 3));
+        Order better = orderService.placeOrder(createSellOrder("APL", 1499.0, 1));
+        orderService.placeOrder(createBuyOrder("APL", 1499.0, 0.5));
+
+        Order cancelled = orderService.cancelOrder(better.getId());
+
+        assertEquals(OrderStatus.CANCELLED, cancelled.getStatus());
+        assertEquals(0.5, cancelled.getPendingAmount());
+        assertFalse(cancelled.isResting());
+        var instrument = sell.getInstrument();
+        assertEquals(List.of(new DepthLevel(instrument.toTicks(1500.0), instrument.toLots(3), 1)),
+                orderService.getMarketDepth("APL").levels(Direction.SELL, 10));
+
+        // the next buy at the cancelled price has nothing left to match
+        Order buy = orderService.placeOrder(createBuyOrder("APL", 1499.0, 1));
+        assertEquals(OrderStatus.NEW, buy.getStatus());
+    }
+
+    @Test
+    void shouldRejectCancel_WhenOrderIsNotResting() {
+        Order sell = orderService.placeOrder(createSellOrder("APL", 1500.0, 1));
+        orderService.placeOrder(createBuyOrder("APL", 1500.0, 1));
+
+        var ex = assertThrows(IllegalArgumentException.class, () -> orderService.cancelOrder(sell.getId()));
+        assertEquals("Order with ID " + IdGenerator.format(sell.getId()) + " is FILLED and can not be cancelled.", ex.getMessage());
+        orderService.placeOrder(createSellOrder("APL", 1500.0, 1));
+        Order resting = orderService.placeOrder(createSellOrder("APL", 1501.0, 1));
+        orderService.cancelOrder(resting.getId());
+        assertThrows(IllegalArgumentException.class, () -> orderService.cancelOrder(resting.getId()));
+        assertThrows(OrderNotFoundException.class, () -> orderService.cancelOrder(42));
+    }
+
+    @Test
+    void shouldPublishEveryExecution() {
+        var feed = new ExecutionFeed(16);
+        var subscription = feed.subscribe(execution -> true);
+        orderService = new DefaultOrderService(new StateMachineStub(), feed);
+        Order sell = orderService.placeOrder(createSellOrder("APL", 1500.0, 1));
+        Order buy = orderService.placeOrder(createBuyOrder("APL", 1500.0, 1));
+
+        List<Execution> executions = new ArrayList<>();
+        subscription.poll(new ExecutionSubscription.Handler() {
+            @Override
+            public void onExecution(Execution execution) {
+                executions.add(execution);
+            }
+
+            @Override
+            public void onGap(long missed) {
+                fail("No execution should be missed");
+            }
+        }, 10);
+
+        assertEquals(1, executions.size());
+        assertEquals(buy.getId(), executions.getFirst().incomingOrderId());
+        assertEquals(sell.getId(), executions.getFirst().counterOrderId());
+        assertEquals(sell.getPriceTicks(), executions.getFirst().priceTicks());
+    }
+
+    @Test
+    void shouldReportLevelsCrossed_ToMetrics() {
+        List<Integer> levelsCrossed = new ArrayList<>();
+        List<Integer> fills = new ArrayList<>();
+        orderService = new DefaultOrderService(new StateMachineStub(), ExecutionListener.NONE,
+                (order, persistNanos, matchNanos, levels) -> {
+                    assertTrue(persistNanos >= 0 && matchNanos >= 0);
+                    levelsCrossed.add(levels);
+                    fills.add(order.getTradeCount());
+                });
+        orderService.placeOrder(createSellOrder("APL", 100.0, 1));
+        orderService.placeOrder(createSellOrder("APL", 100.0, 1));
+        orderService.placeOrder(createSellOrder("APL", 101.0, 1));
+
+        orderService.placeOrder(createBuyOrder("APL", 101.0, 3));
+
+        assertEquals(List.of(0, 0, 0, 2), levelsCrossed);
+        assertEquals(List.of(0, 0, 0, 3), fills);
+    }
+
+    @Test
+    void shouldTraceTheStages_OfATracedOrder() {
+        long received = System.nanoTime();
+        var trace = new OrderTrace("request", received);
+        trace.mark(OrderTrace.Stage.VALIDATION, received + 1);
+        var order = createBuyOrder("APL", 100.0, 1);
+        order.setTrace(trace);
+
+        orderService.placeOrder(order);
+
+        // the match is the last stage the engine marks, the response is marked by the caller
+        assertTrue(trace.totalNanos() > 1);
+        assertEquals(0, trace.stageNanos(OrderTrace.Stage.RESPONSE));
+        assertEquals(trace.totalNanos(), Arrays.stream(OrderTrace.Stage.values()).mapToLong(trace::stageNanos).sum());
+    }
+
+    @Test
+    void shouldCancelTheRest_OfAnImmediateOrCancelOrder() {
+        Order sell = orderService.placeOrder(createSellOrder("APL", 100.0, 1));
+        orderService.placeOrder(createSellOrder("APL", 102.0, 1));
+        var ioc = createBuyOrder("APL", 101.0, 3);
+        ioc.setTimeInForce(TimeInForce.IOC);
+
+        Order placed = orderService.placeOrder(ioc);
+
+        assertEquals(OrderStatus.CANCELLED, placed.getStatus());
+        assertEquals(2.0, placed.getPendingAmount());
+        assertEquals(List.of(sell.getId()), placed.getTrades().stream().map(Trade::getOrderId).toList());
+        assertFalse(placed.isResting());
+        assertTrue(orderService.getMarketDepth("APL").levels(Direction.BUY, 10).isEmpty());
+
+        var unmatched = createSellOrder("APL", 101.0, 1);
+        unmatched.setTimeInForce(TimeInForce.IOC);
+        assertEquals(OrderStatus.CANCELLED, orderService.placeOrder(unmatched).getStatus());
+        assertTrue(orderService.getMarketDepth("APL").levels(Direction.BUY, 10).isEmpty());
+        assertEquals(1, orderService.getMarketDepth("APL").orderCount(Direction.SELL));
+    }
+
+    @Test
+    void shouldFillAFillOrKillOrder_OnlyWhenTheBookHoldsItsWholeAmount() {
+        Order first = orderService.placeOrder(createSellOrder("APL", 100.0, 1));
+        Order second = orderService.placeOrder(createSellOrder("APL", 101.0, 2));
+        orderService.placeOrder(createSellOrder("APL", 103.0, 5));
+
+        // the ask at 103 is beyond the limit, the volume up to 102 is 3
+        var killed = createBuyOrder("APL", 102.0, 4);
+        killed.setTimeInForce(TimeInForce.FOK);
+        orderService.placeOrder(killed);
+
+        assertEquals(OrderStatus.CANCELLED, killed.getStatus());
+        assertEquals(0, killed.getTradeCount());
+        assertEquals(0, first.getTradeCount());
+        assertEquals(3, orderService.getMarketDepth("APL").orderCount(Direction.SELL));
+        assertTrue(orderService.getMarketDepth("APL").levels(Direction.BUY, 10).isEmpty());
+
+        var filled = createBuyOrder("APL", 102.0, 3);
+        filled.setTimeInForce(TimeInForce.FOK);
+        orderService.placeOrder(filled);
+
+        assertEquals(OrderStatus.FILLED, filled.getStatus());
+        assertEquals(List.of(first.getId(), second.getId()),
+                filled.getTrades().stream().map(Trade::getOrderId).toList());
+        assertEquals(1, orderService.getMarketDepth("APL").orderCount(Direction.SELL));
+    }
+
+    @Test
+    void shouldNotifyTheCancels_OfOrdersCancelledOnRequestOrByTheirTimeInForce() {
+        List<Order> cancelled = new ArrayList<>();
+        var service = new DefaultOrderService(new StateMachine(), new ExecutionListener() {
+            @Override
+            public void onExecution(Order incomingOrder, Order counterOrder, long priceTicks, long amountLots) {
+            }
+
+            @Override
+            public void onCancel(Order order) {
+                cancelled.add(order);
+            }
+        });
+        Order resting = service.placeOrder(createSellOrder("APL", 100.0, 1));
+        service.cancelOrder(resting.getId());
+        var ioc = createBuyOrder("APL", 100.0, 1);
+        ioc.setTimeInForce(TimeInForce.IOC);
+        service.placeOrder(ioc);
+
+        assertEquals(List.of(resting, ioc), cancelled);
+    }
+
+    @Test
+    void shouldFindOrders_ByAssetDirectionAndStatus() {
+        var index = new OrderStatusIndex();
+        var service = new DefaultOrderService(new StateMachine(PriceLadder.DEFAULT_CAPACITY, null, 0, index));
+        Order filled = service.placeOrder(createSellOrder("APL", 100.0, 1));
+        Order partial = service.placeOrder(createSellOrder("APL", 101.0, 2));
+        Order cancelled = service.placeOrder(createSellOrder("APL", 102.0, 1));
+        Order other = service.placeOrder(createSellOrder("MSF", 100.0, 1));
+        Order buy = service.placeOrder(createBuyOrder("APL", 101.0, 2));
+        service.cancelOrder(cancelled.getId());
+        Order open = service.placeOrder(createBuyOrder("APL", 99.0, 1));
+
+        var all = Set.<OrderStatus>of();
+        assertEquals(List.of(filled, partial, cancelled, buy, open), index.findOrders("APL", null, all, 0, 10));
+        assertEquals(List.of(other), index.findOrders("MSF", null, all, 0, 10));
+        assertEquals(List.of(partial, open), index.findOrders("APL", null,
+                EnumSet.of(OrderStatus.NEW, OrderStatus.PARTIALLY_FILLED), 0, 10));
+        assertEquals(List.of(filled, buy), index.findOrders("APL", null, EnumSet.of(OrderStatus.FILLED), 0, 10));
+        assertEquals(List.of(cancelled), index.findOrders("APL", Direction.SELL, EnumSet.of(OrderStatus.CANCELLED), 0, 10));
+        assertEquals(List.of(open), index.findOrders("APL", Direction.BUY, EnumSet.of(OrderStatus.NEW), 0, 10));
+        assertEquals(List.of(), index.findOrders("GOO", null, all, 0, 10));
+
+        // pages follow the id of the last order of the previous page
+        assertEquals(List.of(filled, partial), index.findOrders("APL", null, all, 0, 2));
+        assertEquals(List.of(cancelled, buy), index.findOrders("APL", null, all, partial.getId(), 2));
+        assertEquals(List.of(open), index.findOrders("APL", null, all, buy.getId(), 2));
+    }
+
+    @Test
+    void shouldKeepTheIndexInLine_WithRandomOrderFlow() {
+        var index = new OrderStatusIndex();
+        var state = new StateMachine(PriceLadder.DEFAULT_CAPACITY, null, 0, index);
+        var service = new DefaultOrderService(state);
+        var random = new Random(42);
+        var assets = List.of("APL", "MSF");
+        List<Order> resting = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            var direction = random.nextBoolean() ? Direction.BUY : Direction.SELL;
+            // prices overlap around 100, so some orders match and others rest
+            double price = Direction.BUY == direction ? 95 + random.nextInt(7) : 99 + random.nextInt(7);
+            var order = service.placeOrder(new Order(assets.get(random.nextInt(assets.size())), price,
+                    1 + random.nextInt(5), direction));
+            if (!order.isFullyExecuted()) {
+                resting.add(order);
+            }
+            if (0 == i % 7 && !resting.isEmpty()) {
+                var cancel = resting.remove(random.nextInt(resting.size()));
+                if (!cancel.isFullyExecuted()) {
+                    service.cancelOrder(cancel.getId());
+                }
+            }
+        }
+
+        assertEquals(state.orderCount(), state.checkIndex());
+        for (var asset : assets) {
+            for (var status : OrderStatus.values()) {
+                var found = index.findOrders(asset, null, EnumSet.of(status), 0, Integer.MAX_VALUE);
+                assertFalse(found.isEmpty());
+                found.forEach(order -> assertEquals(status, order.getStatus()));
+                // paging through the same orders
+                List<Order> paged = new ArrayList<>();
+                long after = 0;
+                for (List<Order> page; !(page = index.findOrders(asset, null, EnumSet.of(status), after, 50)).isEmpty(); ) {
+                    paged.addAll(page);
+                    after = page.getLast().getId();
+                }
+                assertEquals(found, paged);
+            }
+        }
+    }
+
+    @Test
+    void shouldRejectFindingExecutedOrders_WhenTheyAreArchived() {
+        var index = new OrderStatusIndex();
+        var service = new DefaultOrderService(new StateMachine(PriceLadder.DEFAULT_CAPACITY, OrderArchive.DISCARD,
+                0, index));
+        Order filled = service.placeOrder(createSellOrder("APL", 100.0, 1));
+        service.placeOrder(createBuyOrder("APL", 100.0, 1));
+        Order open = service.placeOrder(createSellOrder("APL", 101.0, 1));
+
+        assertEquals(OrderStatus.FILLED, filled.getStatus());
+        assertEquals(List.of(open), index.findOrders("APL", null,
+                EnumSet.of(OrderStatus.NEW, OrderStatus.PARTIALLY_FILLED), 0, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> index.findOrders("APL", null, EnumSet.of(OrderStatus.FILLED), 0, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> index.findOrders("APL", null, EnumSet.of(OrderStatus.NEW, OrderStatus.CANCELLED), 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> index.findOrders("APL", null, Set.of(), 0, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> index.findOrders("APL", null, EnumSet.of(OrderStatus.NEW), 0, 0));
+    }
+
+    @Test
+    void shouldRejectAnIndex_KeptByTwoStateMachines() {
+        var index = new OrderStatusIndex();
+        new StateMachine(PriceLadder.DEFAULT_CAPACITY, null, 0, index);
+
+        assertThrows(IllegalStateException.class, () -> new StateMachine(PriceLadder.DEFAULT_CAPACITY, null, 0, index));
+    }
+
     private Order createBuyOrder(String asset, double price, double amount) {
         return new Order(asset, price, amount, Direction.BUY);
     }
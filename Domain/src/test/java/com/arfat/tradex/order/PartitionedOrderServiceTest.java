@@ -0,0 +1,278 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.order.model.OrderStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionedOrderServiceTest {
+
+    private PartitionedOrderService orderService;
+
+    @BeforeEach
+    void init() {
+        orderService = new PartitionedOrderService(new StateMachineStub(), 4, 16);
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderService.close();
+    }
+
+    @Test
+    void shouldMatchOrdersOnOwningPartition() {
+        Order buy = orderService.placeOrder(new Order("APL", 1500.0, 2, Direction.BUY));
+        Order sell = orderService.placeOrder(new Order("APL", 1500.0, 1, Direction.SELL));
+
+        assertEquals(1, orderService.getOrder(buy.getId()).getPendingAmount());
+        assertEquals(0, orderService.getOrder(sell.getId()).getPendingAmount());
+        assertEquals(1, orderService.getOrder(buy.getId()).getTrades().size());
+    }
+
+    @Test
+    void shouldCancelOnOwningPartition() {
+        Order buy = orderService.placeOrder(new Order("APL", 1500.0, 2, Direction.BUY));
+
+        assertSame(buy, orderService.cancelOrder(buy.getId()));
+        assertTrue(orderService.getMarketDepth("APL").levels(Direction.BUY, 10).isEmpty());
+        Order sell = orderService.placeOrder(new Order("APL", 1500.0, 1, Direction.SELL));
+        assertTrue(sell.getTrades().isEmpty());
+    }
+
+    @Test
+    void shouldMatchEveryOrder_WhenPlacedConcurrentlyAcrossAssets() throws Exception {
+        var assets = List.of("APL", "GOOGL", "MSFT", "BTC", "ETH", "AMZN");
+        int ordersPerSide = 500;
+
+        List<Future<Order>> placed = new ArrayList<>();
+        try (ExecutorService clients = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < ordersPerSide; i++) {
+                for (String asset : assets) {
+                    placed.add(clients.submit(() -> orderService.placeOrder(new Order(asset, 100.0, 1, Direction.BUY))));
+                    placed.add(clients.submit(() -> orderService.placeOrder(new Order(asset, 100.0, 1, Direction.SELL))));
+                }
+            }
+        }
+
+        for (Future<Order> order : placed) {
+            var fetched = orderService.getOrder(order.get().getId());
+            assertTrue(fetched.isFullyExecuted(), "Order " + fetched.getId() + " should be fully executed");
+            assertEquals(1, fetched.getTrades().size());
+        }
+    }
+
+    @Test
+    void shouldMatchBatchInRequestOrder_AndReturnResultsInRequestOrder() {
+        var batch = List.of(
+                new Order("APL", 100.0, 2, Direction.SELL),
+                new Order("GOOGL", 50.0, 1, Direction.BUY),
+                new Order("APL", 100.0, 1, Direction.BUY),
+                new Order("MSFT", 10.0, 1, Direction.SELL),
+                new Order("APL", 100.0, 1, Direction.BUY));
+
+        var placed = orderService.placeOrders(batch).stream().map(CompletableFuture::join).toList();
+
+        assertEquals(batch, placed);
+        assertEquals(OrderStatus.FILLED, placed.get(0).getStatus());
+        assertEquals(placed.get(2).getId(), placed.get(0).getTrades().get(0).getOrderId());
+        assertEquals(placed.get(4).getId(), placed.get(0).getTrades().get(1).getOrderId());
+        assertEquals(OrderStatus.NEW, placed.get(1).getStatus());
+        assertEquals(OrderStatus.NEW, placed.get(3).getStatus());
+    }
+
+    @Test
+    void shouldFailOnlyTheOrdersOfABatch_ThatTheEngineFailsToPlace() {
+        var failingPersistence = new StateMachineStub() {
+            @Override
+            public void addOrder(Order incomingOrder) {
+                if ("MSFT".equals(incomingOrder.getAsset())) {
+                    throw new IllegalStateException("Storage unavailable");
+                }
+                super.addOrder(incomingOrder);
+            }
+        };
+        try (var service = new PartitionedOrderService(failingPersistence, 4, 16)) {
+            var batch = List.of(
+                    new Order("APL", 100.0, 1, Direction.SELL),
+                    new Order("MSFT", 10.0, 1, Direction.SELL),
+                    new Order("APL", 100.0, 1, Direction.BUY),
+                    new Order("GOOGL", 50.0, 1, Direction.BUY));
+
+            var placed = service.placeOrders(batch);
+
+            // the buy fills the sell placed before it on the same partition
+            assertEquals(OrderStatus.FILLED, placed.get(2).join().getStatus());
+            assertEquals(OrderStatus.FILLED, placed.get(0).join().getStatus());
+            var ex = assertThrows(CompletionException.class, placed.get(1)::join);
+            assertEquals("Storage unavailable", ex.getCause().getMessage());
+            assertEquals(OrderStatus.NEW, placed.get(3).join().getStatus());
+        }
+    }
+
+    @Test
+    void shouldFailTheBatch_OfAClosedEngine() {
+        orderService.close();
+
+        var placed = orderService.placeOrders(List.of(new Order("APL", 100.0, 1, Direction.SELL)));
+
+        var ex = assertThrows(CompletionException.class, placed.getFirst()::join);
+        assertInstanceOf(RejectedExecutionException.class, ex.getCause());
+    }
+
+    @Test
+    void shouldPropagateEngineFailureToCaller() {
+        var failingPersistence = new StateMachineStub() {
+            @Override
+            public void addOrder(Order incomingOrder) {
+                throw new IllegalStateException("Storage unavailable");
+            }
+        };
+
+        try (var service = new PartitionedOrderService(failingPersistence, 1, 1)) {
+            var ex = assertThrows(IllegalStateException.class,
+                    () -> service.placeOrder(new Order("APL", 100.0, 1, Direction.BUY)));
+
+            assertEquals("Storage unavailable", ex.getMessage());
+        }
+    }
+
+    @Test
+    void shouldCompleteAsyncOrder_OnceMatched() {
+        Order sell = orderService.placeOrder(new Order("APL", 1500.0, 1, Direction.SELL));
+
+        Order buy = orderService.placeOrderAsync(new Order("APL", 1500.0, 1, Direction.BUY)).join();
+
+        assertTrue(buy.isFullyExecuted());
+        assertTrue(orderService.getOrder(sell.getId()).isFullyExecuted());
+    }
+
+    @Test
+    void shouldFailAsyncOrder_WhenEngineFails() {
+        var failingPersistence = new StateMachineStub() {
+            @Override
+            public void addOrder(Order incomingOrder) {
+                throw new IllegalStateException("Storage unavailable");
+            }
+        };
+
+        try (var service = new PartitionedOrderService(failingPersistence, 1, 1)) {
+            var placed = service.placeOrderAsync(new Order("APL", 100.0, 1, Direction.BUY));
+
+            var ex = assertThrows(CompletionException.class, placed::join);
+            assertInstanceOf(IllegalStateException.class, ex.getCause());
+        }
+    }
+
+    @Test
+    void shouldRejectOfferedOrders_WhileThePartitionQueueIsFull() throws InterruptedException {
+        var paused = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        try (var service = new PartitionedOrderService(new StateMachineStub(), 1, 1)) {
+            Order resting = service.placeOrder(new Order("APL", 90.0, 1, Direction.BUY));
+            // the partition thread waits in quiesce, so the queue holds one command at most
+            Thread.ofVirtual().start(() -> service.quiesce(() -> {
+                paused.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            paused.await();
+
+            var accepted = service.offerOrderAsync(new Order("APL", 100.0, 1, Direction.BUY));
+            var busy = service.offerOrderAsync(new Order("APL", 100.0, 1, Direction.BUY));
+            var busyCancel = service.offerCancelAsync(resting.getId());
+
+            var ex = assertThrows(CompletionException.class, busy::join);
+            assertInstanceOf(RejectedExecutionException.class, ex.getCause());
+            ex = assertThrows(CompletionException.class, busyCancel::join);
+            assertInstanceOf(RejectedExecutionException.class, ex.getCause());
+            release.countDown();
+            assertEquals(OrderStatus.NEW, accepted.join().getStatus());
+            assertEquals(OrderStatus.NEW, resting.getStatus());
+        }
+    }
+
+    @Test
+    void shouldRejectOrders_WhenClosed() {
+        orderService.close();
+
+        assertThrows(RejectedExecutionException.class,
+                () -> orderService.placeOrder(new Order("APL", 100.0, 1, Direction.BUY)));
+        var ex = assertThrows(CompletionException.class,
+                () -> orderService.placeOrderAsync(new Order("APL", 100.0, 1, Direction.BUY)).join());
+        assertInstanceOf(RejectedExecutionException.class, ex.getCause());
+        assertThrows(RejectedExecutionException.class, () -> orderService.quiesce(() -> fail("Engine is closed")));
+    }
+
+    @Test
+    void shouldRunOrRejectEveryQueuedOrder_WithoutInterruptingTheMatching_WhenClosed() throws Exception {
+        var interrupted = new ArrayList<Boolean>();
+        var persistence = new StateMachineStub() {
+            @Override
+            public void addOrder(Order incomingOrder) {
+                interrupted.add(Thread.currentThread().isInterrupted());
+                super.addOrder(incomingOrder);
+            }
+        };
+        var paused = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var service = new PartitionedOrderService(persistence, 1, 1);
+        Thread.ofVirtual().start(() -> service.quiesce(() -> {
+            paused.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        paused.await();
+        var queued = service.placeOrderAsync(new Order("APL", 100.0, 1, Direction.BUY));
+        // the queue is full, so this producer blocks until the partition takes the queued order
+        var blocked = new CompletableFuture<CompletableFuture<Order>>();
+        var producer = Thread.ofPlatform().start(() -> blocked.complete(
+                service.placeOrderAsync(new Order("APL", 100.0, 1, Direction.BUY))));
+        awaitWaiting(producer);
+        var closer = Thread.ofPlatform().start(service::close);
+        awaitWaiting(closer);
+
+        release.countDown();
+        closer.join();
+
+        assertEquals(OrderStatus.NEW, queued.get(5, TimeUnit.SECONDS).getStatus());
+        // queued before or after the close, either way the future completes
+        var late = blocked.get(5, TimeUnit.SECONDS).handle((order, ex) -> null == ex || ex instanceof RejectedExecutionException);
+        assertTrue(late.get(5, TimeUnit.SECONDS));
+        assertFalse(interrupted.contains(true));
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        while (Thread.State.WAITING != thread.getState() && thread.isAlive()) {
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    void shouldRejectInvalidPartitionCount() {
+        var ex = assertThrows(IllegalArgumentException.class,
+                () -> new PartitionedOrderService(new StateMachineStub(), 0, 16));
+
+        assertEquals("Partition count must be greater than zero", ex.getMessage());
+    }
+}
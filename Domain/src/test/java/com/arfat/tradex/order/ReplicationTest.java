@@ -0,0 +1,218 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Instrument;
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.persistence.StateMachine;
+import com.arfat.tradex.persistence.replication.ReplicatedStateMachine;
+import com.arfat.tradex.persistence.replication.ReplicationPrimary;
+import com.arfat.tradex.persistence.replication.ReplicationStandby;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicationTest {
+
+    private static final Duration TIMEOUT = Duration.ofMillis(500);
+    private static final List<Instrument> INSTRUMENTS = List.of(Instrument.of("APL"), Instrument.of("MSF"), Instrument.of("GOO"));
+
+    private final StateMachine primaryState = new StateMachine();
+    private final ReplicationPrimary primary = new ReplicationPrimary(primaryState,
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024, TIMEOUT);
+    private final PartitionedOrderService orderService =
+            new PartitionedOrderService(new ReplicatedStateMachine(primaryState, primary), 2, 64);
+    private final StateMachine standbyState = new StateMachine();
+    private ReplicationStandby standby;
+
+    @AfterEach
+    void close() {
+        orderService.close();
+        primary.close();
+        if (null != standby) {
+            standby.close();
+        }
+    }
+
+    @Test
+    void shouldMirrorTheBooks_OnTheStandby() {
+        primary.start(orderService::quiesce);
+        startStandby();
+        await(standby::isSynced);
+
+        placeOrders(3000);
+
+        await(() -> 0 == primary.lag() && standbyState.orderCount() == primaryState.orderCount());
+        assertMirrored();
+    }
+
+    @Test
+    void shouldCatchUpFromASnapshot_WhenTheStandbyConnectsLate() {
+        primary.start(orderService::quiesce);
+        placeOrders(2000);
+
+        startStandby();
+        await(standby::isSynced);
+        placeOrders(1000);
+
+        await(() -> 0 == primary.lag() && standbyState.orderCount() == primaryState.orderCount());
+        assertMirrored();
+    }
+
+    @Test
+    void shouldPromoteTheStandby_WhenThePrimaryFails() throws InterruptedException {
+        primary.start(orderService::quiesce);
+        startStandby();
+        var promoted = new CountDownLatch(1);
+        standby.onPromotion(promoted::countDown);
+        await(standby::isSynced);
+        var last = placeOrders(500);
+        await(() -> 0 == primary.lag());
+
+        primary.close();
+
+        assertTrue(promoted.await(TIMEOUT.toMillis() * 4, TimeUnit.MILLISECONDS));
+        assertTrue(standby.isPromoted());
+        assertEquals(last.getId(), standby.lastOrderId());
+        assertMirrored();
+    }
+
+    @Test
+    void shouldNotWaitForTheStandby_WhenThereIsNone() {
+        primary.start(orderService::quiesce);
+
+        placeOrders(5000);
+
+        assertEquals(0, primary.lag());
+        assertFalse(primary.isStreaming());
+    }
+
+    @Test
+    void shouldMeterTheAppends_WaitingForAStandbyThatFellBehind() throws IOException {
+        var state = new StateMachine();
+        var waiting = new ReplicationPrimary(state, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 16,
+                TIMEOUT, ReplicationPrimary.BackPressure.WAIT);
+        try (var service = new PartitionedOrderService(new ReplicatedStateMachine(state, waiting), 2, 64);
+             var silent = new Socket()) {
+            waiting.start(service::quiesce);
+            silent.connect(waiting.localAddress());
+            await(waiting::isStreaming);
+
+            // the standby never acknowledges, matching waits until it is dropped for its silence
+            placeOrders(service, 100);
+
+            assertFalse(waiting.isStreaming());
+            assertTrue(waiting.blockedAppends() > 0);
+            assertTrue(waiting.blockedNanos() > 0);
+        } finally {
+            waiting.close();
+        }
+    }
+
+    @Test
+    void shouldDropTheStandby_WhenTheWaitingAppendIsInterrupted() throws Exception {
+        var state = new StateMachine();
+        var waiting = new ReplicationPrimary(state, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 16,
+                Duration.ofMinutes(1), ReplicationPrimary.BackPressure.WAIT);
+        var engine = new DefaultOrderService(new ReplicatedStateMachine(state, waiting));
+        try (var silent = new Socket()) {
+            waiting.start(Runnable::run);
+            silent.connect(waiting.localAddress());
+            await(waiting::isStreaming);
+
+            var placing = Thread.ofPlatform().start(() -> placeOrders(engine, 100));
+            await(() -> Thread.State.TIMED_WAITING == placing.getState());
+            placing.interrupt();
+            placing.join();
+
+            assertFalse(waiting.isStreaming());
+            assertEquals(100, state.orderCount());
+        } finally {
+            waiting.close();
+        }
+    }
+
+    @Test
+    void shouldDropTheStandby_InsteadOfWaiting_WhenTheBackPressureSaysSo() throws IOException {
+        var state = new StateMachine();
+        var dropping = new ReplicationPrimary(state, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 16,
+                TIMEOUT, ReplicationPrimary.BackPressure.DROP_STANDBY);
+        try (var service = new PartitionedOrderService(new ReplicatedStateMachine(state, dropping), 2, 64);
+             var silent = new Socket()) {
+            dropping.start(service::quiesce);
+            silent.connect(dropping.localAddress());
+            await(dropping::isStreaming);
+
+            placeOrders(service, 100);
+
+            assertFalse(dropping.isStreaming());
+            assertEquals(0, dropping.blockedAppends());
+            assertEquals(100, state.orderCount());
+        } finally {
+            dropping.close();
+        }
+    }
+
+    private void startStandby() {
+        standby = new ReplicationStandby(standbyState, primary.localAddress(), TIMEOUT);
+        standby.start();
+    }
+
+    /**
+     * @return the order placed last
+     */
+    private Order placeOrders(int count) {
+        return placeOrders(orderService, count);
+    }
+
+    private static Order placeOrders(OrderService orderService, int count) {
+        Order order = null;
+        for (int i = 0; i < count; i++) {
+            var instrument = INSTRUMENTS.get(i % INSTRUMENTS.size());
+            var direction = 0 == i % 2 ? Direction.BUY : Direction.SELL;
+            // prices overlap around 100, so some orders match and others rest
+            long price = Direction.BUY == direction ? 95 + i % 7 : 99 + i % 7;
+            order = orderService.placeOrder(new Order(instrument, price, 1 + i % 5, direction));
+            if (0 == i % 11 && !order.isFullyExecuted()) {
+                orderService.cancelOrder(order.getId());
+            }
+        }
+        return order;
+    }
+
+    private void assertMirrored() {
+        assertEquals(primaryState.orderCount(), standbyState.orderCount());
+        for (var instrument : INSTRUMENTS) {
+            for (var direction : Direction.values()) {
+                assertEquals(primaryState.marketDepth(instrument.getAsset()).levels(direction, 100),
+                        standbyState.marketDepth(instrument.getAsset()).levels(direction, 100));
+                assertEquals(primaryState.orderBook(instrument.getAsset(), direction).size(),
+                        standbyState.orderBook(instrument.getAsset(), direction).size());
+            }
+        }
+        primaryState.forEachOrder(order -> {
+            var copy = standbyState.getOrder(order.getId());
+            assertNotNull(copy);
+            assertEquals(order.getPendingLots(), copy.getPendingLots());
+            assertEquals(order.isCancelled(), copy.isCancelled());
+        });
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for the standby");
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -1,29 +1,33 @@
 package com.arfat.tradex.order;
 
+import com.arfat.tradex.book.MarketDepth;
+import com.arfat.tradex.book.OrderBook;
+import com.arfat.tradex.book.PriceLadder;
+import com.arfat.tradex.order.model.Direction;
 import com.arfat.tradex.order.model.Order;
 import com.arfat.tradex.persistence.Persistence;
 
-import java.util.List;
 import java.util.Map;
-import java.util.NavigableMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class StateMachineStub implements Persistence {
-    private final Map<String, Order> orders = new ConcurrentHashMap<>();
-    private final Map<String, NavigableMap<Double, List<Order>>> buyOrders = new ConcurrentHashMap<>();
-    private final Map<String, NavigableMap<Double, List<Order>>> sellOrders = new ConcurrentHashMap<>();
+    private final Map<Long, Order> orders = new ConcurrentHashMap<>();
+    private final Map<String, OrderBook> buyOrders = new ConcurrentHashMap<>();
+    private final Map<String, OrderBook> sellOrders = new ConcurrentHashMap<>();
+    private final Map<String, MarketDepth> depths = new ConcurrentHashMap<>();
 
     @Override
-    public Map<String, NavigableMap<Double, List<Order>>> buyOrders() {
-        return this.buyOrders;
+    public OrderBook orderBook(String asset, Direction direction) {
+        var books = Direction.BUY == direction ? this.buyOrders : this.sellOrders;
+        depths.computeIfAbsent(asset, k -> new MarketDepth());
+        return books.computeIfAbsent(asset, k -> new PriceLadder(direction));
     }
 
     @Override
-    public Map<String, NavigableMap<Double, List<Order>>> sellOrders() {
-        return this.sellOrders;
+    public MarketDepth marketDepth(String asset) {
+        return depths.get(asset);
     }
 
-
     @Override
     public void addOrder(Order incomingOrder) {
         if (incomingOrder == null) {
@@ -33,8 +37,13 @@ public class StateMachineStub implements Persistence {
     }
 
     @Override
-    public Order getOrder(String orderId) {
+    public Order getOrder(long orderId) {
         return this.orders.get(orderId);
     }
 
+    @Override
+    public int orderCount() {
+        return this.orders.size();
+    }
+
 }
@@ -0,0 +1,90 @@
+package com.arfat.tradex.order.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdGeneratorTest {
+
+    @Test
+    void shouldGenerateIncreasingIds_EvenBeyondTheSequenceOfOneMillisecond() {
+        var ids = new IdGenerator(7);
+        long previous = 0;
+        for (int i = 0; i < 100_000; i++) {
+            long id = ids.next();
+            assertTrue(id > previous);
+            assertEquals(7, IdGenerator.nodeId(id));
+            previous = id;
+        }
+    }
+
+    @Test
+    void shouldGenerateUniqueIds_AcrossThreads() throws InterruptedException {
+        var ids = new IdGenerator(0);
+        var seen = ConcurrentHashMap.<Long>newKeySet();
+        try (var threads = Executors.newFixedThreadPool(4)) {
+            IntStream.range(0, 4).forEach(t -> threads.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    seen.add(ids.next());
+                }
+            }));
+        }
+        assertEquals(40_000, seen.size());
+    }
+
+    @Test
+    void shouldKeepNodesApart() {
+        assertNotEquals(new IdGenerator(1).next(), new IdGenerator(2).next());
+        assertThrows(IllegalArgumentException.class, () -> new IdGenerator(-1));
+        assertThrows(IllegalArgumentException.class, () -> new IdGenerator(IdGenerator.MAX_NODE_ID + 1));
+    }
+
+    @Test
+    void shouldContinueAfterTheIdsOfAnotherGenerator() {
+        var primary = new IdGenerator(5);
+        long last = 0;
+        // borrows well ahead of the clock
+        for (int i = 0; i < 50_000; i++) {
+            last = primary.next();
+        }
+
+        var standby = new IdGenerator(5);
+        standby.advancePast(last);
+
+        assertTrue(standby.next() > last);
+    }
+
+    @Test
+    void shouldFormatIdsThatSortLikeTheIds() {
+        var ids = new IdGenerator(3);
+        long first = ids.next();
+        long second = ids.next();
+
+        assertEquals(IdGenerator.LENGTH, IdGenerator.format(first).length());
+        assertTrue(IdGenerator.format(first).compareTo(IdGenerator.format(second)) < 0);
+        assertEquals("0000000000001", IdGenerator.format(1));
+        assertEquals("7ZZZZZZZZZZZZ", IdGenerator.format(Long.MAX_VALUE));
+    }
+
+    @Test
+    void shouldParseFormattedIds_InEitherCase() {
+        long id = new IdGenerator(9).next();
+
+        assertEquals(id, IdGenerator.parse(IdGenerator.format(id)));
+        assertEquals(id, IdGenerator.parse(IdGenerator.format(id).toLowerCase()));
+        assertEquals(-1L, IdGenerator.parse("FZZZZZZZZZZZZ"));
+    }
+
+    @Test
+    void shouldRejectTextThatIsNoId() {
+        assertThrows(IllegalArgumentException.class, () -> IdGenerator.parse(null));
+        assertThrows(IllegalArgumentException.class, () -> IdGenerator.parse("123"));
+        assertThrows(IllegalArgumentException.class, () -> IdGenerator.parse("0A8WNA4PM000U"));
+        assertThrows(IllegalArgumentException.class, () -> IdGenerator.parse("GA8WNA4PM0000"));
+        assertThrows(IllegalArgumentException.class, () -> IdGenerator.parse("123e4567-e89b-12d3-a456-426614174000"));
+    }
+}
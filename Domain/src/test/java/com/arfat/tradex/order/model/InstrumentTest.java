@@ -0,0 +1,66 @@
+package com.arfat.tradex.order.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstrumentTest {
+
+    private final Instrument instrument = new Instrument("BTC", new BigDecimal("0.05"), new BigDecimal("0.01"));
+
+    @Test
+    void shouldConvertPriceToTicksAndBack() {
+        assertEquals(865020, instrument.toTicks(new BigDecimal("43251.00")));
+        assertEquals(43251.0, instrument.toPrice(865020));
+        assertEquals(43251.05, instrument.toPrice(instrument.toTicks(43251.05)));
+    }
+
+    @Test
+    void shouldConvertAmountToLotsAndBack() {
+        assertEquals(65, instrument.toLots(0.65));
+        assertEquals(0.65, instrument.toAmount(65));
+    }
+
+    @Test
+    void shouldRejectPriceOffTheTickGrid() {
+        var ex = assertThrows(IllegalArgumentException.class, () -> instrument.toTicks(43251.01));
+        assertEquals("Order price must be a multiple of tick size 0.05", ex.getMessage());
+    }
+
+    @Test
+    void shouldRejectAmountOffTheLotGrid() {
+        var ex = assertThrows(IllegalArgumentException.class, () -> instrument.toLots(0.001));
+        assertEquals("Order amount must be a multiple of lot size 0.01", ex.getMessage());
+    }
+
+    @Test
+    void shouldRejectInvalidSizes() {
+        var ex = assertThrows(IllegalArgumentException.class,
+                () -> new Instrument("BTC", BigDecimal.ZERO, BigDecimal.ONE));
+        assertEquals("Tick size must be greater than zero", ex.getMessage());
+
+        ex = assertThrows(IllegalArgumentException.class,
+                () -> new Instrument("BTC", BigDecimal.ONE, null));
+        assertEquals("Lot size must be greater than zero", ex.getMessage());
+    }
+
+    @Test
+    void shouldUseDefaultSizes_WhenAssetIsNotRegistered() {
+        var instruments = new Instruments().register("BTC", new BigDecimal("0.5"), BigDecimal.ONE);
+
+        assertEquals(new BigDecimal("0.5"), instruments.get("BTC").getTickSize());
+        assertEquals(Instrument.DEFAULT_TICK_SIZE, instruments.get("APL").getTickSize());
+        assertEquals(Instrument.DEFAULT_LOT_SIZE, instruments.get("APL").getLotSize());
+    }
+
+    @Test
+    void shouldRejectAssets_ThatAreNotTradedOnThisNode() {
+        var instruments = new Instruments(asset -> !asset.equals("APL"));
+
+        assertEquals("BTC", instruments.get("BTC").getAsset());
+        var ex = assertThrows(IllegalArgumentException.class, () -> instruments.get("APL"));
+        assertEquals("Asset APL is not traded on this node", ex.getMessage());
+    }
+}
@@ -66,13 +66,26 @@ class OrderTest {
     }
 
 
+    @Test
+    void shouldBumpTheVersion_OnEveryTradeAndOnCancel() {
+        Order order = new Order("APL", 1500.0, 4, Direction.BUY);
+        assertEquals(0, order.getVersion());
+
+        order.addTrade(1, order.getInstrument().toLots(1), order.getPriceTicks());
+        order.addTrade(2, order.getInstrument().toLots(1), order.getPriceTicks());
+        assertEquals(2, order.getVersion());
+
+        order.cancel();
+        assertEquals(3, order.getVersion());
+    }
+
     @Test
     void shouldAddATradeToOrder() {
         Order order = new Order("APL", 1500.0, 4, Direction.BUY);
         Trade trade = Trade.builder()
-                .orderId("trade1")
-                .amount(2)
-                .price(1500.0)
+                .orderId(1)
+                .amountLots(order.getInstrument().toLots(2))
+                .priceTicks(order.getPriceTicks())
                 .build();
 
         order.addTrade(trade);
@@ -81,25 +94,74 @@ class OrderTest {
         assertEquals(trade, order.getTrades().getFirst());
     }
 
+    @Test
+    void shouldReadEveryTradeOfAView_WhileTheTradesGrowOnAnotherThread() throws Exception {
+        int trades = 1 << 16;
+        Order order = new Order(Instrument.of("APL"), 1, trades, Direction.BUY);
+        var writer = Thread.ofPlatform().start(() -> {
+            for (int i = 1; i <= trades; i++) {
+                order.addTrade(i, 1, i);
+            }
+        });
+
+        int size = 0;
+        while (size < trades) {
+            var view = order.getTrades();
+            size = view.size();
+            assertEquals(size, view.size());
+            for (int i = 0; i < size; i++) {
+                assertEquals(new Trade(i + 1, 1, i + 1), view.get(i));
+            }
+            assertThrows(IndexOutOfBoundsException.class, () -> view.get(view.size()));
+        }
+        writer.join();
+        assertTrue(order.isFullyExecuted());
+    }
+
+    @Test
+    void shouldKeepExactPendingAmount_WhenFilledInDecimalFractions() {
+        Order order = new Order("APL", 1500.0, 0.3, Direction.BUY);
+
+        order.addTrade(Trade.builder().orderId(1).amountLots(order.getInstrument().toLots(0.1)).build());
+        order.addTrade(Trade.builder().orderId(2).amountLots(order.getInstrument().toLots(0.2)).build());
+
+        assertTrue(order.isFullyExecuted());
+        assertEquals(0.0, order.getPendingAmount());
+    }
+
+    @Test
+    void shouldCreateOrderFromScaledValues() {
+        var instrument = new Instrument("BTC", new java.math.BigDecimal("0.5"), new java.math.BigDecimal("0.001"));
+        Order order = new Order(instrument, 86502, 1250, Direction.SELL);
+
+        assertEquals(43251.0, order.getPrice());
+        assertEquals(1.25, order.getAmount());
+        assertEquals(1.25, order.getPendingAmount());
+        assertEquals(1250, order.getPendingLots());
+    }
+
     @Test
     void shouldReturnFullyExecutedStatus() {
         Order order = new Order("APL", 1500.0, 4, Direction.BUY);
         assertFalse(order.isFullyExecuted());
+        assertEquals(OrderStatus.NEW, order.getStatus());
 
         Trade trade1 = Trade.builder()
-                .orderId("trade1")
-                .amount(2)
-                .price(1500.0)
+                .orderId(1)
+                .amountLots(order.getInstrument().toLots(2))
+                .priceTicks(order.getPriceTicks())
                 .build();
         order.addTrade(trade1);
         assertFalse(order.isFullyExecuted());
+        assertEquals(OrderStatus.PARTIALLY_FILLED, order.getStatus());
 
         Trade trade2 = Trade.builder()
-                .orderId("trade2")
-                .amount(2)
-                .price(1500.0)
+                .orderId(2)
+                .amountLots(order.getInstrument().toLots(2))
+                .priceTicks(order.getPriceTicks())
                 .build();
         order.addTrade(trade2);
         assertTrue(order.isFullyExecuted());
+        assertEquals(OrderStatus.FILLED, order.getStatus());
     }
 }
\ No newline at end of file
@@ -0,0 +1,129 @@
+package com.arfat.tradex.persistence;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.IdGenerator;
+import com.arfat.tradex.order.model.Order;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderIndexTest {
+
+    private static final IdGenerator IDS = new IdGenerator(0);
+
+    @Test
+    void shouldFindOrdersById_WhileGrowing() {
+        var index = new OrderIndex();
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            var order = order();
+            orders.add(order);
+            index.put(order);
+        }
+
+        assertEquals(50_000, index.size());
+        for (var order : orders) {
+            assertSame(order, index.get(order.getId()));
+        }
+        assertNull(index.get(42));
+        assertNull(index.get(0));
+    }
+
+    @Test
+    void shouldReplaceTheOrderWithTheSameId() {
+        var index = new OrderIndex();
+        var order = order();
+        var replacement = order();
+        replacement.setId(order.getId());
+
+        index.put(order);
+        index.put(replacement);
+
+        assertEquals(1, index.size());
+        assertSame(replacement, index.get(order.getId()));
+    }
+
+    @Test
+    void shouldKeepFindingTheOthers_AfterRemovals() {
+        var index = new OrderIndex();
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            var order = order();
+            orders.add(order);
+            index.put(order);
+        }
+
+        for (int i = 0; i < orders.size(); i += 2) {
+            index.remove(orders.get(i).getId());
+        }
+        index.remove(42);
+
+        assertEquals(5_000, index.size());
+        for (int i = 0; i < orders.size(); i++) {
+            var expected = i % 2 == 0 ? null : orders.get(i);
+            assertSame(expected, index.get(orders.get(i).getId()));
+        }
+        var visited = new HashSet<Order>();
+        index.forEach(visited::add);
+        assertEquals(5_000, visited.size());
+    }
+
+    @Test
+    void shouldRejectOrdersWithoutId() {
+        assertThrows(IllegalArgumentException.class, () -> new OrderIndex().put(new Order("APL", 100.0, 1, Direction.BUY)));
+    }
+
+    @Test
+    void shouldFindEveryPublishedOrder_WhileOthersAreWritten() throws InterruptedException {
+        var index = new OrderIndex();
+        var published = new long[40_000];
+        var count = new AtomicInteger();
+        var done = new AtomicBoolean();
+        var missed = new AtomicInteger();
+
+        try (var threads = Executors.newFixedThreadPool(3)) {
+            threads.submit(() -> {
+                for (int i = 0; i < published.length; i++) {
+                    var order = order();
+                    index.put(order);
+                    if (i % 3 == 0) {
+                        // churn, so readers race removals as well as growth
+                        index.remove(order.getId());
+                        continue;
+                    }
+                    published[count.get()] = order.getId();
+                    count.incrementAndGet();
+                }
+                done.set(true);
+            });
+            for (int r = 0; r < 2; r++) {
+                threads.submit(() -> {
+                    while (!done.get()) {
+                        int visible = count.get();
+                        for (int i = Math.max(0, visible - 100); i < visible; i++) {
+                            if (null == index.get(published[i])) {
+                                missed.incrementAndGet();
+                            }
+                        }
+                    }
+                });
+            }
+        }
+
+        assertEquals(0, missed.get());
+        assertEquals(count.get(), index.size());
+    }
+
+    private static Order order() {
+        var order = new Order("APL", 100.0, 1, Direction.BUY);
+        order.setId(IDS.next());
+        return order;
+    }
+}
@@ -1,18 +1,25 @@
 package com.arfat.tradex.persistence;
 
+import com.arfat.tradex.book.OrderBook;
+import com.arfat.tradex.book.PriceLadder;
 import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.IdGenerator;
 import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.order.model.Trade;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.NavigableMap;
-import java.util.UUID;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class StateMachineTest {
 
+    private static final IdGenerator IDS = new IdGenerator(0);
+
     private StateMachine stateMachine;
 
     @BeforeEach
@@ -44,60 +51,50 @@ class StateMachineTest {
 
     @Test
     void shouldReturnNull_WhenOrderNotFound() {
-        assertNull(stateMachine.getOrder("non-existent-id"));
+        assertNull(stateMachine.getOrder(42));
     }
 
     @Test
-    void shouldReturnEmptyMaps_WhenNoOrders() {
-        assertTrue(stateMachine.buyOrders().isEmpty());
-        assertTrue(stateMachine.sellOrders().isEmpty());
+    void shouldReturnEmptyBooks_WhenNoOrders() {
+        assertTrue(stateMachine.orderBook("APL", Direction.BUY).isEmpty());
+        assertTrue(stateMachine.orderBook("APL", Direction.SELL).isEmpty());
     }
 
     @Test
     void shouldGetBuyOrders() {
         Order order = createOrder("APL", 100.0, 1, Direction.BUY);
-        stateMachine.buyOrders().computeIfAbsent(order.getAsset(), k -> new java.util.TreeMap<>())
-                .computeIfAbsent(order.getPrice(), k -> new java.util.ArrayList<>()).add(order);
+        stateMachine.orderBook(order.getAsset(), Direction.BUY).add(order);
 
-        assertNotNull(stateMachine.buyOrders());
-        assertFalse(stateMachine.buyOrders().isEmpty());
-        assertEquals(1, stateMachine.buyOrders().size());
+        assertFalse(stateMachine.orderBook("APL", Direction.BUY).isEmpty());
+        assertEquals(1, stateMachine.orderBook("APL", Direction.BUY).size());
+        assertTrue(stateMachine.orderBook("APL", Direction.SELL).isEmpty());
     }
 
     @Test
     void shouldGetSellOrders() {
         Order order = createOrder("APL", 100.0, 1, Direction.SELL);
-        stateMachine.sellOrders().computeIfAbsent(order.getAsset(), k -> new java.util.TreeMap<>())
-                .computeIfAbsent(order.getPrice(), k -> new java.util.ArrayList<>()).add(order);
+        stateMachine.orderBook(order.getAsset(), Direction.SELL).add(order);
 
-        assertNotNull(stateMachine.sellOrders());
-        assertFalse(stateMachine.sellOrders().isEmpty());
-        assertEquals(1, stateMachine.sellOrders().size());
+        assertFalse(stateMachine.orderBook("APL", Direction.SELL).isEmpty());
+        assertEquals(1, stateMachine.orderBook("APL", Direction.SELL).size());
+        assertTrue(stateMachine.orderBook("APL", Direction.BUY).isEmpty());
 
     }
 
     @Test
-    void shouldPreservePriceOrderingInNavigableMap() {
+    void shouldKeepBestPriceOnTopOfTheBook() {
         Order order1 = createOrder("APL", 100.0, 1, Direction.BUY);
         Order order2 = createOrder("APL", 102.0, 1, Direction.BUY);
         Order order3 = createOrder("APL", 101.0, 1, Direction.BUY);
 
-        stateMachine.buyOrders().computeIfAbsent(order1.getAsset(), k -> new java.util.TreeMap<>())
-                .computeIfAbsent(order1.getPrice(), k -> new java.util.ArrayList<>()).add(order1);
-
-        stateMachine.buyOrders().computeIfAbsent(order2.getAsset(), k -> new java.util.TreeMap<>())
-                .computeIfAbsent(order2.getPrice(), k -> new java.util.ArrayList<>()).add(order2);
-
-        stateMachine.buyOrders().computeIfAbsent(order3.getAsset(), k -> new java.util.TreeMap<>())
-                .computeIfAbsent(order3.getPrice(), k -> new java.util.ArrayList<>()).add(order3);
-
+        OrderBook buyOrdersForAsset = stateMachine.orderBook("APL", Direction.BUY);
+        buyOrdersForAsset.add(order1);
+        buyOrdersForAsset.add(order2);
+        buyOrdersForAsset.add(order3);
 
-        NavigableMap<Double, List<Order>> buyOrdersForAsset = stateMachine.buyOrders().get("APL");
-
-        assertNotNull(buyOrdersForAsset);
-        assertEquals(3, buyOrdersForAsset.size());
-        assertEquals(100.0, buyOrdersForAsset.firstKey());
-        assertEquals(102.0, buyOrdersForAsset.lastKey());
+        assertEquals(3, buyOrdersForAsset.levels());
+        assertEquals(order2.getPriceTicks(), buyOrdersForAsset.bestPrice());
+        assertSame(order2, buyOrdersForAsset.bestOrder());
     }
 
     @Test
@@ -105,21 +102,62 @@ class StateMachineTest {
         Order aplOrder = createOrder("APL", 100.0, 2, Direction.BUY);
         Order googlOrder = createOrder("GOOGL", 2500.0, 1, Direction.BUY);
 
-        stateMachine.buyOrders().computeIfAbsent(aplOrder.getAsset(), k -> new java.util.TreeMap<>())
-                .computeIfAbsent(aplOrder.getPrice(), k -> new java.util.ArrayList<>()).add(aplOrder);
+        stateMachine.orderBook(aplOrder.getAsset(), Direction.BUY).add(aplOrder);
+        stateMachine.orderBook(googlOrder.getAsset(), Direction.BUY).add(googlOrder);
 
-        stateMachine.buyOrders().computeIfAbsent(googlOrder.getAsset(), k -> new java.util.TreeMap<>())
-                .computeIfAbsent(googlOrder.getPrice(), k -> new java.util.ArrayList<>()).add(googlOrder);
+        assertSame(aplOrder, stateMachine.orderBook("APL", Direction.BUY).bestOrder());
+        assertSame(googlOrder, stateMachine.orderBook("GOOGL", Direction.BUY).bestOrder());
+    }
 
+    @Test
+    void shouldMoveExecutedOrdersToTheArchive_AndServeThemFromTheCache() {
+        var archived = new HashMap<Long, Order>();
+        var archive = new OrderArchive() {
+            @Override
+            public void archive(Order order) {
+                archived.put(order.getId(), order);
+            }
+
+            @Override
+            public Order find(long orderId) {
+                return archived.get(orderId);
+            }
+        };
+        var state = new StateMachine(PriceLadder.DEFAULT_CAPACITY, archive, 1);
+        var sell = createOrder("APL", 100.0, 2, Direction.SELL);
+        var buy = createOrder("APL", 100.0, 1, Direction.BUY);
+        var secondBuy = createOrder("APL", 100.0, 1, Direction.BUY);
+        state.addOrder(sell);
+        state.addOrder(buy);
+        state.addOrder(secondBuy);
+
+        fill(state, buy, sell);
+        assertEquals(List.of(buy.getId()), List.copyOf(archived.keySet()));
+        assertSame(buy, state.getOrder(buy.getId()));
+
+        fill(state, secondBuy, sell);
+        assertEquals(Set.of(buy.getId(), sell.getId(), secondBuy.getId()), archived.keySet());
+        var live = new ArrayList<Order>();
+        state.forEachOrder(live::add);
+        assertTrue(live.isEmpty());
+
+        // only the latest executed order stays cached, the others come back from the archive
+        archived.replaceAll((id, order) -> createOrder("APL", 100.0, 1, Direction.BUY));
+        assertNotSame(buy, state.getOrder(buy.getId()));
+        assertSame(state.getOrder(buy.getId()), state.getOrder(buy.getId()));
+        assertNull(state.getOrder(42));
+    }
 
-        assertEquals(2, stateMachine.buyOrders().size());
-        assertTrue(stateMachine.buyOrders().containsKey("APL"));
-        assertTrue(stateMachine.buyOrders().containsKey("GOOGL"));
+    private static void fill(StateMachine state, Order incomingOrder, Order counterOrder) {
+        long amountLots = Math.min(incomingOrder.getPendingLots(), counterOrder.getPendingLots());
+        incomingOrder.addTrade(Trade.builder().orderId(counterOrder.getId()).amountLots(amountLots).build());
+        counterOrder.addTrade(Trade.builder().orderId(incomingOrder.getId()).amountLots(amountLots).build());
+        state.addFill(incomingOrder, counterOrder, counterOrder.getPriceTicks(), amountLots);
     }
 
     private Order createOrder(String asset, double price, double amount, Direction direction) {
         Order order = new Order(asset, price, amount, direction);
-        order.setId(UUID.randomUUID().toString());
+        order.setId(IDS.next());
         return order;
     }
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package com.arfat.tradex.persistence.journal;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.IdGenerator;
+import com.arfat.tradex.order.model.Instrument;
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.order.model.Trade;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileOrderArchiveTest {
+
+    private static final IdGenerator IDS = new IdGenerator(0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldFindArchivedOrders_AfterReopening() {
+        var instrument = new Instrument("ETH", new BigDecimal("0.05"), new BigDecimal("0.001"));
+        var sell = executed(instrument, Direction.SELL, 3);
+        var buy = executed(Instrument.of("APL"), Direction.BUY, 1);
+        try (var archive = FileOrderArchive.open(directory)) {
+            archive.archive(sell);
+            archive.archive(buy);
+
+            assertEquals(trades(sell), trades(archive.find(sell.getId())));
+            assertNull(archive.find(IDS.next()));
+        }
+
+        try (var archive = FileOrderArchive.open(directory)) {
+            var found = archive.find(sell.getId());
+            assertEquals(sell.getTimestamp(), found.getTimestamp());
+            assertEquals(new BigDecimal("0.05"), found.getInstrument().getTickSize());
+            assertEquals(sell.getPriceTicks(), found.getPriceTicks());
+            assertEquals(sell.getAmountLots(), found.getAmountLots());
+            assertEquals(trades(sell), trades(found));
+            assertTrue(found.isFullyExecuted());
+            assertEquals("APL", archive.find(buy.getId()).getAsset());
+        }
+    }
+
+    @Test
+    void shouldGrowTheIndex() {
+        var instrument = Instrument.of("APL");
+        var orders = new ArrayList<Order>();
+        try (var archive = FileOrderArchive.open(directory)) {
+            for (int i = 0; i < FileOrderArchive.INITIAL_SLOTS; i++) {
+                var order = executed(instrument, Direction.BUY, 1);
+                archive.archive(order);
+                orders.add(order);
+            }
+            assertEquals(orders.getFirst().getId(), archive.find(orders.getFirst().getId()).getId());
+        }
+
+        try (var archive = FileOrderArchive.open(directory)) {
+            for (int i = 0; i < orders.size(); i += 997) {
+                assertEquals(orders.get(i).getId(), archive.find(orders.get(i).getId()).getId());
+            }
+            assertEquals(orders.getLast().getId(), archive.find(orders.getLast().getId()).getId());
+        }
+    }
+
+    @Test
+    void shouldReplaceAnOrderArchivedTwice() {
+        var order = executed(Instrument.of("APL"), Direction.SELL, 1);
+        try (var archive = FileOrderArchive.open(directory)) {
+            archive.archive(order);
+            var replayed = new Order(order.getInstrument(), 100, 1, Direction.SELL, order.getTimestamp());
+            replayed.setId(order.getId());
+            long counterOrderId = IDS.next();
+            replayed.addTrade(Trade.builder().orderId(counterOrderId).amountLots(1).priceTicks(7).build());
+            // replaying the journal after a restart archives the orders executed after the snapshot again
+            archive.archive(replayed);
+
+            assertEquals(counterOrderId, archive.find(order.getId()).getTrades().getFirst().getOrderId());
+        }
+    }
+
+    @Test
+    void shouldWriteAnOrderLargerThanTheBuffer() {
+        var order = new Order(Instrument.of("APL"), 100, 5000, Direction.BUY);
+        order.setId(IDS.next());
+        for (int i = 0; i < 5000; i++) {
+            order.addTrade(Trade.builder().orderId(IDS.next()).amountLots(1).priceTicks(100).build());
+        }
+        try (var archive = FileOrderArchive.open(directory)) {
+            archive.archive(executed(Instrument.of("APL"), Direction.SELL, 1));
+            archive.archive(order);
+
+            assertEquals(trades(order), trades(archive.find(order.getId())));
+        }
+    }
+
+    private static List<String> trades(Order order) {
+        return order.getTrades().stream()
+                .map(trade -> trade.getOrderId() + "@" + trade.getPriceTicks() + "x" + trade.getAmountLots())
+                .toList();
+    }
+
+    private static Order executed(Instrument instrument, Direction direction, int trades) {
+        var order = new Order(instrument, 100, trades, direction);
+        order.setId(IDS.next());
+        for (int i = 0; i < trades; i++) {
+            order.addTrade(Trade.builder().orderId(IDS.next()).amountLots(1).priceTicks(100 - i).build());
+        }
+        return order;
+    }
+}
@@ -0,0 +1,189 @@
+package com.arfat.tradex.persistence.journal;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.IdGenerator;
+import com.arfat.tradex.order.model.Instrument;
+import com.arfat.tradex.order.model.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalTest {
+
+    private static final IdGenerator IDS = new IdGenerator(0);
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldReplayOrdersFillsAndCancels_WhenReopened() {
+        var instrument = new Instrument("ETH", new BigDecimal("0.05"), new BigDecimal("0.001"));
+        var buy = order(instrument, 100, 7, Direction.BUY);
+        var sell = order(instrument, 99, 3, Direction.SELL);
+
+        try (var journal = Journal.open(directory, SEGMENT_SIZE, new Recorder())) {
+            journal.appendOrder(buy);
+            journal.appendOrder(sell);
+            journal.appendFill(sell, buy, 100, 3);
+            journal.appendCancel(buy);
+        }
+
+        var recorder = new Recorder();
+        Journal.open(directory, SEGMENT_SIZE, recorder).close();
+
+        assertEquals(List.of(
+                "order " + buy.getId() + " ETH BUY 100x7 at " + buy.getTimestampNanos(),
+                "order " + sell.getId() + " ETH SELL 99x3 at " + sell.getTimestampNanos(),
+                "fill " + sell.getId() + "/" + buy.getId() + " 100x3",
+                "cancel " + buy.getId()), recorder.events);
+        assertEquals(instrument.getTickSize(), recorder.instruments.getFirst().getTickSize());
+        assertEquals(instrument.getLotSize(), recorder.instruments.getFirst().getLotSize());
+    }
+
+    @Test
+    void shouldContinueAfterLastRecord_WhenReopened() {
+        var instrument = Instrument.of("APL");
+        var first = order(instrument, 100, 1, Direction.BUY);
+        var second = order(instrument, 101, 1, Direction.BUY);
+
+        Journal.open(directory, SEGMENT_SIZE, new Recorder()).appendOrder(first);
+        try (var journal = Journal.open(directory, SEGMENT_SIZE, new Recorder())) {
+            journal.appendOrder(second);
+        }
+
+        var recorder = new Recorder();
+        Journal.open(directory, SEGMENT_SIZE, recorder).close();
+        assertEquals(2, recorder.events.size());
+        assertTrue(recorder.events.getLast().startsWith("order " + second.getId()));
+    }
+
+    @Test
+    void shouldRollToNextSegment_WhenSegmentIsFull() throws IOException {
+        var instrument = Instrument.of("APL");
+        int orders = 200;
+
+        try (var journal = Journal.open(directory, SEGMENT_SIZE, new Recorder())) {
+            for (int i = 0; i < orders; i++) {
+                journal.appendOrder(order(instrument, 100 + i, 1, Direction.SELL));
+            }
+        }
+
+        try (var files = Files.list(directory)) {
+            assertTrue(files.count() > 1);
+        }
+        var recorder = new Recorder();
+        Journal.open(directory, SEGMENT_SIZE, recorder).close();
+        assertEquals(orders, recorder.events.size());
+    }
+
+    @Test
+    void shouldKeepTheRecordsOfEveryPartition_WhenTheyAppendConcurrently() throws Exception {
+        var assets = List.of("APL", "MSF", "GOO", "AMZ");
+        int orders = 500;
+        List<List<String>> expected = new ArrayList<>();
+
+        try (var journal = Journal.open(directory, SEGMENT_SIZE, new Recorder())) {
+            List<Thread> partitions = new ArrayList<>();
+            for (var asset : assets) {
+                List<Order> placed = new ArrayList<>();
+                for (int i = 0; i < orders; i++) {
+                    placed.add(order(Instrument.of(asset), 100 + i, 1, Direction.BUY));
+                }
+                expected.add(placed.stream().flatMap(order -> Stream.of("order " + order.getId(),
+                        "cancel " + order.getId())).toList());
+                partitions.add(Thread.ofPlatform().start(() -> placed.forEach(order -> {
+                    journal.appendOrder(order);
+                    journal.appendCancel(order);
+                })));
+            }
+            // cuts taken meanwhile wait for the records claimed before them
+            var last = JournalPosition.START;
+            while (partitions.stream().anyMatch(Thread::isAlive)) {
+                var cut = journal.position();
+                assertTrue(cut.compareTo(last) >= 0);
+                last = cut;
+            }
+            for (var partition : partitions) {
+                partition.join();
+            }
+        }
+
+        var recorder = new Recorder();
+        Journal.open(directory, SEGMENT_SIZE, recorder).close();
+        assertEquals(assets.size() * orders * 2, recorder.events.size());
+        for (int i = 0; i < assets.size(); i++) {
+            var ids = expected.get(i).stream().collect(Collectors.toSet());
+            // the records of one partition keep their order
+            assertEquals(expected.get(i), recorder.events.stream()
+                    .map(event -> event.split(" ")[0] + " " + event.split(" ")[1])
+                    .filter(ids::contains)
+                    .toList());
+        }
+    }
+
+    @Test
+    void shouldIgnoreRecordWithoutType_WhenWriteWasTorn() throws IOException {
+        var instrument = Instrument.of("APL");
+        var order = order(instrument, 100, 1, Direction.BUY);
+        try (var journal = Journal.open(directory, SEGMENT_SIZE, new Recorder())) {
+            journal.appendOrder(order);
+        }
+
+        // simulate a crash after the length of the next record reached the page cache but before its type did
+        var segment = directory.resolve("%020d.journal".formatted(1));
+        byte[] bytes = Files.readAllBytes(segment);
+        int end = 0;
+        while (bytes[end + 4] != 0) {
+            end += ((bytes[end] & 0xFF) << 24) | ((bytes[end + 1] & 0xFF) << 16)
+                   | ((bytes[end + 2] & 0xFF) << 8) | (bytes[end + 3] & 0xFF);
+        }
+        bytes[end + 3] = 90;
+        Files.write(segment, bytes);
+
+        var recorder = new Recorder();
+        Journal.open(directory, SEGMENT_SIZE, recorder).close();
+        assertEquals(1, recorder.events.size());
+    }
+
+    private static Order order(Instrument instrument, long priceTicks, long amountLots, Direction direction) {
+        var order = new Order(instrument, priceTicks, amountLots, direction, Instant.now());
+        order.setId(IDS.next());
+        return order;
+    }
+
+    private static final class Recorder implements JournalHandler {
+        private final List<String> events = new ArrayList<>();
+        private final List<Instrument> instruments = new ArrayList<>();
+
+        @Override
+        public void onOrder(long orderId, long timestamp, Instrument instrument, Direction direction,
+                            long priceTicks, long amountLots) {
+            instruments.add(instrument);
+            events.add("order " + orderId + " " + instrument.getAsset() + " " + direction + " "
+                       + priceTicks + "x" + amountLots + " at " + timestamp);
+        }
+
+        @Override
+        public void onFill(long incomingOrderId, long counterOrderId, long priceTicks, long amountLots) {
+            events.add("fill " + incomingOrderId + "/" + counterOrderId + " " + priceTicks + "x" + amountLots);
+        }
+
+        @Override
+        public void onCancel(long orderId) {
+            events.add("cancel " + orderId);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.arfat.tradex.persistence.journal;
+
+import com.arfat.tradex.book.DepthLevel;
+import com.arfat.tradex.book.OrderBook;
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.IdGenerator;
+import com.arfat.tradex.order.model.Instrument;
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.order.model.Trade;
+import com.arfat.tradex.persistence.StateMachine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotTest {
+
+    private static final IdGenerator IDS = new IdGenerator(0);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldRestoreOrdersTradesAndBooks() {
+        var instrument = new Instrument("ETH", new BigDecimal("0.05"), new BigDecimal("0.001"));
+        var state = new StateMachine();
+        var first = resting(state, order(instrument, 100, 5, Direction.SELL));
+        var second = resting(state, order(instrument, 100, 2, Direction.SELL));
+        var better = resting(state, order(instrument, 99, 1, Direction.SELL));
+        var bid = resting(state, order(instrument, 90, 1, Direction.BUY));
+        var executed = order(instrument, 99, 1, Direction.BUY);
+        state.addOrder(executed);
+        executed.addTrade(trade(better.getId(), 1, 99));
+        first.addTrade(trade(executed.getId(), 2, 100));
+
+        var file = Snapshot.write(directory, new JournalPosition(3, 128), state);
+        var restored = new StateMachine();
+        var position = Snapshot.restore(file, restored);
+
+        assertEquals(new JournalPosition(3, 128), position);
+        assertEquals(file, Snapshot.latest(directory).orElseThrow());
+
+        var restoredFirst = restored.getOrder(first.getId());
+        assertEquals(3, restoredFirst.getPendingLots());
+        assertEquals(first.getTimestamp(), restoredFirst.getTimestamp());
+        assertEquals(executed.getId(), restoredFirst.getTrades().getFirst().getOrderId());
+        assertEquals(new BigDecimal("0.05"), restoredFirst.getInstrument().getTickSize());
+        assertTrue(restored.getOrder(executed.getId()).isFullyExecuted());
+        assertFalse(restored.getOrder(executed.getId()).isResting());
+
+        assertEquals(ids(List.of(better, first, second)), ids(orders(restored.orderBook("ETH", Direction.SELL))));
+        assertEquals(ids(List.of(bid)), ids(orders(restored.orderBook("ETH", Direction.BUY))));
+        assertEquals(List.of(new DepthLevel(99, 1, 1), new DepthLevel(100, 5, 2)),
+                restored.marketDepth("ETH").levels(Direction.SELL, 10));
+    }
+
+    @Test
+    void shouldStreamSnapshotsLargerThanTheBuffer() {
+        var instrument = Instrument.of("APL");
+        var state = new StateMachine();
+        int count = 50_000;
+        for (int i = 0; i < count; i++) {
+            resting(state, order(instrument, 1_000 + i % 500, 1, Direction.BUY));
+        }
+
+        var restored = new StateMachine();
+        Snapshot.restore(Snapshot.write(directory, JournalPosition.START, state), restored);
+
+        var book = restored.orderBook("APL", Direction.BUY);
+        assertEquals(count, book.size());
+        assertEquals(ids(orders(state.orderBook("APL", Direction.BUY))), ids(orders(book)));
+    }
+
+    @Test
+    void shouldDeleteOlderSnapshots() {
+        var state = new StateMachine();
+        Snapshot.write(directory, new JournalPosition(1, 10), state);
+        var latest = Snapshot.write(directory, new JournalPosition(2, 0), state);
+
+        Snapshot.deleteBefore(directory, new JournalPosition(2, 0));
+
+        assertEquals(latest, Snapshot.latest(directory).orElseThrow());
+        assertEquals(0, new JournalPosition(1, 10).compareTo(new JournalPosition(1, 10)));
+    }
+
+    private static Order resting(StateMachine state, Order order) {
+        state.addOrder(order);
+        state.orderBook(order.getAsset(), order.getDirection()).add(order);
+        return order;
+    }
+
+    private static Order order(Instrument instrument, long priceTicks, long amountLots, Direction direction) {
+        var order = new Order(instrument, priceTicks, amountLots, direction, Instant.now());
+        order.setId(IDS.next());
+        return order;
+    }
+
+    private static Trade trade(long orderId, long amountLots, long priceTicks) {
+        return Trade.builder().orderId(orderId).amountLots(amountLots).priceTicks(priceTicks).build();
+    }
+
+    private static List<Order> orders(OrderBook book) {
+        List<Order> orders = new ArrayList<>();
+        book.forEach(orders::add);
+        return orders;
+    }
+
+    private static List<Long> ids(List<Order> orders) {
+        return orders.stream().map(Order::getId).toList();
+    }
+}
@@ -0,0 +1,153 @@
+package com.arfat.tradex.gateway;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.OrderStatus;
+import com.arfat.tradex.order.model.TimeInForce;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Blocking client of the {@link OrderGateway}, for tools and tests. Not thread-safe.
+ */
+public final class GatewayClient implements AutoCloseable {
+
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private final SocketChannel channel;
+    private final ByteBuffer outbound = ByteBuffer.allocateDirect(64 * 1024);
+    private final ByteBuffer inbound = ByteBuffer.allocateDirect(64 * 1024);
+
+    /**
+     * Replies of the gateway. Every reply carries the client order id of the order it is about.
+     */
+    public interface Handler {
+        default void onAck(long clientOrderId, long orderId, OrderStatus status, long leavesLots) {
+        }
+
+        default void onFill(long clientOrderId, long counterOrderId, long priceTicks, long amountLots,
+                            long leavesLots) {
+        }
+
+        default void onReject(long clientOrderId, String reason) {
+        }
+    }
+
+    private GatewayClient(SocketChannel channel) {
+        this.channel = channel;
+        this.inbound.flip();
+    }
+
+    public static GatewayClient connect(InetSocketAddress address) {
+        try {
+            var channel = SocketChannel.open(address);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            return new GatewayClient(channel);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to connect to order gateway " + address, e);
+        }
+    }
+
+    /**
+     * Sends a new good till cancelled order, the price and amount are already scaled to the instrument of the asset.
+     */
+    public void newOrder(long clientOrderId, String asset, Direction direction, long priceTicks, long amountLots) {
+        newOrder(clientOrderId, asset, direction, TimeInForce.GTC, priceTicks, amountLots);
+    }
+
+    /**
+     * Sends a new order, the price and amount are already scaled to the instrument of the asset.
+     */
+    public void newOrder(long clientOrderId, String asset, Direction direction, TimeInForce timeInForce,
+                         long priceTicks, long amountLots) {
+        GatewayProtocol.putNewOrder(outbound.clear(), clientOrderId, GatewayProtocol.symbol(asset), direction,
+                timeInForce, priceTicks, amountLots);
+        send();
+    }
+
+    public void cancel(long clientOrderId, long orderId) {
+        GatewayProtocol.putCancel(outbound.clear(), clientOrderId, orderId);
+        send();
+    }
+
+    /**
+     * Blocks until at least one reply arrived, then hands every complete reply to the handler.
+     *
+     * @return number of replies handled
+     */
+    public int poll(Handler handler) {
+        int handled = 0;
+        while (0 == handled) {
+            if (!hasMessage()) {
+                receive();
+            }
+            while (hasMessage()) {
+                dispatch(handler);
+                handled++;
+            }
+        }
+        return handled;
+    }
+
+    private boolean hasMessage() {
+        if (!inbound.hasRemaining()) {
+            return false;
+        }
+        int length = GatewayProtocol.length(inbound.get(inbound.position()));
+        if (length < 0) {
+            throw new IllegalStateException("Unknown gateway message type " + inbound.get(inbound.position()));
+        }
+        return inbound.remaining() >= length;
+    }
+
+    private void dispatch(Handler handler) {
+        byte type = inbound.get();
+        long clientOrderId = inbound.getLong();
+        switch (type) {
+            case GatewayProtocol.ACK -> handler.onAck(clientOrderId, inbound.getLong(),
+                    STATUSES[inbound.get()], inbound.getLong());
+            case GatewayProtocol.FILL -> handler.onFill(clientOrderId, inbound.getLong(),
+                    inbound.getLong(), inbound.getLong(), inbound.getLong());
+            case GatewayProtocol.REJECT -> handler.onReject(clientOrderId, GatewayProtocol.getReason(inbound));
+            default -> throw new IllegalStateException("Unexpected gateway message type " + type);
+        }
+    }
+
+    private void send() {
+        outbound.flip();
+        try {
+            while (outbound.hasRemaining()) {
+                channel.write(outbound);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to send to order gateway", e);
+        }
+    }
+
+    private void receive() {
+        inbound.compact();
+        try {
+            if (channel.read(inbound) < 0) {
+                throw new EOFException("Order gateway closed the connection");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            inbound.flip();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to close gateway connection", e);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.arfat.tradex.gateway;
+
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.order.model.TimeInForce;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed-layout binary messages of the {@link OrderGateway}, big-endian, one type byte followed by the fields:
+ * <pre>
+ * NEW_ORDER  long client order id | long symbol | byte direction | byte time in force | long price ticks | long amount lots
+ * CANCEL     long client order id | long order id
+ * ACK        long client order id | long order id | byte status | long leaves lots
+ * FILL       long client order id | long counter order id | long price ticks | long amount lots | long leaves lots
+ * REJECT     long client order id | reason
+ * </pre>
+ * The client order id is chosen by the client and echoed in every reply about the order. Order ids are the
+ * engine's ids, see {@link com.arfat.tradex.order.model.IdGenerator}. The symbol is the asset in up to
+ * {@value #SYMBOL_LENGTH} ASCII bytes and the reason {@value #REASON_LENGTH} bytes of UTF-8, both padded with zeros. Direction, time in force and
+ * status are the ordinals of {@link Direction}, {@link TimeInForce} and {@link com.arfat.tradex.order.model.OrderStatus}.
+ * <p>
+ * All methods read and write at the position of the buffer, which must have room for the whole message.
+ */
+public final class GatewayProtocol {
+
+    public static final byte NEW_ORDER = 1;
+    public static final byte CANCEL = 2;
+    public static final byte ACK = 3;
+    public static final byte FILL = 4;
+    public static final byte REJECT = 5;
+
+    public static final int SYMBOL_LENGTH = 8;
+    public static final int REASON_LENGTH = 64;
+
+    public static final int NEW_ORDER_LENGTH = 1 + 8 + 8 + 1 + 1 + 8 + 8;
+    public static final int CANCEL_LENGTH = 1 + 8 + 8;
+    public static final int ACK_LENGTH = 1 + 8 + 8 + 1 + 8;
+    public static final int FILL_LENGTH = 1 + 8 + 8 + 8 + 8 + 8;
+    public static final int REJECT_LENGTH = 1 + 8 + REASON_LENGTH;
+
+    private GatewayProtocol() {
+    }
+
+    /**
+     * @return length of a message of the type including the type byte, or -1 for an unknown type
+     */
+    public static int length(byte type) {
+        return switch (type) {
+            case NEW_ORDER -> NEW_ORDER_LENGTH;
+            case CANCEL -> CANCEL_LENGTH;
+            case ACK -> ACK_LENGTH;
+            case FILL -> FILL_LENGTH;
+            case REJECT -> REJECT_LENGTH;
+            default -> -1;
+        };
+    }
+
+    /**
+     * Packs an asset name into the symbol field.
+     *
+     * @throws IllegalArgumentException if the asset is empty, longer than 8 bytes or not ASCII
+     */
+    public static long symbol(String asset) {
+        if (null == asset || asset.isEmpty() || asset.length() > SYMBOL_LENGTH) {
+            throw new IllegalArgumentException("Asset must have between 1 and " + SYMBOL_LENGTH + " characters");
+        }
+        long symbol = 0;
+        for (int i = 0; i < SYMBOL_LENGTH; i++) {
+            char c = i < asset.length() ? asset.charAt(i) : 0;
+            if (c > 127) {
+                throw new IllegalArgumentException("Asset must be ASCII");
+            }
+            symbol = symbol << 8 | c;
+        }
+        return symbol;
+    }
+
+    /**
+     * @return the asset name packed into {@code symbol}
+     */
+    public static String asset(long symbol) {
+        byte[] name = new byte[SYMBOL_LENGTH];
+        int length = 0;
+        for (int i = 0; i < SYMBOL_LENGTH; i++) {
+            byte b = (byte) (symbol >>> (8 * (SYMBOL_LENGTH - 1 - i)));
+            if (0 == b) {
+                break;
+            }
+            name[length++] = b;
+        }
+        return new String(name, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    public static void putNewOrder(ByteBuffer buffer, long clientOrderId, long symbol, Direction direction,
+                                   TimeInForce timeInForce, long priceTicks, long amountLots) {
+        buffer.put(NEW_ORDER)
+                .putLong(clientOrderId)
+                .putLong(symbol)
+                .put((byte) direction.ordinal())
+                .put((byte) timeInForce.ordinal())
+                .putLong(priceTicks)
+                .putLong(amountLots);
+    }
+
+    public static void putCancel(ByteBuffer buffer, long clientOrderId, long orderId) {
+        buffer.put(CANCEL).putLong(clientOrderId).putLong(orderId);
+    }
+
+    static void putAck(ByteBuffer buffer, long clientOrderId, Order order) {
+        buffer.put(ACK)
+                .putLong(clientOrderId)
+                .putLong(order.getId())
+                .put((byte) order.getStatus().ordinal())
+                .putLong(order.getPendingLots());
+    }
+
+    static void putFill(ByteBuffer buffer, long clientOrderId, long counterOrderId, long priceTicks,
+                        long amountLots, long leavesLots) {
+        buffer.put(FILL)
+                .putLong(clientOrderId)
+                .putLong(counterOrderId)
+                .putLong(priceTicks)
+                .putLong(amountLots)
+                .putLong(leavesLots);
+    }
+
+    static void putReject(ByteBuffer buffer, long clientOrderId, String reason) {
+        buffer.put(REJECT).putLong(clientOrderId);
+        byte[] text = null == reason ? new byte[0] : reason.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(text.length, REASON_LENGTH);
+        buffer.put(text, 0, length);
+        for (int i = length; i < REASON_LENGTH; i++) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    public static String getReason(ByteBuffer buffer) {
+        byte[] text = new byte[REASON_LENGTH];
+        buffer.get(text);
+        int length = 0;
+        while (length < REASON_LENGTH && 0 != text[length]) {
+            length++;
+        }
+        return new String(text, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,82 @@
+package com.arfat.tradex.gateway;
+
+import com.arfat.tradex.order.model.Order;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * One client connection of the {@link OrderGateway}. <br>
+ * Only the selector thread reads and writes the channel. Replies are encoded into the outbound buffer
+ * by whichever thread produces them, typically a matching thread, and flushed by the selector thread.
+ * A client that does not read its replies until the buffer is full is disconnected.
+ */
+final class GatewaySession {
+
+    private static final int INBOUND_SIZE = 64 * 1024;
+    private static final int OUTBOUND_SIZE = 1024 * 1024;
+
+    final SocketChannel channel;
+    final SelectionKey key;
+    final ByteBuffer inbound = ByteBuffer.allocateDirect(INBOUND_SIZE);
+    private final ByteBuffer outbound = ByteBuffer.allocateDirect(OUTBOUND_SIZE);
+
+    /**
+     * Replies were added since the selector thread last flushed
+     */
+    volatile boolean dirty;
+    private boolean overflowed;
+
+    GatewaySession(SocketChannel channel, SelectionKey key) {
+        this.channel = channel;
+        this.key = key;
+    }
+
+    synchronized void ack(long clientOrderId, Order order) {
+        if (reserve(GatewayProtocol.ACK_LENGTH)) {
+            GatewayProtocol.putAck(outbound, clientOrderId, order);
+        }
+    }
+
+    synchronized void fill(long clientOrderId, long counterOrderId, long priceTicks, long amountLots,
+                           long leavesLots) {
+        if (reserve(GatewayProtocol.FILL_LENGTH)) {
+            GatewayProtocol.putFill(outbound, clientOrderId, counterOrderId, priceTicks, amountLots, leavesLots);
+        }
+    }
+
+    synchronized void reject(long clientOrderId, String reason) {
+        if (reserve(GatewayProtocol.REJECT_LENGTH)) {
+            GatewayProtocol.putReject(outbound, clientOrderId, reason);
+        }
+    }
+
+    /**
+     * Writes as much of the buffered replies as the socket takes.
+     *
+     * @return true if replies are left for when the socket is writable again
+     * @throws IOException if the client is gone or fell a whole buffer behind
+     */
+    synchronized boolean flush() throws IOException {
+        if (overflowed) {
+            throw new IOException("Client of " + channel.getRemoteAddress() + " does not read its replies");
+        }
+        outbound.flip();
+        try {
+            channel.write(outbound);
+        } finally {
+            outbound.compact();
+        }
+        return outbound.position() > 0;
+    }
+
+    private boolean reserve(int length) {
+        if (outbound.remaining() < length) {
+            overflowed = true;
+        }
+        dirty = true;
+        return !overflowed;
+    }
+}
@@ -0,0 +1,376 @@
+package com.arfat.tradex.gateway;
+
+import com.arfat.tradex.order.ExecutionListener;
+import com.arfat.tradex.order.OrderNotFoundException;
+import com.arfat.tradex.order.OrderService;
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.IdGenerator;
+import com.arfat.tradex.order.model.Instrument;
+import com.arfat.tradex.order.model.Instruments;
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.order.model.TimeInForce;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Order entry over TCP in the {@link GatewayProtocol}, next to the REST API. <br>
+ * One selector thread accepts the connections and decodes the messages straight into orders for the
+ * {@link OrderService}, without parsing text or building request objects. Every order is answered on its
+ * connection: with a FILL for each of its executions as they happen, and with an ACK once it is matched
+ * or cancelled, or a REJECT. The fills an order takes on entry therefore arrive before its ACK.
+ * <p>
+ * The selector thread never waits for the engine: an order or cancel that the partition of its asset has no room
+ * for is rejected as busy, so one full partition does not hold up the other connections.
+ * <p>
+ * The gateway must be registered as {@link ExecutionListener} of the engine to see the executions.
+ * Executions of orders placed through the REST API are ignored.
+ */
+public final class OrderGateway implements ExecutionListener, AutoCloseable {
+
+    private final static Logger log = LoggerFactory.getLogger(OrderGateway.class);
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final TimeInForce[] TIMES_IN_FORCE = TimeInForce.values();
+
+    private final Instruments instruments;
+    private final InetSocketAddress address;
+    /**
+     * Connection of every open order placed through the gateway, by identity of the order.
+     * Filled before the order is submitted, so no execution of it is missed.
+     */
+    private final Map<Order, Owner> owners = new ConcurrentHashMap<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+
+    // owned by the selector thread
+    private final List<GatewaySession> sessions = new ArrayList<>();
+    private long[] symbols = new long[16];
+    private Instrument[] symbolInstruments = new Instrument[16];
+    private int symbolCount;
+
+    private OrderService orderService;
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    /**
+     * @param address address to listen on, port 0 picks a free port
+     */
+    public OrderGateway(Instruments instruments, InetSocketAddress address) {
+        this.instruments = instruments;
+        this.address = address;
+    }
+
+    /**
+     * Starts accepting connections that place their orders with {@code orderService}.
+     *
+     * @return the address the gateway listens on
+     */
+    public synchronized InetSocketAddress start(OrderService orderService) {
+        if (running) {
+            throw new IllegalStateException("Gateway is already started");
+        }
+        this.orderService = orderService;
+        try {
+            selector = Selector.open();
+            server = ServerSocketChannel.open();
+            server.bind(address);
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to listen on " + address, e);
+        }
+        running = true;
+        selectorThread = Thread.ofPlatform().name("tradex-gateway").daemon().start(this::run);
+        log.info("Order gateway listening on {}", localAddress());
+        return localAddress();
+    }
+
+    /**
+     * @return the address the gateway listens on, once started
+     */
+    public InetSocketAddress localAddress() {
+        try {
+            return (InetSocketAddress) server.getLocalAddress();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Sends a FILL to the connection of each side that was placed through the gateway.
+     * Runs on the matching thread, only encodes into the outbound buffer of the connection.
+     */
+    @Override
+    public void onExecution(Order incomingOrder, Order counterOrder, long priceTicks, long amountLots) {
+        fill(incomingOrder, counterOrder, priceTicks, amountLots);
+        fill(counterOrder, incomingOrder, priceTicks, amountLots);
+    }
+
+    private void fill(Order order, Order counterOrder, long priceTicks, long amountLots) {
+        var owner = owners.get(order);
+        if (null == owner) {
+            return;
+        }
+        owner.session().fill(owner.clientOrderId(), counterOrder.getId(), priceTicks, amountLots, order.getPendingLots());
+        if (order.isFullyExecuted()) {
+            owners.remove(order);
+        }
+        wakeup();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                selector.select();
+                if (wakeupPending.getAndSet(false)) {
+                    flushSessions();
+                }
+                var keys = selector.selectedKeys();
+                for (var key : keys) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.attachment() instanceof GatewaySession session) {
+                        if (key.isReadable()) {
+                            read(session);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            flush(session);
+                        }
+                    }
+                }
+                keys.clear();
+            } catch (IOException e) {
+                log.error("Order gateway selector failed", e);
+            }
+        }
+        for (var session : List.copyOf(sessions)) {
+            disconnect(session);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (null == channel) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        var key = channel.register(selector, SelectionKey.OP_READ);
+        var session = new GatewaySession(channel, key);
+        key.attach(session);
+        sessions.add(session);
+        log.info("Gateway client connected from {}", channel.getRemoteAddress());
+    }
+
+    private void read(GatewaySession session) {
+        var inbound = session.inbound;
+        try {
+            if (session.channel.read(inbound) < 0) {
+                disconnect(session);
+                return;
+            }
+        } catch (IOException e) {
+            log.debug("Gateway client read failed: {}", e.getMessage());
+            disconnect(session);
+            return;
+        }
+
+        inbound.flip();
+        while (inbound.hasRemaining()) {
+            int length = GatewayProtocol.length(inbound.get(inbound.position()));
+            if (length < 0) {
+                log.warn("Unknown gateway message type {}, disconnecting", inbound.get(inbound.position()));
+                disconnect(session);
+                return;
+            }
+            if (inbound.remaining() < length) {
+                break;
+            }
+            switch (inbound.get()) {
+                case GatewayProtocol.NEW_ORDER -> newOrder(session, inbound);
+                case GatewayProtocol.CANCEL -> cancel(session, inbound);
+                // replies are not accepted from clients
+                default -> inbound.position(inbound.position() + length - 1);
+            }
+        }
+        inbound.compact();
+    }
+
+    private void newOrder(GatewaySession session, ByteBuffer inbound) {
+        long clientOrderId = inbound.getLong();
+        long symbol = inbound.getLong();
+        int direction = inbound.get();
+        int timeInForce = inbound.get();
+        long priceTicks = inbound.getLong();
+        long amountLots = inbound.getLong();
+
+        Order order;
+        try {
+            if (direction < 0 || direction >= DIRECTIONS.length) {
+                throw new IllegalArgumentException("Direction must either BUY or SELL");
+            }
+            if (timeInForce < 0 || timeInForce >= TIMES_IN_FORCE.length) {
+                throw new IllegalArgumentException("Time in force must be GTC, IOC or FOK");
+            }
+            order = new Order(instrument(symbol), priceTicks, amountLots, DIRECTIONS[direction]);
+            order.setTimeInForce(TIMES_IN_FORCE[timeInForce]);
+        } catch (IllegalArgumentException ex) {
+            reject(session, clientOrderId, ex);
+            return;
+        }
+
+        owners.put(order, new Owner(session, clientOrderId));
+        orderService.offerOrderAsync(order).whenComplete((placed, ex) -> {
+            if (null != ex) {
+                owners.remove(order);
+                reject(session, clientOrderId, ex);
+                return;
+            }
+            session.ack(clientOrderId, placed);
+            wakeup();
+        });
+    }
+
+    /**
+     * Cancels an open order placed by the same connection. Orders of other connections and of the REST API
+     * are rejected as not found, so a client learns nothing about them.
+     */
+    private void cancel(GatewaySession session, ByteBuffer inbound) {
+        long clientOrderId = inbound.getLong();
+        long orderId = inbound.getLong();
+        Owner owner;
+        try {
+            owner = owners.get(orderService.getOrder(orderId));
+        } catch (OrderNotFoundException ex) {
+            reject(session, clientOrderId, ex);
+            return;
+        }
+        if (null == owner || owner.session() != session) {
+            reject(session, clientOrderId, new OrderNotFoundException("Order with ID " + IdGenerator.format(orderId)
+                                                                      + " not found."));
+            return;
+        }
+        orderService.offerCancelAsync(orderId).whenComplete((cancelled, ex) -> {
+            if (null != ex) {
+                reject(session, clientOrderId, ex);
+                return;
+            }
+            owners.remove(cancelled);
+            session.ack(clientOrderId, cancelled);
+            wakeup();
+        });
+    }
+
+    private void reject(GatewaySession session, long clientOrderId, Throwable ex) {
+        var cause = ex instanceof CompletionException && null != ex.getCause() ? ex.getCause() : ex;
+        session.reject(clientOrderId, cause.getMessage());
+        wakeup();
+    }
+
+    /**
+     * Looks the instrument up by symbol, so that only the first order of an asset creates its name.
+     */
+    private Instrument instrument(long symbol) {
+        for (int i = 0; i < symbolCount; i++) {
+            if (symbols[i] == symbol) {
+                return symbolInstruments[i];
+            }
+        }
+        if (0 == symbol) {
+            throw new IllegalArgumentException("Asset must not be null or empty");
+        }
+        var instrument = instruments.get(GatewayProtocol.asset(symbol));
+        if (symbolCount == symbols.length) {
+            symbols = Arrays.copyOf(symbols, 2 * symbolCount);
+            symbolInstruments = Arrays.copyOf(symbolInstruments, 2 * symbolCount);
+        }
+        symbols[symbolCount] = symbol;
+        symbolInstruments[symbolCount++] = instrument;
+        return instrument;
+    }
+
+    /**
+     * Has the selector thread flush the sessions, at most one wakeup is pending at a time.
+     */
+    private void wakeup() {
+        if (!wakeupPending.getAndSet(true)) {
+            selector.wakeup();
+        }
+    }
+
+    private void flushSessions() {
+        for (int i = sessions.size() - 1; i >= 0; i--) {
+            var session = sessions.get(i);
+            if (session.dirty) {
+                session.dirty = false;
+                flush(session);
+            }
+        }
+    }
+
+    private void flush(GatewaySession session) {
+        try {
+            boolean pending = session.flush();
+            session.key.interestOps(pending ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        } catch (IOException e) {
+            log.warn("Disconnecting gateway client: {}", e.getMessage());
+            disconnect(session);
+        }
+    }
+
+    private void disconnect(GatewaySession session) {
+        sessions.remove(session);
+        session.key.cancel();
+        try {
+            session.channel.close();
+        } catch (IOException e) {
+            log.debug("Closing gateway client failed: {}", e.getMessage());
+        }
+        // the orders stay in the book, their executions are no longer reported
+        owners.values().removeIf(owner -> owner.session() == session);
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+        }
+        selector.wakeup();
+        try {
+            selectorThread.join();
+            selector.close();
+            server.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to close order gateway", e);
+        }
+    }
+
+    private record Owner(GatewaySession session, long clientOrderId) {
+    }
+}
@@ -0,0 +1,43 @@
+package com.arfat.tradex.gateway;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GatewayProtocolTest {
+
+    @Test
+    void shouldPackAssetIntoSymbol() {
+        assertEquals("BTC", GatewayProtocol.asset(GatewayProtocol.symbol("BTC")));
+        assertEquals("ETHUSDT", GatewayProtocol.asset(GatewayProtocol.symbol("ETHUSDT")));
+        assertNotEquals(GatewayProtocol.symbol("BTC"), GatewayProtocol.symbol("BTCX"));
+    }
+
+    @Test
+    void shouldRejectAssetThatDoesNotFitTheSymbol() {
+        var ex = assertThrows(IllegalArgumentException.class, () -> GatewayProtocol.symbol("BITCOINCASH"));
+
+        assertEquals("Asset must have between 1 and 8 characters", ex.getMessage());
+    }
+
+    @Test
+    void shouldTruncateRejectReasonToItsField() {
+        var buffer = ByteBuffer.allocate(GatewayProtocol.REJECT_LENGTH);
+        GatewayProtocol.putReject(buffer, 7, "x".repeat(100));
+
+        assertFalse(buffer.hasRemaining());
+        buffer.flip();
+        assertEquals(GatewayProtocol.REJECT, buffer.get());
+        assertEquals(7, buffer.getLong());
+        assertEquals("x".repeat(GatewayProtocol.REASON_LENGTH), GatewayProtocol.getReason(buffer));
+    }
+
+    @Test
+    void shouldKnowTheLengthOfEveryMessage() {
+        assertEquals(35, GatewayProtocol.length(GatewayProtocol.NEW_ORDER));
+        assertEquals(GatewayProtocol.FILL_LENGTH, GatewayProtocol.length(GatewayProtocol.FILL));
+        assertEquals(-1, GatewayProtocol.length((byte) 42));
+    }
+}
@@ -0,0 +1,192 @@
+package com.arfat.tradex.gateway;
+
+import com.arfat.tradex.order.Engines;
+import com.arfat.tradex.order.OrderService;
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.IdGenerator;
+import com.arfat.tradex.order.model.Instruments;
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.order.model.OrderStatus;
+import com.arfat.tradex.order.model.TimeInForce;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Timeout(10)
+class OrderGatewayTest {
+
+    private Instruments instruments;
+    private OrderGateway gateway;
+    private OrderService orderService;
+    private InetSocketAddress address;
+
+    @BeforeEach
+    void init() {
+        instruments = new Instruments().register("ETH", new BigDecimal("0.05"), new BigDecimal("0.001"));
+        gateway = new OrderGateway(instruments, new InetSocketAddress("localhost", 0));
+        orderService = Engines.partitioned(gateway);
+        address = gateway.start(orderService);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        gateway.close();
+        ((AutoCloseable) orderService).close();
+    }
+
+    @Test
+    void shouldAckRestingOrder_AndReportItsFillLater() {
+        try (var seller = GatewayClient.connect(address); var buyer = GatewayClient.connect(address)) {
+            var sellerReplies = new Replies();
+            seller.newOrder(1, "ETH", Direction.SELL, 50_000, 2_000);
+            seller.poll(sellerReplies);
+            assertEquals(List.of("ACK 1 NEW 2000"), sellerReplies.received);
+            long sellId = sellerReplies.orderId;
+
+            var buyerReplies = new Replies();
+            buyer.newOrder(2, "ETH", Direction.BUY, 50_001, 1_500);
+            while (buyerReplies.received.size() < 2) {
+                buyer.poll(buyerReplies);
+            }
+            assertEquals(List.of("FILL 2 " + sellId + " 50000x1500 leaves 0", "ACK 2 FILLED 0"), buyerReplies.received);
+
+            seller.poll(sellerReplies);
+            assertEquals("FILL 1 " + buyerReplies.orderId + " 50000x1500 leaves 500", sellerReplies.received.getLast());
+        }
+    }
+
+    @Test
+    void shouldCancelTheRestOfAnImmediateOrCancelOrder() {
+        var resting = orderService.placeOrder(new Order(instruments.get("ETH"), 50_000, 1_000, Direction.SELL));
+        try (var client = GatewayClient.connect(address)) {
+            var replies = new Replies();
+            client.newOrder(1, "ETH", Direction.BUY, TimeInForce.IOC, 50_000, 1_500);
+            while (replies.received.size() < 2) {
+                client.poll(replies);
+            }
+
+            assertEquals(List.of("FILL 1 " + resting.getId() + " 50000x1000 leaves 500", "ACK 1 CANCELLED 500"),
+                    replies.received);
+            assertTrue(orderService.getMarketDepth("ETH").levels(Direction.BUY, 10).isEmpty());
+        }
+    }
+
+    @Test
+    void shouldCancelRestingOrder() {
+        try (var client = GatewayClient.connect(address)) {
+            var replies = new Replies();
+            client.newOrder(1, "ETH", Direction.BUY, 40_000, 1_000);
+            client.poll(replies);
+
+            client.cancel(2, replies.orderId);
+            client.poll(replies);
+
+            assertEquals("ACK 2 CANCELLED 1000", replies.received.getLast());
+            assertEquals(OrderStatus.CANCELLED, orderService.getOrder(replies.orderId).getStatus());
+        }
+    }
+
+    @Test
+    void shouldRejectCancel_OfOrdersPlacedElsewhere() {
+        var placedOverRest = orderService.placeOrder(new Order(instruments.get("ETH"), 40_000, 1_000, Direction.BUY));
+        try (var owner = GatewayClient.connect(address); var other = GatewayClient.connect(address)) {
+            var ownerReplies = new Replies();
+            owner.newOrder(1, "ETH", Direction.BUY, 40_000, 1_000);
+            owner.poll(ownerReplies);
+
+            var otherReplies = new Replies();
+            other.cancel(2, ownerReplies.orderId);
+            other.poll(otherReplies);
+            other.cancel(3, placedOverRest.getId());
+            other.poll(otherReplies);
+
+            assertEquals(List.of("REJECT 2 Order with ID " + IdGenerator.format(ownerReplies.orderId) + " not found.",
+                    "REJECT 3 Order with ID " + IdGenerator.format(placedOverRest.getId()) + " not found."),
+                    otherReplies.received);
+            assertEquals(OrderStatus.NEW, orderService.getOrder(ownerReplies.orderId).getStatus());
+            assertEquals(OrderStatus.NEW, placedOverRest.getStatus());
+        }
+    }
+
+    @Test
+    void shouldRejectInvalidOrders_WithTheReason() {
+        try (var client = GatewayClient.connect(address)) {
+            var replies = new Replies();
+            client.newOrder(1, "ETH", Direction.BUY, 0, 1_000);
+            client.poll(replies);
+            client.cancel(2, 42);
+            client.poll(replies);
+
+            assertEquals(List.of("REJECT 1 Order price must be greater than zero",
+                    "REJECT 2 Order with ID " + IdGenerator.format(42) + " not found."), replies.received);
+        }
+    }
+
+    @Test
+    void shouldRejectOrders_WhileThePartitionIsBusy() throws Exception {
+        try (var busyGateway = new OrderGateway(instruments, new InetSocketAddress("localhost", 0))) {
+            var busyService = Engines.partitioned(busyGateway, 1);
+            var busyAddress = busyGateway.start(busyService);
+            var resume = Engines.pause(busyService);
+            try (var client = GatewayClient.connect(busyAddress)) {
+                var replies = new Replies();
+                client.newOrder(1, "ETH", Direction.BUY, 40_000, 1_000);
+                client.newOrder(2, "ETH", Direction.BUY, 40_000, 1_000);
+                client.poll(replies);
+
+                // the selector goes on reading while the partition is held up
+                assertEquals(List.of("REJECT 2 Engine is busy, try again later"), replies.received);
+                resume.run();
+                client.poll(replies);
+                assertEquals("ACK 1 NEW 1000", replies.received.getLast());
+            } finally {
+                resume.run();
+                ((AutoCloseable) busyService).close();
+            }
+        }
+    }
+
+    @Test
+    void shouldIgnoreExecutionsOfOrdersPlacedElsewhere() {
+        var resting = orderService.placeOrder(new Order(instruments.get("ETH"), 50_000, 1_000, Direction.SELL));
+        try (var client = GatewayClient.connect(address)) {
+            var replies = new Replies();
+            client.newOrder(1, "ETH", Direction.BUY, 50_000, 1_000);
+            while (replies.received.size() < 2) {
+                client.poll(replies);
+            }
+
+            assertEquals(List.of("FILL 1 " + resting.getId() + " 50000x1000 leaves 0", "ACK 1 FILLED 0"), replies.received);
+        }
+    }
+
+    private static final class Replies implements GatewayClient.Handler {
+        private final List<String> received = new ArrayList<>();
+        private long orderId;
+
+        @Override
+        public void onAck(long clientOrderId, long orderId, OrderStatus status, long leavesLots) {
+            this.orderId = orderId;
+            received.add("ACK " + clientOrderId + " " + status + " " + leavesLots);
+        }
+
+        @Override
+        public void onFill(long clientOrderId, long counterOrderId, long priceTicks, long amountLots, long leavesLots) {
+            received.add("FILL " + clientOrderId + " " + counterOrderId + " " + priceTicks + "x" + amountLots
+                         + " leaves " + leavesLots);
+        }
+
+        @Override
+        public void onReject(long clientOrderId, String reason) {
+            received.add("REJECT " + clientOrderId + " " + reason);
+        }
+    }
+}
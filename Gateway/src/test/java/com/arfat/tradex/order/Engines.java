@@ -0,0 +1,40 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.persistence.StateMachine;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Opens the package-private engine for the gateway tests.
+ */
+public final class Engines {
+
+    private Engines() {
+    }
+
+    public static OrderService partitioned(ExecutionListener executionListener) {
+        return partitioned(executionListener, 64);
+    }
+
+    public static OrderService partitioned(ExecutionListener executionListener, int queueCapacity) {
+        return new PartitionedOrderService(new StateMachine(), 2, queueCapacity, executionListener);
+    }
+
+    /**
+     * Holds every partition between two commands, until the returned action resumes them.
+     */
+    public static Runnable pause(OrderService orderService) throws InterruptedException {
+        var paused = new CountDownLatch(1);
+        var resume = new CountDownLatch(1);
+        Thread.ofVirtual().start(() -> ((PartitionedOrderService) orderService).quiesce(() -> {
+            paused.countDown();
+            try {
+                resume.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        paused.await();
+        return resume::countDown;
+    }
+}
@@ -0,0 +1,31 @@
+package com.arfat.tradex.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+
+@Configuration
+public class ClusterBeansConfigurer {
+
+    /**
+     * Base URL per node id of all nodes sharing the assets, taken from {@code tradex.cluster.nodes.<node-id>}.
+     * Without nodes this node owns every asset.
+     */
+    @Bean
+    ShardRouter shardRouter(Environment environment, ObjectMapper objectMapper,
+                            @Value("${tradex.node-id:0}") int nodeId,
+                            @Value("${tradex.cluster.timeout:5s}") Duration timeout) {
+        var nodes = Binder.get(environment)
+                .bind("tradex.cluster.nodes", Bindable.mapOf(Integer.class, URI.class))
+                .orElse(Map.of());
+        return new ShardRouter(nodeId, nodes, objectMapper, timeout);
+    }
+}
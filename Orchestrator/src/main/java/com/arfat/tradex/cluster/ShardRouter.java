@@ -0,0 +1,204 @@
+package com.arfat.tradex.cluster;
+
+import com.arfat.tradex.logging.ContextFilter;
+import com.arfat.tradex.order.model.IdGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.MDC;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends the requests for assets and orders that another node owns to that node. <br>
+ * Assets are assigned by the {@link ShardRing} of all configured nodes, orders by the node id inside their id,
+ * so an order stays reachable on the node that placed it even after its asset moved to another node.
+ * A forwarded request is served where it arrives: nodes that disagree about the ring reject the order
+ * instead of passing it around. Without configured nodes this node owns everything and nothing is forwarded.
+ */
+public final class ShardRouter implements AutoCloseable {
+
+    /**
+     * Marks a request that another node forwarded, holds the id of that node
+     */
+    public static final String FORWARDED_BY = "X-Tradex-Forwarded-By";
+    /**
+     * Owner of whatever this node serves itself
+     */
+    public static final int LOCAL = -1;
+
+    private static final List<String> RESPONSE_HEADERS = List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.LOCATION);
+
+    private final int nodeId;
+    private final Map<Integer, URI> nodes;
+    private final ShardRing ring;
+    private final ObjectMapper json;
+    private final Duration timeout;
+    private final HttpClient client;
+
+    /**
+     * @param nodeId  id of this node
+     * @param nodes   base URL per node id of every node sharing the assets, empty if this node is alone
+     * @param timeout how long a forwarded request may take
+     */
+    public ShardRouter(int nodeId, Map<Integer, URI> nodes, ObjectMapper json, Duration timeout) {
+        if (!nodes.isEmpty() && !nodes.containsKey(nodeId)) {
+            throw new IllegalArgumentException("Node " + nodeId + " is not one of the cluster nodes " + nodes.keySet());
+        }
+        this.nodeId = nodeId;
+        this.nodes = Map.copyOf(nodes);
+        this.ring = nodes.isEmpty() ? null : new ShardRing(nodes.keySet());
+        this.json = json;
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    /**
+     * @return true if the books of the asset are kept on this node
+     */
+    public boolean isLocal(String asset) {
+        return null == ring || nodeId == ring.owner(asset);
+    }
+
+    /**
+     * @return id of the node to forward a request for the asset to, {@link #LOCAL} to serve it here
+     */
+    public int owner(String asset, HttpServletRequest request) {
+        if (null == ring || isForwarded(request)) {
+            return LOCAL;
+        }
+        int owner = ring.owner(asset);
+        return nodeId == owner ? LOCAL : owner;
+    }
+
+    /**
+     * Orders of nodes that are no longer part of the cluster are looked up here, and not found.
+     *
+     * @return id of the node to forward a request for the order to, {@link #LOCAL} to serve it here
+     */
+    public int owner(long orderId, HttpServletRequest request) {
+        if (null == ring || isForwarded(request)) {
+            return LOCAL;
+        }
+        int owner = IdGenerator.nodeId(orderId);
+        return nodeId == owner || !nodes.containsKey(owner) ? LOCAL : owner;
+    }
+
+    /**
+     * Sends the request to the node and waits for its response, which is passed on as it is.
+     *
+     * @param body sent as JSON instead of the body of the request, null for none
+     * @throws ShardUnavailableException if the node does not answer
+     */
+    public ResponseEntity<byte[]> forward(int node, HttpServletRequest request, Object body) {
+        try {
+            return toResponse(client.send(toRequest(node, request, body), HttpResponse.BodyHandlers.ofByteArray()));
+        } catch (IOException ex) {
+            throw unavailable(node, ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw unavailable(node, ex);
+        }
+    }
+
+    /**
+     * Like {@link #forward}, without holding the request thread while the node works.
+     */
+    public CompletableFuture<ResponseEntity<byte[]>> forwardAsync(int node, HttpServletRequest request, Object body) {
+        return client.sendAsync(toRequest(node, request, body), HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, ex) -> {
+                    if (null != ex) {
+                        throw unavailable(node, ex);
+                    }
+                    return toResponse(response);
+                });
+    }
+
+    /**
+     * Sends the request to the node and reads its successful JSON response.
+     *
+     * @throws ShardUnavailableException from the future, if the node does not answer or fails the request
+     */
+    public <T> CompletableFuture<T> forwardAsync(int node, HttpServletRequest request, Object body, Class<T> type) {
+        return forwardAsync(node, request, body).thenApply(response -> {
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                throw unavailable(node, new IOException("Answered with status " + response.getStatusCode().value()));
+            }
+            try {
+                return json.readValue(response.getBody(), type);
+            } catch (IOException ex) {
+                throw unavailable(node, ex);
+            }
+        });
+    }
+
+    /**
+     * Sends the client to the node itself, for streams that would tie up this node for as long as they last.
+     */
+    public <T> ResponseEntity<T> redirect(int node, HttpServletRequest request) {
+        return ResponseEntity.status(HttpStatus.TEMPORARY_REDIRECT).location(target(node, request)).build();
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+
+    private static boolean isForwarded(HttpServletRequest request) {
+        return null != request.getHeader(FORWARDED_BY);
+    }
+
+    private HttpRequest toRequest(int node, HttpServletRequest request, Object body) {
+        var builder = HttpRequest.newBuilder(target(node, request))
+                .timeout(timeout)
+                .header(FORWARDED_BY, String.valueOf(nodeId));
+        var requestId = MDC.get(ContextFilter.MDC_KEY);
+        if (null != requestId) {
+            builder.header(ContextFilter.REQUEST_ID, requestId);
+        }
+        if (null == body) {
+            return builder.method(request.getMethod(), HttpRequest.BodyPublishers.noBody()).build();
+        }
+        try {
+            return builder.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .method(request.getMethod(), HttpRequest.BodyPublishers.ofByteArray(json.writeValueAsBytes(body)))
+                    .build();
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private URI target(int node, HttpServletRequest request) {
+        var query = request.getQueryString();
+        return nodes.get(node).resolve(request.getRequestURI() + (null == query ? "" : "?" + query));
+    }
+
+    private static ResponseEntity<byte[]> toResponse(HttpResponse<byte[]> response) {
+        var headers = new HttpHeaders();
+        for (String name : RESPONSE_HEADERS) {
+            response.headers().firstValue(name).ifPresent(value -> headers.set(name, value));
+        }
+        byte[] body = response.body();
+        return new ResponseEntity<>(null == body || 0 == body.length ? null : body, headers, response.statusCode());
+    }
+
+    private static ShardUnavailableException unavailable(int node, Throwable cause) {
+        return new ShardUnavailableException("Node " + node + " is unavailable", cause);
+    }
+}
@@ -0,0 +1,10 @@
+package com.arfat.tradex.cluster;
+
+/**
+ * The node that owns an asset or an order could not be reached.
+ */
+public final class ShardUnavailableException extends RuntimeException {
+    public ShardUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
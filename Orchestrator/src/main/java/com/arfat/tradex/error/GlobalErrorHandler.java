@@ -1,6 +1,8 @@
 package com.arfat.tradex.error;
 
+import com.arfat.tradex.cluster.ShardUnavailableException;
 import com.arfat.tradex.order.OrderNotFoundException;
+import com.arfat.tradex.replication.StandbyException;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,4 +25,27 @@ public class GlobalErrorHandler {
         return new DefaultErrorResponse(HttpStatus.BAD_REQUEST, ex.getMessage());
     }
 
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseBody
+    DefaultErrorResponse handleIllegalArgumentException(HttpServletRequest req, IllegalArgumentException ex) {
+        log.warn("Rejected {} {}: {}", req.getMethod(), req.getRequestURI(), ex.getMessage());
+        return new DefaultErrorResponse(HttpStatus.BAD_REQUEST, ex.getMessage());
+    }
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(ShardUnavailableException.class)
+    @ResponseBody
+    DefaultErrorResponse handleShardUnavailableException(HttpServletRequest req, ShardUnavailableException ex) {
+        log.error("Forwarding {} failed:", req.getRequestURI(), ex);
+        return new DefaultErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+    }
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(StandbyException.class)
+    @ResponseBody
+    DefaultErrorResponse handleStandbyException(HttpServletRequest req, StandbyException ex) {
+        log.warn("Rejected {} {}: {}", req.getMethod(), req.getRequestURI(), ex.getMessage());
+        return new DefaultErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+    }
 }
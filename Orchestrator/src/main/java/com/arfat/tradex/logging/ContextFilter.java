@@ -4,28 +4,68 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import com.arfat.tradex.cluster.ShardRouter;
+import com.arfat.tradex.order.model.IdGenerator;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.UUID;
 
 @Component
 public class ContextFilter extends OncePerRequestFilter {
 
+    /**
+     * Id of a request that another node already started to serve, kept so that the logs of both nodes match.
+     * Only trusted on requests forwarded by a node, and only when it is an id this filter could have generated
+     */
+    public static final String REQUEST_ID = "X-Request-Id";
+    public static final String MDC_KEY = "uid";
+    /**
+     * {@link System#nanoTime()} when the request reached this filter, the start of tracing an order
+     */
+    public static final String RECEIVED_NANOS = ContextFilter.class.getName() + ".receivedNanos";
+
+    private final IdGenerator requestIds;
+
+    public ContextFilter(@Value("${tradex.node-id:0}") int nodeId) {
+        this.requestIds = new IdGenerator(nodeId);
+    }
+
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request,
                                     @NonNull HttpServletResponse response,
                                     @NonNull FilterChain filterChain) throws ServletException, IOException {
 
-        var uid = UUID.randomUUID().toString();
+        request.setAttribute(RECEIVED_NANOS, System.nanoTime());
+        var uid = forwardedRequestId(request);
+        if (null == uid) {
+            uid = IdGenerator.format(requestIds.next());
+        }
         try {
-            MDC.put("uid", uid);
+            MDC.put(MDC_KEY, uid);
             filterChain.doFilter(request, response);
         } finally {
             MDC.clear();
         }
     }
+
+    /**
+     * @return the id the forwarding node gave the request, null if the request comes from a client
+     * or the id is not one of ours
+     */
+    private static String forwardedRequestId(HttpServletRequest request) {
+        var uid = request.getHeader(REQUEST_ID);
+        if (null == uid || null == request.getHeader(ShardRouter.FORWARDED_BY)) {
+            return null;
+        }
+        try {
+            IdGenerator.parse(uid);
+            return uid;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
 }
@@ -0,0 +1,146 @@
+package com.arfat.tradex.metrics;
+
+import com.arfat.tradex.book.MarketDepth;
+import com.arfat.tradex.book.OrderBook;
+import com.arfat.tradex.order.OrderMetrics;
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Instrument;
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.persistence.Persistence;
+import com.arfat.tradex.persistence.replication.ReplicatedStateMachine;
+import com.arfat.tradex.persistence.replication.ReplicationPrimary;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link OrderMetrics} exported through Micrometer, tagged by asset:
+ * <ul>
+ *     <li>{@code tradex.order.place} - latency of placing an order, by {@code phase} persist or match</li>
+ *     <li>{@code tradex.order.fills} - executions per order</li>
+ *     <li>{@code tradex.order.levels.crossed} - price levels an aggressive order traded at</li>
+ *     <li>{@code tradex.book.orders}, {@code tradex.book.levels} - resting orders and prices, by {@code side}</li>
+ *     <li>{@code tradex.book.spread} - best ask minus best bid, NaN while a side is empty</li>
+ *     <li>{@code tradex.state.orders} - orders in the live index of the state, untagged</li>
+ *     <li>{@code tradex.replication.lag}, {@code tradex.replication.lag.time} - changes the standby has not applied yet,
+ *     and how long the latest one took to be applied, on a primary only</li>
+ * </ul>
+ * The meters of an asset are registered when its first order is placed. Recording is lock-free and
+ * the book gauges read the {@link MarketDepth} counters, so the matching threads are never held up by a scrape.
+ */
+public final class MicrometerOrderMetrics implements OrderMetrics {
+
+    private static final Duration MIN_LATENCY = Duration.ofNanos(100);
+    private static final Duration MAX_LATENCY = Duration.ofMillis(100);
+
+    private final MeterRegistry registry;
+    private final Persistence persistence;
+    private final Map<String, AssetMeters> assets = new ConcurrentHashMap<>();
+
+    public MicrometerOrderMetrics(MeterRegistry registry, Persistence persistence) {
+        this.registry = registry;
+        this.persistence = persistence;
+        Gauge.builder("tradex.state.orders", persistence, Persistence::orderCount)
+                .description("Orders in the live index of the state")
+                .register(registry);
+        if (persistence instanceof ReplicatedStateMachine replicated) {
+            var primary = replicated.primary();
+            Gauge.builder("tradex.replication.lag", primary, ReplicationPrimary::lag)
+                    .description("Changes not yet applied by the standby")
+                    .register(registry);
+            TimeGauge.builder("tradex.replication.lag.time", primary, TimeUnit.NANOSECONDS, ReplicationPrimary::lagNanos)
+                    .description("Time from appending the latest acknowledged change to its acknowledgement")
+                    .register(registry);
+            FunctionTimer.builder("tradex.replication.blocked", primary, ReplicationPrimary::blockedAppends,
+                            ReplicationPrimary::blockedNanos, TimeUnit.NANOSECONDS)
+                    .description("Appends that waited for the standby to catch up, and the time they waited")
+                    .register(registry);
+        }
+    }
+
+    @Override
+    public void onOrderPlaced(Order order, long persistNanos, long matchNanos, int levelsCrossed) {
+        var meters = assets.get(order.getAsset());
+        if (null == meters) {
+            meters = assets.computeIfAbsent(order.getAsset(), asset -> new AssetMeters(order.getInstrument()));
+        }
+        meters.persist.record(persistNanos, TimeUnit.NANOSECONDS);
+        meters.match.record(matchNanos, TimeUnit.NANOSECONDS);
+        meters.fills.record(order.getTradeCount());
+        if (levelsCrossed > 0) {
+            meters.levelsCrossed.record(levelsCrossed);
+        }
+    }
+
+    private final class AssetMeters {
+        private final Timer persist;
+        private final Timer match;
+        private final DistributionSummary fills;
+        private final DistributionSummary levelsCrossed;
+
+        private AssetMeters(Instrument instrument) {
+            var tags = Tags.of("asset", instrument.getAsset());
+            this.persist = latency(tags.and("phase", "persist"));
+            this.match = latency(tags.and("phase", "match"));
+            this.fills = DistributionSummary.builder("tradex.order.fills")
+                    .description("Executions per placed order")
+                    .tags(tags)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.levelsCrossed = DistributionSummary.builder("tradex.order.levels.crossed")
+                    .description("Counter price levels an aggressive order traded at")
+                    .tags(tags)
+                    .publishPercentileHistogram()
+                    .register(registry);
+
+            var depth = persistence.marketDepth(instrument.getAsset());
+            for (var side : Direction.values()) {
+                var sideTags = tags.and("side", side.name());
+                Gauge.builder("tradex.book.orders", depth, d -> d.orderCount(side))
+                        .description("Resting orders")
+                        .tags(sideTags)
+                        .register(registry);
+                Gauge.builder("tradex.book.levels", depth, d -> d.levelCount(side))
+                        .description("Prices with resting orders")
+                        .tags(sideTags)
+                        .register(registry);
+            }
+            Gauge.builder("tradex.book.spread", depth, d -> spread(d, instrument))
+                    .description("Best ask minus best bid")
+                    .tags(tags)
+                    .register(registry);
+        }
+
+        /**
+         * Percentiles come from a client side HDR histogram, the buckets are exported for aggregation across assets.
+         */
+        private Timer latency(Tags tags) {
+            return Timer.builder("tradex.order.place")
+                    .description("Time to place an order, by phase")
+                    .tags(tags)
+                    .publishPercentiles(0.5, 0.99, 0.999)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(MIN_LATENCY)
+                    .maximumExpectedValue(MAX_LATENCY)
+                    .register(registry);
+        }
+    }
+
+    private static double spread(MarketDepth depth, Instrument instrument) {
+        long bid = depth.bestPrice(Direction.BUY);
+        long ask = depth.bestPrice(Direction.SELL);
+        if (OrderBook.NO_PRICE == bid || OrderBook.NO_PRICE == ask) {
+            return Double.NaN;
+        }
+        return instrument.toPrice(ask - bid);
+    }
+}
@@ -0,0 +1,65 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.cluster.ShardRouter;
+import com.arfat.tradex.order.model.DepthResponse;
+import com.arfat.tradex.order.model.Instruments;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/assets")
+public class AssetsController {
+
+    private static final int MAX_LEVELS = 1000;
+
+    private final OrderService orderService;
+    private final Instruments instruments;
+    private final ExecutionStreams executionStreams;
+    private final ShardRouter shardRouter;
+
+    public AssetsController(OrderService orderService, Instruments instruments, ExecutionStreams executionStreams,
+                            ShardRouter shardRouter) {
+        this.orderService = orderService;
+        this.instruments = instruments;
+        this.executionStreams = executionStreams;
+        this.shardRouter = shardRouter;
+    }
+
+    /**
+     * Best {@code levels} bid and ask levels of the asset, read from the incrementally maintained depth
+     * of the node that owns the asset. An asset that was never traded has no levels.
+     */
+    @GetMapping("/{asset}/depth")
+    public ResponseEntity<?> getDepth(@PathVariable String asset,
+                                      @RequestParam(defaultValue = "10") int levels,
+                                      HttpServletRequest request) {
+        if (levels <= 0 || levels > MAX_LEVELS) {
+            throw new IllegalArgumentException("Levels must be between 1 and " + MAX_LEVELS);
+        }
+        int owner = shardRouter.owner(asset, request);
+        if (ShardRouter.LOCAL != owner) {
+            return shardRouter.forward(owner, request, null);
+        }
+        var depth = orderService.getMarketDepth(asset);
+        if (null == depth) {
+            return ResponseEntity.ok(DepthResponse.empty(asset));
+        }
+        return ResponseEntity.ok(DepthResponse.from(depth, instruments.get(asset), levels));
+    }
+
+    /**
+     * Server-sent events of every execution of the asset from now on.
+     * Clients are redirected to the node that owns the asset.
+     */
+    @GetMapping(path = "/{asset}/executions", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamExecutions(@PathVariable String asset, HttpServletRequest request) {
+        int owner = shardRouter.owner(asset, request);
+        if (ShardRouter.LOCAL != owner) {
+            return shardRouter.redirect(owner, request);
+        }
+        return ResponseEntity.ok(executionStreams.open(execution -> execution.instrument().getAsset().equals(asset)));
+    }
+}
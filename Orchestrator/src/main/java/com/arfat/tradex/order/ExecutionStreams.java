@@ -0,0 +1,106 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.feed.Execution;
+import com.arfat.tradex.feed.ExecutionFeed;
+import com.arfat.tradex.feed.ExecutionSubscription;
+import com.arfat.tradex.order.model.ExecutionResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+/**
+ * Pushes the {@link ExecutionFeed} to server-sent event streams. <br>
+ * Every stream is served by its own virtual thread polling its own subscription, so a client that reads
+ * slowly only blocks its thread. Once it falls a whole feed behind it receives a {@code gap} event
+ * with the number of missed executions and continues with the recent ones.
+ */
+@Component
+public class ExecutionStreams implements DisposableBean {
+
+    private final static Logger log = LoggerFactory.getLogger(ExecutionStreams.class);
+
+    private static final int BATCH = 256;
+    private static final long MIN_IDLE_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long MAX_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final ExecutionFeed feed;
+    private volatile boolean running = true;
+
+    public ExecutionStreams(ExecutionFeed feed) {
+        this.feed = feed;
+    }
+
+    /**
+     * Opens a stream of the executions accepted by {@code filter}, starting with the next one.
+     */
+    public SseEmitter open(Predicate<Execution> filter) {
+        var emitter = new SseEmitter(0L);
+        var subscription = feed.subscribe(filter);
+        var closed = new AtomicBoolean();
+        emitter.onCompletion(() -> closed.set(true));
+        emitter.onError(ex -> closed.set(true));
+        Thread.ofVirtual()
+                .name("execution-stream-" + subscription.position())
+                .start(() -> stream(subscription, emitter, closed));
+        return emitter;
+    }
+
+    private void stream(ExecutionSubscription subscription, SseEmitter emitter, AtomicBoolean closed) {
+        var handler = new ExecutionSubscription.Handler() {
+            @Override
+            public void onExecution(Execution execution) {
+                send(emitter, SseEmitter.event()
+                        .id(Long.toString(execution.sequence()))
+                        .name("execution")
+                        .data(ExecutionResponse.from(execution), MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void onGap(long missed) {
+                send(emitter, SseEmitter.event()
+                        .name("gap")
+                        .data(Map.of("missed", missed), MediaType.APPLICATION_JSON));
+            }
+        };
+
+        long idleNanos = MIN_IDLE_NANOS;
+        try {
+            while (running && !closed.get()) {
+                if (subscription.poll(handler, BATCH) > 0) {
+                    idleNanos = MIN_IDLE_NANOS;
+                } else {
+                    // nothing new, back off so that idle streams cost next to nothing
+                    LockSupport.parkNanos(idleNanos);
+                    idleNanos = Math.min(idleNanos * 2, MAX_IDLE_NANOS);
+                }
+            }
+            emitter.complete();
+        } catch (UncheckedIOException ex) {
+            log.debug("Execution stream closed by the client: {}", ex.getMessage());
+        }
+    }
+
+    private static void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+    }
+}
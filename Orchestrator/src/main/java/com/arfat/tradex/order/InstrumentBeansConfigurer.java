@@ -0,0 +1,39 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.cluster.ShardRouter;
+import com.arfat.tradex.order.model.Instrument;
+import com.arfat.tradex.order.model.Instruments;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+@Configuration
+public class InstrumentBeansConfigurer {
+
+    /**
+     * Tick size and lot size per asset, taken from {@code tradex.instruments.<asset>.*}.
+     * Assets that are not configured fall back to a tick of 0.01 and a lot of 0.00000001.
+     * Only the assets that the {@link ShardRouter} assigns to this node can be traded here.
+     */
+    @Bean
+    Instruments instruments(Environment environment, ShardRouter shardRouter) {
+        var instruments = new Instruments(shardRouter::isLocal);
+        Binder.get(environment)
+                .bind("tradex.instruments", Bindable.mapOf(String.class, InstrumentProperties.class))
+                .orElse(Map.of())
+                .forEach((asset, properties) -> instruments.register(asset, properties.tickSize(), properties.lotSize()));
+        return instruments;
+    }
+
+    record InstrumentProperties(BigDecimal tickSize, BigDecimal lotSize) {
+        InstrumentProperties {
+            tickSize = null == tickSize ? Instrument.DEFAULT_TICK_SIZE : tickSize;
+            lotSize = null == lotSize ? Instrument.DEFAULT_LOT_SIZE : lotSize;
+        }
+    }
+}
@@ -1,20 +1,152 @@
 package com.arfat.tradex.order;
 
+import com.arfat.tradex.feed.ExecutionFeed;
+import com.arfat.tradex.gateway.OrderGateway;
+import com.arfat.tradex.metrics.MicrometerOrderMetrics;
+import com.arfat.tradex.persistence.OrderStatusIndex;
 import com.arfat.tradex.persistence.Persistence;
 import com.arfat.tradex.persistence.StateMachine;
+import com.arfat.tradex.persistence.journal.FileOrderArchive;
+import com.arfat.tradex.order.model.IdGenerator;
+import com.arfat.tradex.order.model.Instruments;
+import com.arfat.tradex.persistence.journal.JournaledStateMachine;
+import com.arfat.tradex.persistence.replication.ReplicatedStateMachine;
+import com.arfat.tradex.persistence.replication.ReplicationPrimary;
+import com.arfat.tradex.persistence.replication.ReplicationStandby;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
 
 @Configuration
 public class OrderBeansConfigurer {
 
+    /**
+     * Orders by asset, direction and status for GET /orders, only when {@code tradex.persistence.order-index.enabled}
+     * is true. Kept up to date on the matching threads.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "tradex.persistence.order-index", name = "enabled", havingValue = "true")
+    OrderStatusIndex orderStatusIndex() {
+        return new OrderStatusIndex();
+    }
+
+    /**
+     * {@code GET /actuator/orderindex}, checks the order index against the live orders while matching is paused.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "tradex.persistence.order-index", name = "enabled", havingValue = "true")
+    OrderIndexEndpoint orderIndexEndpoint(Persistence persistence, OrderService orderService) {
+        var state = persistence;
+        if (state instanceof ReplicatedStateMachine replicated) {
+            state = replicated.state();
+        }
+        if (state instanceof JournaledStateMachine journal) {
+            state = journal.state();
+        }
+        return new OrderIndexEndpoint((StateMachine) state, ((PartitionedOrderService) orderService)::quiesce);
+    }
+
     @Bean
-    Persistence persistence() {
-        return new StateMachine();
+    Persistence persistence(ObjectProvider<OrderStatusIndex> statusIndex,
+                            @Value("${tradex.engine.ladder-ticks:4096}") int ladderTicks,
+                            @Value("${tradex.persistence.journal.directory:}") String journalDirectory,
+                            @Value("${tradex.persistence.journal.segment-size:64MB}") DataSize segmentSize,
+                            @Value("${tradex.persistence.archive.directory:}") String archiveDirectory,
+                            @Value("${tradex.persistence.archive.cache-size:100000}") int archiveCacheSize,
+                            @Value("${tradex.replication.role:}") String replicationRole,
+                            @Value("${tradex.replication.port:7080}") int replicationPort,
+                            @Value("${tradex.replication.max-lag:65536}") int replicationMaxLag,
+                            @Value("${tradex.replication.back-pressure:wait}") ReplicationPrimary.BackPressure backPressure,
+                            @Value("${tradex.replication.failover-timeout:500ms}") Duration failoverTimeout) {
+        if (!List.of("", "primary", "standby").contains(replicationRole)) {
+            throw new IllegalArgumentException("Replication role must be primary or standby, not " + replicationRole);
+        }
+        var index = statusIndex.getIfAvailable();
+        var state = archiveDirectory.isBlank()
+                ? new StateMachine(ladderTicks, null, 0, index)
+                : new StateMachine(ladderTicks, FileOrderArchive.open(Path.of(archiveDirectory)), archiveCacheSize, index);
+        Persistence persistence = state;
+        if (!journalDirectory.isBlank()) {
+            // replays the journal before the engine accepts the first order, closed after the engine has drained
+            // snapshots once the order service can pause matching for them
+            persistence = new JournaledStateMachine(state, Path.of(journalDirectory), Math.toIntExact(segmentSize.toBytes()));
+        }
+        if ("primary".equals(replicationRole)) {
+            // accepts the standby once the order service can pause matching for its snapshot
+            var primary = new ReplicationPrimary(state, new InetSocketAddress(replicationPort), replicationMaxLag,
+                    failoverTimeout, backPressure);
+            persistence = new ReplicatedStateMachine(persistence, primary);
+        }
+        return persistence;
     }
 
     @Bean
-    OrderService orderService(Persistence persistence) {
-        return new DefaultOrderService(persistence);
+    ExecutionFeed executionFeed(@Value("${tradex.feed.capacity:65536}") int capacity) {
+        return new ExecutionFeed(capacity);
+    }
+
+    @Bean
+    OrderMetrics orderMetrics(MeterRegistry registry, Persistence persistence) {
+        return new MicrometerOrderMetrics(registry, persistence);
+    }
+
+    /**
+     * Binary order entry next to the REST API, only when {@code tradex.gateway.enabled} is true.
+     * Closed after the engine has drained.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "tradex.gateway", name = "enabled", havingValue = "true")
+    OrderGateway orderGateway(Instruments instruments, @Value("${tradex.gateway.port:7070}") int port) {
+        return new OrderGateway(instruments, new InetSocketAddress(port));
+    }
+
+    @Bean(destroyMethod = "close")
+    OrderService orderService(Persistence persistence,
+                              ExecutionFeed executionFeed,
+                              OrderChanges orderChanges,
+                              OrderMetrics orderMetrics,
+                              Optional<OrderGateway> orderGateway,
+                              Optional<ReplicationStandby> standby,
+                              @Value("${tradex.engine.partitions:0}") int partitions,
+                              @Value("${tradex.engine.queue-capacity:1024}") int queueCapacity,
+                              @Value("${tradex.persistence.snapshot.interval:PT10M}") Duration snapshotInterval,
+                              @Value("${tradex.node-id:0}") int nodeId) {
+        // one matching thread per core unless configured otherwise
+        int partitionCount = partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors();
+        // the long-polls of the orders are answered from the matching threads
+        var published = executionFeed.andThen(orderChanges);
+        var executionListener = orderGateway.map(published::andThen).orElse(published);
+        var ids = new IdGenerator(nodeId);
+        var orderService = new PartitionedOrderService(persistence, partitionCount, queueCapacity,
+                executionListener, orderMetrics, ids);
+        var journaled = persistence;
+        if (persistence instanceof ReplicatedStateMachine replicated) {
+            replicated.primary().start(orderService::quiesce);
+            journaled = replicated.state();
+        }
+        if (journaled instanceof JournaledStateMachine journal && !snapshotInterval.isZero()) {
+            journal.snapshotEvery(snapshotInterval, orderService::quiesce);
+        }
+        if (standby.isPresent()) {
+            // a standby runs with the node id of its primary and takes over the orders and the gateway port
+            standby.get().onPromotion(() -> {
+                ids.advancePast(standby.get().lastOrderId());
+                orderGateway.ifPresent(gateway -> gateway.start(orderService));
+            });
+            standby.get().start();
+        } else {
+            orderGateway.ifPresent(gateway -> gateway.start(orderService));
+        }
+        return orderService;
     }
 }
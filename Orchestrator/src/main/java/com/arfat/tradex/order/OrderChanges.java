@@ -0,0 +1,71 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.order.model.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-polls of orders. <br>
+ * A long-poll parks as a future in the list of waiters of its order, and the engine completes the futures
+ * of an order as it notifies the executions and cancels that change it, so a long-poll answers as soon as
+ * the order changed. While nobody waits, a notification costs the matching thread a look at an empty map.
+ */
+@Component
+public class OrderChanges implements ExecutionListener {
+
+    /**
+     * Waiters by order, the lists are only changed inside the atomic operations of the map
+     */
+    private final Map<Order, List<CompletableFuture<Order>>> waiters = new ConcurrentHashMap<>();
+
+    /**
+     * @return completed with the order once its version differs from {@code version}, or once the timeout expired
+     */
+    public CompletableFuture<Order> await(Order order, long version, long timeoutMillis) {
+        if (version != order.getVersion() || order.isFullyExecuted() || order.isCancelled() || 0 == timeoutMillis) {
+            return CompletableFuture.completedFuture(order);
+        }
+        var changed = new CompletableFuture<Order>();
+        waiters.compute(order, (key, futures) -> {
+            futures = null == futures ? new ArrayList<>() : futures;
+            futures.add(changed);
+            return futures;
+        });
+        changed.whenComplete((result, failure) -> waiters.computeIfPresent(order, (key, futures) -> {
+            futures.remove(changed);
+            return futures.isEmpty() ? null : futures;
+        }));
+        // a change before the future was added is not notified to it
+        if (version != order.getVersion()) {
+            changed.complete(order);
+        }
+        return changed.completeOnTimeout(order, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onExecution(Order incomingOrder, Order counterOrder, long priceTicks, long amountLots) {
+        changed(incomingOrder);
+        changed(counterOrder);
+    }
+
+    @Override
+    public void onCancel(Order order) {
+        changed(order);
+    }
+
+    private void changed(Order order) {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        var futures = waiters.remove(order);
+        if (null != futures) {
+            futures.forEach(future -> future.complete(order));
+        }
+    }
+}
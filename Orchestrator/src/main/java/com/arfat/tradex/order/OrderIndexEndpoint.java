@@ -0,0 +1,55 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.persistence.StateMachine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.function.Consumer;
+
+/**
+ * {@code GET /actuator/orderindex} checks that the orders listed by GET /orders match the live orders.
+ * Matching is paused while the orders are walked, a mismatch is logged as well as answered.
+ */
+@Endpoint(id = "orderindex")
+public class OrderIndexEndpoint {
+
+    private final static Logger log = LoggerFactory.getLogger(OrderIndexEndpoint.class);
+
+    private final StateMachine state;
+    private final Consumer<Runnable> quiesce;
+
+    /**
+     * @param state   the indexed orders
+     * @param quiesce runs its argument while no order is being matched
+     */
+    public OrderIndexEndpoint(StateMachine state, Consumer<Runnable> quiesce) {
+        this.state = state;
+        this.quiesce = quiesce;
+    }
+
+    @ReadOperation
+    public IndexCheck check() {
+        var check = new IndexCheck[1];
+        quiesce.accept(() -> {
+            try {
+                check[0] = new IndexCheck(true, state.checkIndex(), null);
+            } catch (IllegalStateException ex) {
+                check[0] = new IndexCheck(false, state.orderCount(), ex.getMessage());
+            }
+        });
+        if (!check[0].consistent()) {
+            log.warn("Order index does not match the live orders: {}", check[0].problem());
+        }
+        return check[0];
+    }
+
+    /**
+     * @param consistent whether every live order is indexed by its asset, direction and status, and nothing else is
+     * @param orders     number of indexed orders, or of live orders when the index is inconsistent
+     * @param problem    the first inconsistency found, null when there is none
+     */
+    public record IndexCheck(boolean consistent, int orders, String problem) {
+    }
+}
@@ -0,0 +1,60 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.order.model.OrderResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * JSON of the orders that can no longer change, filled or cancelled, serialized once and served as bytes
+ * from then on. Keeps the most recently read ones.
+ */
+final class OrderResponseCache {
+
+    private final ObjectMapper json;
+    private final Map<Long, byte[]> responses;
+
+    /**
+     * @param capacity number of responses kept, 0 serializes every time
+     */
+    OrderResponseCache(ObjectMapper json, int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative");
+        }
+        this.json = json;
+        this.responses = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    /**
+     * @return the JSON of the order, null while it can still change
+     */
+    byte[] get(Order order) {
+        if (!order.isFullyExecuted() && !order.isCancelled()) {
+            return null;
+        }
+        var bytes = responses.get(order.getId());
+        if (null == bytes) {
+            var response = OrderResponse.from(order);
+            try {
+                bytes = json.writeValueAsBytes(response);
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+            // read off the matching thread, cached once the trades add up to the executed amount
+            if (response.getFilledAmount() == order.getInstrument().toAmount(order.getAmountLots() - order.getPendingLots())) {
+                responses.put(order.getId(), bytes);
+            }
+        }
+        return bytes;
+    }
+}
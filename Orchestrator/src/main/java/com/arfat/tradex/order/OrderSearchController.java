@@ -0,0 +1,62 @@
+package com.arfat.tradex.order;
+
+import com.arfat.tradex.cluster.ShardRouter;
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.IdGenerator;
+import com.arfat.tradex.order.model.OrderPage;
+import com.arfat.tradex.order.model.OrderStatus;
+import com.arfat.tradex.persistence.OrderStatusIndex;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Set;
+
+/**
+ * Lists the orders of an asset from the {@link OrderStatusIndex}, only served when the index is enabled.
+ */
+@RestController
+@RequestMapping("/orders")
+@ConditionalOnProperty(prefix = "tradex.persistence.order-index", name = "enabled", havingValue = "true")
+public class OrderSearchController {
+
+    private static final int MAX_ORDERS = 1000;
+
+    private final OrderStatusIndex statusIndex;
+    private final ShardRouter shardRouter;
+
+    public OrderSearchController(OrderStatusIndex statusIndex, ShardRouter shardRouter) {
+        this.statusIndex = statusIndex;
+        this.shardRouter = shardRouter;
+    }
+
+    /**
+     * Up to {@code limit} orders of the asset in ID order, read from the index of the node that owns the asset.
+     * The page tells the {@code after} of the next one.
+     *
+     * @param direction BUY or SELL, both when absent
+     * @param status    comma separated statuses, all when absent. Filled and cancelled orders are not indexed once
+     *                  they are archived, the statuses must then be given and be NEW or PARTIALLY_FILLED, anything
+     *                  else is a 400
+     * @param after     ID of the last order of the previous page
+     */
+    @GetMapping
+    public ResponseEntity<?> findOrders(@RequestParam String asset,
+                                        @RequestParam(required = false) Direction direction,
+                                        @RequestParam(defaultValue = "") Set<OrderStatus> status,
+                                        @RequestParam(required = false) String after,
+                                        @RequestParam(defaultValue = "100") int limit,
+                                        HttpServletRequest request) {
+        if (limit <= 0 || limit > MAX_ORDERS) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_ORDERS);
+        }
+        long afterId = null == after ? 0 : IdGenerator.parse(after);
+        int owner = shardRouter.owner(asset, request);
+        if (ShardRouter.LOCAL != owner) {
+            return shardRouter.forward(owner, request, null);
+        }
+        var orders = statusIndex.findOrders(asset, direction, status, afterId, limit);
+        return ResponseEntity.ok(OrderPage.from(orders, limit));
+    }
+}
@@ -1,42 +1,339 @@
 package com.arfat.tradex.order;
 
+import com.arfat.tradex.cluster.ShardRouter;
+import com.arfat.tradex.order.model.BatchOrderResponse;
+import com.arfat.tradex.order.model.IdGenerator;
+import com.arfat.tradex.order.model.Instruments;
 import com.arfat.tradex.order.model.Order;
 import com.arfat.tradex.order.model.OrderRequest;
 import com.arfat.tradex.order.model.OrderResponse;
+import com.arfat.tradex.order.model.TradePage;
+import com.arfat.tradex.tracing.OrderTracer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Validator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/orders")
 public class OrdersController {
 
     private final static Logger log = LoggerFactory.getLogger(OrdersController.class);
+    /**
+     * Builds the responses off the matching threads, which complete the futures of the engine
+     */
+    private static final Executor RESPONSES = Thread::startVirtualThread;
+    private static final int MAX_TRADES = 1000;
+    /**
+     * Below the timeout of asynchronous requests of the servlet container
+     */
+    private static final long MAX_WAIT_MILLIS = 20_000;
 
     private final OrderService orderService;
+    private final Instruments instruments;
+    private final Validator validator;
+    private final ExecutionStreams executionStreams;
+    private final ShardRouter shardRouter;
+    private final OrderChanges orderChanges;
+    private final OrderTracer orderTracer;
+    private final OrderResponseCache responseCache;
+    private final int maxBatchSize;
 
-    public OrdersController(OrderService orderService) {
+    public OrdersController(OrderService orderService, Instruments instruments, Validator validator,
+                            ExecutionStreams executionStreams, ShardRouter shardRouter, OrderChanges orderChanges,
+                            OrderTracer orderTracer, ObjectMapper objectMapper,
+                            @Value("${tradex.api.max-batch-size:1000}") int maxBatchSize,
+                            @Value("${tradex.api.response-cache-size:10000}") int responseCacheSize) {
         this.orderService = orderService;
+        this.instruments = instruments;
+        this.validator = validator;
+        this.executionStreams = executionStreams;
+        this.shardRouter = shardRouter;
+        this.orderChanges = orderChanges;
+        this.orderTracer = orderTracer;
+        this.responseCache = new OrderResponseCache(objectMapper, responseCacheSize);
+        this.maxBatchSize = maxBatchSize;
     }
 
+    /**
+     * Completes the request asynchronously: the request thread is released while the engine matches the order,
+     * or while the node that owns the asset does. Orders placed on this node are traced, see {@link OrderTracer}.
+     */
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Void> placeOrder(@Validated @RequestBody OrderRequest orderRequest) {
-        Order order = orderService.placeOrder(OrderRequest.toOrder(orderRequest));
-        URI location = URI.create(order.getId());
-        log.info("Order placed with ID: {}", order.getId());
-        return ResponseEntity.created(location).build();
+    public CompletableFuture<ResponseEntity<?>> placeOrder(@Validated @RequestBody OrderRequest orderRequest,
+                                                           HttpServletRequest request) {
+        int owner = shardRouter.owner(orderRequest.getAsset(), request);
+        if (ShardRouter.LOCAL != owner) {
+            return shardRouter.forwardAsync(owner, request, orderRequest).thenApply(response -> response);
+        }
+        var trace = orderTracer.start(request);
+        return orderService.placeOrderAsync(trace.validate(() -> OrderRequest.toOrder(orderRequest, instruments)))
+                .thenApplyAsync(order -> trace.respond(order, () -> {
+                    var id = IdGenerator.format(order.getId());
+                    log.info("Order placed with ID: {}", id);
+                    return ResponseEntity.created(URI.create(id)).build();
+                }), RESPONSES);
     }
 
+    /**
+     * Places up to {@code max-batch-size} orders in one call. <br>
+     * Every item is validated and placed on its own, an invalid item or one the engine fails is rejected
+     * without failing the others. The valid orders are matched in one pass, orders of the same asset in array order.
+     * Orders of assets owned by other nodes are sent to them as one batch per node, while this node matches its own.
+     *
+     * @return one result per item, in array order
+     */
+    @PostMapping(path = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BatchOrderResponse>> placeOrders(@RequestBody OrderRequest[] orderRequests,
+                                                                HttpServletRequest request) {
+        if (orderRequests.length == 0 || orderRequests.length > maxBatchSize) {
+            throw new IllegalArgumentException("Batch must contain between 1 and " + maxBatchSize + " orders");
+        }
+
+        var responses = new BatchOrderResponse[orderRequests.length];
+        List<Order> orders = new ArrayList<>(orderRequests.length);
+        int[] positions = new int[orderRequests.length];
+        Map<Integer, List<Integer>> remotePositions = new TreeMap<>();
+        int forwarded = 0;
+        for (int i = 0; i < orderRequests.length; i++) {
+            try {
+                validate(orderRequests[i]);
+                int owner = shardRouter.owner(orderRequests[i].getAsset(), request);
+                if (ShardRouter.LOCAL != owner) {
+                    remotePositions.computeIfAbsent(owner, k -> new ArrayList<>()).add(i);
+                    forwarded++;
+                    continue;
+                }
+                positions[orders.size()] = i;
+                orders.add(OrderRequest.toOrder(orderRequests[i], instruments));
+            } catch (IllegalArgumentException ex) {
+                responses[i] = BatchOrderResponse.rejected(ex.getMessage());
+            }
+        }
+
+        List<CompletableFuture<?>> remoteBatches = new ArrayList<>(remotePositions.size());
+        remotePositions.forEach((owner, items) -> remoteBatches.add(shardRouter
+                .forwardAsync(owner, request, items.stream().map(i -> orderRequests[i]).toList(), BatchOrderResponse[].class)
+                .handle((results, ex) -> {
+                    for (int i = 0; i < items.size(); i++) {
+                        responses[items.get(i)] = null == ex ? results[i]
+                                : BatchOrderResponse.rejected("Node " + owner + " is unavailable");
+                    }
+                    return null;
+                })));
+
+        int failed = 0;
+        if (!orders.isEmpty()) {
+            var placed = orderService.placeOrders(orders);
+            for (int i = 0; i < placed.size(); i++) {
+                try {
+                    responses[positions[i]] = BatchOrderResponse.from(placed.get(i).join());
+                } catch (CompletionException ex) {
+                    responses[positions[i]] = rejected(ex.getCause());
+                    failed++;
+                }
+            }
+        }
+        remoteBatches.forEach(CompletableFuture::join);
+        log.info("Batch of {} orders placed, {} forwarded, {} rejected",
+                orders.size() - failed, forwarded, orderRequests.length - orders.size() - forwarded + failed);
+        return ResponseEntity.ok(Arrays.asList(responses));
+    }
+
+    /**
+     * The order with a summary of its fills and its first trades, tagged with its version as the ETag.
+     * A request whose {@code If-None-Match} names the current version is answered with 304 and no body.
+     * Filled and cancelled orders can no longer change, their JSON is serialized once and served from
+     * the {@link OrderResponseCache}.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<OrderResponse> getOrder(@PathVariable String id) {
-        var order = orderService.getOrder(id);
+    public ResponseEntity<?> getOrder(
+            @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            HttpServletRequest request) {
+        long orderId = orderId(id);
+        int owner = shardRouter.owner(orderId, request);
+        if (ShardRouter.LOCAL != owner) {
+            return shardRouter.forward(owner, request, null);
+        }
+        return orderResponse(orderService.getOrder(orderId), ifNoneMatch);
+    }
+
+    /**
+     * Long-poll of the order: parks the request for up to {@code wait} milliseconds until the version of the order
+     * differs from the one named by {@code If-None-Match}, or from the current one without it, and then answers
+     * like {@link #getOrder}. The request thread is released meanwhile.
+     * Clients are redirected to the node that placed the order.
+     */
+    @GetMapping(path = "/{id}", params = "wait")
+    public CompletableFuture<ResponseEntity<?>> awaitOrder(
+            @PathVariable String id,
+            @RequestParam long wait,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            HttpServletRequest request) {
+        if (wait < 0 || wait > MAX_WAIT_MILLIS) {
+            throw new IllegalArgumentException("Wait must be between 0 and " + MAX_WAIT_MILLIS + " milliseconds");
+        }
+        long orderId = orderId(id);
+        int owner = shardRouter.owner(orderId, request);
+        if (ShardRouter.LOCAL != owner) {
+            return CompletableFuture.completedFuture(shardRouter.redirect(owner, request));
+        }
+        var order = orderService.getOrder(orderId);
+        return orderChanges.await(order, version(ifNoneMatch, order), wait)
+                .thenApplyAsync(changed -> orderResponse(changed, ifNoneMatch), RESPONSES);
+    }
+
+    /**
+     * The version is read before the order, so the ETag never names changes the body does not have.
+     */
+    private ResponseEntity<?> orderResponse(Order order, String ifNoneMatch) {
+        var etag = "\"" + order.getVersion() + "\"";
+        if (null != ifNoneMatch && matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        var cached = responseCache.get(order);
+        if (null != cached) {
+            return ResponseEntity.ok().eTag(etag).contentType(MediaType.APPLICATION_JSON).body(cached);
+        }
+        return ResponseEntity.ok().eTag(etag).body(OrderResponse.from(order));
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        for (var tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if ("*".equals(tag) || etag.equals(tag.startsWith("W/") ? tag.substring(2) : tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the version named by the first ETag of {@code If-None-Match}, the current one if it names none
+     */
+    private static long version(String ifNoneMatch, Order order) {
+        if (null != ifNoneMatch) {
+            var tag = ifNoneMatch.split(",")[0].trim();
+            tag = tag.startsWith("W/") ? tag.substring(2) : tag;
+            if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                try {
+                    return Long.parseLong(tag.substring(1, tag.length() - 1));
+                } catch (NumberFormatException ex) {
+                    // not an ETag of this API
+                }
+            }
+        }
+        return order.getVersion();
+    }
+
+    /**
+     * Up to {@code limit} trades of the order in execution order, skipping the first {@code after}.
+     * The page tells the {@code after} of the next one.
+     */
+    @GetMapping("/{id}/trades")
+    public ResponseEntity<?> getTrades(@PathVariable String id,
+                                       @RequestParam(defaultValue = "0") int after,
+                                       @RequestParam(defaultValue = "100") int limit,
+                                       HttpServletRequest request) {
+        if (after < 0) {
+            throw new IllegalArgumentException("After must not be negative");
+        }
+        if (limit <= 0 || limit > MAX_TRADES) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_TRADES);
+        }
+        long orderId = orderId(id);
+        int owner = shardRouter.owner(orderId, request);
+        if (ShardRouter.LOCAL != owner) {
+            return shardRouter.forward(owner, request, null);
+        }
+        var order = orderService.getOrder(orderId);
+        return ResponseEntity.ok(TradePage.from(order, after, limit));
+    }
+
+    /**
+     * Withdraws the rest of a resting order from the book.
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> cancelOrder(@PathVariable String id, HttpServletRequest request) {
+        long orderId = orderId(id);
+        int owner = shardRouter.owner(orderId, request);
+        if (ShardRouter.LOCAL != owner) {
+            return shardRouter.forward(owner, request, null);
+        }
+        var order = orderService.cancelOrder(orderId);
+        log.info("Order cancelled with ID: {}", id);
         return ResponseEntity.ok(OrderResponse.from(order));
+    }
 
+    /**
+     * Server-sent events of the executions of the order from now on, on either side of the trade.
+     * Clients are redirected to the node that placed the order.
+     */
+    @GetMapping(path = "/{id}/executions", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamExecutions(@PathVariable String id, HttpServletRequest request) {
+        int owner = shardRouter.owner(orderId(id), request);
+        if (ShardRouter.LOCAL != owner) {
+            return shardRouter.redirect(owner, request);
+        }
+        // fail fast on unknown orders
+        long orderId = orderService.getOrder(orderId(id)).getId();
+        return ResponseEntity.ok(executionStreams.open(execution -> execution.involves(orderId)));
     }
 
+    /**
+     * Tells the client why the engine did not place an item, the reason of an unexpected failure is only logged.
+     */
+    private static BatchOrderResponse rejected(Throwable cause) {
+        if (cause instanceof IllegalArgumentException || cause instanceof RejectedExecutionException) {
+            return BatchOrderResponse.rejected(cause.getMessage());
+        }
+        log.error("Placing an order of a batch failed:", cause);
+        return BatchOrderResponse.rejected("Order could not be placed");
+    }
+
+    /**
+     * Reads the id of an order from a path, text that is no id can not name an existing order.
+     */
+    private static long orderId(String id) {
+        try {
+            return IdGenerator.parse(id);
+        } catch (IllegalArgumentException ex) {
+            throw new OrderNotFoundException("Order with ID " + id + " not found.");
+        }
+    }
+
+    private void validate(OrderRequest orderRequest) {
+        if (null == orderRequest) {
+            throw new IllegalArgumentException("Order must not be null");
+        }
+        var violations = validator.validate(orderRequest);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+    }
 }
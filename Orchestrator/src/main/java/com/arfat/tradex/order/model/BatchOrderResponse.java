@@ -0,0 +1,26 @@
+package com.arfat.tradex.order.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Result of one item of a batch, either the placed order or the reason it was rejected.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchOrderResponse(String id, OrderStatus status, Double pendingAmount,
+                                 List<TradeResponse> trades, String error) {
+
+    public static BatchOrderResponse from(Order order) {
+        var instrument = order.getInstrument();
+        return new BatchOrderResponse(IdGenerator.format(order.getId()), order.getStatus(), order.getPendingAmount(),
+                order.getTrades().stream()
+                        .map(trade -> TradeResponse.from(trade, instrument))
+                        .toList(),
+                null);
+    }
+
+    public static BatchOrderResponse rejected(String error) {
+        return new BatchOrderResponse(null, null, null, null, error);
+    }
+}
@@ -0,0 +1,33 @@
+package com.arfat.tradex.order.model;
+
+import com.arfat.tradex.book.DepthLevel;
+import com.arfat.tradex.book.MarketDepth;
+
+import java.util.List;
+
+/**
+ * Decimal view of the best levels of an asset's {@link MarketDepth}, best price first.
+ */
+public record DepthResponse(String asset, List<Level> bids, List<Level> asks) {
+
+    public record Level(double price, double amount, int orders) {
+    }
+
+    public static DepthResponse from(MarketDepth depth, Instrument instrument, int levels) {
+        return new DepthResponse(instrument.getAsset(),
+                levels(depth.levels(Direction.BUY, levels), instrument),
+                levels(depth.levels(Direction.SELL, levels), instrument));
+    }
+
+    public static DepthResponse empty(String asset) {
+        return new DepthResponse(asset, List.of(), List.of());
+    }
+
+    private static List<Level> levels(List<DepthLevel> levels, Instrument instrument) {
+        return levels.stream()
+                .map(level -> new Level(instrument.toPrice(level.priceTicks()),
+                        instrument.toAmount(level.volumeLots()),
+                        level.orders()))
+                .toList();
+    }
+}
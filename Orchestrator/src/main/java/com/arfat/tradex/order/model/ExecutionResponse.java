@@ -0,0 +1,24 @@
+package com.arfat.tradex.order.model;
+
+import com.arfat.tradex.feed.Execution;
+
+import java.time.Instant;
+
+/**
+ * Decimal view of an {@link Execution} pushed on the execution streams.
+ */
+public record ExecutionResponse(long sequence, String asset, String incomingOrderId, String counterOrderId,
+                                Direction direction, double price, double amount, Instant timestamp) {
+
+    public static ExecutionResponse from(Execution execution) {
+        var instrument = execution.instrument();
+        return new ExecutionResponse(execution.sequence(),
+                instrument.getAsset(),
+                IdGenerator.format(execution.incomingOrderId()),
+                IdGenerator.format(execution.counterOrderId()),
+                execution.incomingDirection(),
+                instrument.toPrice(execution.priceTicks()),
+                instrument.toAmount(execution.amountLots()),
+                execution.timestamp());
+    }
+}
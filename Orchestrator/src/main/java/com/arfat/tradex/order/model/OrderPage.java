@@ -0,0 +1,19 @@
+package com.arfat.tradex.order.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Orders of an asset in ID order, one page at a time.
+ *
+ * @param next value of {@code after} that reads the next page, absent on the last page
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record OrderPage(List<OrderResponse> orders, String next) {
+
+    public static OrderPage from(List<Order> orders, int limit) {
+        var next = orders.size() == limit ? IdGenerator.format(orders.getLast().getId()) : null;
+        return new OrderPage(orders.stream().map(OrderResponse::from).toList(), next);
+    }
+}
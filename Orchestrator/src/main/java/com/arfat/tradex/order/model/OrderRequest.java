@@ -7,6 +7,8 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.math.BigDecimal;
+
 @Getter
 @Setter
 @NoArgsConstructor
@@ -14,17 +16,32 @@ public class OrderRequest {
     @NotEmpty
     private String asset;
     @NotNull
-    private double price;
+    @Positive
+    private BigDecimal price;
     @NotNull
     @Positive
-    private double amount;
+    private BigDecimal amount;
     @NotNull
     private Direction direction;
+    /**
+     * GTC when absent
+     */
+    private TimeInForce timeInForce;
 
-    public static Order toOrder(OrderRequest orderRequest) {
-        return new Order(orderRequest.getAsset(),
-                orderRequest.getPrice(),
-                orderRequest.getAmount(),
+    /**
+     * Converts the decimal request into ticks and lots of the asset's instrument.
+     *
+     * @throws IllegalArgumentException if price or amount do not fit the tick or lot size
+     */
+    public static Order toOrder(OrderRequest orderRequest, Instruments instruments) {
+        var instrument = instruments.get(orderRequest.getAsset());
+        var order = new Order(instrument,
+                instrument.toTicks(orderRequest.getPrice()),
+                instrument.toLots(orderRequest.getAmount()),
                 orderRequest.getDirection());
+        if (null != orderRequest.getTimeInForce()) {
+            order.setTimeInForce(orderRequest.getTimeInForce());
+        }
+        return order;
     }
 }
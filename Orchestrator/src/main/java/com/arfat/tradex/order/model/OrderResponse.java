@@ -1,5 +1,6 @@
 package com.arfat.tradex.order.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
@@ -8,30 +9,59 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Decimal view of an {@link Order} with a summary of its fills. <br>
+ * Only the first {@value #INLINE_TRADES} trades are included, the others are read page by page,
+ * see {@link TradePage}.
+ */
 @Builder
 @Getter
 @Setter
 public class OrderResponse {
+
+    public static final int INLINE_TRADES = 100;
+
     private final String id;
     private final Instant timestamp;
     private final String asset;
     private final double price;
     private final double amount;
     private final Direction direction;
+    private final OrderStatus status;
     private final double pendingAmount;
+    private final double filledAmount;
+    /**
+     * Volume weighted average price of the trades, absent until the order trades
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final Double averagePrice;
+    private final int tradeCount;
     @Builder.Default
-    private final List<Trade> trades = new ArrayList<>();
+    private final List<TradeResponse> trades = new ArrayList<>();
 
     public static OrderResponse from(Order order) {
+        var instrument = order.getInstrument();
+        int tradeCount = order.getTradeCount();
+        long filledLots = 0;
+        double valueTicks = 0;
+        for (int i = 0; i < tradeCount; i++) {
+            long lots = order.getTradeAmountLots(i);
+            filledLots += lots;
+            valueTicks += (double) lots * order.getTradePriceTicks(i);
+        }
         return OrderResponse.builder()
-                .id(order.getId())
+                .id(IdGenerator.format(order.getId()))
                 .timestamp(order.getTimestamp())
                 .asset(order.getAsset())
                 .price(order.getPrice())
                 .amount(order.getAmount())
                 .direction(order.getDirection())
+                .status(order.getStatus())
                 .pendingAmount(order.getPendingAmount())
-                .trades(order.getTrades())
+                .filledAmount(instrument.toAmount(filledLots))
+                .averagePrice(0 == filledLots ? null : instrument.toPrice(1) * (valueTicks / filledLots))
+                .tradeCount(tradeCount)
+                .trades(TradeResponse.of(order, 0, INLINE_TRADES))
                 .build();
     }
 }
@@ -0,0 +1,21 @@
+package com.arfat.tradex.order.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Trades of an order in execution order, one page at a time.
+ *
+ * @param next value of {@code after} that reads the next page, absent on the last page
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TradePage(List<TradeResponse> trades, Integer next) {
+
+    public static TradePage from(Order order, int after, int limit) {
+        int tradeCount = order.getTradeCount();
+        var trades = TradeResponse.of(order, after, limit);
+        int end = after + trades.size();
+        return new TradePage(trades, end < tradeCount ? end : null);
+    }
+}
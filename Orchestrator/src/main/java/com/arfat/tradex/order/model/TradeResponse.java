@@ -0,0 +1,33 @@
+package com.arfat.tradex.order.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decimal view of a {@link Trade}, the engine keeps it in ticks and lots.
+ */
+public record TradeResponse(String orderId, double amount, double price) {
+
+    public static TradeResponse from(Trade trade, Instrument instrument) {
+        return new TradeResponse(IdGenerator.format(trade.getOrderId()),
+                instrument.toAmount(trade.getAmountLots()),
+                instrument.toPrice(trade.getPriceTicks()));
+    }
+
+    /**
+     * @param after number of trades to skip
+     * @param limit largest number of trades returned
+     * @return the trades of the order from {@code after} on, read from its trade arrays
+     */
+    public static List<TradeResponse> of(Order order, int after, int limit) {
+        var instrument = order.getInstrument();
+        int end = (int) Math.min(order.getTradeCount(), (long) after + limit);
+        List<TradeResponse> trades = new ArrayList<>(Math.max(0, end - after));
+        for (int i = after; i < end; i++) {
+            trades.add(new TradeResponse(IdGenerator.format(order.getTradeOrderId(i)),
+                    instrument.toAmount(order.getTradeAmountLots(i)),
+                    instrument.toPrice(order.getTradePriceTicks(i))));
+        }
+        return trades;
+    }
+}
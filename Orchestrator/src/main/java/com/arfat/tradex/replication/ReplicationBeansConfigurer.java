@@ -0,0 +1,47 @@
+package com.arfat.tradex.replication;
+
+import com.arfat.tradex.persistence.Persistence;
+import com.arfat.tradex.persistence.replication.ReplicationStandby;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+
+/**
+ * Beans of a standby, {@code tradex.replication.role: standby}. The primary side is part of the persistence.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "tradex.replication", name = "role", havingValue = "standby")
+public class ReplicationBeansConfigurer {
+
+    /**
+     * Follows the primary once the order service has registered what happens on promotion.
+     */
+    @Bean(destroyMethod = "close")
+    ReplicationStandby replicationStandby(Persistence persistence,
+                                          @Value("${tradex.replication.primary}") String primary,
+                                          @Value("${tradex.replication.failover-timeout:500ms}") Duration timeout) {
+        int separator = primary.lastIndexOf(':');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Primary must be host:port, not " + primary);
+        }
+        var address = new InetSocketAddress(primary.substring(0, separator),
+                Integer.parseInt(primary.substring(separator + 1)));
+        return new ReplicationStandby(persistence, address, timeout);
+    }
+
+    @Bean
+    WebMvcConfigurer standbyInterceptor(ReplicationStandby standby) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(new StandbyInterceptor(standby));
+            }
+        };
+    }
+}
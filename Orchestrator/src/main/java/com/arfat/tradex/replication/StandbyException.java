@@ -0,0 +1,10 @@
+package com.arfat.tradex.replication;
+
+/**
+ * A change was requested from a standby, which only follows its primary until it is promoted.
+ */
+public final class StandbyException extends RuntimeException {
+    public StandbyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,28 @@
+package com.arfat.tradex.replication;
+
+import com.arfat.tradex.persistence.replication.ReplicationStandby;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Serves reads from the replicated state of a standby and rejects every change until it is promoted,
+ * so that clients retry against the primary meanwhile.
+ */
+final class StandbyInterceptor implements HandlerInterceptor {
+
+    private final ReplicationStandby standby;
+
+    StandbyInterceptor(ReplicationStandby standby) {
+        this.standby = standby;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!standby.isPromoted() && !HttpMethod.GET.matches(request.getMethod())) {
+            throw new StandbyException("This node is a standby, send changes to the primary");
+        }
+        return true;
+    }
+}
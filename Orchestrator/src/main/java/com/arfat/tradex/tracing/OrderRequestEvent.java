@@ -0,0 +1,52 @@
+package com.arfat.tradex.tracing;
+
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.order.model.OrderTrace;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * One order request from the controller to its response, with the time of every stage of the order.
+ * The parsing stage is over before the event begins.
+ */
+@Name("tradex.OrderRequest")
+@Label("Order Request")
+@Description("Placing an order through the REST API, stage by stage")
+public final class OrderRequestEvent extends OrderEvent {
+
+    @Label("Parse")
+    @Timespan
+    long parse;
+
+    @Label("Validation")
+    @Timespan
+    long validation;
+
+    @Label("Queue")
+    @Timespan
+    long queue;
+
+    @Label("Persist")
+    @Timespan
+    long persist;
+
+    @Label("Match")
+    @Timespan
+    long match;
+
+    @Label("Response")
+    @Timespan
+    long response;
+
+    void commit(Order order, OrderTrace trace) {
+        parse = trace.stageNanos(OrderTrace.Stage.PARSE);
+        validation = trace.stageNanos(OrderTrace.Stage.VALIDATION);
+        queue = trace.stageNanos(OrderTrace.Stage.QUEUE);
+        persist = trace.stageNanos(OrderTrace.Stage.PERSIST);
+        match = trace.stageNanos(OrderTrace.Stage.MATCH);
+        response = trace.stageNanos(OrderTrace.Stage.RESPONSE);
+        commit(order);
+    }
+}
@@ -0,0 +1,11 @@
+package com.arfat.tradex.tracing;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("tradex.OrderResponse")
+@Label("Order Response")
+@Description("Building the response to an order request once the order is placed")
+public final class OrderResponseEvent extends OrderEvent {
+}
@@ -0,0 +1,11 @@
+package com.arfat.tradex.tracing;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("tradex.OrderValidation")
+@Label("Order Validation")
+@Description("Converting an order request into ticks and lots of its instrument")
+public final class OrderValidationEvent extends OrderEvent {
+}
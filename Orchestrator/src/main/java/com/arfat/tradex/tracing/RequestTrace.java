@@ -0,0 +1,53 @@
+package com.arfat.tradex.tracing;
+
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.order.model.OrderTrace;
+
+import java.util.function.Supplier;
+
+/**
+ * Tracing of one order request, see {@link OrderTracer}. <br>
+ * The order carries its {@link OrderTrace} through the engine, which marks the queue, persist and match stages.
+ */
+public final class RequestTrace {
+
+    private final OrderTrace trace;
+    private final OrderRequestEvent event;
+    private final SlowestOrders slowestOrders;
+
+    RequestTrace(OrderTrace trace, SlowestOrders slowestOrders) {
+        this.trace = trace;
+        this.slowestOrders = slowestOrders;
+        this.event = new OrderRequestEvent();
+        event.begin();
+    }
+
+    /**
+     * Times the conversion of the request into an order, which carries the trace from then on.
+     */
+    public Order validate(Supplier<Order> validation) {
+        var validationEvent = new OrderValidationEvent();
+        validationEvent.begin();
+        var order = validation.get();
+        trace.mark(OrderTrace.Stage.VALIDATION, System.nanoTime());
+        order.setTrace(trace);
+        validationEvent.commit(order);
+        return order;
+    }
+
+    /**
+     * Times building the response to the placed order and records the order with the time of all its stages.
+     */
+    public <T> T respond(Order order, Supplier<T> response) {
+        var responseEvent = new OrderResponseEvent();
+        responseEvent.begin();
+        var result = response.get();
+        trace.mark(OrderTrace.Stage.RESPONSE, System.nanoTime());
+        responseEvent.commit(order);
+        event.commit(order, trace);
+        slowestOrders.record(order, trace);
+        // the order stays in the state, its trace does not
+        order.setTrace(null);
+        return result;
+    }
+}
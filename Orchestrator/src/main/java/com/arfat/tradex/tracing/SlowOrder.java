@@ -0,0 +1,14 @@
+package com.arfat.tradex.tracing;
+
+import java.util.Map;
+
+/**
+ * @param id          id of the order
+ * @param requestId   id of the request that placed it, the {@code uid} of its log lines
+ * @param asset       asset of the order
+ * @param totalMicros time from receiving the request to its response
+ * @param stageMicros time of every stage, in the order of the stages
+ */
+public record SlowOrder(String id, String requestId, String asset, double totalMicros,
+                        Map<String, Double> stageMicros) {
+}
@@ -0,0 +1,32 @@
+package com.arfat.tradex.tracing;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * {@code GET /actuator/sloworders?limit=10} lists the slowest orders with the time of every stage,
+ * {@code DELETE /actuator/sloworders} starts over.
+ */
+@Endpoint(id = "sloworders")
+public class SlowOrdersEndpoint {
+
+    private final SlowestOrders slowestOrders;
+
+    public SlowOrdersEndpoint(SlowestOrders slowestOrders) {
+        this.slowestOrders = slowestOrders;
+    }
+
+    @ReadOperation
+    public List<SlowOrder> slowOrders(@Nullable Integer limit) {
+        return slowestOrders.slowest(null == limit ? Integer.MAX_VALUE : Math.max(0, limit));
+    }
+
+    @DeleteOperation
+    public void reset() {
+        slowestOrders.reset();
+    }
+}
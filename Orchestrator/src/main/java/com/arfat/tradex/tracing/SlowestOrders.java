@@ -0,0 +1,88 @@
+package com.arfat.tradex.tracing;
+
+import com.arfat.tradex.order.model.IdGenerator;
+import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.order.model.OrderTrace;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * The slowest orders placed since the start or the last reset, with the time of every stage. <br>
+ * Keeps a bounded heap of the slowest ones. An order that is not slower than the fastest of a full heap is
+ * turned away by reading one volatile, so that only the rare slow orders take the lock.
+ */
+public final class SlowestOrders {
+
+    private static final OrderTrace.Stage[] STAGES = OrderTrace.Stage.values();
+
+    private final int capacity;
+    private final PriorityQueue<Entry> slowest;
+    private volatile long thresholdNanos = -1;
+
+    /**
+     * @param capacity how many of the slowest orders are kept
+     */
+    public SlowestOrders(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be greater than zero");
+        }
+        this.capacity = capacity;
+        this.slowest = new PriorityQueue<>(capacity, Comparator.comparingLong(Entry::totalNanos));
+    }
+
+    public void record(Order order, OrderTrace trace) {
+        long totalNanos = trace.totalNanos();
+        if (totalNanos <= thresholdNanos) {
+            return;
+        }
+        var entry = new Entry(totalNanos, toSlowOrder(order, trace, totalNanos));
+        synchronized (this) {
+            if (slowest.size() == capacity) {
+                if (totalNanos <= slowest.peek().totalNanos()) {
+                    return;
+                }
+                slowest.poll();
+            }
+            slowest.add(entry);
+            if (slowest.size() == capacity) {
+                thresholdNanos = slowest.peek().totalNanos();
+            }
+        }
+    }
+
+    /**
+     * @return up to {@code limit} of the slowest orders, the slowest first
+     */
+    public synchronized List<SlowOrder> slowest(int limit) {
+        var entries = new ArrayList<>(slowest);
+        entries.sort(Comparator.comparingLong(Entry::totalNanos).reversed());
+        return entries.stream().limit(limit).map(Entry::order).toList();
+    }
+
+    public synchronized void reset() {
+        slowest.clear();
+        thresholdNanos = -1;
+    }
+
+    private static SlowOrder toSlowOrder(Order order, OrderTrace trace, long totalNanos) {
+        Map<String, Double> stageMicros = new LinkedHashMap<>();
+        for (var stage : STAGES) {
+            stageMicros.put(stage.name().toLowerCase(Locale.ROOT), micros(trace.stageNanos(stage)));
+        }
+        return new SlowOrder(IdGenerator.format(order.getId()), trace.getRequestId(), order.getAsset(),
+                micros(totalNanos), stageMicros);
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1_000.0;
+    }
+
+    private record Entry(long totalNanos, SlowOrder order) {
+    }
+}
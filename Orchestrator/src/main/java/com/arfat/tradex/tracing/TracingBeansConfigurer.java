@@ -0,0 +1,24 @@
+package com.arfat.tradex.tracing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class TracingBeansConfigurer {
+
+    @Bean
+    SlowestOrders slowestOrders(@Value("${tradex.tracing.slowest-orders:100}") int capacity) {
+        return new SlowestOrders(capacity);
+    }
+
+    @Bean
+    OrderTracer orderTracer(SlowestOrders slowestOrders) {
+        return new OrderTracer(slowestOrders);
+    }
+
+    @Bean
+    SlowOrdersEndpoint slowOrdersEndpoint(SlowestOrders slowestOrders) {
+        return new SlowOrdersEndpoint(slowestOrders);
+    }
+}
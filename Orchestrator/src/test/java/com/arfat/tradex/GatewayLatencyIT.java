@@ -0,0 +1,124 @@
+package com.arfat.tradex;
+
+import com.arfat.tradex.gateway.GatewayClient;
+import com.arfat.tradex.gateway.OrderGateway;
+import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.Instruments;
+import com.arfat.tradex.order.model.OrderStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Round-trip latency of placing one order at a time, through {@code POST /orders} and through the binary
+ * {@link OrderGateway}, over loopback with a warmed up engine. Prints the percentiles of both paths.
+ * <pre>
+ * ./mvnw -pl Orchestrator test -Dtest=GatewayLatencyIT -Dtradex.latency.orders=20000
+ * </pre>
+ */
+public class GatewayLatencyIT {
+
+    private static final int ORDERS = Integer.getInteger("tradex.latency.orders", 20_000);
+    private static final int WARMUP = ORDERS / 2;
+
+    @Test
+    void shouldCompareRoundTrips() throws Exception {
+        try (var application = new SpringApplicationBuilder(TradexApplication.class)
+                .properties("server.port=0",
+                        "tradex.gateway.enabled=true",
+                        "tradex.gateway.port=0",
+                        "logging.level.com.arfat.tradex=warn")
+                .run()) {
+            int port = Integer.parseInt(application.getEnvironment().getProperty("local.server.port"));
+            var gateway = application.getBean(OrderGateway.class);
+            var btc = application.getBean(Instruments.class).get("BTC");
+
+            var rest = new long[ORDERS];
+            var binary = new long[ORDERS];
+            try (var http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+                 var client = GatewayClient.connect(gateway.localAddress())) {
+                var uri = URI.create("http://localhost:" + port + "/orders");
+                for (int i = -WARMUP; i < ORDERS; i++) {
+                    long sent = System.nanoTime();
+                    var response = http.send(HttpRequest.newBuilder(uri)
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(order(i)))
+                            .build(), HttpResponse.BodyHandlers.discarding());
+                    if (i >= 0) {
+                        rest[i] = System.nanoTime() - sent;
+                    }
+                    assertEquals(201, response.statusCode());
+                }
+                var reply = new Reply();
+                for (int i = -WARMUP; i < ORDERS; i++) {
+                    long sent = System.nanoTime();
+                    client.newOrder(i, "BTC", direction(i), btc.toTicks(price(i)), btc.toLots(1));
+                    reply.acked = null;
+                    while (null == reply.acked) {
+                        client.poll(reply);
+                    }
+                    if (i >= 0) {
+                        binary[i] = System.nanoTime() - sent;
+                    }
+                    assertEquals(0, reply.rejected);
+                }
+            }
+
+            System.out.printf("orders: %d%n", ORDERS);
+            System.out.printf("REST     p50: %6.1f us  p99: %6.1f us  p99.9: %7.1f us%n",
+                    percentile(rest, 0.50), percentile(rest, 0.99), percentile(rest, 0.999));
+            System.out.printf("gateway  p50: %6.1f us  p99: %6.1f us  p99.9: %7.1f us%n",
+                    percentile(binary, 0.50), percentile(binary, 0.99), percentile(binary, 0.999));
+        }
+    }
+
+    /**
+     * Buys and sells around one price, so that about half of the orders match.
+     */
+    private static String order(int i) {
+        return """
+                {"asset": "BTC", "price": %d, "amount": 1, "direction": "%s"}
+                """.formatted(price(i), direction(i));
+    }
+
+    private static int price(int i) {
+        return 43250 + Math.floorMod(i, 10);
+    }
+
+    private static Direction direction(int i) {
+        return i % 2 == 0 ? Direction.BUY : Direction.SELL;
+    }
+
+    /**
+     * @return latency in microseconds that the {@code quantile} of the round trips stayed under
+     */
+    private static double percentile(long[] latencies, double quantile) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e3;
+    }
+
+    private static final class Reply implements GatewayClient.Handler {
+        OrderStatus acked;
+        int rejected;
+
+        @Override
+        public void onAck(long clientOrderId, long orderId, OrderStatus status, long leavesLots) {
+            acked = status;
+        }
+
+        @Override
+        public void onReject(long clientOrderId, String reason) {
+            rejected++;
+            acked = OrderStatus.CANCELLED;
+        }
+    }
+}
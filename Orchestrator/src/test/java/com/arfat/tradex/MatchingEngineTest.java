@@ -1,22 +1,59 @@
 package com.arfat.tradex;
 
+import com.arfat.tradex.book.MarketDepth;
+import com.arfat.tradex.cluster.ClusterBeansConfigurer;
+import com.arfat.tradex.cluster.ShardRouter;
+import com.arfat.tradex.feed.Execution;
+import com.arfat.tradex.logging.ContextFilter;
+import com.arfat.tradex.order.AssetsController;
+import com.arfat.tradex.order.ExecutionStreams;
+import com.arfat.tradex.order.InstrumentBeansConfigurer;
+import com.arfat.tradex.order.OrderChanges;
 import com.arfat.tradex.order.OrderNotFoundException;
+import com.arfat.tradex.order.OrderSearchController;
 import com.arfat.tradex.order.OrderService;
 import com.arfat.tradex.order.OrdersController;
 import com.arfat.tradex.order.model.Direction;
+import com.arfat.tradex.order.model.IdGenerator;
+import com.arfat.tradex.order.model.Instrument;
 import com.arfat.tradex.order.model.Order;
+import com.arfat.tradex.order.model.OrderStatus;
+import com.arfat.tradex.order.model.TimeInForce;
+import com.arfat.tradex.persistence.OrderStatusIndex;
+import com.arfat.tradex.tracing.SlowestOrders;
+import com.arfat.tradex.tracing.TracingBeansConfigurer;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.assertj.MockMvcTester;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
-@WebMvcTest(OrdersController.class)
+@WebMvcTest({OrdersController.class, AssetsController.class, OrderSearchController.class})
+@Import({InstrumentBeansConfigurer.class, ClusterBeansConfigurer.class, TracingBeansConfigurer.class,
+        OrderChanges.class})
+@TestPropertySource(properties = {"tradex.instruments.ETH.tick-size=0.05", "tradex.persistence.order-index.enabled=true"})
 public class MatchingEngineTest {
 
     @Autowired
@@ -25,10 +62,22 @@ public class MatchingEngineTest {
     @MockitoBean
     private OrderService service;
 
+    @MockitoBean
+    private ExecutionStreams executionStreams;
+
+    @MockitoBean
+    private OrderStatusIndex statusIndex;
+
+    @Autowired
+    private SlowestOrders slowestOrders;
+
+    @Autowired
+    private OrderChanges orderChanges;
+
     @Test
     void shouldGiveErrorResponse_WhenOrderNotFound() {
-        var id = 1;
-        when(service.getOrder(any())).thenThrow(
+        var id = IdGenerator.format(1);
+        when(service.getOrder(anyLong())).thenThrow(
                 new OrderNotFoundException(String.format("Order with ID %s not found.", id))
         );
 
@@ -46,46 +95,335 @@ public class MatchingEngineTest {
                         }
                         """.formatted(id));
 
-        verify(service, times(1)).getOrder(any());
+        verify(service, times(1)).getOrder(1);
+    }
+
+    @Test
+    void shouldGiveErrorResponse_WhenIdIsMalformed() {
+        mockMvc
+                .get()
+                .uri("/orders/{id}", "123e4567-e89b-12d3-a456-426614174000")
+                .exchange()
+                .assertThat()
+                .hasStatus(HttpStatus.BAD_REQUEST)
+                .bodyJson()
+                .isEqualTo("""
+                        {
+                            "message": "Order with ID 123e4567-e89b-12d3-a456-426614174000 not found.",
+                            "status": 400
+                        }
+                        """);
+
+        verify(service, never()).getOrder(anyLong());
     }
 
     @Test
     void shouldReturnOrder_WhenOrderExists() {
-        var id = "123";
         var order = new Order("BTC", 50000, 1, Direction.BUY);
-        order.setId(id);
-        when(service.getOrder(any())).thenReturn(order);
+        order.setId(123);
+        when(service.getOrder(123)).thenReturn(order);
 
         mockMvc
                 .get()
-                .uri("/orders/{id}", id)
+                .uri("/orders/{id}", "000000000003V")
                 .exchange()
                 .assertThat()
                 .hasStatusOk()
                 .bodyJson()
                 .isLenientlyEqualTo("""
                         {
-                            "id":"%s",
+                            "id":"000000000003V",
                             "asset":"BTC",
                             "price":50000.0,
                             "amount":1.0,
                             "direction":"BUY",
                             "pendingAmount":1.0,
+                            "filledAmount":0.0,
+                            "tradeCount":0,
                             "trades":[]}
-                        """.formatted(id));
+                        """);
+
+        verify(service, times(1)).getOrder(123);
+
+    }
+
+    @Test
+    void shouldAnswerNotModified_WhileTheVersionIsUnchanged() {
+        var order = new Order("BTC", 50000, 1, Direction.BUY);
+        order.setId(123);
+        when(service.getOrder(123)).thenReturn(order);
+
+        assertThat(mockMvc.get().uri("/orders/{id}", "000000000003V").exchange())
+                .hasStatusOk()
+                .hasHeader("ETag", "\"0\"");
+        assertThat(mockMvc.get().uri("/orders/{id}", "000000000003V").header("If-None-Match", "\"0\"").exchange())
+                .hasStatus(HttpStatus.NOT_MODIFIED)
+                .body().isEmpty();
+
+        order.addTrade(1, order.getAmountLots() / 2, order.getPriceTicks());
 
-        verify(service, times(1)).getOrder(any());
+        assertThat(mockMvc.get().uri("/orders/{id}", "000000000003V").header("If-None-Match", "\"0\"").exchange())
+                .hasStatusOk()
+                .hasHeader("ETag", "\"1\"");
+    }
+
+    @Test
+    void shouldAnswerALongPoll_OnceTheOrderChanges() {
+        var order = new Order("BTC", 50000, 1, Direction.BUY);
+        order.setId(123);
+        when(service.getOrder(123)).thenReturn(order);
+        var counter = new Order("BTC", 50000, 1, Direction.SELL);
+        counter.setId(1);
+        Thread.ofVirtual().start(() -> {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+            order.addTrade(1, order.getAmountLots() / 2, order.getPriceTicks());
+            orderChanges.onExecution(counter, order, order.getPriceTicks(), order.getAmountLots() / 2);
+        });
 
+        assertThat(mockMvc.get().uri("/orders/{id}?wait=5000", "000000000003V").header("If-None-Match", "\"0\"")
+                .exchange(Duration.ofSeconds(10)))
+                .hasStatusOk()
+                .hasHeader("ETag", "\"1\"")
+                .bodyJson()
+                .isLenientlyEqualTo("""
+                        {"status":"PARTIALLY_FILLED","tradeCount":1}
+                        """);
+    }
+
+    @Test
+    void shouldAnswerALongPoll_OnceTheOrderIsCancelled() {
+        var order = new Order("BTC", 50000, 1, Direction.BUY);
+        order.setId(125);
+        when(service.getOrder(125)).thenReturn(order);
+        Thread.ofVirtual().start(() -> {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+            order.cancel();
+            orderChanges.onCancel(order);
+        });
+
+        long start = System.nanoTime();
+        assertThat(mockMvc.get().uri("/orders/{id}?wait=5000", IdGenerator.format(125))
+                .exchange(Duration.ofSeconds(10)))
+                .hasStatusOk()
+                .hasHeader("ETag", "\"1\"")
+                .bodyJson()
+                .isLenientlyEqualTo("""
+                        {"status":"CANCELLED"}
+                        """);
+        // woken by the cancel, long before the wait expired
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(4));
+    }
+
+    @Test
+    void shouldAnswerNotModified_WhenALongPollTimesOut() {
+        var order = new Order("BTC", 50000, 1, Direction.BUY);
+        order.setId(123);
+        when(service.getOrder(123)).thenReturn(order);
+
+        assertThat(mockMvc.get().uri("/orders/{id}?wait=20", "000000000003V").header("If-None-Match", "\"0\"")
+                .exchange(Duration.ofSeconds(10)))
+                .hasStatus(HttpStatus.NOT_MODIFIED);
+    }
+
+    @Test
+    void shouldSummarizeFills_AndPageTheTrades() {
+        var order = new Order("BTC", 50000, 1, Direction.BUY);
+        order.setId(123);
+        var instrument = order.getInstrument();
+        order.addTrade(1, instrument.toLots(0.5), instrument.toTicks(49000.0));
+        order.addTrade(2, instrument.toLots(0.25), instrument.toTicks(50000.0));
+        order.addTrade(3, instrument.toLots(0.25), instrument.toTicks(50000.0));
+        when(service.getOrder(123)).thenReturn(order);
+
+        mockMvc
+                .get()
+                .uri("/orders/{id}", "000000000003V")
+                .exchange()
+                .assertThat()
+                .hasStatusOk()
+                .bodyJson()
+                .isLenientlyEqualTo("""
+                        {
+                            "status":"FILLED",
+                            "pendingAmount":0.0,
+                            "filledAmount":1.0,
+                            "averagePrice":49500.0,
+                            "tradeCount":3
+                        }
+                        """);
+
+        mockMvc
+                .get()
+                .uri("/orders/{id}/trades?after=1&limit=1", "000000000003V")
+                .exchange()
+                .assertThat()
+                .hasStatusOk()
+                .bodyJson()
+                .isStrictlyEqualTo("""
+                        {
+                            "trades":[{"orderId":"0000000000002","amount":0.25,"price":50000.0}],
+                            "next":2
+                        }
+                        """);
+
+        mockMvc
+                .get()
+                .uri("/orders/{id}/trades?after=2", "000000000003V")
+                .exchange()
+                .assertThat()
+                .hasStatusOk()
+                .bodyJson()
+                .isStrictlyEqualTo("""
+                        {
+                            "trades":[{"orderId":"0000000000003","amount":0.25,"price":50000.0}]
+                        }
+                        """);
+    }
+
+    @Test
+    void shouldRejectTradesPage_WhenLimitIsOutOfRange() {
+        mockMvc
+                .get()
+                .uri("/orders/{id}/trades?limit=0", "000000000003V")
+                .exchange()
+                .assertThat()
+                .hasStatus(HttpStatus.BAD_REQUEST);
+
+        verify(service, never()).getOrder(anyLong());
+    }
+
+    @Test
+    void shouldFindOrders_PageByPage() {
+        var first = new Order("BTC", 50000, 1, Direction.BUY);
+        first.setId(1);
+        var second = new Order("BTC", 50100, 2, Direction.BUY);
+        second.setId(2);
+        when(statusIndex.findOrders("BTC", Direction.BUY, Set.of(OrderStatus.NEW, OrderStatus.PARTIALLY_FILLED), 0, 2))
+                .thenReturn(List.of(first, second));
+        when(statusIndex.findOrders("BTC", null, Set.of(), 2, 2)).thenReturn(List.of());
+
+        mockMvc
+                .get()
+                .uri("/orders?asset=BTC&direction=BUY&status=NEW,PARTIALLY_FILLED&limit=2")
+                .exchange()
+                .assertThat()
+                .hasStatusOk()
+                .bodyJson()
+                .isLenientlyEqualTo("""
+                        {
+                            "orders":[{"id":"0000000000001","price":50000.0,"status":"NEW"},
+                                      {"id":"0000000000002","price":50100.0,"status":"NEW"}],
+                            "next":"0000000000002"
+                        }
+                        """);
+
+        mockMvc
+                .get()
+                .uri("/orders?asset=BTC&after=0000000000002&limit=2")
+                .exchange()
+                .assertThat()
+                .hasStatusOk()
+                .bodyJson()
+                .isStrictlyEqualTo("""
+                        {"orders":[]}
+                        """);
+    }
+
+    @Test
+    void shouldRejectFindOrders_WhenAfterIsNoIdOrLimitIsOutOfRange() {
+        assertThat(mockMvc.get().uri("/orders?asset=BTC&after=42").exchange())
+                .hasStatus(HttpStatus.BAD_REQUEST);
+        assertThat(mockMvc.get().uri("/orders?asset=BTC&limit=1001").exchange())
+                .hasStatus(HttpStatus.BAD_REQUEST);
+        assertThat(mockMvc.get().uri("/orders?asset=BTC&status=OPEN").exchange())
+                .hasStatus(HttpStatus.BAD_REQUEST);
+
+        verify(statusIndex, never()).findOrders(any(), any(), any(), anyLong(), anyInt());
+    }
+
+    @Test
+    void shouldRejectFindOrders_WhenTheStatusIsArchived() {
+        when(statusIndex.findOrders("BTC", null, Set.of(OrderStatus.FILLED), 0, 100)).thenThrow(
+                new IllegalArgumentException("Filled and cancelled orders are archived and can not be listed, "
+                                             + "status must be NEW or PARTIALLY_FILLED, get them by id instead"));
+
+        assertThat(mockMvc.get().uri("/orders?asset=BTC&status=FILLED").exchange())
+                .hasStatus(HttpStatus.BAD_REQUEST)
+                .bodyJson()
+                .isLenientlyEqualTo("""
+                        {"message":"Filled and cancelled orders are archived and can not be listed, status must be NEW or PARTIALLY_FILLED, get them by id instead"}
+                        """);
+    }
+
+    @Test
+    void shouldServeTheCachedResponse_OnceTheOrderCanNoLongerChange() throws Exception {
+        var order = new Order("BTC", 50000, 1, Direction.BUY);
+        order.setId(124);
+        order.cancel();
+        when(service.getOrder(124)).thenReturn(order);
+        var first = mockMvc.get().uri("/orders/{id}", IdGenerator.format(124)).exchange();
+        assertThat(first).hasStatusOk();
+
+        // a cancelled order never trades, this one does to tell the cached response apart
+        order.addTrade(1, order.getAmountLots(), order.getPriceTicks());
+
+        assertThat(mockMvc.get().uri("/orders/{id}", IdGenerator.format(124)).exchange())
+                .hasStatusOk()
+                .bodyText()
+                .isEqualTo(first.getResponse().getContentAsString());
+    }
+
+    @Test
+    void shouldCancelOrder() {
+        var order = new Order("BTC", 50000, 1, Direction.SELL);
+        order.setId(123);
+        order.cancel();
+        when(service.cancelOrder(123)).thenReturn(order);
+
+        mockMvc
+                .delete()
+                .uri("/orders/{id}", "000000000003V")
+                .exchange()
+                .assertThat()
+                .hasStatusOk()
+                .bodyJson()
+                .isLenientlyEqualTo("""
+                        {
+                            "id":"000000000003V",
+                            "status":"CANCELLED",
+                            "pendingAmount":1.0
+                        }
+                        """);
+    }
+
+    @Test
+    void shouldRejectCancel_WhenOrderIsNotResting() {
+        when(service.cancelOrder(123)).thenThrow(
+                new IllegalArgumentException("Order with ID 000000000003V is FILLED and can not be cancelled."));
+
+        mockMvc
+                .delete()
+                .uri("/orders/{id}", "000000000003V")
+                .exchange()
+                .assertThat()
+                .hasStatus(HttpStatus.BAD_REQUEST)
+                .bodyJson()
+                .isEqualTo("""
+                        {
+                            "message": "Order with ID 000000000003V is FILLED and can not be cancelled.",
+                            "status": 400
+                        }
+                        """);
     }
 
     @Test
     void shouldSubmitOrder() {
 
         Order order = new Order("BTC", 43250.00, 0.25, Direction.BUY);
-        order.setId("1234567");
+        order.setId(1234567);
 
-        when(service.placeOrder(any()))
-                .thenReturn(order);
+        when(service.placeOrderAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(order));
         mockMvc
                 .post()
                 .uri("/orders")
@@ -102,8 +440,366 @@ public class MatchingEngineTest {
                 .assertThat()
                 .hasStatus(HttpStatus.CREATED);
 
-        verify(service, times(1)).placeOrder(any());
+        verify(service, times(1)).placeOrderAsync(any());
+
+    }
+
+    @Test
+    void shouldPassTheTimeInForce_ToTheEngine() {
+        when(service.placeOrderAsync(any())).thenAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            order.setId(1);
+            return CompletableFuture.completedFuture(order);
+        });
+
+        mockMvc
+                .post()
+                .uri("/orders")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content("""
+                            {"asset": "BTC", "price": 43250.00, "amount": 0.25, "direction": "BUY", "timeInForce": "FOK"}
+                        """)
+                .exchange()
+                .assertThat()
+                .hasStatus(HttpStatus.CREATED);
+        mockMvc
+                .post()
+                .uri("/orders")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content("""
+                            {"asset": "BTC", "price": 43250.00, "amount": 0.25, "direction": "BUY"}
+                        """)
+                .exchange()
+                .assertThat()
+                .hasStatus(HttpStatus.CREATED);
+
+        var orders = ArgumentCaptor.forClass(Order.class);
+        verify(service, times(2)).placeOrderAsync(orders.capture());
+        assertThat(orders.getAllValues()).extracting(Order::getTimeInForce)
+                .containsExactly(TimeInForce.FOK, TimeInForce.GTC);
+    }
+
+    @Test
+    void shouldTraceTheStages_OfASubmittedOrder() {
+        slowestOrders.reset();
+        Order order = new Order("BTC", 43250.00, 0.25, Direction.BUY);
+        order.setId(1234567);
+        when(service.placeOrderAsync(any())).thenAnswer(invocation -> {
+            assertThat(invocation.getArgument(0, Order.class).getTrace()).isNotNull();
+            return CompletableFuture.completedFuture(order);
+        });
+
+        mockMvc
+                .post()
+                .uri("/orders")
+                .header(ShardRouter.FORWARDED_BY, "1")
+                .header(ContextFilter.REQUEST_ID, IdGenerator.format(42))
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content("""
+                            {
+                                "asset": "BTC",
+                                "price": 43250.00,
+                                "amount": 0.25,
+                                "direction": "BUY"
+                            }
+                        """)
+                .exchange()
+                .assertThat()
+                .hasStatus(HttpStatus.CREATED);
+
+        var traced = slowestOrders.slowest(10);
+        assertThat(traced).hasSize(1);
+        assertThat(traced.getFirst().id()).isEqualTo(IdGenerator.format(1234567));
+        assertThat(traced.getFirst().requestId()).isEqualTo(IdGenerator.format(42));
+        assertThat(traced.getFirst().stageMicros())
+                .containsOnlyKeys("parse", "validation", "queue", "persist", "match", "response");
+        assertThat(traced.getFirst().stageMicros().values().stream().mapToDouble(Double::doubleValue).sum())
+                .isCloseTo(traced.getFirst().totalMicros(), within(0.01));
+    }
+
+    @Test
+    void shouldGiveTheRequestANewId_UnlessANodeForwardedItWithOne() {
+        slowestOrders.reset();
+        Order order = new Order("BTC", 43250.00, 0.25, Direction.BUY);
+        order.setId(1234567);
+        when(service.placeOrderAsync(any())).thenReturn(CompletableFuture.completedFuture(order));
+        var body = """
+                    {
+                        "asset": "BTC",
+                        "price": 43250.00,
+                        "amount": 0.25,
+                        "direction": "BUY"
+                    }
+                """;
+
+        // from a client, and forwarded with something that is no request id
+        assertThat(mockMvc.post().uri("/orders").header(ContextFilter.REQUEST_ID, IdGenerator.format(42))
+                .contentType(MediaType.APPLICATION_JSON_VALUE).content(body).exchange())
+                .hasStatus(HttpStatus.CREATED);
+        assertThat(mockMvc.post().uri("/orders").header(ShardRouter.FORWARDED_BY, "1")
+                .header(ContextFilter.REQUEST_ID, "request-1\nforged log line")
+                .contentType(MediaType.APPLICATION_JSON_VALUE).content(body).exchange())
+                .hasStatus(HttpStatus.CREATED);
+
+        assertThat(slowestOrders.slowest(10)).hasSize(2).allSatisfy(traced -> {
+            assertThat(traced.requestId()).isNotIn(IdGenerator.format(42), "request-1\nforged log line");
+            assertThat(IdGenerator.parse(traced.requestId())).isPositive();
+        });
+    }
+
+    @Test
+    void shouldGiveErrorResponse_WhenEngineRejectsOrderAsynchronously() {
+        when(service.placeOrderAsync(any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalArgumentException("Order rejected")));
+
+        mockMvc
+                .post()
+                .uri("/orders")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content("""
+                            {
+                                "asset": "BTC",
+                                "price": 43250.00,
+                                "amount": 0.25,
+                                "direction": "BUY"
+                            }
+                        """)
+                .exchange()
+                .assertThat()
+                .hasStatus(HttpStatus.BAD_REQUEST)
+                .bodyJson()
+                .isEqualTo("""
+                        {
+                            "message": "Order rejected",
+                            "status": 400
+                        }
+                        """);
+    }
+
+    @Test
+    void shouldRejectOrder_WhenPriceIsNotOnTheTickGrid() {
+        mockMvc
+                .post()
+                .uri("/orders")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content("""
+                            {
+                                "asset": "ETH",
+                                "price": 2500.01,
+                                "amount": 0.25,
+                                "direction": "BUY"
+                            }
+                        """)
+                .exchange()
+                .assertThat()
+                .hasStatus(HttpStatus.BAD_REQUEST)
+                .bodyJson()
+                .isEqualTo("""
+                        {
+                            "message": "Order price must be a multiple of tick size 0.05",
+                            "status": 400
+                        }
+                        """);
+
+        verify(service, never()).placeOrderAsync(any());
+    }
+
+    @Test
+    void shouldPlaceBatch_AndRejectInvalidItemsIndividually() {
+        when(service.placeOrders(any())).thenAnswer(invocation -> {
+            List<Order> orders = invocation.getArgument(0);
+            for (int i = 0; i < orders.size(); i++) {
+                orders.get(i).setId(i + 1);
+            }
+            return orders.stream().map(CompletableFuture::completedFuture).toList();
+        });
+
+        mockMvc
+                .post()
+                .uri("/orders/batch")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content("""
+                            [
+                                {"asset": "ETH", "price": 2500.05, "amount": 1, "direction": "SELL"},
+                                {"asset": "ETH", "price": 2500.01, "amount": 1, "direction": "SELL"},
+                                {"asset": "ETH", "price": 2500.10, "amount": 2, "direction": "SELL"},
+                                {"asset": "ETH", "price": 2500.10, "amount": 2}
+                            ]
+                        """)
+                .exchange()
+                .assertThat()
+                .hasStatusOk()
+                .bodyJson()
+                .isEqualTo("""
+                        [
+                            {"id": "0000000000001", "status": "NEW", "pendingAmount": 1.0, "trades": []},
+                            {"error": "Order price must be a multiple of tick size 0.05"},
+                            {"id": "0000000000002", "status": "NEW", "pendingAmount": 2.0, "trades": []},
+                            {"error": "direction must not be null"}
+                        ]
+                        """);
+
+        verify(service, times(1)).placeOrders(argThat(orders -> orders.size() == 2));
+        verify(service, never()).placeOrderAsync(any());
+    }
+
+    @Test
+    void shouldRejectTheItemsOfABatch_ThatTheEngineFailedToPlace() {
+        when(service.placeOrders(any())).thenAnswer(invocation -> {
+            List<Order> orders = invocation.getArgument(0);
+            orders.getFirst().setId(1);
+            return List.of(CompletableFuture.completedFuture(orders.getFirst()),
+                    CompletableFuture.failedFuture(new RejectedExecutionException("Engine is busy, try again later")),
+                    CompletableFuture.failedFuture(new IllegalStateException("Storage unavailable")));
+        });
+
+        mockMvc
+                .post()
+                .uri("/orders/batch")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content("""
+                            [
+                                {"asset": "ETH", "price": 2500.05, "amount": 1, "direction": "SELL"},
+                                {"asset": "ETH", "price": 2500.10, "amount": 1, "direction": "SELL"},
+                                {"asset": "ETH", "price": 2500.15, "amount": 1, "direction": "SELL"}
+                            ]
+                        """)
+                .exchange()
+                .assertThat()
+                .hasStatusOk()
+                .bodyJson()
+                .isEqualTo("""
+                        [
+                            {"id": "0000000000001", "status": "NEW", "pendingAmount": 1.0, "trades": []},
+                            {"error": "Engine is busy, try again later"},
+                            {"error": "Order could not be placed"}
+                        ]
+                        """);
+    }
+
+    @Test
+    void shouldReturnBestLevelsOfTheDepth() {
+        // ETH trades in ticks of 0.05
+        var depth = new MarketDepth();
+        depth.add(Direction.BUY, 50_000, 100_000_000);
+        depth.add(Direction.BUY, 49_999, 50_000_000);
+        depth.add(Direction.BUY, 50_000, 25_000_000);
+        depth.add(Direction.SELL, 50_002, 100_000_000);
+        when(service.getMarketDepth("ETH")).thenReturn(depth);
+
+        mockMvc
+                .get()
+                .uri("/assets/{asset}/depth?levels=1", "ETH")
+                .exchange()
+                .assertThat()
+                .hasStatusOk()
+                .bodyJson()
+                .isEqualTo("""
+                        {
+                            "asset": "ETH",
+                            "bids": [{"price": 2500.0, "amount": 1.25, "orders": 2}],
+                            "asks": [{"price": 2500.1, "amount": 1.0, "orders": 1}]
+                        }
+                        """);
+    }
+
+    @Test
+    void shouldReturnNoLevels_ForAnAssetThatWasNeverTraded() {
+        mockMvc
+                .get()
+                .uri("/assets/{asset}/depth", "XYZ")
+                .exchange()
+                .assertThat()
+                .hasStatusOk()
+                .bodyJson()
+                .isEqualTo("""
+                        {"asset": "XYZ", "bids": [], "asks": []}
+                        """);
+    }
+
+    @Test
+    void shouldRejectDepth_WhenLevelsIsNotPositive() {
+        mockMvc
+                .get()
+                .uri("/assets/{asset}/depth?levels=0", "ETH")
+                .exchange()
+                .assertThat()
+                .hasStatus(HttpStatus.BAD_REQUEST);
+
+        verify(service, never()).getMarketDepth(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldStreamExecutionsOfTheAsset() {
+        when(executionStreams.open(any())).thenReturn(completedStream());
+
+        mockMvc
+                .get()
+                .uri("/assets/{asset}/executions", "ETH")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .assertThat()
+                .hasStatusOk();
+
+        ArgumentCaptor<Predicate<Execution>> filter = ArgumentCaptor.forClass(Predicate.class);
+        verify(executionStreams).open(filter.capture());
+        assertThat(filter.getValue().test(execution("ETH", 1, 2))).isTrue();
+        assertThat(filter.getValue().test(execution("BTC", 1, 2))).isFalse();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldStreamExecutionsOfTheOrder() {
+        var order = new Order("ETH", 2500, 1, Direction.BUY);
+        order.setId(1);
+        when(service.getOrder(1)).thenReturn(order);
+        when(executionStreams.open(any())).thenReturn(completedStream());
+
+        mockMvc
+                .get()
+                .uri("/orders/{id}/executions", IdGenerator.format(1))
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .assertThat()
+                .hasStatusOk();
+
+        ArgumentCaptor<Predicate<Execution>> filter = ArgumentCaptor.forClass(Predicate.class);
+        verify(executionStreams).open(filter.capture());
+        assertThat(filter.getValue().test(execution("ETH", 2, 1))).isTrue();
+        assertThat(filter.getValue().test(execution("ETH", 2, 3))).isFalse();
+    }
+
+    private static SseEmitter completedStream() {
+        var emitter = new SseEmitter();
+        emitter.complete();
+        return emitter;
+    }
+
+    private static Execution execution(String asset, long incomingOrderId, long counterOrderId) {
+        return new Execution(0, Instrument.of(asset), incomingOrderId, counterOrderId, Direction.BUY, 1, 1,
+                Instant.now());
+    }
+
+    @Test
+    void shouldRejectEmptyBatch() {
+        mockMvc
+                .post()
+                .uri("/orders/batch")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content("[]")
+                .exchange()
+                .assertThat()
+                .hasStatus(HttpStatus.BAD_REQUEST)
+                .bodyJson()
+                .isEqualTo("""
+                        {
+                            "message": "Batch must contain between 1 and 1000 orders",
+                            "status": 400
+                        }
+                        """);
 
+        verify(service, never()).placeOrders(any());
     }
 
 }
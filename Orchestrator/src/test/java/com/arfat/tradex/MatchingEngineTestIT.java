@@ -3,6 +3,7 @@ package com.arfat.tradex;
 import com.arfat.tradex.model.OrderResponseContract;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
@@ -17,8 +18,9 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "tradex.gateway.port=0")
 @AutoConfigureMockMvc
+@AutoConfigureObservability
 public class MatchingEngineTestIT {
 
     @LocalServerPort
@@ -120,6 +122,23 @@ public class MatchingEngineTestIT {
 
     }
 
+    @Test
+    void shouldExportOrderMetrics() {
+        placeOrder(43251.00, 1.0, OrderResponseContract.Direction.SELL);
+        placeOrder(43252.00, 1.0, OrderResponseContract.Direction.BUY);
+
+        var scrape = restClient
+                .get()
+                .uri("/actuator/prometheus")
+                .retrieve()
+                .body(String.class);
+
+        assertTrue(scrape.contains("tradex_order_place_seconds_count{asset=\"BTC\",phase=\"match\"}"), scrape);
+        assertTrue(scrape.contains("tradex_order_levels_crossed_count{asset=\"BTC\"}"), scrape);
+        assertTrue(scrape.contains("tradex_book_orders{asset=\"BTC\",side=\"SELL\"}"), scrape);
+        assertTrue(scrape.contains("tradex_state_orders"), scrape);
+    }
+
     private ResponseEntity<Void> placeOrder(double price, double amount, OrderResponseContract.Direction direction) {
         return restClient
                 .post()
@@ -0,0 +1,127 @@
+package com.arfat.tradex;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Load test of {@code POST /orders} with {@code tradex.load.clients} (10 000 by default) concurrent clients,
+ * each on its own connection, against Tomcat on platform threads and on virtual threads.
+ * Prints the peak number of requests in flight, the throughput and the latency percentiles of both modes.
+ * Clients and server share the process, so the open file limit must exceed twice the number of clients.
+ * <pre>
+ * ./mvnw -pl Orchestrator test -Dtest=PlaceOrderLoadIT -Dtradex.load.clients=10000
+ * </pre>
+ */
+public class PlaceOrderLoadIT {
+
+    private static final int CLIENTS = Integer.getInteger("tradex.load.clients", 10_000);
+
+    @ParameterizedTest(name = "virtual threads: {0}")
+    @ValueSource(booleans = {false, true})
+    void shouldServeEveryClient(boolean virtualThreads) throws Exception {
+        try (var application = new SpringApplicationBuilder(TradexApplication.class)
+                .properties("server.port=0",
+                        "tradex.gateway.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "server.tomcat.max-connections=" + (CLIENTS + 1024),
+                        "server.tomcat.accept-count=" + CLIENTS,
+                        "logging.level.com.arfat.tradex=warn")
+                .run()) {
+            int port = Integer.parseInt(application.getEnvironment().getProperty("local.server.port"));
+            var result = load(URI.create("http://localhost:" + port + "/orders"));
+
+            System.out.printf("virtual threads: %-5s clients: %d  failed: %d  peak in flight: %d  orders/s: %.0f  "
+                              + "p50: %.1f ms  p99: %.1f ms  max: %.1f ms%n",
+                    virtualThreads, CLIENTS, result.failed, result.peakInFlight, result.throughput(),
+                    result.percentile(0.50), result.percentile(0.99), result.percentile(1.0));
+            assertEquals(0, result.failed);
+        }
+    }
+
+    private static Result load(URI uri) throws InterruptedException {
+        var http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMinutes(1))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        var start = new CountDownLatch(1);
+        var done = new CountDownLatch(CLIENTS);
+        var inFlight = new AtomicInteger();
+        var peakInFlight = new AtomicInteger();
+        var failed = new AtomicInteger();
+        long[] latencies = new long[CLIENTS];
+
+        try (var clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CLIENTS; i++) {
+                int client = i;
+                clients.submit(() -> {
+                    var request = HttpRequest.newBuilder(uri)
+                            .timeout(Duration.ofMinutes(1))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(order(client)))
+                            .build();
+                    try {
+                        start.await();
+                        long sent = System.nanoTime();
+                        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                        var response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                        inFlight.decrementAndGet();
+                        latencies[client] = System.nanoTime() - sent;
+                        if (201 != response.statusCode()) {
+                            failed.incrementAndGet();
+                        }
+                    } catch (Exception ex) {
+                        failed.incrementAndGet();
+                        latencies[client] = Long.MAX_VALUE;
+                    } finally {
+                        done.countDown();
+                    }
+                    return null;
+                });
+            }
+            long started = System.nanoTime();
+            start.countDown();
+            done.await();
+            return new Result(latencies, System.nanoTime() - started, peakInFlight.get(), failed.get());
+        }
+    }
+
+    /**
+     * Buys and sells around one price, so that about half of the orders match.
+     */
+    private static String order(int client) {
+        return """
+                {"asset": "BTC", "price": %d, "amount": 1, "direction": "%s"}
+                """.formatted(43250 + client % 10, client % 2 == 0 ? "BUY" : "SELL");
+    }
+
+    private record Result(long[] latencies, long elapsedNanos, int peakInFlight, int failed) {
+
+        double throughput() {
+            return latencies.length * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * @return latency in milliseconds that the {@code quantile} of the requests stayed under
+         */
+        double percentile(double quantile) {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(index, 0)] / 1e6;
+        }
+    }
+}
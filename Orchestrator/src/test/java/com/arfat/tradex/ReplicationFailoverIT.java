@@ -0,0 +1,127 @@
+package com.arfat.tradex;
+
+import com.arfat.tradex.order.model.IdGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A primary and its hot standby in this JVM, the primary is stopped and the standby takes over its books:
+ * <pre>
+ * ./mvnw -pl Orchestrator test -Dtest=ReplicationFailoverIT
+ * </pre>
+ */
+public class ReplicationFailoverIT {
+
+    private static final String ASSET = "APL";
+
+    private ConfigurableApplicationContext primary;
+    private ConfigurableApplicationContext standby;
+    private RestClient primaryClient;
+    private RestClient standbyClient;
+
+    @BeforeEach
+    void startNodes() throws IOException {
+        int primaryPort = freePort();
+        int standbyPort = freePort();
+        int replicationPort = freePort();
+        primary = start("--server.port=" + primaryPort,
+                "--tradex.replication.role=primary",
+                "--tradex.replication.port=" + replicationPort);
+        standby = start("--server.port=" + standbyPort,
+                "--tradex.replication.role=standby",
+                "--tradex.replication.primary=localhost:" + replicationPort);
+        primaryClient = RestClient.create("http://localhost:" + primaryPort);
+        standbyClient = RestClient.create("http://localhost:" + standbyPort);
+    }
+
+    @AfterEach
+    void stopNodes() {
+        if (null != primary) {
+            primary.close();
+        }
+        standby.close();
+    }
+
+    @Test
+    void shouldTakeOverTheBooks_WhenThePrimaryStops() throws InterruptedException {
+        String lastId = null;
+        for (int i = 0; i < 200; i++) {
+            lastId = placeOrder(primaryClient, 100 + i % 10, 0 == i % 2 ? "BUY" : "SELL");
+        }
+        var lastOrder = getOrder(primaryClient, lastId);
+        awaitDepth(depth(primaryClient));
+        var rejected = assertThrows(RestClientException.class,
+                () -> placeOrder(standbyClient, 100, "BUY"));
+        assertTrue(rejected.getMessage().contains("503"), rejected.getMessage());
+
+        long stopped = System.nanoTime();
+        primary.close();
+        primary = null;
+        String id = null;
+        while (null == id) {
+            try {
+                id = placeOrder(standbyClient, 50, "BUY");
+            } catch (RestClientException ex) {
+                assertTrue(System.nanoTime() - stopped < TimeUnit.SECONDS.toNanos(10), "Standby did not take over");
+                Thread.sleep(5);
+            }
+        }
+        System.out.printf("Standby accepted orders %d ms after the primary stopped%n",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - stopped));
+
+        assertTrue(IdGenerator.parse(id) > IdGenerator.parse(lastId));
+        assertEquals(lastOrder, getOrder(standbyClient, lastId));
+    }
+
+    private void awaitDepth(Map<?, ?> expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!expected.equals(depth(standbyClient))) {
+            assertTrue(System.nanoTime() < deadline, "Standby did not catch up");
+            Thread.sleep(5);
+        }
+    }
+
+    private static Map<?, ?> depth(RestClient client) {
+        return client.get().uri("/assets/{asset}/depth", ASSET).retrieve().body(Map.class);
+    }
+
+    private static Map<?, ?> getOrder(RestClient client, String id) {
+        return client.get().uri("/orders/{id}", id).retrieve().body(Map.class);
+    }
+
+    private static String placeOrder(RestClient client, int price, String direction) {
+        var response = client.post().uri("/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("asset", ASSET, "price", price, "amount", 1, "direction", direction))
+                .retrieve()
+                .toBodilessEntity();
+        return response.getHeaders().getLocation().toString();
+    }
+
+    private static ConfigurableApplicationContext start(String... arguments) {
+        var common = List.of("--tradex.gateway.enabled=false", "--logging.level.com.arfat.tradex=warn");
+        return new SpringApplicationBuilder(TradexApplication.class)
+                .run(Stream.concat(common.stream(), Stream.of(arguments)).toArray(String[]::new));
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.arfat.tradex;
+
+import com.arfat.tradex.cluster.ShardRing;
+import com.arfat.tradex.order.model.IdGenerator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Three nodes sharing the assets, every request enters through a node that does not own what it asks for.
+ * The nodes run in this JVM, each with its own engine, the same way separate JVMs would run them:
+ * <pre>
+ * ./mvnw -pl Orchestrator test -Dtest=ShardingIT
+ * </pre>
+ */
+public class ShardingIT {
+
+    private static final int NODES = 3;
+    private static final ShardRing RING = new ShardRing(List.of(0, 1, 2));
+
+    private static final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    private static final List<RestClient> clients = new ArrayList<>();
+    private static final List<Integer> ports = new ArrayList<>();
+
+    @BeforeAll
+    static void startNodes() throws IOException {
+        for (int i = 0; i < NODES; i++) {
+            try (var socket = new ServerSocket(0)) {
+                ports.add(socket.getLocalPort());
+            }
+        }
+        var cluster = IntStream.range(0, NODES)
+                .mapToObj(node -> "--tradex.cluster.nodes." + node + "=http://localhost:" + ports.get(node))
+                .toList();
+        for (int node = 0; node < NODES; node++) {
+            // arguments, like separate JVMs would get them, override application.yaml
+            var arguments = new ArrayList<>(cluster);
+            arguments.addAll(List.of("--server.port=" + ports.get(node),
+                    "--tradex.node-id=" + node,
+                    "--tradex.gateway.enabled=false",
+                    "--logging.level.com.arfat.tradex=warn"));
+            nodes.add(new SpringApplicationBuilder(TradexApplication.class)
+                    .run(arguments.toArray(String[]::new)));
+            clients.add(RestClient.create("http://localhost:" + ports.get(node)));
+        }
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void shouldMatchOrdersOfOneAsset_WhateverNodeTheyEnterThrough() {
+        var asset = assetOf("MATCH", 2);
+
+        var sellId = placeOrder(0, asset, 100, "SELL");
+        var buyId = placeOrder(1, asset, 100, "BUY");
+
+        assertEquals(2, IdGenerator.nodeId(IdGenerator.parse(sellId)));
+        assertEquals(2, IdGenerator.nodeId(IdGenerator.parse(buyId)));
+        var sell = getOrder(0, sellId);
+        assertEquals(asset, sell.get("asset"));
+        assertEquals("FILLED", sell.get("status"));
+        assertEquals(1, ((List<?>) getOrder(1, buyId).get("trades")).size());
+    }
+
+    @Test
+    void shouldServeDepthAndCancels_OfTheOwningNode() {
+        var asset = assetOf("DEPTH", 1);
+        var id = placeOrder(2, asset, 50, "BUY");
+
+        var depth = clients.get(0).get().uri("/assets/{asset}/depth", asset).retrieve().body(Map.class);
+        assertEquals(1, ((List<?>) depth.get("bids")).size());
+
+        var cancelled = clients.get(2).delete().uri("/orders/{id}", id).retrieve().body(Map.class);
+        assertEquals("CANCELLED", cancelled.get("status"));
+        depth = clients.get(0).get().uri("/assets/{asset}/depth", asset).retrieve().body(Map.class);
+        assertTrue(((List<?>) depth.get("bids")).isEmpty());
+    }
+
+    @Test
+    void shouldSplitBatches_ByOwner() {
+        var batch = IntStream.range(0, NODES)
+                .mapToObj(node -> Map.of("asset", assetOf("BATCH", node), "price", 10, "amount", 1, "direction", "BUY"))
+                .toList();
+
+        List<?> results = clients.get(0).post().uri("/orders/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(batch)
+                .retrieve()
+                .body(List.class);
+
+        assertEquals(NODES, results.size());
+        for (int node = 0; node < NODES; node++) {
+            var id = (String) ((Map<?, ?>) results.get(node)).get("id");
+            assertEquals(node, IdGenerator.nodeId(IdGenerator.parse(id)));
+        }
+    }
+
+    @Test
+    void shouldRedirectStreams_ToTheOwningNode() throws Exception {
+        var asset = assetOf("STREAM", 1);
+        try (var http = HttpClient.newHttpClient()) {
+            var response = http.send(HttpRequest.newBuilder(
+                            URI.create("http://localhost:" + ports.get(0) + "/assets/" + asset + "/executions")).build(),
+                    HttpResponse.BodyHandlers.discarding());
+
+            assertEquals(307, response.statusCode());
+            assertEquals("http://localhost:" + ports.get(1) + "/assets/" + asset + "/executions",
+                    response.headers().firstValue("Location").orElseThrow());
+        }
+    }
+
+    /**
+     * @return an asset that the node owns, tests use their own prefix so that they do not share books
+     */
+    private static String assetOf(String prefix, int node) {
+        return IntStream.range(0, 1000)
+                .mapToObj(i -> prefix + i)
+                .filter(asset -> RING.owner(asset) == node)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static String placeOrder(int node, String asset, int price, String direction) {
+        var response = clients.get(node).post().uri("/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("asset", asset, "price", price, "amount", 1, "direction", direction))
+                .retrieve()
+                .toBodilessEntity();
+        assertEquals(201, response.getStatusCode().value());
+        return response.getHeaders().getLocation().toString();
+    }
+
+    private static Map<?, ?> getOrder(int node, String id) {
+        return clients.get(node).get().uri("/orders/{id}", id).retrieve().body(Map.class);
+    }
+}
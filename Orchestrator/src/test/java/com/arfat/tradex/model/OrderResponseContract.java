@@ -1,6 +1,5 @@
 package com.arfat.tradex.model;
 
-import com.arfat.tradex.order.model.Trade;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -29,6 +28,15 @@ public class OrderResponseContract {
     public enum Direction {
         SELL, BUY
     }
+
+    @Getter
+    @Setter
+    @ToString
+    public static class Trade {
+        private String orderId;
+        private double amount;
+        private double price;
+    }
 }
 
 